@@ -0,0 +1,69 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink;
+
+import com.google.crypto.tink.aead.AeadConfig;
+import com.google.crypto.tink.aead.PredefinedAeadParameters;
+import com.google.crypto.tink.proto.KeyData;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks primitive creation through the global registry, which looks up the key manager in
+ * {@link com.google.crypto.tink.internal.KeyManagerRegistry} on every call. This is what, for
+ * example, {@link com.google.crypto.tink.aead.KmsEnvelopeAead} does for each message.
+ *
+ * <p>The interesting number is how throughput scales with the number of threads. To measure under
+ * heavy contention, run with {@code RegistryBenchmark -t 64}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryBenchmark {
+  private KeysetHandle handle;
+  private KeyData keyData;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    AeadConfig.register();
+    handle = KeysetHandle.generateNew(PredefinedAeadParameters.AES128_GCM);
+    keyData = CleartextKeysetHandle.getKeyset(handle).getKey(0).getKeyData();
+  }
+
+  @Benchmark
+  public Aead registryGetPrimitive() throws GeneralSecurityException {
+    return Registry.getPrimitive(keyData, Aead.class);
+  }
+
+  @Benchmark
+  public Aead keysetHandleGetPrimitive() throws GeneralSecurityException {
+    return handle.getPrimitive(Aead.class);
+  }
+}
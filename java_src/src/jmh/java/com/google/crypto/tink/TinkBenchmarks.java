@@ -0,0 +1,79 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the Tink JMH benchmarks.
+ *
+ * <p>Accepts the usual JMH command line (for example a benchmark regexp, {@code -p payloadSize=16}
+ * or {@code -prof stack}). Unless {@code -t} is given, every selected benchmark is run once per
+ * thread count in 1, 2, 4, ..., N, where N is the number of available processors, so that the
+ * scaling of raw and wrapped primitives can be compared. The GC profiler is always enabled, which
+ * reports the allocation rate per operation next to the throughput.
+ *
+ * <p>Run with {@code bazel run //src/jmh/java/com/google/crypto/tink:benchmarks -- <args>}.
+ */
+public final class TinkBenchmarks {
+
+  static List<Integer> threadCounts(int maxThreads) {
+    List<Integer> threadCounts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2) {
+      threadCounts.add(threads);
+    }
+    threadCounts.add(maxThreads);
+    return threadCounts;
+  }
+
+  public static void main(String[] args)
+      throws CommandLineOptionException, IOException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+    if (commandLineOptions.getThreads().hasValue()) {
+      new Runner(
+              new OptionsBuilder()
+                  .parent(commandLineOptions)
+                  .addProfiler(GCProfiler.class)
+                  .build())
+          .run();
+      return;
+    }
+    for (int threads : threadCounts(Runtime.getRuntime().availableProcessors())) {
+      ChainedOptionsBuilder options =
+          new OptionsBuilder()
+              .parent(commandLineOptions)
+              .addProfiler(GCProfiler.class)
+              .threads(threads);
+      new Runner(options.build()).run();
+    }
+  }
+
+  private TinkBenchmarks() {}
+}
@@ -0,0 +1,131 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.aead;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.subtle.AesGcmJce;
+import com.google.crypto.tink.subtle.ChaCha20Poly1305;
+import com.google.crypto.tink.subtle.EncryptThenAuthenticate;
+import com.google.crypto.tink.subtle.Random;
+import com.google.crypto.tink.subtle.XChaCha20Poly1305;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Aead} implementations, both called directly and through {@link AeadWrapper}.
+ *
+ * <p>The primitive is shared by all benchmark threads, as it would be in a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AeadBenchmark {
+  private static final byte[] ASSOCIATED_DATA = Random.randBytes(20);
+
+  @Param({
+    "AES128_GCM",
+    "AES256_GCM",
+    "CHACHA20_POLY1305",
+    "XCHACHA20_POLY1305",
+    "AES128_CTR_HMAC_SHA256"
+  })
+  public String parameters;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private Aead aead;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  private static Parameters getParameters(String name) {
+    switch (name) {
+      case "AES128_GCM":
+        return PredefinedAeadParameters.AES128_GCM;
+      case "AES256_GCM":
+        return PredefinedAeadParameters.AES256_GCM;
+      case "CHACHA20_POLY1305":
+        return PredefinedAeadParameters.CHACHA20_POLY1305;
+      case "XCHACHA20_POLY1305":
+        return PredefinedAeadParameters.XCHACHA20_POLY1305;
+      case "AES128_CTR_HMAC_SHA256":
+        return PredefinedAeadParameters.AES128_CTR_HMAC_SHA256;
+      default:
+        throw new IllegalArgumentException("Unknown parameters: " + name);
+    }
+  }
+
+  private static Aead createRaw(Key key) throws GeneralSecurityException {
+    if (key instanceof AesGcmKey) {
+      return AesGcmJce.create((AesGcmKey) key);
+    }
+    if (key instanceof ChaCha20Poly1305Key) {
+      return ChaCha20Poly1305.create((ChaCha20Poly1305Key) key);
+    }
+    if (key instanceof XChaCha20Poly1305Key) {
+      return XChaCha20Poly1305.create((XChaCha20Poly1305Key) key);
+    }
+    if (key instanceof AesCtrHmacAeadKey) {
+      return EncryptThenAuthenticate.create((AesCtrHmacAeadKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    AeadConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(getParameters(parameters));
+    if (path.equals("raw")) {
+      aead = createRaw(handle.getPrimary().getKey());
+    } else {
+      aead = handle.getPrimitive(Aead.class);
+    }
+    plaintext = Random.randBytes(payloadSize);
+    ciphertext = aead.encrypt(plaintext, ASSOCIATED_DATA);
+  }
+
+  @Benchmark
+  public byte[] encrypt() throws GeneralSecurityException {
+    return aead.encrypt(plaintext, ASSOCIATED_DATA);
+  }
+
+  @Benchmark
+  public byte[] decrypt() throws GeneralSecurityException {
+    return aead.decrypt(ciphertext, ASSOCIATED_DATA);
+  }
+}
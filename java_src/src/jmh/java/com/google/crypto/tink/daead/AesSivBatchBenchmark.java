@@ -0,0 +1,81 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.daead;
+
+import com.google.crypto.tink.subtle.AesSiv;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks encrypting many short values with {@link AesSiv}, one call per value versus one
+ * batch call. Scores are per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AesSivBatchBenchmark {
+  private static final int BATCH_SIZE = 1000;
+  private static final byte[] ASSOCIATED_DATA = Random.randBytes(20);
+
+  @Param({"8", "32"})
+  public int valueSize;
+
+  private AesSiv daead;
+  private byte[][] values;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    daead = new AesSiv(Random.randBytes(64));
+    values = new byte[BATCH_SIZE][];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      values[i] = Random.randBytes(valueSize);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public byte[][] encryptOneByOne() throws GeneralSecurityException {
+    byte[][] result = new byte[BATCH_SIZE][];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      result[i] = daead.encryptDeterministically(values[i], ASSOCIATED_DATA);
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public byte[][] encryptBatch() throws GeneralSecurityException {
+    return daead.encryptDeterministically(values, ASSOCIATED_DATA);
+  }
+}
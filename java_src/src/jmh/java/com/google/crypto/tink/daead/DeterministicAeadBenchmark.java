@@ -0,0 +1,83 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.daead;
+
+import com.google.crypto.tink.DeterministicAead;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.subtle.AesSiv;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link AesSiv}, both called directly and through {@link DeterministicAeadWrapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeterministicAeadBenchmark {
+  private static final byte[] ASSOCIATED_DATA = Random.randBytes(20);
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private DeterministicAead daead;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    DeterministicAeadConfig.register();
+    KeysetHandle handle =
+        KeysetHandle.generateNew(PredefinedDeterministicAeadParameters.AES256_SIV);
+    if (path.equals("raw")) {
+      daead = AesSiv.create((AesSivKey) handle.getPrimary().getKey());
+    } else {
+      daead = handle.getPrimitive(DeterministicAead.class);
+    }
+    plaintext = Random.randBytes(payloadSize);
+    ciphertext = daead.encryptDeterministically(plaintext, ASSOCIATED_DATA);
+  }
+
+  @Benchmark
+  public byte[] encryptDeterministically() throws GeneralSecurityException {
+    return daead.encryptDeterministically(plaintext, ASSOCIATED_DATA);
+  }
+
+  @Benchmark
+  public byte[] decryptDeterministically() throws GeneralSecurityException {
+    return daead.decryptDeterministically(ciphertext, ASSOCIATED_DATA);
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.hybrid.internal;
+
+import com.google.crypto.tink.HybridDecrypt;
+import com.google.crypto.tink.HybridEncrypt;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.hybrid.HpkeParameters;
+import com.google.crypto.tink.hybrid.HpkePrivateKey;
+import com.google.crypto.tink.hybrid.HpkePublicKey;
+import com.google.crypto.tink.hybrid.HybridConfig;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link HpkeEncrypt} and {@link HpkeDecrypt}, both called directly and through {@link
+ * com.google.crypto.tink.hybrid.HybridEncryptWrapper} and {@link
+ * com.google.crypto.tink.hybrid.HybridDecryptWrapper}.
+ *
+ * <p>This benchmark lives in the internal package because the HPKE primitives can only be created
+ * from there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HpkeBenchmark {
+  private static final byte[] CONTEXT_INFO = Random.randBytes(20);
+
+  @Param({"DHKEM_X25519_HKDF_SHA256", "DHKEM_P256_HKDF_SHA256"})
+  public String kem;
+
+  @Param({"AES_128_GCM", "CHACHA20_POLY1305"})
+  public String aead;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private HybridEncrypt encrypter;
+  private HybridDecrypt decrypter;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  private static HpkeParameters.KemId getKemId(String name) {
+    switch (name) {
+      case "DHKEM_X25519_HKDF_SHA256":
+        return HpkeParameters.KemId.DHKEM_X25519_HKDF_SHA256;
+      case "DHKEM_P256_HKDF_SHA256":
+        return HpkeParameters.KemId.DHKEM_P256_HKDF_SHA256;
+      default:
+        throw new IllegalArgumentException("Unknown KEM: " + name);
+    }
+  }
+
+  private static HpkeParameters.AeadId getAeadId(String name) {
+    switch (name) {
+      case "AES_128_GCM":
+        return HpkeParameters.AeadId.AES_128_GCM;
+      case "CHACHA20_POLY1305":
+        return HpkeParameters.AeadId.CHACHA20_POLY1305;
+      default:
+        throw new IllegalArgumentException("Unknown AEAD: " + name);
+    }
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    HybridConfig.register();
+    HpkeParameters parameters =
+        HpkeParameters.builder()
+            .setKemId(getKemId(kem))
+            .setKdfId(HpkeParameters.KdfId.HKDF_SHA256)
+            .setAeadId(getAeadId(aead))
+            .setVariant(HpkeParameters.Variant.TINK)
+            .build();
+    KeysetHandle privateHandle = KeysetHandle.generateNew(parameters);
+    KeysetHandle publicHandle = privateHandle.getPublicKeysetHandle();
+    if (path.equals("raw")) {
+      encrypter = HpkeEncrypt.create((HpkePublicKey) publicHandle.getPrimary().getKey());
+      decrypter = HpkeDecrypt.create((HpkePrivateKey) privateHandle.getPrimary().getKey());
+    } else {
+      encrypter = publicHandle.getPrimitive(HybridEncrypt.class);
+      decrypter = privateHandle.getPrimitive(HybridDecrypt.class);
+    }
+    plaintext = Random.randBytes(payloadSize);
+    ciphertext = encrypter.encrypt(plaintext, CONTEXT_INFO);
+  }
+
+  @Benchmark
+  public byte[] encrypt() throws GeneralSecurityException {
+    return encrypter.encrypt(plaintext, CONTEXT_INFO);
+  }
+
+  @Benchmark
+  public byte[] decrypt() throws GeneralSecurityException {
+    return decrypter.decrypt(ciphertext, CONTEXT_INFO);
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.jwt;
+
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the JWT primitives returned by {@link JwtMacWrapper}, {@link JwtPublicKeySignWrapper}
+ * and {@link JwtPublicKeyVerifyWrapper}.
+ *
+ * <p>The keyset contains {@code numKeys} keys of which the last one is the primary, as it would be
+ * after several key rotations. Tokens are always created with the primary key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+  private static final String ISSUER = "issuer";
+
+  @Param({"HS256", "ES256"})
+  public String algorithm;
+
+  @Param({"1", "10"})
+  public int numKeys;
+
+  private JwtMac mac;
+  private JwtPublicKeySign signer;
+  private JwtPublicKeyVerify verifier;
+  private RawJwt rawJwt;
+  private JwtValidator validator;
+  private String compact;
+
+  private static Parameters getParameters(String name) throws GeneralSecurityException {
+    switch (name) {
+      case "HS256":
+        return JwtHmacParameters.builder()
+            .setKeySizeBytes(32)
+            .setKidStrategy(JwtHmacParameters.KidStrategy.BASE64_ENCODED_KEY_ID)
+            .setAlgorithm(JwtHmacParameters.Algorithm.HS256)
+            .build();
+      case "ES256":
+        return JwtEcdsaParameters.builder()
+            .setKidStrategy(JwtEcdsaParameters.KidStrategy.BASE64_ENCODED_KEY_ID)
+            .setAlgorithm(JwtEcdsaParameters.Algorithm.ES256)
+            .build();
+      default:
+        throw new IllegalArgumentException("Unknown algorithm: " + name);
+    }
+  }
+
+  private static KeysetHandle generateKeyset(Parameters parameters, int numKeys)
+      throws GeneralSecurityException {
+    KeysetHandle.Builder builder = KeysetHandle.newBuilder();
+    for (int i = 0; i < numKeys; i++) {
+      KeysetHandle.Builder.Entry entry =
+          KeysetHandle.generateEntryFromParameters(parameters).withRandomId();
+      if (i == numKeys - 1) {
+        entry.makePrimary();
+      }
+      builder.addEntry(entry);
+    }
+    return builder.build();
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    JwtMacConfig.register();
+    JwtSignatureConfig.register();
+    KeysetHandle handle = generateKeyset(getParameters(algorithm), numKeys);
+    rawJwt =
+        RawJwt.newBuilder()
+            .setIssuer(ISSUER)
+            .addAudience("audience")
+            .setExpiration(Instant.now().plus(Duration.ofDays(1)))
+            .addStringClaim("scope", "read write")
+            .build();
+    validator =
+        JwtValidator.newBuilder().expectIssuer(ISSUER).expectAudience("audience").build();
+    if (algorithm.startsWith("HS")) {
+      mac = handle.getPrimitive(JwtMac.class);
+      compact = mac.computeMacAndEncode(rawJwt);
+    } else {
+      signer = handle.getPrimitive(JwtPublicKeySign.class);
+      verifier = handle.getPublicKeysetHandle().getPrimitive(JwtPublicKeyVerify.class);
+      compact = signer.signAndEncode(rawJwt);
+    }
+  }
+
+  @Benchmark
+  public String createAndEncode() throws GeneralSecurityException {
+    if (mac != null) {
+      return mac.computeMacAndEncode(rawJwt);
+    }
+    return signer.signAndEncode(rawJwt);
+  }
+
+  @Benchmark
+  public VerifiedJwt verifyAndDecode() throws GeneralSecurityException {
+    if (mac != null) {
+      return mac.verifyMacAndDecode(compact, validator);
+    }
+    return verifier.verifyAndDecode(compact, validator);
+  }
+}
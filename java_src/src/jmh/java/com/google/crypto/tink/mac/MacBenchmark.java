@@ -0,0 +1,110 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.mac;
+
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Mac;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.subtle.PrfMac;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link PrfMac} based {@link Mac} implementations (HMAC on top of {@link
+ * com.google.crypto.tink.subtle.PrfHmacJce} and AES-CMAC on top of {@link
+ * com.google.crypto.tink.subtle.PrfAesCmac}), both called directly and through {@link MacWrapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MacBenchmark {
+  @Param({"HMAC_SHA256_256BITTAG", "HMAC_SHA512_512BITTAG", "AES_CMAC"})
+  public String parameters;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private Mac mac;
+  private byte[] data;
+  private byte[] tag;
+
+  private static Parameters getParameters(String name) {
+    switch (name) {
+      case "HMAC_SHA256_256BITTAG":
+        return PredefinedMacParameters.HMAC_SHA256_256BITTAG;
+      case "HMAC_SHA512_512BITTAG":
+        return PredefinedMacParameters.HMAC_SHA512_512BITTAG;
+      case "AES_CMAC":
+        return PredefinedMacParameters.AES_CMAC;
+      default:
+        throw new IllegalArgumentException("Unknown parameters: " + name);
+    }
+  }
+
+  private static Mac createRaw(Key key) throws GeneralSecurityException {
+    if (key instanceof HmacKey) {
+      return PrfMac.create((HmacKey) key);
+    }
+    if (key instanceof AesCmacKey) {
+      return PrfMac.create((AesCmacKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    MacConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(getParameters(parameters));
+    if (path.equals("raw")) {
+      mac = createRaw(handle.getPrimary().getKey());
+    } else {
+      mac = handle.getPrimitive(Mac.class);
+    }
+    data = Random.randBytes(payloadSize);
+    tag = mac.computeMac(data);
+  }
+
+  @Benchmark
+  public byte[] computeMac() throws GeneralSecurityException {
+    return mac.computeMac(data);
+  }
+
+  @Benchmark
+  public void verifyMac() throws GeneralSecurityException {
+    mac.verifyMac(tag, data);
+  }
+}
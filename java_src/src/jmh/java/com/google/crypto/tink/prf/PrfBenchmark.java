@@ -0,0 +1,105 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.prf;
+
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.subtle.PrfAesCmac;
+import com.google.crypto.tink.subtle.PrfHmacJce;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link PrfHmacJce} and {@link PrfAesCmac}, both called directly and as the primary of
+ * a {@link PrfSet} created by {@link PrfSetWrapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrfBenchmark {
+  private static final int OUTPUT_LENGTH = 16;
+
+  @Param({"HMAC_SHA256_PRF", "HMAC_SHA512_PRF", "AES_CMAC_PRF"})
+  public String parameters;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private Prf prf;
+  private byte[] input;
+
+  private static Parameters getParameters(String name) {
+    switch (name) {
+      case "HMAC_SHA256_PRF":
+        return PredefinedPrfParameters.HMAC_SHA256_PRF;
+      case "HMAC_SHA512_PRF":
+        return PredefinedPrfParameters.HMAC_SHA512_PRF;
+      case "AES_CMAC_PRF":
+        return PredefinedPrfParameters.AES_CMAC_PRF;
+      default:
+        throw new IllegalArgumentException("Unknown parameters: " + name);
+    }
+  }
+
+  private static Prf createRaw(Key key) throws GeneralSecurityException {
+    if (key instanceof HmacPrfKey) {
+      return PrfHmacJce.create((HmacPrfKey) key);
+    }
+    if (key instanceof AesCmacPrfKey) {
+      return PrfAesCmac.create((AesCmacPrfKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    PrfConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(getParameters(parameters));
+    if (path.equals("raw")) {
+      prf = createRaw(handle.getPrimary().getKey());
+    } else {
+      PrfSet prfSet = handle.getPrimitive(PrfSet.class);
+      prf = prfSet.getPrfs().get(prfSet.getPrimaryId());
+    }
+    input = Random.randBytes(payloadSize);
+  }
+
+  @Benchmark
+  public byte[] compute() throws GeneralSecurityException {
+    return prf.compute(input, OUTPUT_LENGTH);
+  }
+}
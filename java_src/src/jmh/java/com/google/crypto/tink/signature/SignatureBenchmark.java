@@ -0,0 +1,130 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.signature;
+
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.PublicKeySign;
+import com.google.crypto.tink.PublicKeyVerify;
+import com.google.crypto.tink.subtle.EcdsaSignJce;
+import com.google.crypto.tink.subtle.EcdsaVerifyJce;
+import com.google.crypto.tink.subtle.Ed25519Sign;
+import com.google.crypto.tink.subtle.Ed25519Verify;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Ed25519Sign}, {@link Ed25519Verify}, {@link EcdsaSignJce} and {@link
+ * EcdsaVerifyJce}, both called directly and through {@link PublicKeySignWrapper} and {@link
+ * PublicKeyVerifyWrapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+  @Param({"ED25519", "ECDSA_P256", "ECDSA_P256_IEEE_P1363", "ECDSA_P384"})
+  public String parameters;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private PublicKeySign signer;
+  private PublicKeyVerify verifier;
+  private byte[] data;
+  private byte[] signature;
+
+  private static Parameters getParameters(String name) {
+    switch (name) {
+      case "ED25519":
+        return PredefinedSignatureParameters.ED25519;
+      case "ECDSA_P256":
+        return PredefinedSignatureParameters.ECDSA_P256;
+      case "ECDSA_P256_IEEE_P1363":
+        return PredefinedSignatureParameters.ECDSA_P256_IEEE_P1363;
+      case "ECDSA_P384":
+        return PredefinedSignatureParameters.ECDSA_P384;
+      default:
+        throw new IllegalArgumentException("Unknown parameters: " + name);
+    }
+  }
+
+  private static PublicKeySign createRawSign(Key key) throws GeneralSecurityException {
+    if (key instanceof Ed25519PrivateKey) {
+      return Ed25519Sign.create((Ed25519PrivateKey) key);
+    }
+    if (key instanceof EcdsaPrivateKey) {
+      return EcdsaSignJce.create((EcdsaPrivateKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  private static PublicKeyVerify createRawVerify(Key key) throws GeneralSecurityException {
+    if (key instanceof Ed25519PublicKey) {
+      return Ed25519Verify.create((Ed25519PublicKey) key);
+    }
+    if (key instanceof EcdsaPublicKey) {
+      return EcdsaVerifyJce.create((EcdsaPublicKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException {
+    SignatureConfig.register();
+    KeysetHandle privateHandle = KeysetHandle.generateNew(getParameters(parameters));
+    KeysetHandle publicHandle = privateHandle.getPublicKeysetHandle();
+    if (path.equals("raw")) {
+      signer = createRawSign(privateHandle.getPrimary().getKey());
+      verifier = createRawVerify(publicHandle.getPrimary().getKey());
+    } else {
+      signer = privateHandle.getPrimitive(PublicKeySign.class);
+      verifier = publicHandle.getPrimitive(PublicKeyVerify.class);
+    }
+    data = Random.randBytes(payloadSize);
+    signature = signer.sign(data);
+  }
+
+  @Benchmark
+  public byte[] sign() throws GeneralSecurityException {
+    return signer.sign(data);
+  }
+
+  @Benchmark
+  public void verify() throws GeneralSecurityException {
+    verifier.verify(signature, data);
+  }
+}
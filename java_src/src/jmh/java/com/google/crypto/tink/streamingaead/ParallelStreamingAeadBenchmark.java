@@ -0,0 +1,166 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.streamingaead;
+
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.subtle.AesCtrHmacStreaming;
+import com.google.crypto.tink.subtle.AesGcmHkdfStreaming;
+import com.google.crypto.tink.subtle.Random;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the sequential encrypting and decrypting streams with the parallel ones of {@link
+ * AesGcmHkdfStreaming} and {@link AesCtrHmacStreaming}, for a large message with 1 MB segments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelStreamingAeadBenchmark {
+  private static final byte[] ASSOCIATED_DATA = Random.randBytes(20);
+
+  @Param({"AES128_GCM_HKDF_1MB", "AES128_CTR_HMAC_SHA256_1MB"})
+  public String parameters;
+
+  /** Number of worker threads; 0 uses the sequential streams. */
+  @Param({"0", "1", "2", "4", "8"})
+  public int threads;
+
+  @Param({"67108864"})
+  public int payloadSize;
+
+  private AesGcmHkdfStreaming gcmHkdfStreaming;
+  private AesCtrHmacStreaming ctrHmacStreaming;
+  private ExecutorService executor;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  @Setup
+  public void setUp() throws GeneralSecurityException, IOException {
+    StreamingAeadConfig.register();
+    Parameters params =
+        parameters.equals("AES128_GCM_HKDF_1MB")
+            ? PredefinedStreamingAeadParameters.AES128_GCM_HKDF_1MB
+            : PredefinedStreamingAeadParameters.AES128_CTR_HMAC_SHA256_1MB;
+    KeysetHandle handle = KeysetHandle.generateNew(params);
+    if (handle.getPrimary().getKey() instanceof AesGcmHkdfStreamingKey) {
+      gcmHkdfStreaming =
+          AesGcmHkdfStreaming.create((AesGcmHkdfStreamingKey) handle.getPrimary().getKey());
+    } else {
+      ctrHmacStreaming =
+          AesCtrHmacStreaming.create((AesCtrHmacStreamingKey) handle.getPrimary().getKey());
+    }
+    if (threads > 0) {
+      executor = Executors.newFixedThreadPool(threads);
+    }
+    plaintext = Random.randBytes(payloadSize);
+    ByteArrayOutputStream ciphertextStream = new ByteArrayOutputStream();
+    try (OutputStream encryptingStream = newEncryptingStream(ciphertextStream)) {
+      encryptingStream.write(plaintext);
+    }
+    ciphertext = ciphertextStream.toByteArray();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  // Two segments in flight per thread keep the threads busy while the caller reads or writes.
+  private int maxSegmentsInFlight() {
+    return 2 * threads;
+  }
+
+  private OutputStream newEncryptingStream(OutputStream ciphertext)
+      throws GeneralSecurityException, IOException {
+    int maxSegmentsInFlight = maxSegmentsInFlight();
+    if (gcmHkdfStreaming != null) {
+      return threads == 0
+          ? gcmHkdfStreaming.newEncryptingStream(ciphertext, ASSOCIATED_DATA)
+          : gcmHkdfStreaming.newParallelEncryptingStream(
+              ciphertext, ASSOCIATED_DATA, executor, maxSegmentsInFlight);
+    }
+    return threads == 0
+        ? ctrHmacStreaming.newEncryptingStream(ciphertext, ASSOCIATED_DATA)
+        : ctrHmacStreaming.newParallelEncryptingStream(
+            ciphertext, ASSOCIATED_DATA, executor, maxSegmentsInFlight);
+  }
+
+  @Benchmark
+  public int encrypt() throws GeneralSecurityException, IOException {
+    ByteArrayOutputStream ciphertextStream = new ByteArrayOutputStream(payloadSize + (1 << 16));
+    try (OutputStream encryptingStream = newEncryptingStream(ciphertextStream)) {
+      encryptingStream.write(plaintext);
+    }
+    return ciphertextStream.size();
+  }
+
+  private InputStream newDecryptingStream(InputStream ciphertext)
+      throws GeneralSecurityException, IOException {
+    int maxSegmentsInFlight = maxSegmentsInFlight();
+    if (gcmHkdfStreaming != null) {
+      return threads == 0
+          ? gcmHkdfStreaming.newDecryptingStream(ciphertext, ASSOCIATED_DATA)
+          : gcmHkdfStreaming.newParallelDecryptingStream(
+              ciphertext, ASSOCIATED_DATA, executor, maxSegmentsInFlight);
+    }
+    return threads == 0
+        ? ctrHmacStreaming.newDecryptingStream(ciphertext, ASSOCIATED_DATA)
+        : ctrHmacStreaming.newParallelDecryptingStream(
+            ciphertext, ASSOCIATED_DATA, executor, maxSegmentsInFlight);
+  }
+
+  @Benchmark
+  public int decrypt() throws GeneralSecurityException, IOException {
+    byte[] buffer = new byte[1 << 16];
+    int total = 0;
+    try (InputStream decryptingStream =
+        newDecryptingStream(new ByteArrayInputStream(ciphertext))) {
+      int read;
+      while ((read = decryptingStream.read(buffer)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+}
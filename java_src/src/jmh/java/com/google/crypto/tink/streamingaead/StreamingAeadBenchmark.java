@@ -0,0 +1,147 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.streamingaead;
+
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.Parameters;
+import com.google.crypto.tink.StreamingAead;
+import com.google.crypto.tink.subtle.AesCtrHmacStreaming;
+import com.google.crypto.tink.subtle.AesGcmHkdfStreaming;
+import com.google.crypto.tink.subtle.Random;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link StreamingAead} implementations, both called directly and through {@link
+ * StreamingAeadWrapper}.
+ *
+ * <p>Each operation encrypts or decrypts a whole message through the stream API, so the numbers
+ * include the cost of the segment buffering done by the streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingAeadBenchmark {
+  private static final byte[] ASSOCIATED_DATA = Random.randBytes(20);
+  private static final int BUFFER_SIZE = 4096;
+
+  @Param({
+    "AES128_GCM_HKDF_4KB",
+    "AES128_GCM_HKDF_1MB",
+    "AES128_CTR_HMAC_SHA256_4KB",
+    "AES128_CTR_HMAC_SHA256_1MB"
+  })
+  public String parameters;
+
+  /** "raw" calls the primitive directly, "wrapped" goes through the keyset wrapper. */
+  @Param({"raw", "wrapped"})
+  public String path;
+
+  @Param({"16", "1024", "65536", "1048576", "16777216"})
+  public int payloadSize;
+
+  private StreamingAead streamingAead;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  private static Parameters getParameters(String name) {
+    switch (name) {
+      case "AES128_GCM_HKDF_4KB":
+        return PredefinedStreamingAeadParameters.AES128_GCM_HKDF_4KB;
+      case "AES128_GCM_HKDF_1MB":
+        return PredefinedStreamingAeadParameters.AES128_GCM_HKDF_1MB;
+      case "AES128_CTR_HMAC_SHA256_4KB":
+        return PredefinedStreamingAeadParameters.AES128_CTR_HMAC_SHA256_4KB;
+      case "AES128_CTR_HMAC_SHA256_1MB":
+        return PredefinedStreamingAeadParameters.AES128_CTR_HMAC_SHA256_1MB;
+      default:
+        throw new IllegalArgumentException("Unknown parameters: " + name);
+    }
+  }
+
+  private static StreamingAead createRaw(Key key) throws GeneralSecurityException {
+    if (key instanceof AesGcmHkdfStreamingKey) {
+      return AesGcmHkdfStreaming.create((AesGcmHkdfStreamingKey) key);
+    }
+    if (key instanceof AesCtrHmacStreamingKey) {
+      return AesCtrHmacStreaming.create((AesCtrHmacStreamingKey) key);
+    }
+    throw new IllegalArgumentException("Unsupported key: " + key);
+  }
+
+  private byte[] encrypt(byte[] input) throws GeneralSecurityException, IOException {
+    ByteArrayOutputStream ciphertextStream = new ByteArrayOutputStream();
+    try (OutputStream encryptingStream =
+        streamingAead.newEncryptingStream(ciphertextStream, ASSOCIATED_DATA)) {
+      encryptingStream.write(input);
+    }
+    return ciphertextStream.toByteArray();
+  }
+
+  @Setup
+  public void setUp() throws GeneralSecurityException, IOException {
+    StreamingAeadConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(getParameters(parameters));
+    if (path.equals("raw")) {
+      streamingAead = createRaw(handle.getPrimary().getKey());
+    } else {
+      streamingAead = handle.getPrimitive(StreamingAead.class);
+    }
+    plaintext = Random.randBytes(payloadSize);
+    ciphertext = encrypt(plaintext);
+  }
+
+  @Benchmark
+  public byte[] encrypt() throws GeneralSecurityException, IOException {
+    return encrypt(plaintext);
+  }
+
+  @Benchmark
+  public int decrypt() throws GeneralSecurityException, IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int total = 0;
+    try (InputStream decryptingStream =
+        streamingAead.newDecryptingStream(
+            new ByteArrayInputStream(ciphertext), ASSOCIATED_DATA)) {
+      int read;
+      while ((read = decryptingStream.read(buffer)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+}
@@ -16,7 +16,9 @@
 
 package com.google.crypto.tink;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import javax.crypto.ShortBufferException;
 
 /**
  * Interface for Authenticated Encryption with Associated Data (AEAD).
@@ -63,4 +65,89 @@ public interface Aead {
    */
   byte[] decrypt(final byte[] ciphertext, final byte[] associatedData)
       throws GeneralSecurityException;
+
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} with the remaining bytes of {@code
+   * associatedData} as associated authenticated data, and writes the ciphertext into {@code
+   * ciphertext} at its current position.
+   *
+   * <p>The ciphertext is the same as the one returned by {@link #encrypt(byte[], byte[])}. The
+   * buffers may be direct buffers, and {@code plaintext} and {@code ciphertext} must not overlap.
+   *
+   * <p>On success, the positions of {@code plaintext} and {@code associatedData} are set to their
+   * limits and the position of {@code ciphertext} is advanced by the number of bytes written. If an
+   * exception is thrown, no position is changed, but the remaining bytes of {@code ciphertext} may
+   * have been overwritten.
+   *
+   * <p>The default implementation copies the buffers into arrays and calls {@link #encrypt(byte[],
+   * byte[])}. Implementations should override it if they can avoid these copies.
+   *
+   * @param plaintext the plaintext to be encrypted
+   * @param associatedData associated data to be authenticated, but not encrypted. Can be null,
+   *     which is equivalent to an empty buffer.
+   * @param ciphertext the buffer the ciphertext is written to
+   * @throws ShortBufferException if {@code ciphertext} has not enough remaining space
+   */
+  default void encrypt(ByteBuffer plaintext, ByteBuffer associatedData, ByteBuffer ciphertext)
+      throws GeneralSecurityException {
+    byte[] plaintextBytes = new byte[plaintext.remaining()];
+    plaintext.duplicate().get(plaintextBytes);
+    byte[] associatedDataBytes = new byte[0];
+    if (associatedData != null) {
+      associatedDataBytes = new byte[associatedData.remaining()];
+      associatedData.duplicate().get(associatedDataBytes);
+    }
+    byte[] ciphertextBytes = encrypt(plaintextBytes, associatedDataBytes);
+    if (ciphertext.remaining() < ciphertextBytes.length) {
+      throw new ShortBufferException("ciphertext buffer too small");
+    }
+    ciphertext.put(ciphertextBytes);
+    plaintext.position(plaintext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext} with the remaining bytes of {@code
+   * associatedData} as associated authenticated data, and writes the plaintext into {@code
+   * plaintext} at its current position.
+   *
+   * <p>This accepts the same ciphertexts as {@link #decrypt(byte[], byte[])}. The buffers may be
+   * direct buffers, and {@code ciphertext} and {@code plaintext} must not overlap.
+   *
+   * <p>On success, the positions of {@code ciphertext} and {@code associatedData} are set to their
+   * limits and the position of {@code plaintext} is advanced by the number of bytes written. If an
+   * exception is thrown, no position is changed, but the remaining bytes of {@code plaintext} may
+   * have been overwritten.
+   *
+   * <p>The default implementation copies the buffers into arrays and calls {@link #decrypt(byte[],
+   * byte[])}. Implementations should override it if they can avoid these copies.
+   *
+   * @param ciphertext the ciphertext to be decrypted
+   * @param associatedData associated data to be authenticated. Can be null, which is equivalent to
+   *     an empty buffer.
+   * @param plaintext the buffer the plaintext is written to
+   * @throws ShortBufferException if {@code plaintext} has not enough remaining space
+   * @throws GeneralSecurityException if decryption fails
+   */
+  default void decrypt(ByteBuffer ciphertext, ByteBuffer associatedData, ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    byte[] ciphertextBytes = new byte[ciphertext.remaining()];
+    ciphertext.duplicate().get(ciphertextBytes);
+    byte[] associatedDataBytes = new byte[0];
+    if (associatedData != null) {
+      associatedDataBytes = new byte[associatedData.remaining()];
+      associatedData.duplicate().get(associatedDataBytes);
+    }
+    byte[] plaintextBytes = decrypt(ciphertextBytes, associatedDataBytes);
+    if (plaintext.remaining() < plaintextBytes.length) {
+      throw new ShortBufferException("plaintext buffer too small");
+    }
+    plaintext.put(plaintextBytes);
+    ciphertext.position(ciphertext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+  }
 }
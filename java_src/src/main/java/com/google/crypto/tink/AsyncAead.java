@@ -0,0 +1,44 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of {@link Aead}, for implementations whose operations wait on a remote
+ * service, such as a KMS.
+ *
+ * <p>Calls return immediately. The returned future is completed with the result, or completed
+ * exceptionally, typically with a {@link java.security.GeneralSecurityException}. Ciphertexts are
+ * compatible with the synchronous {@link Aead} for the same key.
+ */
+public interface AsyncAead {
+  /**
+   * Encrypts {@code plaintext} with {@code associatedData} as associated authenticated data.
+   *
+   * @see Aead#encrypt
+   */
+  CompletableFuture<byte[]> encrypt(final byte[] plaintext, final byte[] associatedData);
+
+  /**
+   * Decrypts {@code ciphertext} with {@code associatedData} as associated authenticated data.
+   *
+   * @see Aead#decrypt
+   */
+  CompletableFuture<byte[]> decrypt(final byte[] ciphertext, final byte[] associatedData);
+}
@@ -1083,7 +1083,10 @@ public final class KeysetHandle {
 
   /** Allows us to have a name {@code B} for the base primitive. */
   private <B, P> P getPrimitiveWithKnownInputPrimitive(
-      InternalConfiguration config, Class<P> classObject, Class<B> inputPrimitiveClassObject)
+      InternalConfiguration config,
+      Class<P> classObject,
+      Class<B> inputPrimitiveClassObject,
+      boolean lazy)
       throws GeneralSecurityException {
     Util.validateKeyset(keyset);
     PrimitiveSet.Builder<B> builder = PrimitiveSet.newBuilder(inputPrimitiveClassObject);
@@ -1091,6 +1094,12 @@ public final class KeysetHandle {
     for (int i = 0; i < size(); ++i) {
       Keyset.Key protoKey = keyset.getKey(i);
       if (protoKey.getStatus().equals(KeyStatusType.ENABLED)) {
+        if (lazy && protoKey.getKeyId() != keyset.getPrimaryKeyId()) {
+          builder.addLazyPrimitive(
+              newPrimitiveFactory(config, protoKey, entries.get(i), inputPrimitiveClassObject),
+              protoKey);
+          continue;
+        }
         @Nullable
         B primitive = getLegacyPrimitiveOrNull(config, protoKey, inputPrimitiveClassObject);
         @Nullable B fullPrimitive = null;
@@ -1116,12 +1125,82 @@ public final class KeysetHandle {
     return config.wrap(builder.build(), classObject);
   }
 
+  /**
+   * Returns a factory which creates the primitives of {@code protoKey} like {@link
+   * #getPrimitiveWithKnownInputPrimitive}, but only when they are needed.
+   */
+  private <B> PrimitiveSet.PrimitiveFactory<B> newPrimitiveFactory(
+      final InternalConfiguration config,
+      final Keyset.Key protoKey,
+      @Nullable final Entry entry,
+      final Class<B> inputPrimitiveClassObject) {
+    return new PrimitiveSet.PrimitiveFactory<B>() {
+      @Override
+      @Nullable
+      public B createFullPrimitive() throws GeneralSecurityException {
+        // The entry may be null (if the status is invalid in the proto, or parsing failed).
+        if (entry == null) {
+          return null;
+        }
+        return getFullPrimitiveOrNull(config, entry.getKey(), inputPrimitiveClassObject);
+      }
+
+      @Override
+      @Nullable
+      public B createPrimitive() throws GeneralSecurityException {
+        return getLegacyPrimitiveOrNull(config, protoKey, inputPrimitiveClassObject);
+      }
+    };
+  }
+
   /**
    * Returns a primitive from this keyset using the provided {@link Configuration} to create
    * resources used in creating the primitive.
    */
   public <P> P getPrimitive(Configuration configuration, Class<P> targetClassObject)
       throws GeneralSecurityException {
+    return getPrimitive(configuration, targetClassObject, /* lazy= */ false);
+  }
+
+  /**
+   * Returns a primitive from this keyset, using the global registry to create resources creating
+   * the primitive.
+   */
+  public <P> P getPrimitive(Class<P> targetClassObject) throws GeneralSecurityException {
+    return getPrimitive(RegistryConfiguration.get(), targetClassObject);
+  }
+
+  /**
+   * Returns a primitive from this keyset like {@link #getPrimitive(Configuration, Class)}, but
+   * only creates the primitive of the primary key right away.
+   *
+   * <p>The primitives of the other keys are created the first time the returned primitive uses
+   * them, for example to decrypt a ciphertext with their output prefix, and at most once. This
+   * makes this method faster than {@link #getPrimitive(Configuration, Class)} for keysets with
+   * many old keys. However, invalid non-primary keys are then only detected when they are first
+   * used. Decrypting and verifying primitives skip such keys, like keys that fail to decrypt.
+   *
+   * <p>Primitives that need all keys right away, such as {@link StreamingAead} or {@code PrfSet},
+   * create all of them when they are wrapped, so for them this method is not faster. They report
+   * invalid keys with a {@link GeneralSecurityException}, like {@link #getPrimitive(Configuration,
+   * Class)}.
+   */
+  public <P> P getPrimitiveWithLazyKeys(Configuration configuration, Class<P> targetClassObject)
+      throws GeneralSecurityException {
+    return getPrimitive(configuration, targetClassObject, /* lazy= */ true);
+  }
+
+  /**
+   * Returns a primitive from this keyset like {@link #getPrimitiveWithLazyKeys(Configuration,
+   * Class)}, using the global registry to create resources creating the primitive.
+   */
+  public <P> P getPrimitiveWithLazyKeys(Class<P> targetClassObject)
+      throws GeneralSecurityException {
+    return getPrimitiveWithLazyKeys(RegistryConfiguration.get(), targetClassObject);
+  }
+
+  private <P> P getPrimitive(Configuration configuration, Class<P> targetClassObject, boolean lazy)
+      throws GeneralSecurityException {
     if (!(configuration instanceof InternalConfiguration)) {
       throw new GeneralSecurityException(
           "Currently only subclasses of InternalConfiguration are accepted");
@@ -1132,15 +1211,7 @@ public final class KeysetHandle {
       throw new GeneralSecurityException("No wrapper found for " + targetClassObject.getName());
     }
     return getPrimitiveWithKnownInputPrimitive(
-        internalConfig, targetClassObject, inputPrimitiveClassObject);
-  }
-
-  /**
-   * Returns a primitive from this keyset, using the global registry to create resources creating
-   * the primitive.
-   */
-  public <P> P getPrimitive(Class<P> targetClassObject) throws GeneralSecurityException {
-    return getPrimitive(RegistryConfiguration.get(), targetClassObject);
+        internalConfig, targetClassObject, inputPrimitiveClassObject, lazy);
   }
 
   /**
@@ -24,12 +24,16 @@ import com.google.crypto.tink.proto.Keyset;
 import com.google.crypto.tink.proto.OutputPrefixType;
 import com.google.crypto.tink.subtle.Hex;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
@@ -55,14 +59,115 @@ import javax.annotation.Nullable;
  */
 public final class PrimitiveSet<P> {
 
+  /**
+   * Creates the primitives of an entry added with {@link Builder#addLazyPrimitive}. Each method is
+   * called at most once per entry: when the corresponding getter of the {@link Entry} is first
+   * called, or when the other method returned null. If a method throws, the entry remembers the
+   * failure and does not call it again.
+   */
+  public interface PrimitiveFactory<P> {
+    /** Returns the full primitive of the entry, or null if there is none. */
+    @Nullable
+    P createFullPrimitive() throws GeneralSecurityException;
+
+    /** Returns the primitive of the entry, or null if there is none. */
+    @Nullable
+    P createPrimitive() throws GeneralSecurityException;
+  }
+
+  /**
+   * Holds a primitive of an entry, which is either given when the entry is created or created by a
+   * {@link PrimitiveFactory} when it is first needed.
+   */
+  private static final class LazyPrimitive<P> {
+    @Nullable private final PrimitiveFactory<P> factory;
+    private final boolean full;
+    // Written before created, so that reading created as true makes value and failure visible.
+    @Nullable private P value;
+    @Nullable private GeneralSecurityException failure;
+    private volatile boolean created;
+    // The other primitive of an entry added with Builder#addLazyPrimitive. Set before the entry is
+    // created.
+    @Nullable private LazyPrimitive<P> other;
+
+    private LazyPrimitive(@Nullable PrimitiveFactory<P> factory, boolean full, @Nullable P value) {
+      this.factory = factory;
+      this.full = full;
+      this.value = value;
+      this.created = factory == null;
+    }
+
+    static <P> LazyPrimitive<P> of(@Nullable P value) {
+      return new LazyPrimitive<P>(null, false, value);
+    }
+
+    static <P> LazyPrimitive<P> fullPrimitiveOf(PrimitiveFactory<P> factory) {
+      return new LazyPrimitive<P>(factory, true, null);
+    }
+
+    static <P> LazyPrimitive<P> primitiveOf(PrimitiveFactory<P> factory) {
+      return new LazyPrimitive<P>(factory, false, null);
+    }
+
+    @Nullable
+    P get() {
+      try {
+        return getChecked();
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Nullable
+    P getChecked() throws GeneralSecurityException {
+      P result = getOrCreate();
+      // Like an eagerly added entry, a lazily added one needs at least one primitive.
+      if (result == null && other != null && other.getOrCreate() == null) {
+        throw new GeneralSecurityException("the factory returned null for both primitives");
+      }
+      return result;
+    }
+
+    /** Returns true if the factory threw, or if it returned null for both primitives. */
+    boolean creationFailed() {
+      try {
+        getChecked();
+        return false;
+      } catch (GeneralSecurityException e) {
+        return true;
+      }
+    }
+
+    @Nullable
+    private P getOrCreate() throws GeneralSecurityException {
+      if (!created) {
+        synchronized (this) {
+          if (!created) {
+            // The factory is called only once, also if it fails.
+            try {
+              value = full ? factory.createFullPrimitive() : factory.createPrimitive();
+            } catch (GeneralSecurityException e) {
+              failure = e;
+            }
+            created = true;
+          }
+        }
+      }
+      if (failure != null) {
+        throw new GeneralSecurityException("Unable to create primitive", failure);
+      }
+      return value;
+    }
+  }
+
   /**
    * A single entry in the set. In addition to the actual primitive it holds also some extra
    * information about the primitive.
    */
   public static final class Entry<P> {
     // If set, this is a primitive of a key.
-    @Nullable private final P fullPrimitive;
-    @Nullable private final P primitive;
+    private final LazyPrimitive<P> fullPrimitive;
+    private final LazyPrimitive<P> primitive;
     // Identifies the primitive within the set.
     // It is the ciphertext prefix of the corresponding key.
     private final byte[] identifier;
@@ -76,8 +181,8 @@ public final class PrimitiveSet<P> {
     private final Key key;
 
     Entry(
-        @Nullable P fullPrimitive,
-        @Nullable P primitive,
+        LazyPrimitive<P> fullPrimitive,
+        LazyPrimitive<P> primitive,
         final byte[] identifier,
         KeyStatusType status,
         OutputPrefixType outputPrefixType,
@@ -101,10 +206,13 @@ public final class PrimitiveSet<P> {
      * self-sufficient by itself, meaning that all the necessary information to process the
      * primitive is contained in the primitive (most likely through the new Key interface), as
      * opposed to the {@code primitive} field (see {@link #getPrimitive} for details).
+     *
+     * @throws IllegalStateException if the entry was added with {@link Builder#addLazyPrimitive}
+     *     and creating the primitive failed.
      */
     @Nullable
     public P getFullPrimitive() {
-      return this.fullPrimitive;
+      return this.fullPrimitive.get();
     }
 
     /**
@@ -113,10 +221,24 @@ public final class PrimitiveSet<P> {
      * <p>For primitives of type {@code Mac}, {@code Aead}, {@code PublicKeySign}, {@code
      * PublicKeyVerify}, {@code DeterministicAead}, {@code HybridEncrypt}, and {@code HybridDecrypt}
      * this is a primitive which <b>ignores</b> the output prefix and assumes "RAW".
+     *
+     * @throws IllegalStateException if the entry was added with {@link Builder#addLazyPrimitive}
+     *     and creating the primitive failed.
      */
     @Nullable
     public P getPrimitive() {
-      return this.primitive;
+      return this.primitive.get();
+    }
+
+    /**
+     * Returns true if the entry was added with {@link Builder#addLazyPrimitive} and its primitives
+     * could not be created. The getters of such an entry throw {@link IllegalStateException}.
+     *
+     * <p>Wrappers which try several entries skip these ones. This creates the primitives of the
+     * entry if this has not happened yet.
+     */
+    public boolean primitiveCreationFailed() {
+      return fullPrimitive.creationFailed() || primitive.creationFailed();
     }
 
     public KeyStatusType getStatus() {
@@ -158,7 +280,7 @@ public final class PrimitiveSet<P> {
   }
 
   private static <P> Entry<P> createEntry(
-      @Nullable P fullPrimitive, @Nullable P primitive, Keyset.Key key)
+      LazyPrimitive<P> fullPrimitive, LazyPrimitive<P> primitive, Keyset.Key key)
       throws GeneralSecurityException {
     @Nullable Integer idRequirement = key.getKeyId();
     if (key.getOutputPrefixType() == OutputPrefixType.RAW) {
@@ -228,6 +350,58 @@ public final class PrimitiveSet<P> {
     return found != null ? found : Collections.<Entry<P>>emptyList();
   }
 
+  /**
+   * Returns the entries whose identifier equals the {@link CryptoFormat#NON_RAW_PREFIX_SIZE} bytes
+   * of {@code data} starting at {@code offset}.
+   *
+   * <p>Equivalent to calling {@link #getPrimitive(byte[])} with a copy of those bytes, but on sets
+   * created by the {@link Builder} it neither copies the prefix nor allocates a lookup key.
+   *
+   * @throws IndexOutOfBoundsException if {@code data} has fewer than {@link
+   *     CryptoFormat#NON_RAW_PREFIX_SIZE} bytes after {@code offset}.
+   */
+  public List<Entry<P>> getPrimitiveWithPrefix(final byte[] data, int offset) {
+    if (offset < 0 || data.length - offset < CryptoFormat.NON_RAW_PREFIX_SIZE) {
+      throw new IndexOutOfBoundsException("data too short to contain an output prefix");
+    }
+    if (prefixIndex == null) {
+      return getPrimitive(
+          Arrays.copyOfRange(data, offset, offset + CryptoFormat.NON_RAW_PREFIX_SIZE));
+    }
+    int keyId =
+        ((data[offset + 1] & 0xff) << 24)
+            | ((data[offset + 2] & 0xff) << 16)
+            | ((data[offset + 3] & 0xff) << 8)
+            | (data[offset + 4] & 0xff);
+    return prefixIndex.get(data[offset], keyId);
+  }
+
+  /**
+   * Returns the entries whose identifier equals the first {@link CryptoFormat#NON_RAW_PREFIX_SIZE}
+   * remaining bytes of {@code data}. The position of {@code data} is not changed.
+   *
+   * @throws IndexOutOfBoundsException if fewer than {@link CryptoFormat#NON_RAW_PREFIX_SIZE} bytes
+   *     remain in {@code data}.
+   */
+  public List<Entry<P>> getPrimitiveWithPrefix(final ByteBuffer data) {
+    if (data.remaining() < CryptoFormat.NON_RAW_PREFIX_SIZE) {
+      throw new IndexOutOfBoundsException("data too short to contain an output prefix");
+    }
+    int position = data.position();
+    if (prefixIndex == null) {
+      byte[] prefix = new byte[CryptoFormat.NON_RAW_PREFIX_SIZE];
+      data.duplicate().get(prefix);
+      return getPrimitive(prefix);
+    }
+    // Read byte by byte, so that the result does not depend on the byte order of data.
+    int keyId =
+        ((data.get(position + 1) & 0xff) << 24)
+            | ((data.get(position + 2) & 0xff) << 16)
+            | ((data.get(position + 3) & 0xff) << 8)
+            | (data.get(position + 4) & 0xff);
+    return prefixIndex.get(data.get(position), keyId);
+  }
+
   /** Returns all primitives. */
   public Collection<List<Entry<P>>> getAll() {
     return primitives.values();
@@ -248,6 +422,12 @@ public final class PrimitiveSet<P> {
   /** Stores entries in the original keyset key order. */
   private final List<Entry<P>> primitivesInKeysetOrder;
 
+  /**
+   * Index of the non-RAW entries of {@link #primitives} which can be queried without allocating.
+   * Only present on immutable sets, i.e. those created by the {@link Builder}.
+   */
+  @Nullable private final PrefixIndex<P> prefixIndex;
+
   private Entry<P> primary;
   private final Class<P> primitiveClass;
   private final MonitoringAnnotations annotations;
@@ -256,6 +436,7 @@ public final class PrimitiveSet<P> {
   private PrimitiveSet(Class<P> primitiveClass) {
     this.primitives = new ConcurrentHashMap<>();
     this.primitivesInKeysetOrder = new ArrayList<>();
+    this.prefixIndex = null;
     this.primitiveClass = primitiveClass;
     this.annotations = MonitoringAnnotations.EMPTY;
     this.isMutable = true;
@@ -270,6 +451,7 @@ public final class PrimitiveSet<P> {
       Class<P> primitiveClass) {
     this.primitives = primitives;
     this.primitivesInKeysetOrder = primitivesInKeysetOrder;
+    this.prefixIndex = new PrefixIndex<P>(primitives);
     this.primary = primary;
     this.primitiveClass = primitiveClass;
     this.annotations = annotations;
@@ -329,7 +511,7 @@ public final class PrimitiveSet<P> {
     if (key.getStatus() != KeyStatusType.ENABLED) {
       throw new GeneralSecurityException("only ENABLED key is allowed");
     }
-    Entry<P> entry = createEntry(null, primitive, key);
+    Entry<P> entry = createEntry(LazyPrimitive.<P>of(null), LazyPrimitive.of(primitive), key);
     storeEntryInPrimitiveSet(entry, primitives, primitivesInKeysetOrder);
     return entry;
   }
@@ -378,6 +560,53 @@ public final class PrimitiveSet<P> {
     }
   }
 
+  /**
+   * Maps the 5-byte output prefixes of TINK, LEGACY and CRUNCHY keys to their entries.
+   *
+   * <p>Each prefix is encoded as a long holding the start byte in the upper and the key id in the
+   * lower 32 bits. The encoded prefixes are kept in a sorted array, so that a lookup is a binary
+   * search over primitive longs.
+   */
+  private static final class PrefixIndex<P> {
+    private final long[] encodedPrefixes;
+    // entries.get(i) are the entries with prefix encodedPrefixes[i].
+    private final List<List<Entry<P>>> entries;
+
+    private PrefixIndex(ConcurrentMap<Prefix, List<Entry<P>>> primitives) {
+      SortedMap<Long, List<Entry<P>>> sorted = new TreeMap<>();
+      for (Map.Entry<Prefix, List<Entry<P>>> e : primitives.entrySet()) {
+        if (e.getKey().prefix.length == CryptoFormat.NON_RAW_PREFIX_SIZE) {
+          sorted.put(encode(e.getKey().prefix), e.getValue());
+        }
+      }
+      this.encodedPrefixes = new long[sorted.size()];
+      this.entries = new ArrayList<>(sorted.size());
+      int i = 0;
+      for (Map.Entry<Long, List<Entry<P>>> e : sorted.entrySet()) {
+        encodedPrefixes[i++] = e.getKey();
+        entries.add(e.getValue());
+      }
+    }
+
+    private static long encode(byte[] prefix) {
+      long keyId =
+          ((prefix[1] & 0xffL) << 24)
+              | ((prefix[2] & 0xffL) << 16)
+              | ((prefix[3] & 0xffL) << 8)
+              | (prefix[4] & 0xffL);
+      return ((prefix[0] & 0xffL) << 32) | keyId;
+    }
+
+    private List<Entry<P>> get(byte startByte, int keyId) {
+      long encoded = ((startByte & 0xffL) << 32) | (keyId & 0xffffffffL);
+      int index = Arrays.binarySearch(encodedPrefixes, encoded);
+      if (index < 0) {
+        return Collections.<Entry<P>>emptyList();
+      }
+      return entries.get(index);
+    }
+  }
+
   /** Builds an immutable PrimitiveSet. This is the prefered way to construct a PrimitiveSet. */
   public static class Builder<P> {
     private final Class<P> primitiveClass;
@@ -406,7 +635,8 @@ public final class PrimitiveSet<P> {
       if (key.getStatus() != KeyStatusType.ENABLED) {
         throw new GeneralSecurityException("only ENABLED key is allowed");
       }
-      Entry<P> entry = createEntry(fullPrimitive, primitive, key);
+      Entry<P> entry =
+          createEntry(LazyPrimitive.of(fullPrimitive), LazyPrimitive.of(primitive), key);
       storeEntryInPrimitiveSet(entry, primitives, primitivesInKeysetOrder);
       if (asPrimary) {
         if (this.primary != null) {
@@ -452,6 +682,32 @@ public final class PrimitiveSet<P> {
       return addPrimitive(fullPrimitive, primitive, key, true);
     }
 
+    /**
+     * Adds a non-primary entry whose primitives are created by {@code factory} the first time they
+     * are needed, instead of when the set is built.
+     *
+     * <p>Each primitive is created at most once, even if the entry is used from several threads.
+     * If {@code factory} fails, or returns null for both primitives, the getters of the entry throw
+     * an {@link IllegalStateException}.
+     */
+    @CanIgnoreReturnValue
+    public Builder<P> addLazyPrimitive(PrimitiveFactory<P> factory, Keyset.Key key)
+        throws GeneralSecurityException {
+      if (primitives == null) {
+        throw new IllegalStateException("addLazyPrimitive cannot be called after build");
+      }
+      if (key.getStatus() != KeyStatusType.ENABLED) {
+        throw new GeneralSecurityException("only ENABLED key is allowed");
+      }
+      LazyPrimitive<P> fullPrimitive = LazyPrimitive.fullPrimitiveOf(factory);
+      LazyPrimitive<P> primitive = LazyPrimitive.primitiveOf(factory);
+      fullPrimitive.other = primitive;
+      primitive.other = fullPrimitive;
+      Entry<P> entry = createEntry(fullPrimitive, primitive, key);
+      storeEntryInPrimitiveSet(entry, primitives, primitivesInKeysetOrder);
+      return this;
+    }
+
     @CanIgnoreReturnValue
     public Builder<P> setAnnotations(MonitoringAnnotations annotations) {
       if (primitives == null) {
@@ -21,6 +21,7 @@ import com.google.crypto.tink.internal.KeyManagerRegistry;
 import com.google.crypto.tink.internal.KeyTypeManager;
 import com.google.crypto.tink.internal.MutableParametersRegistry;
 import com.google.crypto.tink.internal.MutablePrimitiveRegistry;
+import com.google.crypto.tink.internal.PrimitiveCache;
 import com.google.crypto.tink.internal.PrivateKeyTypeManager;
 import com.google.crypto.tink.prf.Prf;
 import com.google.crypto.tink.proto.KeyData;
@@ -36,6 +37,7 @@ import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
@@ -85,6 +87,8 @@ public final class Registry {
   private static final ConcurrentMap<String, Catalogue<?>> catalogueMap =
       new ConcurrentHashMap<>(); //  name -> catalogue mapping
 
+  private static final AtomicReference<PrimitiveCache> primitiveCache = new AtomicReference<>();
+
   /**
    * Resets the registry.
    *
@@ -97,6 +101,75 @@ public final class Registry {
     KeyManagerRegistry.resetGlobalInstanceTestOnly();
     MutablePrimitiveRegistry.resetGlobalInstanceTestOnly();
     catalogueMap.clear();
+    primitiveCache.set(null);
+  }
+
+  /** Hit, miss and eviction counters of the cache enabled by {@link #enablePrimitiveCache}. */
+  public static final class PrimitiveCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    private PrimitiveCacheStats(PrimitiveCache.Stats stats) {
+      this.hitCount = stats.getHitCount();
+      this.missCount = stats.getMissCount();
+      this.evictionCount = stats.getEvictionCount();
+      this.size = stats.getSize();
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Number of entries removed because the cache was full or the entry had expired. */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    /** Number of primitives in the cache. */
+    public int getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * Enables caching of the primitives returned by {@link #getCachedPrimitive}.
+   *
+   * <p>This avoids repeating the key manager work for callers which create a primitive for the same
+   * key over and over again, e.g. envelope encryption decrypting many messages under the same data
+   * encryption key. At most {@code maxSize} primitives are kept, each for at most {@code ttlMillis}
+   * milliseconds. The cache is keyed by a SHA-256 digest of the type URL and the serialized key and
+   * does not retain a copy of the serialized key.
+   *
+   * <p>{@link #getPrimitive} never uses the cache.
+   *
+   * <p>Calling this again replaces the existing cache by an empty one.
+   */
+  public static void enablePrimitiveCache(int maxSize, long ttlMillis) {
+    primitiveCache.set(new PrimitiveCache(maxSize, ttlMillis));
+  }
+
+  /** Disables and clears the cache enabled by {@link #enablePrimitiveCache}. */
+  public static void disablePrimitiveCache() {
+    primitiveCache.set(null);
+  }
+
+  /**
+   * Returns the hit, miss and eviction counters of the primitive cache, or null if the cache is
+   * disabled.
+   */
+  @Nullable
+  public static PrimitiveCacheStats getPrimitiveCacheStats() {
+    PrimitiveCache cache = primitiveCache.get();
+    if (cache == null) {
+      return null;
+    }
+    return new PrimitiveCacheStats(cache.getStats());
   }
 
   /**
@@ -521,6 +594,43 @@ public final class Registry {
     return getPrimitive(typeUrl, ByteString.copyFrom(serializedKey), primitiveClass);
   }
 
+  /**
+   * Like {@link #getPrimitive(String, ByteString, Class)}, but returns a cached primitive if the
+   * primitive cache is enabled (see {@link #enablePrimitiveCache}) and contains one for this key.
+   *
+   * <p>Only use this for keys which are used many times, e.g. the data encryption key when
+   * decrypting envelope encrypted messages. Keys which are used only once, such as freshly
+   * generated keys, would only fill the cache and keep primitives for them alive.
+   *
+   * @return a primitive for the key, which may be shared with other callers
+   */
+  public static <P> P getCachedPrimitive(
+      String typeUrl, ByteString serializedKey, Class<P> primitiveClass)
+      throws GeneralSecurityException {
+    PrimitiveCache cache = primitiveCache.get();
+    if (cache == null) {
+      return getPrimitive(typeUrl, serializedKey, primitiveClass);
+    }
+    PrimitiveCache.CacheKey cacheKey =
+        PrimitiveCache.cacheKey(typeUrl, serializedKey, primitiveClass);
+    P primitive = cache.get(cacheKey, primitiveClass);
+    if (primitive == null) {
+      primitive = getPrimitive(typeUrl, serializedKey, primitiveClass);
+      cache.put(cacheKey, primitive);
+    }
+    return primitive;
+  }
+
+  /**
+   * Like {@link #getPrimitive(String, byte[], Class)}, but returns a cached primitive if the
+   * primitive cache is enabled. See {@link #getCachedPrimitive(String, ByteString, Class)}.
+   */
+  public static <P> P getCachedPrimitive(
+      String typeUrl, byte[] serializedKey, Class<P> primitiveClass)
+      throws GeneralSecurityException {
+    return getCachedPrimitive(typeUrl, ByteString.copyFrom(serializedKey), primitiveClass);
+  }
+
   /**
    * Creates a new primitive for the key given in {@code keyData}.
    *
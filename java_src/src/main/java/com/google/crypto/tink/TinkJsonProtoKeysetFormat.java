@@ -18,6 +18,8 @@ package com.google.crypto.tink;
 
 import static com.google.crypto.tink.internal.Util.UTF_8;
 
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -31,10 +33,18 @@ public final class TinkJsonProtoKeysetFormat {
     if (access == null) {
       throw new NullPointerException("SecretKeyAccess cannot be null");
     }
+    OperationListener.Operation parse = startKeysetParse();
     try {
-      return CleartextKeysetHandle.read(JsonKeysetReader.withString(serializedKeyset));
+      KeysetHandle keysetHandle =
+          CleartextKeysetHandle.read(JsonKeysetReader.withString(serializedKeyset));
+      parse.logSuccess(serializedKeyset.length());
+      return keysetHandle;
     } catch (IOException e) {
+      parse.logFailure();
       throw new GeneralSecurityException("Parse keyset failed");
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
     }
   }
 
@@ -56,10 +66,18 @@ public final class TinkJsonProtoKeysetFormat {
   @SuppressWarnings("UnusedException")
   public static KeysetHandle parseKeysetWithoutSecret(String serializedKeyset)
       throws GeneralSecurityException {
+    OperationListener.Operation parse = startKeysetParse();
     try {
-      return KeysetHandle.readNoSecret(JsonKeysetReader.withString(serializedKeyset));
+      KeysetHandle keysetHandle =
+          KeysetHandle.readNoSecret(JsonKeysetReader.withString(serializedKeyset));
+      parse.logSuccess(serializedKeyset.length());
+      return keysetHandle;
     } catch (IOException e) {
+      parse.logFailure();
       throw new GeneralSecurityException("Parse keyset failed");
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
     }
   }
 
@@ -79,13 +97,21 @@ public final class TinkJsonProtoKeysetFormat {
   public static KeysetHandle parseEncryptedKeyset(
       String serializedEncryptedKeyset, Aead keysetEncryptionAead, byte[] associatedData)
       throws GeneralSecurityException {
+    OperationListener.Operation parse = startKeysetParse();
     try {
-      return KeysetHandle.readWithAssociatedData(
-          JsonKeysetReader.withString(serializedEncryptedKeyset),
-          keysetEncryptionAead,
-          associatedData);
+      KeysetHandle keysetHandle =
+          KeysetHandle.readWithAssociatedData(
+              JsonKeysetReader.withString(serializedEncryptedKeyset),
+              keysetEncryptionAead,
+              associatedData);
+      parse.logSuccess(serializedEncryptedKeyset.length());
+      return keysetHandle;
     } catch (IOException e) {
+      parse.logFailure();
       throw new GeneralSecurityException("Parse keyset failed");
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
     }
   }
 
@@ -103,5 +129,11 @@ public final class TinkJsonProtoKeysetFormat {
     }
   }
 
+  private static OperationListener.Operation startKeysetParse() {
+    return MutableOperationListenerRegistry.globalInstance()
+        .getOperationListener()
+        .startKeysetParse("json");
+  }
+
   private TinkJsonProtoKeysetFormat() {}
 }
@@ -16,6 +16,8 @@
 
 package com.google.crypto.tink;
 
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -29,10 +31,18 @@ public final class TinkProtoKeysetFormat {
     if (access == null) {
       throw new NullPointerException("SecretKeyAccess cannot be null");
     }
+    OperationListener.Operation parse = startKeysetParse();
     try {
-      return CleartextKeysetHandle.read(BinaryKeysetReader.withBytes(serializedKeyset));
+      KeysetHandle keysetHandle =
+          CleartextKeysetHandle.read(BinaryKeysetReader.withBytes(serializedKeyset));
+      parse.logSuccess(serializedKeyset.length);
+      return keysetHandle;
     } catch (IOException e) {
+      parse.logFailure();
       throw new GeneralSecurityException("Parse keyset failed");
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
     }
   }
 
@@ -54,7 +64,15 @@ public final class TinkProtoKeysetFormat {
   @SuppressWarnings("UnusedException")
   public static KeysetHandle parseKeysetWithoutSecret(byte[] serializedKeyset)
       throws GeneralSecurityException {
-    return KeysetHandle.readNoSecret(serializedKeyset);
+    OperationListener.Operation parse = startKeysetParse();
+    try {
+      KeysetHandle keysetHandle = KeysetHandle.readNoSecret(serializedKeyset);
+      parse.logSuccess(serializedKeyset.length);
+      return keysetHandle;
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
+    }
   }
 
   @SuppressWarnings("UnusedException")
@@ -73,13 +91,21 @@ public final class TinkProtoKeysetFormat {
   public static KeysetHandle parseEncryptedKeyset(
       byte[] serializedEncryptedKeyset, Aead keysetEncryptionAead, byte[] associatedData)
       throws GeneralSecurityException {
+    OperationListener.Operation parse = startKeysetParse();
     try {
-      return KeysetHandle.readWithAssociatedData(
-          BinaryKeysetReader.withBytes(serializedEncryptedKeyset),
-          keysetEncryptionAead,
-          associatedData);
+      KeysetHandle keysetHandle =
+          KeysetHandle.readWithAssociatedData(
+              BinaryKeysetReader.withBytes(serializedEncryptedKeyset),
+              keysetEncryptionAead,
+              associatedData);
+      parse.logSuccess(serializedEncryptedKeyset.length);
+      return keysetHandle;
     } catch (IOException e) {
+      parse.logFailure();
       throw new GeneralSecurityException("Parse keyset failed");
+    } catch (GeneralSecurityException e) {
+      parse.logFailure();
+      throw e;
     }
   }
 
@@ -97,5 +123,11 @@ public final class TinkProtoKeysetFormat {
     }
   }
 
+  private static OperationListener.Operation startKeysetParse() {
+    return MutableOperationListenerRegistry.globalInstance()
+        .getOperationListener()
+        .startKeysetParse("binary");
+  }
+
   private TinkProtoKeysetFormat() {}
 }
@@ -26,9 +26,11 @@ import com.google.crypto.tink.internal.MutableMonitoringRegistry;
 import com.google.crypto.tink.monitoring.MonitoringClient;
 import com.google.crypto.tink.monitoring.MonitoringKeysetInfo;
 import com.google.crypto.tink.subtle.Bytes;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.List;
+import javax.crypto.ShortBufferException;
 
 /**
  * AeadWrapper is the implementation of SetWrapper for the Aead primitive.
@@ -63,15 +65,19 @@ public class AeadWrapper implements PrimitiveWrapper<Aead, Aead> {
     @Override
     public byte[] encrypt(final byte[] plaintext, final byte[] associatedData)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(encLogger);
       try {
         byte[] output =
             Bytes.concat(
                 pSet.getPrimary().getIdentifier(),
                 pSet.getPrimary().getPrimitive().encrypt(plaintext, associatedData));
-        encLogger.log(pSet.getPrimary().getKeyId(), plaintext.length);
+        encLogger.log(
+            pSet.getPrimary().getKeyId(),
+            plaintext.length,
+            MonitoringUtil.elapsedNanos(encLogger, startTime));
         return output;
       } catch (GeneralSecurityException e) {
-        encLogger.logFailure();
+        encLogger.logFailure(MonitoringUtil.elapsedNanos(encLogger, startTime));
         throw e;
       }
     }
@@ -79,15 +85,22 @@ public class AeadWrapper implements PrimitiveWrapper<Aead, Aead> {
     @Override
     public byte[] decrypt(final byte[] ciphertext, final byte[] associatedData)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(decLogger);
       if (ciphertext.length > CryptoFormat.NON_RAW_PREFIX_SIZE) {
-        byte[] prefix = Arrays.copyOf(ciphertext, CryptoFormat.NON_RAW_PREFIX_SIZE);
         byte[] ciphertextNoPrefix =
             Arrays.copyOfRange(ciphertext, CryptoFormat.NON_RAW_PREFIX_SIZE, ciphertext.length);
-        List<PrimitiveSet.Entry<Aead>> entries = pSet.getPrimitive(prefix);
+        List<PrimitiveSet.Entry<Aead>> entries = pSet.getPrimitiveWithPrefix(ciphertext, 0);
         for (PrimitiveSet.Entry<Aead> entry : entries) {
+          if (entry.primitiveCreationFailed()) {
+            // The primitive of a lazily added entry could not be created.
+            continue;
+          }
           try {
             byte[] result = entry.getPrimitive().decrypt(ciphertextNoPrefix, associatedData);
-            decLogger.log(entry.getKeyId(), ciphertextNoPrefix.length);
+            decLogger.log(
+                entry.getKeyId(),
+                ciphertextNoPrefix.length,
+                MonitoringUtil.elapsedNanos(decLogger, startTime));
             return result;
           } catch (GeneralSecurityException e) {
             continue;
@@ -98,18 +111,119 @@ public class AeadWrapper implements PrimitiveWrapper<Aead, Aead> {
       // Let's try all RAW keys.
       List<PrimitiveSet.Entry<Aead>> entries = pSet.getRawPrimitives();
       for (PrimitiveSet.Entry<Aead> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           byte[] result = entry.getPrimitive().decrypt(ciphertext, associatedData);
-          decLogger.log(entry.getKeyId(), ciphertext.length);
+          decLogger.log(
+              entry.getKeyId(),
+              ciphertext.length,
+              MonitoringUtil.elapsedNanos(decLogger, startTime));
           return result;
         } catch (GeneralSecurityException e) {
           continue;
         }
       }
-      decLogger.logFailure();
+      decLogger.logFailure(MonitoringUtil.elapsedNanos(decLogger, startTime));
+      // nothing works.
+      throw new GeneralSecurityException("decryption failed");
+    }
+
+    @Override
+    public void encrypt(ByteBuffer plaintext, ByteBuffer associatedData, ByteBuffer ciphertext)
+        throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(encLogger);
+      try {
+        int plaintextLength = plaintext.remaining();
+        byte[] identifier = pSet.getPrimary().getIdentifier();
+        if (ciphertext.remaining() < identifier.length) {
+          throw new ShortBufferException("ciphertext buffer too small");
+        }
+        ByteBuffer output = ciphertext.duplicate();
+        output.put(identifier);
+        pSet.getPrimary().getPrimitive().encrypt(plaintext, associatedData, output);
+        ciphertext.position(output.position());
+        encLogger.log(
+            pSet.getPrimary().getKeyId(),
+            plaintextLength,
+            MonitoringUtil.elapsedNanos(encLogger, startTime));
+      } catch (GeneralSecurityException e) {
+        encLogger.logFailure(MonitoringUtil.elapsedNanos(encLogger, startTime));
+        throw e;
+      }
+    }
+
+    /**
+     * Tries the same keys in the same order as {@link #decrypt(byte[], byte[])}. Every attempt
+     * works on duplicates of the buffers, so that a failed attempt does not move their positions.
+     */
+    @Override
+    public void decrypt(ByteBuffer ciphertext, ByteBuffer associatedData, ByteBuffer plaintext)
+        throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(decLogger);
+      int ciphertextLength = ciphertext.remaining();
+      if (ciphertextLength > CryptoFormat.NON_RAW_PREFIX_SIZE) {
+        List<PrimitiveSet.Entry<Aead>> entries = pSet.getPrimitiveWithPrefix(ciphertext);
+        for (PrimitiveSet.Entry<Aead> entry : entries) {
+          ByteBuffer ciphertextNoPrefix = ciphertext.duplicate();
+          ciphertextNoPrefix.position(
+              ciphertextNoPrefix.position() + CryptoFormat.NON_RAW_PREFIX_SIZE);
+          if (tryDecrypt(entry, ciphertextNoPrefix, associatedData, plaintext)) {
+            ciphertext.position(ciphertext.limit());
+            decLogger.log(
+                entry.getKeyId(),
+                ciphertextLength - CryptoFormat.NON_RAW_PREFIX_SIZE,
+                MonitoringUtil.elapsedNanos(decLogger, startTime));
+            return;
+          }
+        }
+      }
+
+      // Let's try all RAW keys.
+      List<PrimitiveSet.Entry<Aead>> entries = pSet.getRawPrimitives();
+      for (PrimitiveSet.Entry<Aead> entry : entries) {
+        if (tryDecrypt(entry, ciphertext.duplicate(), associatedData, plaintext)) {
+          ciphertext.position(ciphertext.limit());
+          decLogger.log(
+              entry.getKeyId(),
+              ciphertextLength,
+              MonitoringUtil.elapsedNanos(decLogger, startTime));
+          return;
+        }
+      }
+      decLogger.logFailure(MonitoringUtil.elapsedNanos(decLogger, startTime));
       // nothing works.
       throw new GeneralSecurityException("decryption failed");
     }
+
+    private static boolean tryDecrypt(
+        PrimitiveSet.Entry<Aead> entry,
+        ByteBuffer ciphertext,
+        ByteBuffer associatedData,
+        ByteBuffer plaintext) {
+      if (entry.primitiveCreationFailed()) {
+        // The primitive of a lazily added entry could not be created.
+        return false;
+      }
+      ByteBuffer output = plaintext.duplicate();
+      try {
+        entry
+            .getPrimitive()
+            .decrypt(
+                ciphertext,
+                associatedData == null ? null : associatedData.duplicate(),
+                output);
+      } catch (GeneralSecurityException e) {
+        return false;
+      }
+      plaintext.position(output.position());
+      if (associatedData != null) {
+        associatedData.position(associatedData.limit());
+      }
+      return true;
+    }
   }
 
   AeadWrapper() {}
@@ -0,0 +1,346 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.aead;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * An {@link AsyncAead} that sends requests to a remote service on an {@link Executor}, with a
+ * bounded number of concurrent calls and of pending requests.
+ *
+ * <p>Requests that arrive while all calls are busy are queued. When a call finishes, up to {@code
+ * maxBatchSize} queued requests of the same kind are sent together in the next call. With a batch
+ * size of 1 every request is a separate call, which is what has to be used for services that have
+ * no batch API.
+ *
+ * <p>If more than {@code maxPendingRequests} requests are queued or running, new requests fail
+ * immediately with a {@link RejectedExecutionException}, instead of queueing up without bound.
+ */
+public final class BatchingAsyncAead implements AsyncAead {
+  /** A single encryption or decryption request, sent to a {@link BatchFunction}. */
+  public static final class Request {
+    private final byte[] input;
+    @Nullable private final byte[] associatedData;
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    private Request(byte[] input, @Nullable byte[] associatedData) {
+      this.input = input;
+      this.associatedData = associatedData;
+    }
+
+    /** Returns the plaintext to encrypt or the ciphertext to decrypt. */
+    public byte[] getInput() {
+      return input;
+    }
+
+    /** Returns the associated data, which can be null. */
+    @Nullable
+    public byte[] getAssociatedData() {
+      return associatedData;
+    }
+
+    /** Completes the request with the given ciphertext or plaintext. */
+    public void complete(byte[] output) {
+      result.complete(output);
+    }
+
+    /** Completes the request with the given exception. */
+    public void fail(GeneralSecurityException e) {
+      result.completeExceptionally(e);
+    }
+
+    boolean isDone() {
+      return result.isDone();
+    }
+  }
+
+  /** Sends a batch of requests of the same kind to the remote service. */
+  public interface BatchFunction {
+    /**
+     * Processes {@code batch}, calling {@link Request#complete} or {@link Request#fail} on each of
+     * the requests. If this throws, all requests that are not completed yet fail with the thrown
+     * exception.
+     */
+    void apply(List<Request> batch) throws GeneralSecurityException;
+  }
+
+  /**
+   * Returns a {@link BatchFunction} that encrypts each request of a batch with {@code aead}, one
+   * after the other.
+   */
+  public static BatchFunction encryptEach(Aead aead) {
+    return batch -> {
+      for (Request request : batch) {
+        try {
+          request.complete(aead.encrypt(request.getInput(), request.getAssociatedData()));
+        } catch (GeneralSecurityException e) {
+          request.fail(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link BatchFunction} that decrypts each request of a batch with {@code aead}, one
+   * after the other.
+   */
+  public static BatchFunction decryptEach(Aead aead) {
+    return batch -> {
+      for (Request request : batch) {
+        try {
+          request.complete(aead.decrypt(request.getInput(), request.getAssociatedData()));
+        } catch (GeneralSecurityException e) {
+          request.fail(e);
+        }
+      }
+    };
+  }
+
+  /** Builder for {@link BatchingAsyncAead}. */
+  public static final class Builder {
+    @Nullable private BatchFunction encryptFunction = null;
+    @Nullable private BatchFunction decryptFunction = null;
+    @Nullable private Executor executor = null;
+    private int maxBatchSize = 1;
+    private int maxConcurrentCalls = 16;
+    private int maxPendingRequests = 10000;
+
+    private Builder() {}
+
+    /** Sends every request as a separate call to {@code aead}. */
+    @CanIgnoreReturnValue
+    public Builder setAead(Aead aead) {
+      this.encryptFunction = encryptEach(aead);
+      this.decryptFunction = decryptEach(aead);
+      return this;
+    }
+
+    /** Sets the functions that send batches of encryption and decryption requests. */
+    @CanIgnoreReturnValue
+    public Builder setBatchFunctions(BatchFunction encryptFunction, BatchFunction decryptFunction) {
+      this.encryptFunction = encryptFunction;
+      this.decryptFunction = decryptFunction;
+      return this;
+    }
+
+    /** Sets the executor on which the calls to the remote service are made. */
+    @CanIgnoreReturnValue
+    public Builder setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /** Sets the maximum number of requests sent in one call. The default is 1. */
+    @CanIgnoreReturnValue
+    public Builder setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /** Sets the maximum number of calls that run at the same time. The default is 16. */
+    @CanIgnoreReturnValue
+    public Builder setMaxConcurrentCalls(int maxConcurrentCalls) {
+      this.maxConcurrentCalls = maxConcurrentCalls;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that are queued or running, after which new requests are
+     * rejected. The default is 10000.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMaxPendingRequests(int maxPendingRequests) {
+      this.maxPendingRequests = maxPendingRequests;
+      return this;
+    }
+
+    public BatchingAsyncAead build() {
+      if (encryptFunction == null || decryptFunction == null) {
+        throw new IllegalArgumentException("either an Aead or batch functions must be set");
+      }
+      if (executor == null) {
+        throw new IllegalArgumentException("executor must be set");
+      }
+      if (maxBatchSize <= 0 || maxConcurrentCalls <= 0 || maxPendingRequests <= 0) {
+        throw new IllegalArgumentException(
+            "maxBatchSize, maxConcurrentCalls and maxPendingRequests must be positive");
+      }
+      return new BatchingAsyncAead(this);
+    }
+  }
+
+  private final BatchFunction encryptFunction;
+  private final BatchFunction decryptFunction;
+  private final Executor executor;
+  private final int maxBatchSize;
+  private final int maxConcurrentCalls;
+  private final int maxPendingRequests;
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final ArrayDeque<Request> encryptQueue = new ArrayDeque<>();
+
+  @GuardedBy("lock")
+  private final ArrayDeque<Request> decryptQueue = new ArrayDeque<>();
+
+  @GuardedBy("lock")
+  private int runningCalls = 0;
+
+  @GuardedBy("lock")
+  private int pendingRequests = 0;
+
+  // Alternates between the two queues, so that neither kind of request starves the other.
+  @GuardedBy("lock")
+  private boolean preferDecrypt = false;
+
+  private BatchingAsyncAead(Builder builder) {
+    this.encryptFunction = builder.encryptFunction;
+    this.decryptFunction = builder.decryptFunction;
+    this.executor = builder.executor;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.maxConcurrentCalls = builder.maxConcurrentCalls;
+    this.maxPendingRequests = builder.maxPendingRequests;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public CompletableFuture<byte[]> encrypt(final byte[] plaintext, final byte[] associatedData) {
+    return submit(/* decrypt= */ false, plaintext, associatedData);
+  }
+
+  @Override
+  public CompletableFuture<byte[]> decrypt(final byte[] ciphertext, final byte[] associatedData) {
+    return submit(/* decrypt= */ true, ciphertext, associatedData);
+  }
+
+  private CompletableFuture<byte[]> submit(
+      boolean decrypt, byte[] input, @Nullable byte[] associatedData) {
+    Request request = new Request(input, associatedData);
+    synchronized (lock) {
+      if (pendingRequests >= maxPendingRequests) {
+        request.result.completeExceptionally(
+            new RejectedExecutionException("too many pending requests"));
+        return request.result;
+      }
+      pendingRequests++;
+      (decrypt ? decryptQueue : encryptQueue).add(request);
+    }
+    dispatch();
+    return request.result;
+  }
+
+  /** Starts calls for queued requests until the queues are empty or all call slots are in use. */
+  private void dispatch() {
+    while (true) {
+      List<Request> batch;
+      BatchFunction function;
+      synchronized (lock) {
+        if (runningCalls >= maxConcurrentCalls) {
+          return;
+        }
+        ArrayDeque<Request> queue;
+        if (encryptQueue.isEmpty() && decryptQueue.isEmpty()) {
+          return;
+        } else if (encryptQueue.isEmpty() || (preferDecrypt && !decryptQueue.isEmpty())) {
+          queue = decryptQueue;
+          function = decryptFunction;
+          preferDecrypt = false;
+        } else {
+          queue = encryptQueue;
+          function = encryptFunction;
+          preferDecrypt = true;
+        }
+        int size = Math.min(queue.size(), maxBatchSize);
+        batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          batch.add(queue.poll());
+        }
+        runningCalls++;
+      }
+      try {
+        executor.execute(() -> runBatch(function, batch));
+      } catch (RuntimeException e) {
+        // Fail the queued requests as well: nothing else would start them unless another request
+        // is submitted later.
+        GeneralSecurityException failure =
+            new GeneralSecurityException("executor rejected the request", e);
+        finishBatch(batch, failure);
+        failQueuedRequests(failure);
+        return;
+      }
+    }
+  }
+
+  /** Removes all queued requests and fails them with {@code failure}. */
+  private void failQueuedRequests(GeneralSecurityException failure) {
+    List<Request> queued;
+    synchronized (lock) {
+      queued = new ArrayList<>(encryptQueue.size() + decryptQueue.size());
+      queued.addAll(encryptQueue);
+      queued.addAll(decryptQueue);
+      encryptQueue.clear();
+      decryptQueue.clear();
+      pendingRequests -= queued.size();
+    }
+    for (Request request : queued) {
+      request.fail(failure);
+    }
+  }
+
+  private void runBatch(BatchFunction function, List<Request> batch) {
+    GeneralSecurityException failure = null;
+    try {
+      function.apply(batch);
+    } catch (GeneralSecurityException e) {
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new GeneralSecurityException("remote call failed", e);
+    }
+    finishBatch(batch, failure);
+    dispatch();
+  }
+
+  /** Fails all requests of {@code batch} that are not completed yet, and frees the call slot. */
+  private void finishBatch(List<Request> batch, @Nullable GeneralSecurityException failure) {
+    for (Request request : batch) {
+      if (!request.isDone()) {
+        request.fail(
+            failure != null ? failure : new GeneralSecurityException("request was not completed"));
+      }
+    }
+    synchronized (lock) {
+      runningCalls--;
+      pendingRequests -= batch.size();
+    }
+  }
+}
@@ -0,0 +1,341 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.aead;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.Registry;
+import com.google.crypto.tink.proto.KeyTemplate;
+import com.google.crypto.tink.util.Bytes;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A variant of {@link KmsEnvelopeAead} that caches data encryption keys (DEKs), to avoid calling
+ * the remote KMS for every message.
+ *
+ * <p>On encryption, a DEK is generated and wrapped by the remote AEAD once, and is then reused for
+ * up to {@code maxEncryptionsPerDek} messages or until it is older than {@code maxDekAge},
+ * whichever comes first. On decryption, the DEK primitives are kept in a bounded LRU cache keyed by
+ * the encrypted DEK, so ciphertexts that share a DEK only need one remote call.
+ *
+ * <p>The ciphertext format is the same as that of {@link KmsEnvelopeAead}, and the two can decrypt
+ * each other's ciphertexts.
+ *
+ * <p>Reusing a DEK reduces the isolation between messages: a DEK that is compromised decrypts
+ * all the messages encrypted with it, and DEKs with random nonces (such as AES-GCM) must not be
+ * used for more than 2^32 messages. Plaintext DEKs also stay in memory for as long as they are
+ * cached. Only use this class if the cost of the remote KMS calls matters.
+ */
+public final class CachingKmsEnvelopeAead implements Aead {
+  /** Hit, miss and eviction counts of one of the caches of a {@link CachingKmsEnvelopeAead}. */
+  public static final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    private CacheStats(long hitCount, long missCount, long evictionCount) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+    }
+
+    /** Returns the number of times a cached DEK was used. */
+    public long hitCount() {
+      return hitCount;
+    }
+
+    /** Returns the number of times the remote AEAD had to be called. */
+    public long missCount() {
+      return missCount;
+    }
+
+    /** Returns the number of DEKs that were dropped from the cache. */
+    public long evictionCount() {
+      return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "CacheStats(hitCount=%d, missCount=%d, evictionCount=%d)",
+          hitCount, missCount, evictionCount);
+    }
+  }
+
+  /** Builder for {@link CachingKmsEnvelopeAead}. */
+  public static final class Builder {
+    @Nullable private AeadParameters dekParameters = null;
+    @Nullable private Aead remote = null;
+    private int maxEncryptionsPerDek = 1000;
+    private Duration maxDekAge = Duration.ofMinutes(5);
+    private int maxDecryptionCacheSize = 1000;
+    private Clock clock = Clock.systemUTC();
+
+    private Builder() {}
+
+    /**
+     * Sets the parameters of the DEKs. Must be one of the parameters supported by {@link
+     * KmsEnvelopeAead#create}.
+     */
+    @CanIgnoreReturnValue
+    public Builder setDekParameters(AeadParameters dekParameters) {
+      this.dekParameters = dekParameters;
+      return this;
+    }
+
+    /** Sets the remote AEAD that wraps and unwraps the DEKs. */
+    @CanIgnoreReturnValue
+    public Builder setRemoteAead(Aead remote) {
+      this.remote = remote;
+      return this;
+    }
+
+    /** Sets the number of messages a DEK is used for before a new one is generated. */
+    @CanIgnoreReturnValue
+    public Builder setMaxEncryptionsPerDek(int maxEncryptionsPerDek) {
+      this.maxEncryptionsPerDek = maxEncryptionsPerDek;
+      return this;
+    }
+
+    /** Sets the time after which a new DEK is generated for encryption. */
+    @CanIgnoreReturnValue
+    public Builder setMaxDekAge(Duration maxDekAge) {
+      this.maxDekAge = maxDekAge;
+      return this;
+    }
+
+    /** Sets the maximum number of unwrapped DEKs that are kept for decryption. */
+    @CanIgnoreReturnValue
+    public Builder setMaxDecryptionCacheSize(int maxDecryptionCacheSize) {
+      this.maxDecryptionCacheSize = maxDecryptionCacheSize;
+      return this;
+    }
+
+    /**
+     * Sets the clock used to compute the age of a DEK. By default, the system clock is used.
+     *
+     * <p>This is mainly useful for testing.
+     */
+    @CanIgnoreReturnValue
+    public Builder setClock(Clock clock) {
+      if (clock == null) {
+        throw new NullPointerException("clock cannot be null");
+      }
+      this.clock = clock;
+      return this;
+    }
+
+    public CachingKmsEnvelopeAead build() throws GeneralSecurityException {
+      if (dekParameters == null) {
+        throw new GeneralSecurityException("dekParameters must be set");
+      }
+      if (remote == null) {
+        throw new GeneralSecurityException("remote AEAD must be set");
+      }
+      if (maxEncryptionsPerDek <= 0) {
+        throw new IllegalArgumentException("maxEncryptionsPerDek must be positive");
+      }
+      if (maxDekAge == null || maxDekAge.isNegative() || maxDekAge.isZero()) {
+        throw new IllegalArgumentException("maxDekAge must be positive");
+      }
+      if (maxDecryptionCacheSize < 0) {
+        throw new IllegalArgumentException("maxDecryptionCacheSize must not be negative");
+      }
+      KeyTemplate dekTemplate = KmsEnvelopeAead.toKeyTemplate(dekParameters);
+      if (!KmsEnvelopeAead.isSupportedDekKeyType(dekTemplate.getTypeUrl())) {
+        throw new GeneralSecurityException(
+            "Unsupported DEK key type: "
+                + dekTemplate.getTypeUrl()
+                + ". Only Tink AEAD key types are supported.");
+      }
+      return new CachingKmsEnvelopeAead(this, dekTemplate);
+    }
+  }
+
+  /** A DEK primitive together with its encrypted form. */
+  private static final class Dek {
+    final Aead aead;
+    final byte[] encryptedDek;
+    final Instant expiration;
+    int encryptionCount = 0;
+
+    Dek(Aead aead, byte[] encryptedDek, Instant expiration) {
+      this.aead = aead;
+      this.encryptedDek = encryptedDek;
+      this.expiration = expiration;
+    }
+  }
+
+  private final KeyTemplate dekTemplate;
+  private final Aead remote;
+  private final int maxEncryptionsPerDek;
+  private final Duration maxDekAge;
+  private final int maxDecryptionCacheSize;
+  private final Clock clock;
+
+  private final Object encryptionLock = new Object();
+
+  @GuardedBy("encryptionLock")
+  @Nullable
+  private Dek currentDek = null;
+
+  @GuardedBy("decryptionCache")
+  private final LinkedHashMap<Bytes, Aead> decryptionCache;
+
+  private final AtomicLong encryptionHits = new AtomicLong();
+  private final AtomicLong encryptionMisses = new AtomicLong();
+  private final AtomicLong encryptionEvictions = new AtomicLong();
+  private final AtomicLong decryptionHits = new AtomicLong();
+  private final AtomicLong decryptionMisses = new AtomicLong();
+  private final AtomicLong decryptionEvictions = new AtomicLong();
+
+  private CachingKmsEnvelopeAead(Builder builder, KeyTemplate dekTemplate) {
+    this.dekTemplate = dekTemplate;
+    this.remote = builder.remote;
+    this.maxEncryptionsPerDek = builder.maxEncryptionsPerDek;
+    this.maxDekAge = builder.maxDekAge;
+    this.maxDecryptionCacheSize = builder.maxDecryptionCacheSize;
+    this.clock = builder.clock;
+    this.decryptionCache =
+        new LinkedHashMap<Bytes, Aead>(16, 0.75f, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Bytes, Aead> eldest) {
+            if (size() > maxDecryptionCacheSize) {
+              decryptionEvictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the DEK to use for the next encryption, generating and wrapping a new one if the
+   * current one is exhausted or expired.
+   *
+   * <p>The remote AEAD is called while holding the lock, so that concurrent encryptions wait for
+   * one new DEK instead of all calling the remote AEAD.
+   */
+  private Dek acquireDek() throws GeneralSecurityException {
+    synchronized (encryptionLock) {
+      Dek dek = currentDek;
+      if (dek != null) {
+        if (dek.encryptionCount < maxEncryptionsPerDek
+            && clock.instant().isBefore(dek.expiration)) {
+          dek.encryptionCount++;
+          encryptionHits.incrementAndGet();
+          return dek;
+        }
+        currentDek = null;
+        encryptionEvictions.incrementAndGet();
+      }
+      byte[] rawDek = Registry.newKeyData(dekTemplate).getValue().toByteArray();
+      byte[] encryptedDek = remote.encrypt(rawDek, KmsEnvelopeAead.EMPTY_AAD);
+      Aead aead = Registry.getPrimitive(dekTemplate.getTypeUrl(), rawDek, Aead.class);
+      dek = new Dek(aead, encryptedDek, clock.instant().plus(maxDekAge));
+      dek.encryptionCount = 1;
+      encryptionMisses.incrementAndGet();
+      currentDek = dek;
+      return dek;
+    }
+  }
+
+  @Override
+  public byte[] encrypt(final byte[] plaintext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    Dek dek = acquireDek();
+    byte[] payload = dek.aead.encrypt(plaintext, associatedData);
+    return KmsEnvelopeAead.buildCiphertext(dek.encryptedDek, payload);
+  }
+
+  private Aead getDecryptionAead(byte[] encryptedDek) throws GeneralSecurityException {
+    Bytes cacheKey = Bytes.copyFrom(encryptedDek);
+    synchronized (decryptionCache) {
+      Aead aead = decryptionCache.get(cacheKey);
+      if (aead != null) {
+        decryptionHits.incrementAndGet();
+        return aead;
+      }
+    }
+    decryptionMisses.incrementAndGet();
+    // The remote AEAD is called without holding the lock. If several threads miss on the same DEK
+    // at the same time, each of them unwraps it and the last one wins, which is harmless.
+    byte[] rawDek = remote.decrypt(encryptedDek, KmsEnvelopeAead.EMPTY_AAD);
+    Aead aead = Registry.getPrimitive(dekTemplate.getTypeUrl(), rawDek, Aead.class);
+    if (maxDecryptionCacheSize > 0) {
+      synchronized (decryptionCache) {
+        decryptionCache.put(cacheKey, aead);
+      }
+    }
+    return aead;
+  }
+
+  @Override
+  public byte[] decrypt(final byte[] ciphertext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(ciphertext);
+      int encryptedDekSize = buffer.getInt();
+      if (encryptedDekSize <= 0
+          || encryptedDekSize > (ciphertext.length - KmsEnvelopeAead.LENGTH_ENCRYPTED_DEK)) {
+        throw new GeneralSecurityException("invalid ciphertext");
+      }
+      byte[] encryptedDek = new byte[encryptedDekSize];
+      buffer.get(encryptedDek, 0, encryptedDekSize);
+      byte[] payload = new byte[buffer.remaining()];
+      buffer.get(payload, 0, buffer.remaining());
+      return getDecryptionAead(encryptedDek).decrypt(payload, associatedData);
+    } catch (IndexOutOfBoundsException
+             | BufferUnderflowException
+             | NegativeArraySizeException e) {
+      throw new GeneralSecurityException("invalid ciphertext", e);
+    }
+  }
+
+  /**
+   * Returns the statistics of DEK reuse on encryption. A miss is a call to the remote AEAD to wrap
+   * a new DEK, and an eviction is a DEK that was retired because it reached its limits.
+   */
+  public CacheStats getEncryptionStats() {
+    return new CacheStats(
+        encryptionHits.get(), encryptionMisses.get(), encryptionEvictions.get());
+  }
+
+  /**
+   * Returns the statistics of the decryption cache. A miss is a call to the remote AEAD to unwrap
+   * a DEK, and an eviction is a DEK that was dropped because the cache was full.
+   */
+  public CacheStats getDecryptionStats() {
+    return new CacheStats(
+        decryptionHits.get(), decryptionMisses.get(), decryptionEvictions.get());
+  }
+}
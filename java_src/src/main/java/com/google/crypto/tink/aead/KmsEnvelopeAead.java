@@ -19,6 +19,8 @@ package com.google.crypto.tink.aead; // instead of subtle, because it depends on
 import com.google.crypto.tink.Aead;
 import com.google.crypto.tink.Registry;
 import com.google.crypto.tink.TinkProtoParametersFormat;
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
 import com.google.crypto.tink.proto.KeyTemplate;
 import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -48,10 +50,10 @@ import java.util.Set;
  * </ul>
  */
 public final class KmsEnvelopeAead implements Aead {
-  private static final byte[] EMPTY_AAD = new byte[0];
+  static final byte[] EMPTY_AAD = new byte[0];
   private final KeyTemplate dekTemplate;
   private final Aead remote;
-  private static final int LENGTH_ENCRYPTED_DEK = 4;
+  static final int LENGTH_ENCRYPTED_DEK = 4;
 
   private static Set<String> listSupportedDekKeyTypes() {
     HashSet<String> dekKeyTypeUrls = new HashSet<>();
@@ -107,16 +109,17 @@ public final class KmsEnvelopeAead implements Aead {
    */
   public static Aead create(AeadParameters dekParameters, Aead remote)
       throws GeneralSecurityException {
-    KeyTemplate dekTemplate;
+    return new KmsEnvelopeAead(toKeyTemplate(dekParameters), remote);
+  }
+
+  static KeyTemplate toKeyTemplate(AeadParameters dekParameters) throws GeneralSecurityException {
     try {
-      dekTemplate =
-          KeyTemplate.parseFrom(
-              TinkProtoParametersFormat.serialize(dekParameters),
-              ExtensionRegistryLite.getEmptyRegistry());
+      return KeyTemplate.parseFrom(
+          TinkProtoParametersFormat.serialize(dekParameters),
+          ExtensionRegistryLite.getEmptyRegistry());
     } catch (InvalidProtocolBufferException e) {
       throw new GeneralSecurityException(e);
     }
-    return new KmsEnvelopeAead(dekTemplate, remote);
   }
 
   @Override
@@ -125,7 +128,18 @@ public final class KmsEnvelopeAead implements Aead {
     // Generate a new DEK.
     byte[] dek = Registry.newKeyData(dekTemplate).getValue().toByteArray();
     // Wrap it with remote.
-    byte[] encryptedDek = remote.encrypt(dek, EMPTY_AAD);
+    OperationListener.Operation kmsCall =
+        MutableOperationListenerRegistry.globalInstance()
+            .getOperationListener()
+            .startKmsCall("encrypt", dekTemplate.getTypeUrl());
+    byte[] encryptedDek;
+    try {
+      encryptedDek = remote.encrypt(dek, EMPTY_AAD);
+    } catch (GeneralSecurityException e) {
+      kmsCall.logFailure();
+      throw e;
+    }
+    kmsCall.logSuccess(dek.length);
     // Use DEK to encrypt plaintext.
     Aead aead = Registry.getPrimitive(dekTemplate.getTypeUrl(), dek, Aead.class);
     byte[] payload = aead.encrypt(plaintext, associatedData);
@@ -147,9 +161,21 @@ public final class KmsEnvelopeAead implements Aead {
       byte[] payload = new byte[buffer.remaining()];
       buffer.get(payload, 0, buffer.remaining());
       // Use remote to decrypt encryptedDek.
-      byte[] dek = remote.decrypt(encryptedDek, EMPTY_AAD);
-      // Use DEK to decrypt payload.
-      Aead aead = Registry.getPrimitive(dekTemplate.getTypeUrl(), dek, Aead.class);
+      OperationListener.Operation kmsCall =
+          MutableOperationListenerRegistry.globalInstance()
+              .getOperationListener()
+              .startKmsCall("decrypt", dekTemplate.getTypeUrl());
+      byte[] dek;
+      try {
+        dek = remote.decrypt(encryptedDek, EMPTY_AAD);
+      } catch (GeneralSecurityException e) {
+        kmsCall.logFailure();
+        throw e;
+      }
+      kmsCall.logSuccess(encryptedDek.length);
+      // Use DEK to decrypt payload. The same ciphertext is often decrypted many times, so the
+      // primitive may come from the Registry's primitive cache, if enabled.
+      Aead aead = Registry.getCachedPrimitive(dekTemplate.getTypeUrl(), dek, Aead.class);
       return aead.decrypt(payload, associatedData);
     } catch (IndexOutOfBoundsException
              | BufferUnderflowException
@@ -158,7 +184,7 @@ public final class KmsEnvelopeAead implements Aead {
     }
   }
 
-  private byte[] buildCiphertext(final byte[] encryptedDek, final byte[] payload) {
+  static byte[] buildCiphertext(final byte[] encryptedDek, final byte[] payload) {
     return ByteBuffer.allocate(LENGTH_ENCRYPTED_DEK + encryptedDek.length + payload.length)
         .putInt(encryptedDek.length)
         .put(encryptedDek)
@@ -0,0 +1,188 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.aead.internal;
+
+import com.google.crypto.tink.subtle.EngineFactory;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * Internal utility methods for ChaCha20Poly1305 implementations that use the "ChaCha20-Poly1305"
+ * cipher of the JCE, which is available from JDK 11 on.
+ */
+final class ChaCha20Poly1305JceUtil {
+  static final int NONCE_SIZE_IN_BYTES = 12;
+  static final int TAG_SIZE_IN_BYTES = 16;
+  static final int KEY_SIZE_IN_BYTES = 32;
+
+  private static final ThreadLocal<Cipher> localCipher =
+      new ThreadLocal<Cipher>() {
+        @Nullable
+        @Override
+        protected Cipher initialValue() {
+          try {
+            return EngineFactory.CIPHER.getInstance("ChaCha20-Poly1305");
+          } catch (GeneralSecurityException ex) {
+            // Not supported by this JDK or provider.
+            return null;
+          }
+        }
+      };
+
+  /** Returns true if the JCE provides a "ChaCha20-Poly1305" cipher. */
+  static boolean isSupported() {
+    return localCipher.get() != null;
+  }
+
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} and writes {@code actual_ciphertext || tag}
+   * into {@code output} at its current position.
+   *
+   * <p>On success the positions of {@code plaintext} and {@code associatedData} are set to their
+   * limits, and the position of {@code output} is advanced by the number of bytes written.
+   */
+  static void encrypt(
+      SecretKey key,
+      final byte[] nonce,
+      ByteBuffer output,
+      ByteBuffer plaintext,
+      @Nullable ByteBuffer associatedData)
+      throws GeneralSecurityException {
+    int plaintextLength = plaintext.remaining();
+    if (plaintextLength > Integer.MAX_VALUE - TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    if (output.remaining() < plaintextLength + TAG_SIZE_IN_BYTES) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    }
+    Cipher cipher = initCipher(Cipher.ENCRYPT_MODE, key, nonce);
+    updateAad(cipher, associatedData);
+    int written;
+    try {
+      written = cipher.doFinal(plaintext.duplicate(), output.duplicate());
+    } catch (ShortBufferException ex) {
+      // Cannot happen, the size of output was checked above.
+      throw new GeneralSecurityException(ex);
+    }
+    if (written != plaintextLength + TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("encryption failed: unexpected ciphertext length");
+    }
+    output.position(output.position() + written);
+    plaintext.position(plaintext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext}, which have the format {@code
+   * actual_ciphertext || tag}, and writes the plaintext into {@code plaintext} at its current
+   * position.
+   *
+   * <p>The JCE verifies the tag before any plaintext is released. On success the positions of
+   * {@code ciphertext} and {@code associatedData} are set to their limits, and the position of
+   * {@code plaintext} is advanced by the number of bytes written.
+   */
+  static void decrypt(
+      SecretKey key,
+      final byte[] nonce,
+      ByteBuffer ciphertext,
+      @Nullable ByteBuffer associatedData,
+      ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    if (ciphertext.remaining() < TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("ciphertext too short");
+    }
+    int plaintextLength = ciphertext.remaining() - TAG_SIZE_IN_BYTES;
+    if (plaintext.remaining() < plaintextLength) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    }
+    Cipher cipher = initCipher(Cipher.DECRYPT_MODE, key, nonce);
+    updateAad(cipher, associatedData);
+    int written;
+    try {
+      written = cipher.doFinal(ciphertext.duplicate(), plaintext.duplicate());
+    } catch (ShortBufferException ex) {
+      // Cannot happen, the size of plaintext was checked above.
+      throw new GeneralSecurityException(ex);
+    }
+    plaintext.position(plaintext.position() + written);
+    ciphertext.position(ciphertext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+  }
+
+  private static Cipher initCipher(int mode, SecretKey key, final byte[] nonce)
+      throws GeneralSecurityException {
+    if (nonce.length != NONCE_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("The nonce length (in bytes) must be 12");
+    }
+    Cipher cipher = localCipher.get();
+    if (cipher == null) {
+      throw new GeneralSecurityException("ChaCha20-Poly1305 is not supported by the JCE");
+    }
+    IvParameterSpec params = new IvParameterSpec(nonce);
+    try {
+      cipher.init(mode, key, params);
+    } catch (InvalidKeyException ex) {
+      // The JDK refuses to initialize the cipher with the key and nonce of the previous
+      // initialization, also for decryption. This happens, for example, when a ciphertext is
+      // decrypted on the thread that just encrypted it. Nonce uniqueness is the responsibility of
+      // the callers of the insecure-nonce classes, and encrypting twice with the same nonce must
+      // give the same result on every thread, as it does without the JDK cipher. So for both
+      // modes we reset the remembered nonce with a decryption-mode initialization that is never
+      // used, and then initialize again.
+      byte[] otherNonce = nonce.clone();
+      otherNonce[0] ^= 1;
+      cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(otherNonce));
+      cipher.init(mode, key, params);
+    }
+    return cipher;
+  }
+
+  /**
+   * Passes the remaining bytes of {@code associatedData} to {@code cipher} without changing its
+   * position.
+   *
+   * <p>We avoid {@link Cipher#updateAAD(ByteBuffer)}, since some JDK versions (e.g. 17.0.9) compute
+   * a wrong tag for ChaCha20-Poly1305 if it is given 16 or more bytes of associated data.
+   */
+  private static void updateAad(Cipher cipher, @Nullable ByteBuffer associatedData) {
+    if (associatedData == null || !associatedData.hasRemaining()) {
+      return;
+    }
+    if (associatedData.hasArray()) {
+      cipher.updateAAD(
+          associatedData.array(),
+          associatedData.arrayOffset() + associatedData.position(),
+          associatedData.remaining());
+    } else {
+      byte[] aad = new byte[associatedData.remaining()];
+      associatedData.duplicate().get(aad);
+      cipher.updateAAD(aad);
+    }
+  }
+
+  private ChaCha20Poly1305JceUtil() {}
+}
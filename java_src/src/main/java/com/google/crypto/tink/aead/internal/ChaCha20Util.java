@@ -62,6 +62,125 @@ final class ChaCha20Util {
     }
   }
 
+  /**
+   * Computes the ChaCha20 block function of {@code state} and writes the resulting 64 bytes of key
+   * stream in little-endian order to {@code out} starting at {@code outOffset}. {@code state} is not
+   * modified.
+   *
+   * <p>This is equivalent to copying {@code state}, calling {@link #shuffleState}, adding the
+   * original state and serializing the result, but keeps the working state in local variables so
+   * that no memory is allocated. See https://datatracker.ietf.org/doc/html/rfc7539#section-2.3.
+   */
+  static void chacha20Block(final int[] state, byte[] out, int outOffset) {
+    int x0 = state[0];
+    int x1 = state[1];
+    int x2 = state[2];
+    int x3 = state[3];
+    int x4 = state[4];
+    int x5 = state[5];
+    int x6 = state[6];
+    int x7 = state[7];
+    int x8 = state[8];
+    int x9 = state[9];
+    int x10 = state[10];
+    int x11 = state[11];
+    int x12 = state[12];
+    int x13 = state[13];
+    int x14 = state[14];
+    int x15 = state[15];
+    for (int i = 0; i < 10; i++) {
+      // Column rounds.
+      x0 += x4;
+      x12 = rotateLeft(x12 ^ x0, 16);
+      x8 += x12;
+      x4 = rotateLeft(x4 ^ x8, 12);
+      x0 += x4;
+      x12 = rotateLeft(x12 ^ x0, 8);
+      x8 += x12;
+      x4 = rotateLeft(x4 ^ x8, 7);
+
+      x1 += x5;
+      x13 = rotateLeft(x13 ^ x1, 16);
+      x9 += x13;
+      x5 = rotateLeft(x5 ^ x9, 12);
+      x1 += x5;
+      x13 = rotateLeft(x13 ^ x1, 8);
+      x9 += x13;
+      x5 = rotateLeft(x5 ^ x9, 7);
+
+      x2 += x6;
+      x14 = rotateLeft(x14 ^ x2, 16);
+      x10 += x14;
+      x6 = rotateLeft(x6 ^ x10, 12);
+      x2 += x6;
+      x14 = rotateLeft(x14 ^ x2, 8);
+      x10 += x14;
+      x6 = rotateLeft(x6 ^ x10, 7);
+
+      x3 += x7;
+      x15 = rotateLeft(x15 ^ x3, 16);
+      x11 += x15;
+      x7 = rotateLeft(x7 ^ x11, 12);
+      x3 += x7;
+      x15 = rotateLeft(x15 ^ x3, 8);
+      x11 += x15;
+      x7 = rotateLeft(x7 ^ x11, 7);
+
+      // Diagonal rounds.
+      x0 += x5;
+      x15 = rotateLeft(x15 ^ x0, 16);
+      x10 += x15;
+      x5 = rotateLeft(x5 ^ x10, 12);
+      x0 += x5;
+      x15 = rotateLeft(x15 ^ x0, 8);
+      x10 += x15;
+      x5 = rotateLeft(x5 ^ x10, 7);
+
+      x1 += x6;
+      x12 = rotateLeft(x12 ^ x1, 16);
+      x11 += x12;
+      x6 = rotateLeft(x6 ^ x11, 12);
+      x1 += x6;
+      x12 = rotateLeft(x12 ^ x1, 8);
+      x11 += x12;
+      x6 = rotateLeft(x6 ^ x11, 7);
+
+      x2 += x7;
+      x13 = rotateLeft(x13 ^ x2, 16);
+      x8 += x13;
+      x7 = rotateLeft(x7 ^ x8, 12);
+      x2 += x7;
+      x13 = rotateLeft(x13 ^ x2, 8);
+      x8 += x13;
+      x7 = rotateLeft(x7 ^ x8, 7);
+
+      x3 += x4;
+      x14 = rotateLeft(x14 ^ x3, 16);
+      x9 += x14;
+      x4 = rotateLeft(x4 ^ x9, 12);
+      x3 += x4;
+      x14 = rotateLeft(x14 ^ x3, 8);
+      x9 += x14;
+      x4 = rotateLeft(x4 ^ x9, 7);
+    }
+    putIntLittleEndian(out, outOffset, x0 + state[0]);
+    putIntLittleEndian(out, outOffset + 4, x1 + state[1]);
+    putIntLittleEndian(out, outOffset + 8, x2 + state[2]);
+    putIntLittleEndian(out, outOffset + 12, x3 + state[3]);
+    putIntLittleEndian(out, outOffset + 16, x4 + state[4]);
+    putIntLittleEndian(out, outOffset + 20, x5 + state[5]);
+    putIntLittleEndian(out, outOffset + 24, x6 + state[6]);
+    putIntLittleEndian(out, outOffset + 28, x7 + state[7]);
+    putIntLittleEndian(out, outOffset + 32, x8 + state[8]);
+    putIntLittleEndian(out, outOffset + 36, x9 + state[9]);
+    putIntLittleEndian(out, outOffset + 40, x10 + state[10]);
+    putIntLittleEndian(out, outOffset + 44, x11 + state[11]);
+    putIntLittleEndian(out, outOffset + 48, x12 + state[12]);
+    putIntLittleEndian(out, outOffset + 52, x13 + state[13]);
+    putIntLittleEndian(out, outOffset + 56, x14 + state[14]);
+    putIntLittleEndian(out, outOffset + 60, x15 + state[15]);
+  }
+
   /**
    * Computes the ChaCha quarter round as described in
    * https://datatracker.ietf.org/doc/html/rfc7539#section-2.1.
@@ -89,5 +208,12 @@ final class ChaCha20Util {
     return (x << y) | (x >>> -y);
   }
 
+  private static void putIntLittleEndian(byte[] out, int offset, int value) {
+    out[offset] = (byte) value;
+    out[offset + 1] = (byte) (value >>> 8);
+    out[offset + 2] = (byte) (value >>> 16);
+    out[offset + 3] = (byte) (value >>> 24);
+  }
+
   private ChaCha20Util() {}
 }
@@ -26,6 +26,7 @@ import java.security.spec.AlgorithmParameterSpec;
 import javax.annotation.Nullable;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -114,6 +115,49 @@ public final class InsecureNonceAesGcmJce {
     return ciphertext;
   }
 
+  /**
+   * Encrypts {@code plaintext} with the IV stored in {@code output} at {@code ivOffset}, and writes
+   * the ciphertext and tag right after the IV. {@code output} must have room for exactly that.
+   *
+   * <p>This lets callers generate the IV directly in the output array. Only supported by instances
+   * which prepend the IV.
+   *
+   * <p>On Android KitKat (API level 19) this method does not support non null or non empty {@code
+   * associatedData}. It might not work at all in older versions.
+   */
+  public void encryptWithIvInOutput(
+      byte[] output, int ivOffset, final byte[] plaintext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    if (!prependIv) {
+      throw new GeneralSecurityException("IV must be prepended to use encryptWithIvInOutput");
+    }
+    // Check that ciphertext is not longer than the max. size of a Java array.
+    if (plaintext.length > Integer.MAX_VALUE - IV_SIZE_IN_BYTES - TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    if (ivOffset < 0
+        || output.length - ivOffset != IV_SIZE_IN_BYTES + plaintext.length + TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("output has wrong size");
+    }
+
+    AlgorithmParameterSpec params = getParams(output, ivOffset, IV_SIZE_IN_BYTES);
+    Cipher cipher = localCipher.get();
+    cipher.init(Cipher.ENCRYPT_MODE, keySpec, params);
+    if (associatedData != null && associatedData.length != 0) {
+      cipher.updateAAD(associatedData);
+    }
+    int written =
+        cipher.doFinal(plaintext, 0, plaintext.length, output, ivOffset + IV_SIZE_IN_BYTES);
+    if (written != plaintext.length + TAG_SIZE_IN_BYTES) {
+      // The tag is shorter than expected.
+      int actualTagSize = written - plaintext.length;
+      throw new GeneralSecurityException(
+          String.format(
+              "encryption failed; GCM tag must be %s bytes, but got only %s bytes",
+              TAG_SIZE_IN_BYTES, actualTagSize));
+    }
+  }
+
   /**
    * On Android KitKat (API level 19) this method does not support non null or non empty {@code
    * associatedData}. It might not work at all in older versions.
@@ -143,6 +187,108 @@ public final class InsecureNonceAesGcmJce {
     return localCipher.get().doFinal(ciphertext, ciphertextInputOffset, ciphertextLength);
   }
 
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} and writes the ciphertext into {@code
+   * ciphertext} at its current position. If this instance prepends the IV, the IV is written first.
+   *
+   * <p>The positions of the input buffers are only changed if encryption succeeds.
+   */
+  public void encrypt(
+      final byte[] iv,
+      ByteBuffer plaintext,
+      @Nullable ByteBuffer associatedData,
+      ByteBuffer ciphertext)
+      throws GeneralSecurityException {
+    if (iv.length != IV_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("iv is wrong size");
+    }
+    int plaintextLength = plaintext.remaining();
+    if (plaintextLength > Integer.MAX_VALUE - IV_SIZE_IN_BYTES - TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    int ciphertextLength =
+        prependIv
+            ? IV_SIZE_IN_BYTES + plaintextLength + TAG_SIZE_IN_BYTES
+            : plaintextLength + TAG_SIZE_IN_BYTES;
+    if (ciphertext.remaining() < ciphertextLength) {
+      throw new ShortBufferException("ciphertext buffer too small");
+    }
+
+    AlgorithmParameterSpec params = getParams(iv);
+    Cipher cipher = localCipher.get();
+    cipher.init(Cipher.ENCRYPT_MODE, keySpec, params);
+    if (associatedData != null && associatedData.hasRemaining()) {
+      cipher.updateAAD(associatedData.duplicate());
+    }
+    ByteBuffer output = ciphertext.duplicate();
+    if (prependIv) {
+      output.put(iv);
+    }
+    int written = cipher.doFinal(plaintext.duplicate(), output);
+    if (written != plaintextLength + TAG_SIZE_IN_BYTES) {
+      // The tag is shorter than expected.
+      int actualTagSize = written - plaintextLength;
+      throw new GeneralSecurityException(
+          String.format(
+              "encryption failed; GCM tag must be %s bytes, but got only %s bytes",
+              TAG_SIZE_IN_BYTES, actualTagSize));
+    }
+    plaintext.position(plaintext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+    ciphertext.position(ciphertext.position() + ciphertextLength);
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext} and writes the plaintext into {@code
+   * plaintext} at its current position. If this instance prepends the IV, {@code ciphertext} must
+   * start with {@code iv}.
+   *
+   * <p>The positions of the input buffers are only changed if decryption succeeds.
+   */
+  public void decrypt(
+      final byte[] iv,
+      ByteBuffer ciphertext,
+      @Nullable ByteBuffer associatedData,
+      ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    if (iv.length != IV_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("iv is wrong size");
+    }
+    int minimumCiphertextLength =
+        prependIv ? IV_SIZE_IN_BYTES + TAG_SIZE_IN_BYTES : TAG_SIZE_IN_BYTES;
+    if (ciphertext.remaining() < minimumCiphertextLength) {
+      throw new GeneralSecurityException("ciphertext too short");
+    }
+    ByteBuffer input = ciphertext.duplicate();
+    if (prependIv) {
+      ByteBuffer prependedIv = input.duplicate();
+      prependedIv.limit(prependedIv.position() + IV_SIZE_IN_BYTES);
+      if (!ByteBuffer.wrap(iv).equals(prependedIv)) {
+        throw new GeneralSecurityException("iv does not match prepended iv");
+      }
+      input.position(input.position() + IV_SIZE_IN_BYTES);
+    }
+    int plaintextLength = input.remaining() - TAG_SIZE_IN_BYTES;
+    if (plaintext.remaining() < plaintextLength) {
+      throw new ShortBufferException("plaintext buffer too small");
+    }
+
+    AlgorithmParameterSpec params = getParams(iv);
+    Cipher cipher = localCipher.get();
+    cipher.init(Cipher.DECRYPT_MODE, keySpec, params);
+    if (associatedData != null && associatedData.hasRemaining()) {
+      cipher.updateAAD(associatedData.duplicate());
+    }
+    int written = cipher.doFinal(input, plaintext.duplicate());
+    ciphertext.position(ciphertext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
+    plaintext.position(plaintext.position() + written);
+  }
+
   private static AlgorithmParameterSpec getParams(final byte[] iv) throws GeneralSecurityException {
     return getParams(iv, 0, iv.length);
   }
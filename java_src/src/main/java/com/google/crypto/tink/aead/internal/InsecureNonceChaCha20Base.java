@@ -16,7 +16,6 @@
 
 package com.google.crypto.tink.aead.internal;
 
-import com.google.crypto.tink.subtle.Bytes;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.GeneralSecurityException;
@@ -35,6 +34,10 @@ import java.security.InvalidKeyException;
  * repeates, most users should not use this class directly.
  */
 abstract class InsecureNonceChaCha20Base {
+  // Number of key stream bytes generated per iteration in process(). Generating several blocks at
+  // once keeps the block function in a tight loop, separate from the XOR loop.
+  private static final int KEY_STREAM_BUFFER_SIZE_IN_BYTES = 4 * ChaCha20Util.BLOCK_SIZE_IN_BYTES;
+
   int[] key;
   private final int initialCounter;
 
@@ -74,6 +77,30 @@ abstract class InsecureNonceChaCha20Base {
     process(nonce, output, ByteBuffer.wrap(plaintext));
   }
 
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} using {@code nonce} and writes the result to
+   * {@code output}. Advances the positions of both buffers.
+   */
+  public void encrypt(ByteBuffer output, final byte[] nonce, ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    if (output.remaining() < plaintext.remaining()) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    }
+    process(nonce, output, plaintext);
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext} using {@code nonce} and writes the result to
+   * {@code output}. Advances the positions of both buffers.
+   */
+  public void decrypt(ByteBuffer output, final byte[] nonce, ByteBuffer ciphertext)
+      throws GeneralSecurityException {
+    if (output.remaining() < ciphertext.remaining()) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    }
+    process(nonce, output, ciphertext);
+  }
+
   /** Decrypts {@code ciphertext} using {@code nonce}. */
   public byte[] decrypt(final byte[] nonce, final byte[] ciphertext)
       throws GeneralSecurityException {
@@ -93,30 +120,51 @@ abstract class InsecureNonceChaCha20Base {
       throw new GeneralSecurityException(
           "The nonce length (in bytes) must be " + nonceSizeInBytes());
     }
+    // The state and the key stream buffer are allocated once per call; the block counter is then
+    // incremented in place, so that no memory is allocated per block.
+    int[] state = createInitialState(ChaCha20Util.toIntArray(nonce), initialCounter);
+    byte[] keyStream = new byte[KEY_STREAM_BUFFER_SIZE_IN_BYTES];
     int length = input.remaining();
-    int numBlocks = (length / ChaCha20Util.BLOCK_SIZE_IN_BYTES) + 1;
-    for (int i = 0; i < numBlocks; i++) {
-      ByteBuffer keyStreamBlock = chacha20Block(nonce, i + initialCounter);
-      if (i == numBlocks - 1) {
-        // last block
-        Bytes.xor(output, input, keyStreamBlock, length % ChaCha20Util.BLOCK_SIZE_IN_BYTES);
+    boolean useArrays = input.hasArray() && output.hasArray() && !output.isReadOnly();
+    int pos = 0;
+    while (pos < length) {
+      int chunkSize = Math.min(length - pos, KEY_STREAM_BUFFER_SIZE_IN_BYTES);
+      for (int offset = 0; offset < chunkSize; offset += ChaCha20Util.BLOCK_SIZE_IN_BYTES) {
+        ChaCha20Util.chacha20Block(state, keyStream, offset);
+        state[12]++;
+      }
+      if (useArrays) {
+        xorIntoArray(output, input, keyStream, chunkSize);
       } else {
-        Bytes.xor(output, input, keyStreamBlock, ChaCha20Util.BLOCK_SIZE_IN_BYTES);
+        for (int i = 0; i < chunkSize; i++) {
+          output.put((byte) (input.get() ^ keyStream[i]));
+        }
       }
+      pos += chunkSize;
     }
   }
 
+  /**
+   * Writes {@code input ^ keyStream} to {@code output} for the first {@code len} bytes, accessing
+   * the backing arrays directly, and advances both buffers.
+   */
+  private static void xorIntoArray(ByteBuffer output, ByteBuffer input, byte[] keyStream, int len) {
+    byte[] in = input.array();
+    int inOffset = input.arrayOffset() + input.position();
+    byte[] out = output.array();
+    int outOffset = output.arrayOffset() + output.position();
+    for (int i = 0; i < len; i++) {
+      out[outOffset + i] = (byte) (in[inOffset + i] ^ keyStream[i]);
+    }
+    input.position(input.position() + len);
+    output.position(output.position() + len);
+  }
+
   // https://tools.ietf.org/html/rfc8439#section-2.3.
   ByteBuffer chacha20Block(final byte[] nonce, int counter) {
     int[] state = createInitialState(ChaCha20Util.toIntArray(nonce), counter);
-    int[] workingState = state.clone();
-    ChaCha20Util.shuffleState(workingState);
-    for (int i = 0; i < state.length; i++) {
-      state[i] += workingState[i];
-    }
-    ByteBuffer out =
-        ByteBuffer.allocate(ChaCha20Util.BLOCK_SIZE_IN_BYTES).order(ByteOrder.LITTLE_ENDIAN);
-    out.asIntBuffer().put(state, 0, ChaCha20Util.BLOCK_SIZE_IN_INTS);
-    return out;
+    byte[] out = new byte[ChaCha20Util.BLOCK_SIZE_IN_BYTES];
+    ChaCha20Util.chacha20Block(state, out, 0);
+    return ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
   }
 }
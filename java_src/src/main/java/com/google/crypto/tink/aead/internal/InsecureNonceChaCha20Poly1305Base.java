@@ -20,10 +20,12 @@ import static com.google.crypto.tink.aead.internal.Poly1305.MAC_KEY_SIZE_IN_BYTE
 import static com.google.crypto.tink.aead.internal.Poly1305.MAC_TAG_SIZE_IN_BYTES;
 
 import com.google.crypto.tink.config.internal.TinkFipsUtil;
+import com.google.crypto.tink.subtle.Bytes;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import javax.annotation.Nullable;
 import javax.crypto.AEADBadTagException;
 
 /**
@@ -37,6 +39,8 @@ abstract class InsecureNonceChaCha20Poly1305Base {
   public static final TinkFipsUtil.AlgorithmFipsCompatibility FIPS =
       TinkFipsUtil.AlgorithmFipsCompatibility.ALGORITHM_NOT_FIPS;
 
+  private static final byte[] ZERO_PADDING = new byte[16];
+
   private final InsecureNonceChaCha20Base chacha20;
   private final InsecureNonceChaCha20Base macKeyChaCha20;
 
@@ -90,20 +94,50 @@ abstract class InsecureNonceChaCha20Poly1305Base {
   public void encrypt(
       ByteBuffer output, final byte[] nonce, final byte[] plaintext, final byte[] associatedData)
       throws GeneralSecurityException {
-    if (output.remaining() < plaintext.length + MAC_TAG_SIZE_IN_BYTES) {
-      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    encrypt(
+        output,
+        nonce,
+        ByteBuffer.wrap(plaintext),
+        associatedData == null ? null : ByteBuffer.wrap(associatedData));
+  }
+
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} with Poly1305 authentication based on the
+   * remaining bytes of {@code associatedData}, and writes {@code actual_ciphertext || tag} into
+   * {@code output} at its current position.
+   *
+   * <p>On success the positions of {@code plaintext} and {@code associatedData} are set to their
+   * limits, and the position of {@code output} is advanced by the number of bytes written. The
+   * buffers can be direct buffers, but {@code plaintext} and {@code output} must not overlap.
+   *
+   * @param output ciphertext buffer with the following format {@code actual_ciphertext || tag}
+   * @param nonce specified by caller
+   * @param plaintext data to encrypt
+   * @param associatedData associated authenticated data, can be null
+   */
+  public void encrypt(
+      ByteBuffer output,
+      final byte[] nonce,
+      ByteBuffer plaintext,
+      @Nullable ByteBuffer associatedData)
+      throws GeneralSecurityException {
+    int plaintextLength = plaintext.remaining();
+    if (plaintextLength > Integer.MAX_VALUE - MAC_TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
     }
-    int firstPosition = output.position();
-    chacha20.encrypt(output, nonce, plaintext);
-    output.position(firstPosition);
-    output.limit(output.limit() - MAC_TAG_SIZE_IN_BYTES);
-    byte[] aad = associatedData;
-    if (aad == null) {
-      aad = new byte[0];
+    if (output.remaining() < plaintextLength + MAC_TAG_SIZE_IN_BYTES) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
     }
-    byte[] tag = Poly1305.computeMac(getMacKey(nonce), macDataRfc8439(aad, output));
-    output.limit(output.limit() + MAC_TAG_SIZE_IN_BYTES);
+    ByteBuffer ciphertext = output.slice();
+    ciphertext.limit(plaintextLength);
+    chacha20.encrypt(ciphertext.duplicate(), nonce, plaintext.duplicate());
+    byte[] tag = computeMacRfc8439(nonce, associatedData, ciphertext);
+    output.position(output.position() + plaintextLength);
     output.put(tag);
+    plaintext.position(plaintext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
   }
 
   /**
@@ -137,26 +171,60 @@ abstract class InsecureNonceChaCha20Poly1305Base {
     if (ciphertext.remaining() < MAC_TAG_SIZE_IN_BYTES) {
       throw new GeneralSecurityException("ciphertext too short");
     }
-    int firstPosition = ciphertext.position();
-    byte[] tag = new byte[MAC_TAG_SIZE_IN_BYTES];
-    ciphertext.position(ciphertext.limit() - MAC_TAG_SIZE_IN_BYTES);
-    ciphertext.get(tag);
-    // rewind to read ciphertext and compute tag.
-    ciphertext.position(firstPosition);
-    ciphertext.limit(ciphertext.limit() - MAC_TAG_SIZE_IN_BYTES);
-    byte[] aad = associatedData;
-    if (aad == null) {
-      aad = new byte[0];
+    ByteBuffer plaintext = ByteBuffer.allocate(ciphertext.remaining() - MAC_TAG_SIZE_IN_BYTES);
+    decrypt(
+        ciphertext,
+        nonce,
+        associatedData == null ? null : ByteBuffer.wrap(associatedData),
+        plaintext);
+    return plaintext.array();
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext}, which have the format {@code
+   * actual_ciphertext || tag}, and writes the plaintext into {@code plaintext} at its current
+   * position.
+   *
+   * <p>The tag is verified before anything is written to {@code plaintext}. On success the
+   * positions of {@code ciphertext} and {@code associatedData} are set to their limits, and the
+   * position of {@code plaintext} is advanced by the number of bytes written. The buffers can be
+   * direct buffers, but {@code ciphertext} and {@code plaintext} must not overlap.
+   *
+   * @param ciphertext with format {@code actual_ciphertext || tag}
+   * @param nonce specified by caller
+   * @param associatedData associated authenticated data, can be null
+   * @param plaintext buffer the plaintext is written to
+   * @throws GeneralSecurityException when ciphertext is shorter than tag size
+   * @throws AEADBadTagException when the tag is invalid
+   */
+  public void decrypt(
+      ByteBuffer ciphertext,
+      final byte[] nonce,
+      @Nullable ByteBuffer associatedData,
+      ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    if (ciphertext.remaining() < MAC_TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("ciphertext too short");
     }
-    try {
-      Poly1305.verifyMac(getMacKey(nonce), macDataRfc8439(aad, ciphertext), tag);
-    } catch (GeneralSecurityException ex) {
-      throw new AEADBadTagException(ex.toString());
+    int plaintextLength = ciphertext.remaining() - MAC_TAG_SIZE_IN_BYTES;
+    if (plaintext.remaining() < plaintextLength) {
+      throw new IllegalArgumentException("Given ByteBuffer output is too small");
+    }
+    ByteBuffer rawCiphertext = ciphertext.slice();
+    rawCiphertext.limit(plaintextLength);
+    byte[] tag = new byte[MAC_TAG_SIZE_IN_BYTES];
+    ByteBuffer tagBuffer = ciphertext.duplicate();
+    tagBuffer.position(ciphertext.position() + plaintextLength);
+    tagBuffer.get(tag);
+    if (!Bytes.equal(computeMacRfc8439(nonce, associatedData, rawCiphertext), tag)) {
+      throw new AEADBadTagException("invalid MAC");
     }
 
-    // rewind to decrypt the ciphertext.
-    ciphertext.position(firstPosition);
-    return chacha20.decrypt(nonce, ciphertext);
+    chacha20.decrypt(plaintext, nonce, rawCiphertext);
+    ciphertext.position(ciphertext.limit());
+    if (associatedData != null) {
+      associatedData.position(associatedData.limit());
+    }
   }
 
   /** The MAC key is the first 32 bytes of the first key stream block */
@@ -167,20 +235,32 @@ abstract class InsecureNonceChaCha20Poly1305Base {
     return result;
   }
 
-  /** Prepares the input to MAC, following RFC 8439, section 2.8. */
-  private static byte[] macDataRfc8439(final byte[] aad, ByteBuffer ciphertext) {
-    int aadPaddedLen = (aad.length % 16 == 0) ? aad.length : (aad.length + 16 - aad.length % 16);
+  /**
+   * Computes the Poly1305 tag over {@code aad} and {@code ciphertext} as described in RFC 8439,
+   * section 2.8, without concatenating them. Does not change the positions of {@code aad} and
+   * {@code ciphertext}.
+   */
+  private byte[] computeMacRfc8439(
+      final byte[] nonce, @Nullable ByteBuffer aad, ByteBuffer ciphertext)
+      throws GeneralSecurityException {
+    Poly1305 mac = Poly1305.init(getMacKey(nonce));
+    int aadLen = 0;
+    if (aad != null) {
+      aadLen = aad.remaining();
+      mac.update(aad.duplicate());
+      mac.update(ZERO_PADDING, 0, paddingLength(aadLen));
+    }
     int ciphertextLen = ciphertext.remaining();
-    int ciphertextPaddedLen =
-        (ciphertextLen % 16 == 0) ? ciphertextLen : (ciphertextLen + 16 - ciphertextLen % 16);
-    ByteBuffer macData =
-        ByteBuffer.allocate(aadPaddedLen + ciphertextPaddedLen + 16).order(ByteOrder.LITTLE_ENDIAN);
-    macData.put(aad);
-    macData.position(aadPaddedLen);
-    macData.put(ciphertext);
-    macData.position(aadPaddedLen + ciphertextPaddedLen);
-    macData.putLong(aad.length);
-    macData.putLong(ciphertextLen);
-    return macData.array();
+    mac.update(ciphertext.duplicate());
+    mac.update(ZERO_PADDING, 0, paddingLength(ciphertextLen));
+    byte[] lengths = new byte[16];
+    ByteBuffer.wrap(lengths).order(ByteOrder.LITTLE_ENDIAN).putLong(aadLen).putLong(ciphertextLen);
+    mac.update(lengths);
+    return mac.finish();
+  }
+
+  /** Returns the number of zero bytes needed to pad {@code len} to a multiple of 16. */
+  private static int paddingLength(int len) {
+    return (16 - len % 16) % 16;
   }
 }
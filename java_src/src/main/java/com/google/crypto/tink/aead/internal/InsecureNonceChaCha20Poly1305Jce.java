@@ -0,0 +1,132 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.aead.internal;
+
+import com.google.crypto.tink.config.internal.TinkFipsUtil;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import javax.annotation.Nullable;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * ChaCha20Poly1305 AEAD construction, as described in RFC 8439, that uses the "ChaCha20-Poly1305"
+ * cipher of the JCE and allows the caller to set the nonce.
+ *
+ * <p>This produces the same output as {@link InsecureNonceChaCha20Poly1305}, but is much faster.
+ * It is only available if {@link #isSupported} returns true, which is the case from JDK 11 on.
+ */
+public final class InsecureNonceChaCha20Poly1305Jce {
+  public static final TinkFipsUtil.AlgorithmFipsCompatibility FIPS =
+      TinkFipsUtil.AlgorithmFipsCompatibility.ALGORITHM_NOT_FIPS;
+
+  private final SecretKey keySpec;
+
+  private InsecureNonceChaCha20Poly1305Jce(final byte[] key) {
+    this.keySpec = new SecretKeySpec(key, "ChaCha20");
+  }
+
+  /** Returns true if the JCE provides a "ChaCha20-Poly1305" cipher that this class can use. */
+  public static boolean isSupported() {
+    return ChaCha20Poly1305JceUtil.isSupported();
+  }
+
+  public static InsecureNonceChaCha20Poly1305Jce create(final byte[] key)
+      throws GeneralSecurityException {
+    if (!FIPS.isCompatible()) {
+      throw new GeneralSecurityException("Can not use ChaCha20Poly1305 in FIPS-mode.");
+    }
+    if (!isSupported()) {
+      throw new GeneralSecurityException("JCE does not support algorithm: ChaCha20-Poly1305");
+    }
+    if (key.length != ChaCha20Poly1305JceUtil.KEY_SIZE_IN_BYTES) {
+      throw new InvalidKeyException("The key length in bytes must be 32.");
+    }
+    return new InsecureNonceChaCha20Poly1305Jce(key);
+  }
+
+  /**
+   * Encrypts {@code plaintext} with Poly1305 authentication based on {@code associatedData}.
+   *
+   * @return ciphertext with the following format {@code actual_ciphertext || tag}
+   */
+  public byte[] encrypt(final byte[] nonce, final byte[] plaintext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    if (plaintext.length > Integer.MAX_VALUE - ChaCha20Poly1305JceUtil.TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    ByteBuffer ciphertext =
+        ByteBuffer.allocate(plaintext.length + ChaCha20Poly1305JceUtil.TAG_SIZE_IN_BYTES);
+    encrypt(
+        ciphertext,
+        nonce,
+        ByteBuffer.wrap(plaintext),
+        associatedData == null ? null : ByteBuffer.wrap(associatedData));
+    return ciphertext.array();
+  }
+
+  /**
+   * Encrypts the remaining bytes of {@code plaintext} and writes {@code actual_ciphertext || tag}
+   * into {@code output} at its current position. Behaves like {@link
+   * InsecureNonceChaCha20Poly1305#encrypt(ByteBuffer, byte[], ByteBuffer, ByteBuffer)}.
+   */
+  public void encrypt(
+      ByteBuffer output,
+      final byte[] nonce,
+      ByteBuffer plaintext,
+      @Nullable ByteBuffer associatedData)
+      throws GeneralSecurityException {
+    ChaCha20Poly1305JceUtil.encrypt(keySpec, nonce, output, plaintext, associatedData);
+  }
+
+  /**
+   * Decrypts {@code ciphertext} with the following format: {@code actual_ciphertext || tag}.
+   *
+   * @return plaintext if authentication is successful
+   * @throws javax.crypto.AEADBadTagException when the tag is invalid
+   */
+  public byte[] decrypt(final byte[] nonce, final byte[] ciphertext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    if (ciphertext.length < ChaCha20Poly1305JceUtil.TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("ciphertext too short");
+    }
+    ByteBuffer plaintext =
+        ByteBuffer.allocate(ciphertext.length - ChaCha20Poly1305JceUtil.TAG_SIZE_IN_BYTES);
+    decrypt(
+        ByteBuffer.wrap(ciphertext),
+        nonce,
+        associatedData == null ? null : ByteBuffer.wrap(associatedData),
+        plaintext);
+    return plaintext.array();
+  }
+
+  /**
+   * Decrypts the remaining bytes of {@code ciphertext}, which have the format {@code
+   * actual_ciphertext || tag}, and writes the plaintext into {@code plaintext} at its current
+   * position. Behaves like {@link InsecureNonceChaCha20Poly1305#decrypt(ByteBuffer, byte[],
+   * ByteBuffer, ByteBuffer)}.
+   */
+  public void decrypt(
+      ByteBuffer ciphertext,
+      final byte[] nonce,
+      @Nullable ByteBuffer associatedData,
+      ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    ChaCha20Poly1305JceUtil.decrypt(keySpec, nonce, ciphertext, associatedData, plaintext);
+  }
+}
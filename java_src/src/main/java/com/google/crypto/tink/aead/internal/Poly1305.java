@@ -17,6 +17,7 @@
 package com.google.crypto.tink.aead.internal;
 
 import com.google.crypto.tink.subtle.Bytes;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
 
@@ -26,6 +27,10 @@ import java.util.Arrays;
  * <p>This is not an implementation of the MAC interface on purpose and it is not equivalent to
  * HMAC.
  *
+ * <p>The MAC can either be computed in one shot with {@link #computeMac}, or incrementally with
+ * {@link #init}, any number of {@code update} calls and {@link #finish}. An instance returned by
+ * {@link #init} is not thread-safe and can only be used for a single MAC.
+ *
  * <p>The implementation is based on poly1305 implementation by Andrew Moon
  * (https://github.com/floodyberry/poly1305-donna) and released as public domain.
  */
@@ -34,7 +39,55 @@ public class Poly1305 {
   public static final int MAC_TAG_SIZE_IN_BYTES = 16;
   public static final int MAC_KEY_SIZE_IN_BYTES = 32;
 
-  private Poly1305() {}
+  private static final int BLOCK_SIZE_IN_BYTES = 16;
+
+  // r, clamped and in radix 2^26, and the precomputed values r * 5.
+  private final long r0;
+  private final long r1;
+  private final long r2;
+  private final long r3;
+  private final long r4;
+  private final long s1;
+  private final long s2;
+  private final long s3;
+  private final long s4;
+  // The last 16 bytes of the key, which are added to the accumulator in finish().
+  private final long pad0;
+  private final long pad1;
+  private final long pad2;
+  private final long pad3;
+
+  // Accumulator, in radix 2^26.
+  private long h0 = 0;
+  private long h1 = 0;
+  private long h2 = 0;
+  private long h3 = 0;
+  private long h4 = 0;
+
+  // Input that does not yet fill a whole block. It has one more byte for the final block, see
+  // finish().
+  private final byte[] buffer = new byte[BLOCK_SIZE_IN_BYTES + 1];
+  private int bufferedBytes = 0;
+  private boolean finished = false;
+
+  private Poly1305(final byte[] key) {
+    // r &= 0xffffffc0ffffffc0ffffffc0fffffff
+    r0 = load26(key, 0, 0) & 0x3ffffff;
+    r1 = load26(key, 3, 2) & 0x3ffff03;
+    r2 = load26(key, 6, 4) & 0x3ffc0ff;
+    r3 = load26(key, 9, 6) & 0x3f03fff;
+    r4 = load26(key, 12, 8) & 0x00fffff;
+
+    s1 = r1 * 5;
+    s2 = r2 * 5;
+    s3 = r3 * 5;
+    s4 = r4 * 5;
+
+    pad0 = load32(key, 16);
+    pad1 = load32(key, 20);
+    pad2 = load32(key, 24);
+    pad3 = load32(key, 28);
+  }
 
   private static long load32(byte[] in, int idx) {
     return ((in[idx] & 0xff)
@@ -54,80 +107,87 @@ public class Poly1305 {
     }
   }
 
-  private static void copyBlockSize(byte[] output, byte[] in, int idx) {
-    int copyCount = Math.min(MAC_TAG_SIZE_IN_BYTES, in.length - idx);
-    System.arraycopy(in, idx, output, 0, copyCount);
-    output[copyCount] = 1;
-    if (copyCount != MAC_TAG_SIZE_IN_BYTES) {
-      Arrays.fill(output, copyCount + 1, output.length, (byte) 0);
+  /**
+   * Starts the computation of a Poly1305 MAC using {@code key}.
+   *
+   * <p>The key must only be used for a single message.
+   */
+  public static Poly1305 init(final byte[] key) {
+    if (key.length != MAC_KEY_SIZE_IN_BYTES) {
+      throw new IllegalArgumentException("The key length in bytes must be 32.");
     }
+    return new Poly1305(key);
   }
 
-  /** Computes Poly1305 MAC over {@code data} using {@code key}. */
-  public static byte[] computeMac(final byte[] key, byte[] data) {
-    if (key.length != MAC_KEY_SIZE_IN_BYTES) {
-      throw new IllegalArgumentException("The key length in bytes must be 32.");
+  /** Adds {@code len} bytes of {@code data} starting at {@code offset} to the MAC input. */
+  public void update(final byte[] data, int offset, int len) {
+    checkNotFinished();
+    if (offset < 0 || len < 0 || offset > data.length - len) {
+      throw new IndexOutOfBoundsException();
     }
-    long h0 = 0;
-    long h1 = 0;
-    long h2 = 0;
-    long h3 = 0;
-    long h4 = 0;
-    long d0;
-    long d1;
-    long d2;
-    long d3;
-    long d4;
-    long c;
+    if (bufferedBytes > 0) {
+      int toCopy = Math.min(len, BLOCK_SIZE_IN_BYTES - bufferedBytes);
+      System.arraycopy(data, offset, buffer, bufferedBytes, toCopy);
+      bufferedBytes += toCopy;
+      offset += toCopy;
+      len -= toCopy;
+      if (bufferedBytes < BLOCK_SIZE_IN_BYTES) {
+        return;
+      }
+      processBlock(buffer, 0, 1);
+      bufferedBytes = 0;
+    }
+    while (len >= BLOCK_SIZE_IN_BYTES) {
+      processBlock(data, offset, 1);
+      offset += BLOCK_SIZE_IN_BYTES;
+      len -= BLOCK_SIZE_IN_BYTES;
+    }
+    System.arraycopy(data, offset, buffer, 0, len);
+    bufferedBytes = len;
+  }
 
-    // r &= 0xffffffc0ffffffc0ffffffc0fffffff
-    long r0 = load26(key, 0, 0) & 0x3ffffff;
-    long r1 = load26(key, 3, 2) & 0x3ffff03;
-    long r2 = load26(key, 6, 4) & 0x3ffc0ff;
-    long r3 = load26(key, 9, 6) & 0x3f03fff;
-    long r4 = load26(key, 12, 8) & 0x00fffff;
-
-    long s1 = r1 * 5;
-    long s2 = r2 * 5;
-    long s3 = r3 * 5;
-    long s4 = r4 * 5;
-
-    byte[] buf = new byte[MAC_TAG_SIZE_IN_BYTES + 1];
-    for (int i = 0; i < data.length; i += MAC_TAG_SIZE_IN_BYTES) {
-      copyBlockSize(buf, data, i);
-      h0 += load26(buf, 0, 0);
-      h1 += load26(buf, 3, 2);
-      h2 += load26(buf, 6, 4);
-      h3 += load26(buf, 9, 6);
-      h4 += load26(buf, 12, 8) | (buf[MAC_TAG_SIZE_IN_BYTES] << 24);
-
-      // d = r * h
-      d0 = h0 * r0 + h1 * s4 + h2 * s3 + h3 * s2 + h4 * s1;
-      d1 = h0 * r1 + h1 * r0 + h2 * s4 + h3 * s3 + h4 * s2;
-      d2 = h0 * r2 + h1 * r1 + h2 * r0 + h3 * s4 + h4 * s3;
-      d3 = h0 * r3 + h1 * r2 + h2 * r1 + h3 * r0 + h4 * s4;
-      d4 = h0 * r4 + h1 * r3 + h2 * r2 + h3 * r1 + h4 * r0;
-
-      // Partial reduction mod 2^130-5, resulting h1 might not be 26bits.
-      c = d0 >> 26;
-      h0 = d0 & 0x3ffffff;
-      d1 += c;
-      c = d1 >> 26;
-      h1 = d1 & 0x3ffffff;
-      d2 += c;
-      c = d2 >> 26;
-      h2 = d2 & 0x3ffffff;
-      d3 += c;
-      c = d3 >> 26;
-      h3 = d3 & 0x3ffffff;
-      d4 += c;
-      c = d4 >> 26;
-      h4 = d4 & 0x3ffffff;
-      h0 += c * 5;
-      c = h0 >> 26;
-      h0 = h0 & 0x3ffffff;
-      h1 += c;
+  /** Adds {@code data} to the MAC input. */
+  public void update(final byte[] data) {
+    update(data, 0, data.length);
+  }
+
+  /**
+   * Adds the remaining bytes of {@code data} to the MAC input. The position of {@code data} is set
+   * to its limit.
+   */
+  public void update(ByteBuffer data) {
+    checkNotFinished();
+    if (data.hasArray()) {
+      update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+      data.position(data.limit());
+      return;
+    }
+    while (data.hasRemaining()) {
+      int toCopy = Math.min(data.remaining(), BLOCK_SIZE_IN_BYTES - bufferedBytes);
+      data.get(buffer, bufferedBytes, toCopy);
+      bufferedBytes += toCopy;
+      if (bufferedBytes == BLOCK_SIZE_IN_BYTES) {
+        processBlock(buffer, 0, 1);
+        bufferedBytes = 0;
+      }
+    }
+  }
+
+  /**
+   * Finishes the computation and returns the MAC. The instance cannot be used afterwards.
+   */
+  public byte[] finish() {
+    checkNotFinished();
+    finished = true;
+    if (bufferedBytes > 0) {
+      // The last block is padded with a single 1 byte followed by zeros, and is processed without
+      // the high bit.
+      buffer[bufferedBytes] = 1;
+      Arrays.fill(buffer, bufferedBytes + 1, buffer.length, (byte) 0);
+      processBlock(buffer, 0, 0);
     }
+
+    long c;
     // Do final reduction mod 2^130-5
     c = h1 >> 26;
     h1 = h1 & 0x3ffffff;
@@ -181,13 +241,13 @@ public class Poly1305 {
     h3 = ((h3 >> 18) | (h4 << 8)) & 0xffffffffL;
 
     // mac = (h + pad) % (2^128)
-    c = h0 + load32(key, 16);
+    c = h0 + pad0;
     h0 = c & 0xffffffffL;
-    c = h1 + load32(key, 20) + (c >> 32);
+    c = h1 + pad1 + (c >> 32);
     h1 = c & 0xffffffffL;
-    c = h2 + load32(key, 24) + (c >> 32);
+    c = h2 + pad2 + (c >> 32);
     h2 = c & 0xffffffffL;
-    c = h3 + load32(key, 28) + (c >> 32);
+    c = h3 + pad3 + (c >> 32);
     h3 = c & 0xffffffffL;
 
     byte[] mac = new byte[MAC_TAG_SIZE_IN_BYTES];
@@ -199,6 +259,59 @@ public class Poly1305 {
     return mac;
   }
 
+  /**
+   * Adds the 16-byte block {@code in[idx..idx + 16]} to the accumulator and multiplies by r.
+   * {@code hibit} is 1 for full blocks, and 0 for the final partial block, which has been padded
+   * already.
+   */
+  private void processBlock(byte[] in, int idx, int hibit) {
+    h0 += load26(in, idx, 0);
+    h1 += load26(in, idx + 3, 2);
+    h2 += load26(in, idx + 6, 4);
+    h3 += load26(in, idx + 9, 6);
+    h4 += load26(in, idx + 12, 8) | ((long) hibit << 24);
+
+    // d = r * h
+    long d0 = h0 * r0 + h1 * s4 + h2 * s3 + h3 * s2 + h4 * s1;
+    long d1 = h0 * r1 + h1 * r0 + h2 * s4 + h3 * s3 + h4 * s2;
+    long d2 = h0 * r2 + h1 * r1 + h2 * r0 + h3 * s4 + h4 * s3;
+    long d3 = h0 * r3 + h1 * r2 + h2 * r1 + h3 * r0 + h4 * s4;
+    long d4 = h0 * r4 + h1 * r3 + h2 * r2 + h3 * r1 + h4 * r0;
+
+    // Partial reduction mod 2^130-5, resulting h1 might not be 26bits.
+    long c = d0 >> 26;
+    h0 = d0 & 0x3ffffff;
+    d1 += c;
+    c = d1 >> 26;
+    h1 = d1 & 0x3ffffff;
+    d2 += c;
+    c = d2 >> 26;
+    h2 = d2 & 0x3ffffff;
+    d3 += c;
+    c = d3 >> 26;
+    h3 = d3 & 0x3ffffff;
+    d4 += c;
+    c = d4 >> 26;
+    h4 = d4 & 0x3ffffff;
+    h0 += c * 5;
+    c = h0 >> 26;
+    h0 = h0 & 0x3ffffff;
+    h1 += c;
+  }
+
+  private void checkNotFinished() {
+    if (finished) {
+      throw new IllegalStateException("finish() has already been called");
+    }
+  }
+
+  /** Computes Poly1305 MAC over {@code data} using {@code key}. */
+  public static byte[] computeMac(final byte[] key, byte[] data) {
+    Poly1305 poly1305 = init(key);
+    poly1305.update(data);
+    return poly1305.finish();
+  }
+
   /** Verifies Poly1305 {@ mac} over {@code data} using {@code key}. */
   public static void verifyMac(final byte[] key, byte[] data, byte[] mac)
       throws GeneralSecurityException {
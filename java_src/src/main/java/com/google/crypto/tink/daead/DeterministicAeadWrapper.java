@@ -66,6 +66,7 @@ public class DeterministicAeadWrapper
     @Override
     public byte[] encryptDeterministically(final byte[] plaintext, final byte[] associatedData)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(encLogger);
       try {
         byte[] output =
             Bytes.concat(
@@ -74,10 +75,13 @@ public class DeterministicAeadWrapper
                     .getPrimary()
                     .getPrimitive()
                     .encryptDeterministically(plaintext, associatedData));
-        encLogger.log(primitives.getPrimary().getKeyId(), plaintext.length);
+        encLogger.log(
+            primitives.getPrimary().getKeyId(),
+            plaintext.length,
+            MonitoringUtil.elapsedNanos(encLogger, startTime));
         return output;
       } catch (GeneralSecurityException e) {
-        encLogger.logFailure();
+        encLogger.logFailure(MonitoringUtil.elapsedNanos(encLogger, startTime));
         throw e;
       }
     }
@@ -85,16 +89,24 @@ public class DeterministicAeadWrapper
     @Override
     public byte[] decryptDeterministically(final byte[] ciphertext, final byte[] associatedData)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(decLogger);
       if (ciphertext.length > CryptoFormat.NON_RAW_PREFIX_SIZE) {
-        byte[] prefix = Arrays.copyOf(ciphertext, CryptoFormat.NON_RAW_PREFIX_SIZE);
         byte[] ciphertextNoPrefix =
             Arrays.copyOfRange(ciphertext, CryptoFormat.NON_RAW_PREFIX_SIZE, ciphertext.length);
-        List<PrimitiveSet.Entry<DeterministicAead>> entries = primitives.getPrimitive(prefix);
+        List<PrimitiveSet.Entry<DeterministicAead>> entries =
+            primitives.getPrimitiveWithPrefix(ciphertext, 0);
         for (PrimitiveSet.Entry<DeterministicAead> entry : entries) {
+          if (entry.primitiveCreationFailed()) {
+            // The primitive of a lazily added entry could not be created.
+            continue;
+          }
           try {
             byte[] output =
                 entry.getPrimitive().decryptDeterministically(ciphertextNoPrefix, associatedData);
-            decLogger.log(entry.getKeyId(), ciphertextNoPrefix.length);
+            decLogger.log(
+                entry.getKeyId(),
+                ciphertextNoPrefix.length,
+                MonitoringUtil.elapsedNanos(decLogger, startTime));
             return output;
           } catch (GeneralSecurityException e) {
             continue;
@@ -105,16 +117,23 @@ public class DeterministicAeadWrapper
       // Let's try all RAW keys.
       List<PrimitiveSet.Entry<DeterministicAead>> entries = primitives.getRawPrimitives();
       for (PrimitiveSet.Entry<DeterministicAead> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           byte[] output = entry.getPrimitive().decryptDeterministically(ciphertext, associatedData);
-          decLogger.log(entry.getKeyId(), ciphertext.length);
+          decLogger.log(
+              entry.getKeyId(),
+              ciphertext.length,
+              MonitoringUtil.elapsedNanos(decLogger, startTime));
           return output;
         } catch (GeneralSecurityException e) {
           continue;
         }
       }
       // nothing works.
-      decLogger.logFailure();
+      decLogger.logFailure(MonitoringUtil.elapsedNanos(decLogger, startTime));
       throw new GeneralSecurityException("decryption failed");
     }
   }
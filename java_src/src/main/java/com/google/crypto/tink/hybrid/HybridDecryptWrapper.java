@@ -59,15 +59,23 @@ public class HybridDecryptWrapper implements PrimitiveWrapper<HybridDecrypt, Hyb
     @Override
     public byte[] decrypt(final byte[] ciphertext, final byte[] contextInfo)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(decLogger);
       if (ciphertext.length > CryptoFormat.NON_RAW_PREFIX_SIZE) {
-        byte[] prefix = Arrays.copyOfRange(ciphertext, 0, CryptoFormat.NON_RAW_PREFIX_SIZE);
         byte[] ciphertextNoPrefix =
             Arrays.copyOfRange(ciphertext, CryptoFormat.NON_RAW_PREFIX_SIZE, ciphertext.length);
-        List<PrimitiveSet.Entry<HybridDecrypt>> entries = primitives.getPrimitive(prefix);
+        List<PrimitiveSet.Entry<HybridDecrypt>> entries =
+            primitives.getPrimitiveWithPrefix(ciphertext, 0);
         for (PrimitiveSet.Entry<HybridDecrypt> entry : entries) {
+          if (entry.primitiveCreationFailed()) {
+            // The primitive of a lazily added entry could not be created.
+            continue;
+          }
           try {
             byte[] output = entry.getPrimitive().decrypt(ciphertextNoPrefix, contextInfo);
-            decLogger.log(entry.getKeyId(), ciphertextNoPrefix.length);
+            decLogger.log(
+                entry.getKeyId(),
+                ciphertextNoPrefix.length,
+                MonitoringUtil.elapsedNanos(decLogger, startTime));
             return output;
           } catch (GeneralSecurityException e) {
             continue;
@@ -77,16 +85,23 @@ public class HybridDecryptWrapper implements PrimitiveWrapper<HybridDecrypt, Hyb
       // Let's try all RAW keys.
       List<PrimitiveSet.Entry<HybridDecrypt>> entries = primitives.getRawPrimitives();
       for (PrimitiveSet.Entry<HybridDecrypt> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           byte[] output = entry.getPrimitive().decrypt(ciphertext, contextInfo);
-          decLogger.log(entry.getKeyId(), ciphertext.length);
+          decLogger.log(
+              entry.getKeyId(),
+              ciphertext.length,
+              MonitoringUtil.elapsedNanos(decLogger, startTime));
           return output;
         } catch (GeneralSecurityException e) {
           continue;
         }
       }
       // nothing works.
-      decLogger.logFailure();
+      decLogger.logFailure(MonitoringUtil.elapsedNanos(decLogger, startTime));
       throw new GeneralSecurityException("decryption failed");
     }
   }
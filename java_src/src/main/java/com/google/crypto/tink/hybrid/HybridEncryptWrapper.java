@@ -56,8 +56,9 @@ public class HybridEncryptWrapper implements PrimitiveWrapper<HybridEncrypt, Hyb
     @Override
     public byte[] encrypt(final byte[] plaintext, final byte[] contextInfo)
         throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(encLogger);
       if (primitives.getPrimary() == null) {
-        encLogger.logFailure();
+        encLogger.logFailure(MonitoringUtil.elapsedNanos(encLogger, startTime));
         throw new GeneralSecurityException("keyset without primary key");
       }
       try {
@@ -65,10 +66,13 @@ public class HybridEncryptWrapper implements PrimitiveWrapper<HybridEncrypt, Hyb
             Bytes.concat(
                 primitives.getPrimary().getIdentifier(),
                 primitives.getPrimary().getPrimitive().encrypt(plaintext, contextInfo));
-        encLogger.log(primitives.getPrimary().getKeyId(), plaintext.length);
+        encLogger.log(
+            primitives.getPrimary().getKeyId(),
+            plaintext.length,
+            MonitoringUtil.elapsedNanos(encLogger, startTime));
         return output;
       } catch (GeneralSecurityException e) {
-        encLogger.logFailure();
+        encLogger.logFailure(MonitoringUtil.elapsedNanos(encLogger, startTime));
         throw e;
       }
     }
@@ -24,9 +24,12 @@ import com.amazonaws.services.kms.model.EncryptRequest;
 import com.amazonaws.util.BinaryUtils;
 import com.google.common.base.Splitter;
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
+import com.google.crypto.tink.aead.BatchingAsyncAead;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link Aead} that forwards encryption/decryption requests to a key in <a
@@ -88,6 +91,22 @@ public final class AwsKmsAead implements Aead {
     }
   }
 
+  /**
+   * Returns an {@link AsyncAead} for the same key, which calls AWS KMS on {@code executor}.
+   *
+   * <p>AWS KMS has no batch encrypt or decrypt API, so every request is a separate call. At most
+   * {@code maxConcurrentCalls} calls run at the same time, and requests beyond {@code
+   * maxPendingRequests} queued or running ones are rejected.
+   */
+  public AsyncAead toAsyncAead(Executor executor, int maxConcurrentCalls, int maxPendingRequests) {
+    return BatchingAsyncAead.builder()
+        .setAead(this)
+        .setExecutor(executor)
+        .setMaxConcurrentCalls(maxConcurrentCalls)
+        .setMaxPendingRequests(maxPendingRequests)
+        .build();
+  }
+
   /** Returns {@code true} if {@code keyArn} is in key ARN format. */
   private static boolean isKeyArnFormat(String keyArn) {
     List<String> tokens = Splitter.on(':').splitToList(keyArn);
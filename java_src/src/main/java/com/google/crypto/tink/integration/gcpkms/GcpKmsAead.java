@@ -22,8 +22,11 @@ import com.google.api.services.cloudkms.v1.model.DecryptResponse;
 import com.google.api.services.cloudkms.v1.model.EncryptRequest;
 import com.google.api.services.cloudkms.v1.model.EncryptResponse;
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
+import com.google.crypto.tink.aead.BatchingAsyncAead;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link Aead} that forwards encryption/decryption requests to a key in <a
@@ -92,6 +95,22 @@ public final class GcpKmsAead implements Aead {
     }
   }
 
+  /**
+   * Returns an {@link AsyncAead} for the same key, which calls Cloud KMS on {@code executor}.
+   *
+   * <p>Cloud KMS has no batch encrypt or decrypt API, so every request is a separate call. At most
+   * {@code maxConcurrentCalls} calls run at the same time, and requests beyond {@code
+   * maxPendingRequests} queued or running ones are rejected.
+   */
+  public AsyncAead toAsyncAead(Executor executor, int maxConcurrentCalls, int maxPendingRequests) {
+    return BatchingAsyncAead.builder()
+        .setAead(this)
+        .setExecutor(executor)
+        .setMaxConcurrentCalls(maxConcurrentCalls)
+        .setMaxPendingRequests(maxPendingRequests)
+        .build();
+  }
+
   private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
   private static byte[] toNonNullableByteArray(byte[] data) {
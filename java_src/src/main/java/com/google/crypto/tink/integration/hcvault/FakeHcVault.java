@@ -21,6 +21,10 @@ import com.google.crypto.tink.KeysetHandle;
 import io.github.jopenlibs.vault.VaultConfig;
 import io.github.jopenlibs.vault.VaultException;
 import io.github.jopenlibs.vault.api.Logical;
+import io.github.jopenlibs.vault.json.Json;
+import io.github.jopenlibs.vault.json.JsonArray;
+import io.github.jopenlibs.vault.json.JsonObject;
+import io.github.jopenlibs.vault.json.JsonValue;
 import io.github.jopenlibs.vault.response.LogicalResponse;
 import io.github.jopenlibs.vault.rest.RestResponse;
 import java.nio.charset.Charset;
@@ -32,7 +36,8 @@ import java.util.Map;
  * A partial, fake implementation of Hashicorp Vault that only supports encrypt and decrypt.
  *
  * <p>It creates a new AEAD for every instance. It can only encrypt and decrypt keys for the URI
- * specified in the config.
+ * specified in the config. Requests with a {@code batch_input} parameter are processed like the
+ * transit batch API, with one result or error per item in {@code batch_results}.
  */
 final class FakeHcVault extends Logical {
   private static final Charset UTF_8 = Charset.forName("UTF-8");
@@ -54,6 +59,10 @@ final class FakeHcVault extends Logical {
       return super.write(path, nameValuePairs);
     }
 
+    if (nameValuePairs.containsKey("batch_input")) {
+      return writeBatch(path, (JsonArray) nameValuePairs.get("batch_input"));
+    }
+
     try {
       byte[] context = Base64.getDecoder().decode((String) nameValuePairs.get("context"));
       if (path.contains("encrypt")) {
@@ -78,6 +87,34 @@ final class FakeHcVault extends Logical {
     return null; // Will never be hit, just for compiler
   }
 
+  private LogicalResponse writeBatch(final String path, final JsonArray batchInput) {
+    boolean encrypt = path.contains("encrypt");
+    JsonArray batchResults = Json.array();
+    for (JsonValue value : batchInput) {
+      JsonObject item = value.asObject();
+      JsonObject result = Json.object();
+      try {
+        byte[] context = Base64.getDecoder().decode(item.getString("context", ""));
+        if (encrypt) {
+          byte[] plaintext = Base64.getDecoder().decode(item.getString("plaintext", ""));
+          byte[] ciphertext = aead.encrypt(plaintext, context);
+          result.add("ciphertext", new String(Base64.getEncoder().encode(ciphertext)));
+        } else {
+          byte[] ciphertext = Base64.getDecoder().decode(item.getString("ciphertext", ""));
+          byte[] plaintext = aead.decrypt(ciphertext, context);
+          result.add("plaintext", Base64.getEncoder().encodeToString(plaintext));
+        }
+      } catch (GeneralSecurityException | IllegalArgumentException e) {
+        result.add("error", String.valueOf(e.getMessage()));
+      }
+      batchResults.add(result);
+    }
+    RestResponse restResp = new RestResponse(200, null, null);
+    LogicalResponse resp = new LogicalResponse(restResp, 0, null);
+    resp.getData().put("batch_results", batchResults.toString());
+    return resp;
+  }
+
   public static FakeHcVault fromURI(String keyUri) {
     VaultConfig conf =
         new VaultConfig()
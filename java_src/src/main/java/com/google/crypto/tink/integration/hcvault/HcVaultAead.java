@@ -17,8 +17,13 @@
 package com.google.crypto.tink.integration.hcvault;
 
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
+import com.google.crypto.tink.aead.BatchingAsyncAead;
 import io.github.jopenlibs.vault.VaultException;
 import io.github.jopenlibs.vault.api.Logical;
+import io.github.jopenlibs.vault.json.Json;
+import io.github.jopenlibs.vault.json.JsonArray;
+import io.github.jopenlibs.vault.json.JsonObject;
 import io.github.jopenlibs.vault.response.LogicalResponse;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -26,7 +31,9 @@ import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -80,6 +87,111 @@ final class HcVaultAead implements Aead {
     }
   }
 
+  /**
+   * Returns an {@link AsyncAead} for the same key, which calls Vault on {@code executor}.
+   *
+   * <p>Concurrent requests are sent together, up to {@code maxBatchSize} at a time, using the
+   * {@code batch_input} parameter of the transit encrypt and decrypt endpoints. If a batch call
+   * fails as a whole, its requests are retried one by one, so that one bad ciphertext does not
+   * fail the other requests of its batch.
+   */
+  AsyncAead toAsyncAead(
+      Executor executor, int maxBatchSize, int maxConcurrentCalls, int maxPendingRequests) {
+    return BatchingAsyncAead.builder()
+        .setBatchFunctions(this::encryptBatch, this::decryptBatch)
+        .setExecutor(executor)
+        .setMaxBatchSize(maxBatchSize)
+        .setMaxConcurrentCalls(maxConcurrentCalls)
+        .setMaxPendingRequests(maxPendingRequests)
+        .build();
+  }
+
+  private void encryptBatch(List<BatchingAsyncAead.Request> batch)
+      throws GeneralSecurityException {
+    if (batch.size() == 1) {
+      BatchingAsyncAead.encryptEach(this).apply(batch);
+      return;
+    }
+    JsonArray batchInput = Json.array();
+    for (BatchingAsyncAead.Request request : batch) {
+      batchInput.add(
+          Json.object()
+              .add("plaintext", Base64.getEncoder().encodeToString(request.getInput()))
+              .add("context", encodeContext(request.getAssociatedData())));
+    }
+    JsonArray results;
+    try {
+      results = writeBatch(getOperationEndpoint(this.keyUri, "encrypt"), batchInput, batch.size());
+    } catch (VaultException | RuntimeException e) {
+      BatchingAsyncAead.encryptEach(this).apply(batch);
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      JsonObject result = results.get(i).asObject();
+      String ciphertext = result.getString("ciphertext", null);
+      if (ciphertext == null) {
+        batch.get(i).fail(new GeneralSecurityException("encryption failed: " + getError(result)));
+      } else {
+        batch.get(i).complete(ciphertext.getBytes());
+      }
+    }
+  }
+
+  private void decryptBatch(List<BatchingAsyncAead.Request> batch)
+      throws GeneralSecurityException {
+    if (batch.size() == 1) {
+      BatchingAsyncAead.decryptEach(this).apply(batch);
+      return;
+    }
+    JsonArray batchInput = Json.array();
+    for (BatchingAsyncAead.Request request : batch) {
+      batchInput.add(
+          Json.object()
+              .add("ciphertext", new String(request.getInput()))
+              .add("context", encodeContext(request.getAssociatedData())));
+    }
+    JsonArray results;
+    try {
+      results = writeBatch(getOperationEndpoint(this.keyUri, "decrypt"), batchInput, batch.size());
+    } catch (VaultException | RuntimeException e) {
+      BatchingAsyncAead.decryptEach(this).apply(batch);
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      JsonObject result = results.get(i).asObject();
+      String plaintext = result.getString("plaintext", null);
+      if (plaintext == null) {
+        batch.get(i).fail(new GeneralSecurityException("decryption failed: " + getError(result)));
+      } else {
+        batch.get(i).complete(Base64.getDecoder().decode(plaintext.getBytes()));
+      }
+    }
+  }
+
+  /** Sends a batch request and returns its {@code batch_results}, one per request. */
+  private JsonArray writeBatch(String path, JsonArray batchInput, int batchSize)
+      throws VaultException {
+    Map<String, Object> content = new HashMap<>();
+    content.put("batch_input", batchInput);
+    LogicalResponse resp = kmsClient.write(path, content);
+    handleResponse(resp);
+    JsonArray results = Json.parse(resp.getData().get("batch_results")).asArray();
+    if (results.size() != batchSize) {
+      throw new VaultException(
+          String.format("Expected %d batch results, got %d", batchSize, results.size()));
+    }
+    return results;
+  }
+
+  private static String encodeContext(byte[] associatedData) {
+    return Base64.getEncoder()
+        .encodeToString(associatedData == null ? new byte[0] : associatedData);
+  }
+
+  private static String getError(JsonObject result) {
+    return result.getString("error", "unknown error");
+  }
+
   public static String getOperationEndpoint(String keyUri, String operation)
       throws GeneralSecurityException {
     try {
@@ -18,11 +18,13 @@ package com.google.crypto.tink.integration.hcvault;
 
 import com.google.auto.service.AutoService;
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
 import com.google.crypto.tink.KmsClient;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.github.jopenlibs.vault.api.Logical;
 import java.security.GeneralSecurityException;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 
 /**
@@ -85,6 +87,29 @@ public final class HcVaultClient implements KmsClient {
     return new HcVaultClient(hcVault, keyUri);
   }
 
+  /**
+   * Returns an {@link AsyncAead} for the key identified by {@code keyUri}, which calls Vault on
+   * {@code executor}.
+   *
+   * <p>Concurrent requests are sent together in batches of up to {@code maxBatchSize} requests. At
+   * most {@code maxConcurrentCalls} calls run at the same time, and requests beyond {@code
+   * maxPendingRequests} queued or running ones are rejected.
+   */
+  public static AsyncAead createAsyncAead(
+      Logical hcVault,
+      String keyUri,
+      Executor executor,
+      int maxBatchSize,
+      int maxConcurrentCalls,
+      int maxPendingRequests)
+      throws GeneralSecurityException {
+    if (!keyUri.toLowerCase(Locale.US).startsWith(PREFIX)) {
+      throw new GeneralSecurityException("key URI must start with " + PREFIX);
+    }
+    return new HcVaultAead(hcVault, keyUri)
+        .toAsyncAead(executor, maxBatchSize, maxConcurrentCalls, maxPendingRequests);
+  }
+
   @Override
   public Aead getAead(String uri) throws GeneralSecurityException {
     if (this.keyUri != null && !this.keyUri.equals(uri)) {
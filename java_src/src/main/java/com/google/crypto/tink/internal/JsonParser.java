@@ -32,6 +32,8 @@ import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -136,9 +138,10 @@ public final class JsonParser {
     }
   }
 
-  private static final class JsonElementTypeAdapter extends TypeAdapter<JsonElement> {
+  // The maximal number of arrays and objects that a value may be nested in.
+  static final int RECURSION_LIMIT = 100;
 
-    private static final int RECURSION_LIMIT = 100;
+  private static final class JsonElementTypeAdapter extends TypeAdapter<JsonElement> {
 
     /**
      * Tries to begin reading a JSON array or JSON object, returning {@code null} if the next
@@ -183,6 +186,14 @@ public final class JsonParser {
 
     @Override
     public JsonElement read(JsonReader in) throws IOException {
+      return read(in, 0);
+    }
+
+    /**
+     * Reads a {@link JsonElement} which is nested in {@code depth} arrays and objects that have
+     * already been read from {@code in}.
+     */
+    JsonElement read(JsonReader in, int depth) throws IOException {
       // Either JsonArray or JsonObject
       JsonElement current;
       JsonToken peeked = in.peek();
@@ -224,7 +235,7 @@ public final class JsonParser {
 
           if (isNesting) {
             stack.addLast(current);
-            if (stack.size() > RECURSION_LIMIT) {
+            if (stack.size() + depth > RECURSION_LIMIT) {
                throw new IOException("too many recursions");
             }
             current = value;
@@ -265,6 +276,85 @@ public final class JsonParser {
     }
   }
 
+  /**
+   * Parses a JSON object like {@link #parse}, but only returns the members named in {@code names}.
+   *
+   * <p>All other members are checked as strictly as by {@link #parse}, i.e. for duplicated keys and
+   * invalid UTF16 characters, but are skipped without building a {@link JsonElement} for them.
+   */
+  public static JsonObject parseObjectMembers(String json, Set<String> names) throws IOException {
+    try {
+      JsonReader in = new JsonReader(new StringReader(json));
+      in.setLenient(false);
+      JsonObject result = new JsonObject();
+      if (in.peek() != JsonToken.BEGIN_OBJECT) {
+        throw new IOException("not a JSON object");
+      }
+      Set<String> seenNames = new HashSet<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (!isValidString(name)) {
+          throw new IOException("illegal characters in string");
+        }
+        if (!seenNames.add(name)) {
+          throw new IOException("duplicate key: " + name);
+        }
+        if (names.contains(name)) {
+          // The member is nested in the object, which counts towards the recursion limit.
+          result.add(name, JSON_ELEMENT.read(in, 1));
+        } else {
+          checkValue(in, 0);
+        }
+      }
+      in.endObject();
+      return result;
+    } catch (NumberFormatException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** Reads the next value, applying the same checks as {@link #parse} without keeping it. */
+  private static void checkValue(JsonReader in, int depth) throws IOException {
+    switch (in.peek()) {
+      case STRING:
+        if (!isValidString(in.nextString())) {
+          throw new IOException("illegal characters in string");
+        }
+        return;
+      case BEGIN_ARRAY:
+        if (depth >= RECURSION_LIMIT) {
+          throw new IOException("too many recursions");
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+          checkValue(in, depth + 1);
+        }
+        in.endArray();
+        return;
+      case BEGIN_OBJECT:
+        if (depth >= RECURSION_LIMIT) {
+          throw new IOException("too many recursions");
+        }
+        in.beginObject();
+        Set<String> seenNames = new HashSet<>();
+        while (in.hasNext()) {
+          String name = in.nextName();
+          if (!isValidString(name)) {
+            throw new IOException("illegal characters in string");
+          }
+          if (!seenNames.add(name)) {
+            throw new IOException("duplicate key: " + name);
+          }
+          checkValue(in, depth + 1);
+        }
+        in.endObject();
+        return;
+      default:
+        in.skipValue();
+    }
+  }
+
   /*
    * Converts a parsed {@link JsonElement} into a long if it contains a valid long value.
    *
@@ -21,9 +21,10 @@ import com.google.crypto.tink.config.internal.TinkFipsUtil;
 import com.google.protobuf.MessageLite;
 import java.security.GeneralSecurityException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 /**
@@ -40,10 +41,10 @@ import java.util.logging.Logger;
 public final class KeyManagerRegistry {
   private static final Logger logger = Logger.getLogger(KeyManagerRegistry.class.getName());
 
-  // A map from the TypeUrl to the KeyManagerContainer.
-  private ConcurrentMap<String, KeyManagerContainer> keyManagerMap;
-  // typeUrl -> newKeyAllowed mapping
-  private ConcurrentMap<String, Boolean> newKeyAllowedMap;
+  // An immutable snapshot of the registered managers. Lookups read the current snapshot without
+  // locking. Registrations are synchronized, copy the current snapshot, modify the copy and then
+  // publish it, so that lookups never block on registrations.
+  private final AtomicReference<State> state;
 
   private static final KeyManagerRegistry GLOBAL_INSTANCE = new KeyManagerRegistry();
 
@@ -54,18 +55,34 @@ public final class KeyManagerRegistry {
 
   /** Resets the global instance. Should only be used in tests. Not thread safe. */
   public static void resetGlobalInstanceTestOnly() {
-    GLOBAL_INSTANCE.keyManagerMap = new ConcurrentHashMap<>();
-    GLOBAL_INSTANCE.newKeyAllowedMap = new ConcurrentHashMap<>();
+    GLOBAL_INSTANCE.state.set(State.EMPTY);
   }
 
   public KeyManagerRegistry(KeyManagerRegistry original) {
-    keyManagerMap = new ConcurrentHashMap<>(original.keyManagerMap);
-    newKeyAllowedMap = new ConcurrentHashMap<>(original.newKeyAllowedMap);
+    state = new AtomicReference<>(original.state.get());
   }
 
   public KeyManagerRegistry() {
-    keyManagerMap = new ConcurrentHashMap<>();
-    newKeyAllowedMap = new ConcurrentHashMap<>();
+    state = new AtomicReference<>(State.EMPTY);
+  }
+
+  /** The maps of a {@link KeyManagerRegistry}. Instances are never modified once published. */
+  private static final class State {
+    static final State EMPTY =
+        new State(
+            Collections.<String, KeyManagerContainer>emptyMap(),
+            Collections.<String, Boolean>emptyMap());
+
+    // A map from the TypeUrl to the KeyManagerContainer.
+    final Map<String, KeyManagerContainer> keyManagerMap;
+    // typeUrl -> newKeyAllowed mapping
+    final Map<String, Boolean> newKeyAllowedMap;
+
+    State(
+        Map<String, KeyManagerContainer> keyManagerMap, Map<String, Boolean> newKeyAllowedMap) {
+      this.keyManagerMap = keyManagerMap;
+      this.newKeyAllowedMap = newKeyAllowedMap;
+    }
   }
 
   /**
@@ -199,16 +216,25 @@ public final class KeyManagerRegistry {
     };
   }
 
-  private synchronized KeyManagerContainer getKeyManagerContainerOrThrow(String typeUrl)
+  private KeyManagerContainer getKeyManagerContainerOrThrow(String typeUrl)
       throws GeneralSecurityException {
-    if (!keyManagerMap.containsKey(typeUrl)) {
+    KeyManagerContainer container = state.get().keyManagerMap.get(typeUrl);
+    if (container == null) {
       throw new GeneralSecurityException("No key manager found for key type " + typeUrl);
     }
-    return keyManagerMap.get(typeUrl);
+    return container;
   }
 
-  private synchronized void registerKeyManagerContainer(
-      final KeyManagerContainer containerToInsert, boolean forceOverwrite, boolean newKeyAllowed)
+  /**
+   * Inserts {@code containerToInsert} into the given maps, which are copies of the maps of the
+   * current state. Must be called while holding the lock of this object.
+   */
+  private static void insertKeyManagerContainer(
+      Map<String, KeyManagerContainer> keyManagerMap,
+      Map<String, Boolean> newKeyAllowedMap,
+      final KeyManagerContainer containerToInsert,
+      boolean forceOverwrite,
+      boolean newKeyAllowed)
       throws GeneralSecurityException {
     String typeUrl = containerToInsert.getUntypedKeyManager().getKeyType();
     if (newKeyAllowed && newKeyAllowedMap.containsKey(typeUrl) && !newKeyAllowedMap.get(typeUrl)) {
@@ -225,14 +251,23 @@ public final class KeyManagerRegistry {
               container.getImplementingClass().getName(),
               containerToInsert.getImplementingClass().getName()));
     }
-    if (!forceOverwrite) {
-      keyManagerMap.putIfAbsent(typeUrl, containerToInsert);
-    } else {
+    if (forceOverwrite || !keyManagerMap.containsKey(typeUrl)) {
       keyManagerMap.put(typeUrl, containerToInsert);
     }
     newKeyAllowedMap.put(typeUrl, newKeyAllowed);
   }
 
+  private synchronized void registerKeyManagerContainer(
+      final KeyManagerContainer containerToInsert, boolean forceOverwrite, boolean newKeyAllowed)
+      throws GeneralSecurityException {
+    State current = state.get();
+    Map<String, KeyManagerContainer> keyManagerMap = new HashMap<>(current.keyManagerMap);
+    Map<String, Boolean> newKeyAllowedMap = new HashMap<>(current.newKeyAllowedMap);
+    insertKeyManagerContainer(
+        keyManagerMap, newKeyAllowedMap, containerToInsert, forceOverwrite, newKeyAllowed);
+    state.set(new State(keyManagerMap, newKeyAllowedMap));
+  }
+
   /**
    * Attempts to insert the given KeyManager into the object.
    *
@@ -310,20 +345,29 @@ public final class KeyManagerRegistry {
     }
 
 
+    // Both managers are published in a single snapshot, so readers never see only one of them.
+    State current = state.get();
+    Map<String, KeyManagerContainer> keyManagerMap = new HashMap<>(current.keyManagerMap);
+    Map<String, Boolean> newKeyAllowedMap = new HashMap<>(current.newKeyAllowedMap);
     // We overwrite such that if we once register asymmetrically and once symmetrically, the
     // asymmetric one takes precedence.
-    registerKeyManagerContainer(
+    insertKeyManagerContainer(
+        keyManagerMap,
+        newKeyAllowedMap,
         createPrivateKeyContainerFor(privateKeyTypeManager, publicKeyTypeManager),
         /* forceOverwrite= */ true,
         newKeyAllowed);
-    registerKeyManagerContainer(
+    insertKeyManagerContainer(
+        keyManagerMap,
+        newKeyAllowedMap,
         createContainerFor(publicKeyTypeManager),
         /* forceOverwrite= */ false,
         /* newKeyAllowed= */ false);
+    state.set(new State(keyManagerMap, newKeyAllowedMap));
   }
 
   public boolean typeUrlExists(String typeUrl) {
-    return keyManagerMap.containsKey(typeUrl);
+    return state.get().keyManagerMap.containsKey(typeUrl);
   }
 
   private static String toCommaSeparatedString(Set<Class<?>> setOfClasses) {
@@ -367,11 +411,11 @@ public final class KeyManagerRegistry {
   }
 
   public boolean isNewKeyAllowed(String typeUrl) {
-    return newKeyAllowedMap.get(typeUrl);
+    return state.get().newKeyAllowedMap.get(typeUrl);
   }
 
   public boolean isEmpty() {
-    return keyManagerMap.isEmpty();
+    return state.get().keyManagerMap.isEmpty();
   }
 
   /**
@@ -38,6 +38,29 @@ public final class MonitoringUtil {
 
   public static final MonitoringClient.Logger DO_NOTHING_LOGGER = new DoNothingLogger();
 
+  /**
+   * Informs {@code logger} that a call starts, and returns the start time to be passed to {@link
+   * #elapsedNanos}.
+   *
+   * <p>Reading the clock is skipped for {@link #DO_NOTHING_LOGGER}, so that unmonitored primitives
+   * do not pay for it.
+   */
+  public static long startTime(MonitoringClient.Logger logger) {
+    if (logger == DO_NOTHING_LOGGER) {
+      return 0;
+    }
+    logger.logStart();
+    return System.nanoTime();
+  }
+
+  /** Returns the nanoseconds elapsed since {@code startTime}, as returned by {@link #startTime}. */
+  public static long elapsedNanos(MonitoringClient.Logger logger, long startTime) {
+    if (logger == DO_NOTHING_LOGGER) {
+      return 0;
+    }
+    return System.nanoTime() - startTime;
+  }
+
   private static KeyStatus parseStatus(KeyStatusType in) {
     switch (in) {
       case ENABLED:
@@ -0,0 +1,79 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.internal;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A Registry for OperationListener.
+ */
+public final class MutableOperationListenerRegistry {
+  private static final MutableOperationListenerRegistry GLOBAL_INSTANCE =
+      new MutableOperationListenerRegistry();
+
+  public static MutableOperationListenerRegistry globalInstance() {
+    return GLOBAL_INSTANCE;
+  }
+
+  private static class DoNothingOperation implements OperationListener.Operation {
+    @Override
+    public void logSuccess(long numBytesAsInput) {}
+
+    @Override
+    public void logFailure() {}
+  }
+
+  public static final OperationListener.Operation DO_NOTHING_OPERATION = new DoNothingOperation();
+
+  private static class DoNothingListener implements OperationListener {
+    @Override
+    public OperationListener.Operation startKmsCall(String api, String dekKeyType) {
+      return DO_NOTHING_OPERATION;
+    }
+
+    @Override
+    public OperationListener.Operation startKeysetParse(String format) {
+      return DO_NOTHING_OPERATION;
+    }
+  }
+
+  private static final DoNothingListener DO_NOTHING_LISTENER = new DoNothingListener();
+
+  private final AtomicReference<OperationListener> operationListener = new AtomicReference<>();
+
+  public synchronized void clear() {
+    operationListener.set(null);
+  }
+
+  public synchronized void registerOperationListener(OperationListener listener) {
+    if (operationListener.get() != null) {
+      throw new IllegalStateException("an operation listener has already been registered");
+    }
+    operationListener.set(listener);
+  }
+
+  public OperationListener getOperationListener() {
+    OperationListener listener = operationListener.get();
+    if (listener == null) {
+      return DO_NOTHING_LISTENER;
+    }
+    return listener;
+  }
+
+  public MutableOperationListenerRegistry() {}
+}
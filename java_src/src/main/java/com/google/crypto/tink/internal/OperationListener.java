@@ -0,0 +1,47 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.internal;
+
+/**
+ * Is informed about operations of Tink which are not calls of a primitive in a keyset, such as
+ * calls to a remote KMS and the parsing of keysets.
+ *
+ * <p>Calls of primitives are reported to the {@link
+ * com.google.crypto.tink.monitoring.MonitoringClient} instead.
+ */
+public interface OperationListener {
+
+  /** An operation which has been started. Exactly one of its methods is called when it ends. */
+  public interface Operation {
+    public void logSuccess(long numBytesAsInput);
+
+    public void logFailure();
+  }
+
+  /**
+   * Called right before the remote AEAD of a KMS envelope AEAD is called with {@code api} {@code
+   * "encrypt"} or {@code "decrypt"}, to wrap or unwrap a DEK of type {@code dekKeyType}.
+   */
+  public Operation startKmsCall(String api, String dekKeyType);
+
+  /**
+   * Called right before a keyset in Tink's {@code "binary"} or {@code "json"} {@code format} is
+   * parsed.
+   */
+  public Operation startKeysetParse(String format);
+}
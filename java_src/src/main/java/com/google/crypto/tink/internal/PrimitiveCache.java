@@ -0,0 +1,211 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.internal;
+
+import com.google.crypto.tink.subtle.EngineFactory;
+import com.google.errorprone.annotations.Immutable;
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of primitives created from serialized keys.
+ *
+ * <p>Entries are identified by the primitive class and a SHA-256 digest over the type URL and the
+ * serialized key, so the cache never retains a copy of the key material itself. Entries are evicted
+ * in least-recently-used order once {@code maxSize} is reached, and are dropped on access once they
+ * are older than the configured time to live.
+ *
+ * <p>Only use this for primitives which are thread safe and stateless, which is the case for all
+ * primitives created by Tink key managers.
+ */
+public final class PrimitiveCache {
+  /** Identifies a cached primitive without holding the key material it was created from. */
+  public static final class CacheKey {
+    private final Class<?> primitiveClass;
+    private final byte[] digest;
+    private final int hashCode;
+
+    private CacheKey(Class<?> primitiveClass, byte[] digest) {
+      this.primitiveClass = primitiveClass;
+      this.digest = digest;
+      this.hashCode = 31 * primitiveClass.hashCode() + Arrays.hashCode(digest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return primitiveClass.equals(that.primitiveClass)
+          && MessageDigest.isEqual(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** A point-in-time view of the cache counters. */
+  @Immutable
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    private Stats(long hitCount, long missCount, long evictionCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Number of entries removed because the cache was full or the entry had expired. */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    public int getSize() {
+      return size;
+    }
+  }
+
+  private static final class Entry {
+    final Object primitive;
+    final long createdNanos;
+
+    Entry(Object primitive, long createdNanos) {
+      this.primitive = primitive;
+      this.createdNanos = createdNanos;
+    }
+  }
+
+  private static final ThreadLocal<MessageDigest> localDigest =
+      new ThreadLocal<MessageDigest>() {
+        @Override
+        @Nullable
+        protected MessageDigest initialValue() {
+          try {
+            return EngineFactory.MESSAGE_DIGEST.getInstance("SHA-256");
+          } catch (GeneralSecurityException e) {
+            return null;
+          }
+        }
+      };
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LinkedHashMap<CacheKey, Entry> entries;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  /**
+   * Creates a cache holding at most {@code maxSize} primitives, each for at most {@code ttlMillis}
+   * milliseconds.
+   */
+  public PrimitiveCache(int maxSize, long ttlMillis) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    if (ttlMillis <= 0) {
+      throw new IllegalArgumentException("ttlMillis must be positive");
+    }
+    this.maxSize = maxSize;
+    // Saturates at Long.MAX_VALUE, so that very long TTLs do not overflow.
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.entries =
+        new LinkedHashMap<CacheKey, Entry>(16, 0.75f, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+            if (size() > PrimitiveCache.this.maxSize) {
+              evictionCount++;
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /** Computes the key under which the primitive for {@code serializedKey} is cached. */
+  public static CacheKey cacheKey(String typeUrl, ByteString serializedKey, Class<?> primitiveClass)
+      throws GeneralSecurityException {
+    MessageDigest digest = localDigest.get();
+    if (digest == null) {
+      throw new GeneralSecurityException("SHA-256 is not available");
+    }
+    byte[] typeUrlBytes = typeUrl.getBytes(StandardCharsets.UTF_8);
+    digest.update(
+        new byte[] {
+          (byte) (typeUrlBytes.length >>> 24),
+          (byte) (typeUrlBytes.length >>> 16),
+          (byte) (typeUrlBytes.length >>> 8),
+          (byte) typeUrlBytes.length
+        });
+    digest.update(typeUrlBytes);
+    digest.update(serializedKey.asReadOnlyByteBuffer());
+    return new CacheKey(primitiveClass, digest.digest());
+  }
+
+  /** Returns the cached primitive for {@code key}, or null if there is none or it has expired. */
+  @Nullable
+  public synchronized <P> P get(CacheKey key, Class<P> primitiveClass) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    if (System.nanoTime() - entry.createdNanos >= ttlNanos) {
+      entries.remove(key);
+      evictionCount++;
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return primitiveClass.cast(entry.primitive);
+  }
+
+  public synchronized void put(CacheKey key, Object primitive) {
+    entries.put(key, new Entry(primitive, System.nanoTime()));
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized Stats getStats() {
+    return new Stats(hitCount, missCount, evictionCount, entries.size());
+  }
+}
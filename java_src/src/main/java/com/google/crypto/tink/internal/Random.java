@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.security.GeneralSecurityException;
 import java.security.Provider;
 import java.security.SecureRandom;
+import java.util.Arrays;
 
 /** Provides secure randomness using {@link SecureRandom}. */
 public final class Random {
@@ -93,6 +94,26 @@ public final class Random {
     return rand;
   }
 
+  /**
+   * Writes {@code length} random bytes into {@code dest}, starting at {@code offset}.
+   *
+   * @throws IndexOutOfBoundsException if {@code dest} has fewer than {@code length} bytes after
+   *     {@code offset}.
+   */
+  public static void randBytes(byte[] dest, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > dest.length - length) {
+      throw new IndexOutOfBoundsException("invalid offset or length");
+    }
+    if (offset == 0 && length == dest.length) {
+      localRandom.get().nextBytes(dest);
+      return;
+    }
+    byte[] rand = new byte[length];
+    localRandom.get().nextBytes(rand);
+    System.arraycopy(rand, 0, dest, offset, length);
+    Arrays.fill(rand, (byte) 0);
+  }
+
   public static final int randInt(int max) {
     return localRandom.get().nextInt(max);
   }
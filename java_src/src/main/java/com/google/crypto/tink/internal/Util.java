@@ -21,6 +21,7 @@ import com.google.crypto.tink.util.Bytes;
 import com.google.crypto.tink.util.SecretBytes;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
@@ -132,6 +133,23 @@ public final class Util {
     return true;
   }
 
+  /**
+   * Returns true if the remaining bytes of {@code complete} start with {@code prefix}. Does not
+   * change the position of {@code complete}.
+   */
+  public static boolean isPrefix(byte[] prefix, ByteBuffer complete) {
+    if (complete.remaining() < prefix.length) {
+      return false;
+    }
+    int position = complete.position();
+    for (int i = 0; i < prefix.length; ++i) {
+      if (complete.get(position + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Reads {@code length} number of bytes from the {@code input} stream and returns it in a {@code
    * SecretBytes} object.
@@ -0,0 +1,64 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.jwt;
+
+import com.google.crypto.tink.util.Bytes;
+import com.google.errorprone.annotations.Immutable;
+import java.security.GeneralSecurityException;
+
+/**
+ * A {@link JwtMac} which remembers the tokens it successfully verified.
+ *
+ * <p>Verifying a token which was verified before skips the MAC computation and payload parsing,
+ * but still validates the claims against the given {@link JwtValidator}. See {@link
+ * CachingJwtPublicKeyVerify} for details. Computing MACs is not affected.
+ */
+@Immutable
+public final class CachingJwtMac implements JwtMac {
+  private final JwtMac mac;
+
+  @SuppressWarnings("Immutable") // The cache only memoizes the results of mac.
+  private final VerifiedJwtCache cache;
+
+  private CachingJwtMac(JwtMac mac, VerifiedJwtCache cache) {
+    this.mac = mac;
+    this.cache = cache;
+  }
+
+  public static JwtMac create(JwtMac mac, int maxSize) {
+    return new CachingJwtMac(mac, new VerifiedJwtCache(maxSize));
+  }
+
+  @Override
+  public String computeMacAndEncode(RawJwt token) throws GeneralSecurityException {
+    return mac.computeMacAndEncode(token);
+  }
+
+  @Override
+  public VerifiedJwt verifyMacAndDecode(String compact, JwtValidator validator)
+      throws GeneralSecurityException {
+    Bytes key = VerifiedJwtCache.cacheKey(compact);
+    RawJwt cachedToken = cache.get(key);
+    if (cachedToken != null) {
+      return validator.validate(cachedToken);
+    }
+    VerifiedJwt verifiedJwt = mac.verifyMacAndDecode(compact, validator);
+    cache.put(key, verifiedJwt.getRawJwt());
+    return verifiedJwt;
+  }
+}
@@ -0,0 +1,62 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.jwt;
+
+import com.google.crypto.tink.util.Bytes;
+import com.google.errorprone.annotations.Immutable;
+import java.security.GeneralSecurityException;
+
+/**
+ * A {@link JwtPublicKeyVerify} which remembers the tokens it successfully verified.
+ *
+ * <p>When the same compact token is verified again, the signature is not recomputed and the
+ * payload is not parsed again. The claims of the token are still validated against the given
+ * {@link JwtValidator} on every call, so expired tokens are rejected as usual. Tokens that fail to
+ * verify are never cached, and cached tokens are dropped once their expiration time has passed.
+ *
+ * <p>At most {@code maxSize} tokens are cached; the least recently used ones are evicted first.
+ */
+@Immutable
+public final class CachingJwtPublicKeyVerify implements JwtPublicKeyVerify {
+  private final JwtPublicKeyVerify verify;
+
+  @SuppressWarnings("Immutable") // The cache only memoizes the results of verify.
+  private final VerifiedJwtCache cache;
+
+  private CachingJwtPublicKeyVerify(JwtPublicKeyVerify verify, VerifiedJwtCache cache) {
+    this.verify = verify;
+    this.cache = cache;
+  }
+
+  public static JwtPublicKeyVerify create(JwtPublicKeyVerify verify, int maxSize) {
+    return new CachingJwtPublicKeyVerify(verify, new VerifiedJwtCache(maxSize));
+  }
+
+  @Override
+  public VerifiedJwt verifyAndDecode(String compact, JwtValidator validator)
+      throws GeneralSecurityException {
+    Bytes key = VerifiedJwtCache.cacheKey(compact);
+    RawJwt cachedToken = cache.get(key);
+    if (cachedToken != null) {
+      return validator.validate(cachedToken);
+    }
+    VerifiedJwt verifiedJwt = verify.verifyAndDecode(compact, validator);
+    cache.put(key, verifiedJwt.getRawJwt());
+    return verifiedJwt;
+  }
+}
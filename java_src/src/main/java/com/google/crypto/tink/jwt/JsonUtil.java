@@ -21,6 +21,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * Helper functions to parse JSON strings, and validate strings.
@@ -40,6 +41,19 @@ final class JsonUtil {
     }
   }
 
+  /**
+   * Parses a JSON object, returning only the members named in {@code names}. The other members are
+   * validated as by {@link #parseJson}, but not parsed into {@link JsonObject}s.
+   */
+  static JsonObject parseJsonObjectMembers(String jsonString, Set<String> names)
+      throws JwtInvalidException {
+    try {
+      return JsonParser.parseObjectMembers(jsonString, names);
+    } catch (IllegalStateException | JsonParseException | IOException ex) {
+      throw new JwtInvalidException("invalid JSON: " + ex);
+    }
+  }
+
   static JsonArray parseJsonArray(String jsonString) throws JwtInvalidException {
     try {
       return JsonParser.parse(jsonString).getAsJsonArray();
@@ -18,13 +18,19 @@ package com.google.crypto.tink.jwt;
 
 import static com.google.crypto.tink.internal.Util.UTF_8;
 
+import com.google.crypto.tink.CryptoFormat;
+import com.google.crypto.tink.PrimitiveSet;
 import com.google.crypto.tink.proto.OutputPrefixType;
 import com.google.crypto.tink.subtle.Base64;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.security.InvalidAlgorithmParameterException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 final class JwtFormat {
@@ -214,13 +220,98 @@ final class JwtFormat {
   }
 
   static Optional<Integer> getKeyId(String kid) {
-    byte[] encodedKeyId = Base64.urlSafeDecode(kid);
+    byte[] encodedKeyId;
+    try {
+      encodedKeyId = Base64.urlSafeDecode(kid);
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
     if (encodedKeyId.length != 4) {
       return Optional.empty();
     }
     return Optional.of(ByteBuffer.wrap(encodedKeyId).getInt());
   }
 
+  /**
+   * Returns the key ID encoded in the kid header of {@code signedCompact}, as returned by {@link
+   * #getKeyId}.
+   *
+   * <p>Only the header is decoded, and it is not authenticated, so the result must only be used to
+   * select the keys to verify the token with. Returns empty if the header cannot be decoded or has
+   * no such kid.
+   */
+  static Optional<Integer> getKeyIdFromHeader(String signedCompact) {
+    Optional<String> kid = getKidFromHeader(signedCompact);
+    if (!kid.isPresent()) {
+      return Optional.empty();
+    }
+    return getKeyId(kid.get());
+  }
+
+  /**
+   * Returns the kid header of {@code signedCompact}, or empty if the header cannot be decoded or
+   * has no string kid.
+   *
+   * <p>As with {@link #getKeyIdFromHeader}, the result is not authenticated.
+   */
+  static Optional<String> getKidFromHeader(String signedCompact) {
+    int headerEnd = signedCompact.indexOf('.');
+    if (headerEnd < 0) {
+      return Optional.empty();
+    }
+    JsonObject header;
+    try {
+      header = JsonUtil.parseJson(decodeHeader(signedCompact.substring(0, headerEnd)));
+    } catch (JwtInvalidException e) {
+      return Optional.empty();
+    }
+    JsonElement kid = header.get(JwtNames.HEADER_KEY_ID);
+    if (kid == null || !kid.isJsonPrimitive() || !kid.getAsJsonPrimitive().isString()) {
+      return Optional.empty();
+    }
+    return Optional.of(kid.getAsString());
+  }
+
+  /**
+   * Returns true if {@link #getCandidates} can leave out entries of {@code primitives}, i.e. if
+   * there is more than one entry and some of them are TINK keys. Otherwise, decoding the header to
+   * select the candidates does not save any work.
+   */
+  static <P> boolean canSelectCandidates(PrimitiveSet<P> primitives) {
+    List<PrimitiveSet.Entry<P>> entries = primitives.getAllInKeysetOrder();
+    if (entries.size() <= 1) {
+      return false;
+    }
+    for (PrimitiveSet.Entry<P> entry : entries) {
+      if (entry.getOutputPrefixType() == OutputPrefixType.TINK) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the entries of {@code primitives} which may be able to verify {@code signedCompact}:
+   * the TINK keys whose ID is encoded in the kid header, followed by the RAW keys. Returns all
+   * entries if the header has no such kid.
+   *
+   * <p>A TINK key only accepts tokens whose kid header encodes its key ID, so the other TINK keys
+   * do not need to be tried.
+   */
+  static <P> Collection<List<PrimitiveSet.Entry<P>>> getCandidates(
+      PrimitiveSet<P> primitives, String signedCompact) {
+    Optional<Integer> keyId = getKeyIdFromHeader(signedCompact);
+    if (!keyId.isPresent()) {
+      return primitives.getAll();
+    }
+    byte[] prefix =
+        ByteBuffer.allocate(CryptoFormat.TINK_PREFIX_SIZE)
+            .put(CryptoFormat.TINK_START_BYTE)
+            .putInt(keyId.get())
+            .array();
+    return Arrays.asList(primitives.getPrimitive(prefix), primitives.getRawPrimitives());
+  }
+
   static Parts splitSignedCompact(String signedCompact) throws JwtInvalidException {
       validateASCII(signedCompact);
       int sigPos = signedCompact.lastIndexOf('.');
@@ -22,6 +22,7 @@ import com.google.crypto.tink.Registry;
 import com.google.crypto.tink.proto.OutputPrefixType;
 import com.google.errorprone.annotations.Immutable;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,9 +52,12 @@ class JwtMacWrapper implements PrimitiveWrapper<JwtMacInternal, JwtMac> {
   private static class WrappedJwtMac implements JwtMac {
     @SuppressWarnings("Immutable") // We do not mutate the primitive set.
     private final PrimitiveSet<JwtMacInternal> primitives;
+    // Whether the kid header is used to select the keys that are tried.
+    private final boolean selectCandidatesByKid;
 
     private WrappedJwtMac(PrimitiveSet<JwtMacInternal> primitives) {
       this.primitives = primitives;
+      this.selectCandidatesByKid = JwtFormat.canSelectCandidates(primitives);
     }
 
     @Override
@@ -67,8 +71,16 @@ class JwtMacWrapper implements PrimitiveWrapper<JwtMacInternal, JwtMac> {
     public VerifiedJwt verifyMacAndDecode(String compact, JwtValidator validator)
         throws GeneralSecurityException {
       GeneralSecurityException interestingException = null;
-      for (List<PrimitiveSet.Entry<JwtMacInternal>> entries : primitives.getAll()) {
+      Collection<List<PrimitiveSet.Entry<JwtMacInternal>>> candidates =
+          selectCandidatesByKid
+              ? JwtFormat.getCandidates(primitives, compact)
+              : primitives.getAll();
+      for (List<PrimitiveSet.Entry<JwtMacInternal>> entries : candidates) {
         for (PrimitiveSet.Entry<JwtMacInternal> entry : entries) {
+          if (entry.primitiveCreationFailed()) {
+            // The primitive of a lazily added entry could not be created.
+            continue;
+          }
           try {
             Optional<String> kid = JwtFormat.getKid(entry.getKeyId(), entry.getOutputPrefixType());
             return entry.getPrimitive().verifyMacAndDecodeWithKid(compact, validator, kid);
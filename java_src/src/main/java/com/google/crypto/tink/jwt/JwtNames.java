@@ -16,10 +16,15 @@
 
 package com.google.crypto.tink.jwt;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 final class JwtNames {
   /**
    * Registered claim names, as defined in https://tools.ietf.org/html/rfc7519#section-4.1. If
-   * update, please update validateClaim().
+   * update, please update REGISTERED_CLAIM_NAMES.
    */
   static final String CLAIM_ISSUER = "iss";
 
@@ -30,6 +35,18 @@ final class JwtNames {
   static final String CLAIM_ISSUED_AT = "iat";
   static final String CLAIM_JWT_ID = "jti";
 
+  static final Set<String> REGISTERED_CLAIM_NAMES =
+      Collections.unmodifiableSet(
+          new HashSet<>(
+              Arrays.asList(
+                  CLAIM_ISSUER,
+                  CLAIM_SUBJECT,
+                  CLAIM_AUDIENCE,
+                  CLAIM_EXPIRATION,
+                  CLAIM_NOT_BEFORE,
+                  CLAIM_ISSUED_AT,
+                  CLAIM_JWT_ID)));
+
   /**
    * Supported protected headers, as described in https://tools.ietf.org/html/rfc7515#section-4.1
    */
@@ -50,13 +67,7 @@ final class JwtNames {
   }
 
   static boolean isRegisteredName(String name) {
-    return name.equals(CLAIM_ISSUER)
-        || name.equals(CLAIM_SUBJECT)
-        || name.equals(CLAIM_AUDIENCE)
-        || name.equals(CLAIM_EXPIRATION)
-        || name.equals(CLAIM_NOT_BEFORE)
-        || name.equals(CLAIM_ISSUED_AT)
-        || name.equals(CLAIM_JWT_ID);
+    return REGISTERED_CLAIM_NAMES.contains(name);
   }
 
   private JwtNames() {}
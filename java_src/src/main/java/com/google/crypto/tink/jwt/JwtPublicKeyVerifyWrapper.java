@@ -22,6 +22,7 @@ import com.google.crypto.tink.Registry;
 import com.google.crypto.tink.proto.OutputPrefixType;
 import com.google.errorprone.annotations.Immutable;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,17 +49,28 @@ class JwtPublicKeyVerifyWrapper
 
     @SuppressWarnings("Immutable")
     private final PrimitiveSet<JwtPublicKeyVerifyInternal> primitives;
+    // Whether the kid header is used to select the keys that are tried.
+    private final boolean selectCandidatesByKid;
 
     public WrappedJwtPublicKeyVerify(PrimitiveSet<JwtPublicKeyVerifyInternal> primitives) {
       this.primitives = primitives;
+      this.selectCandidatesByKid = JwtFormat.canSelectCandidates(primitives);
     }
 
     @Override
     public VerifiedJwt verifyAndDecode(String compact, JwtValidator validator)
         throws GeneralSecurityException {
       GeneralSecurityException interestingException = null;
-      for (List<PrimitiveSet.Entry<JwtPublicKeyVerifyInternal>> entries : primitives.getAll()) {
+      Collection<List<PrimitiveSet.Entry<JwtPublicKeyVerifyInternal>>> candidates =
+          selectCandidatesByKid
+              ? JwtFormat.getCandidates(primitives, compact)
+              : primitives.getAll();
+      for (List<PrimitiveSet.Entry<JwtPublicKeyVerifyInternal>> entries : candidates) {
         for (PrimitiveSet.Entry<JwtPublicKeyVerifyInternal> entry : entries) {
+          if (entry.primitiveCreationFailed()) {
+            // The primitive of a lazily added entry could not be created.
+            continue;
+          }
           try {
             Optional<String> kid = JwtFormat.getKid(entry.getKeyId(), entry.getOutputPrefixType());
             return entry.getPrimitive().verifyAndDecodeWithKid(compact, validator, kid);
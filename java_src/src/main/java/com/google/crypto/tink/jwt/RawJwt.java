@@ -16,6 +16,7 @@
 
 package com.google.crypto.tink.jwt;
 
+import com.google.crypto.tink.internal.TinkBugException;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.Immutable;
 import com.google.gson.JsonArray;
@@ -32,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * An unencoded and unsigned <a href="https://tools.ietf.org/html/rfc7519">JSON Web Token</a> (JWT).
@@ -46,9 +48,20 @@ public final class RawJwt {
 
   private static final long MAX_TIMESTAMP_VALUE = 253402300799L;  // 31 Dec 9999, 23:59:59 GMT
 
+  /**
+   * The claims of the token. For tokens created by {@link #fromJsonPayload} this only contains the
+   * registered claims; the custom claims are parsed from {@link #jsonPayload} when first accessed.
+   */
   @SuppressWarnings("Immutable") // We do not mutate the payload.
   private final JsonObject payload;
 
+  /** The payload this token was parsed from, or null if it was created by the {@link Builder}. */
+  @Nullable private final String jsonPayload;
+
+  @SuppressWarnings("Immutable") // Lazily computed from jsonPayload and never mutated.
+  @Nullable
+  private volatile JsonObject fullPayload;
+
   private final Optional<String> typeHeader;
 
   private RawJwt(Builder builder) {
@@ -62,11 +75,13 @@ public final class RawJwt {
     }
     this.typeHeader = builder.typeHeader;
     this.payload = builder.payload.deepCopy();
+    this.jsonPayload = null;
   }
 
   private RawJwt(Optional<String> typeHeader, String jsonPayload) throws JwtInvalidException {
     this.typeHeader = typeHeader;
-    this.payload = JsonUtil.parseJson(jsonPayload);
+    this.payload = JsonUtil.parseJsonObjectMembers(jsonPayload, JwtNames.REGISTERED_CLAIM_NAMES);
+    this.jsonPayload = jsonPayload;
     validateStringClaim(JwtNames.CLAIM_ISSUER);
     validateStringClaim(JwtNames.CLAIM_SUBJECT);
     validateStringClaim(JwtNames.CLAIM_JWT_ID);
@@ -119,6 +134,24 @@ public final class RawJwt {
     }
   }
 
+  /** Returns all claims of the token, including the custom claims. */
+  private JsonObject getFullPayload() {
+    if (jsonPayload == null) {
+      return payload;
+    }
+    JsonObject result = fullPayload;
+    if (result == null) {
+      try {
+        result = JsonUtil.parseJson(jsonPayload);
+      } catch (JwtInvalidException e) {
+        // The constructor already checked that jsonPayload is valid.
+        throw new TinkBugException(e);
+      }
+      fullPayload = result;
+    }
+    return result;
+  }
+
   static RawJwt fromJsonPayload(Optional<String> typeHeader, String jsonPayload)
       throws JwtInvalidException {
     return new RawJwt(typeHeader, jsonPayload);
@@ -414,74 +447,81 @@ public final class RawJwt {
   }
 
   public String getJsonPayload() {
-    return payload.toString();
+    return getFullPayload().toString();
   }
 
   boolean hasBooleanClaim(String name) {
     JwtNames.validate(name);
-    return (payload.has(name)
-        && payload.get(name).isJsonPrimitive()
-        && payload.get(name).getAsJsonPrimitive().isBoolean());
+    JsonObject claims = getFullPayload();
+    return (claims.has(name)
+        && claims.get(name).isJsonPrimitive()
+        && claims.get(name).getAsJsonPrimitive().isBoolean());
   }
 
   Boolean getBooleanClaim(String name) throws JwtInvalidException {
     JwtNames.validate(name);
-    if (!payload.has(name)) {
+    JsonObject claims = getFullPayload();
+    if (!claims.has(name)) {
       throw new JwtInvalidException("claim " + name + " does not exist");
     }
-    if (!payload.get(name).isJsonPrimitive()
-        || !payload.get(name).getAsJsonPrimitive().isBoolean()) {
+    if (!claims.get(name).isJsonPrimitive()
+        || !claims.get(name).getAsJsonPrimitive().isBoolean()) {
       throw new JwtInvalidException("claim " + name + " is not a boolean");
     }
-    return payload.get(name).getAsBoolean();
+    return claims.get(name).getAsBoolean();
   }
 
   boolean hasNumberClaim(String name) {
     JwtNames.validate(name);
-    return (payload.has(name)
-        && payload.get(name).isJsonPrimitive()
-        && payload.get(name).getAsJsonPrimitive().isNumber());
+    JsonObject claims = getFullPayload();
+    return (claims.has(name)
+        && claims.get(name).isJsonPrimitive()
+        && claims.get(name).getAsJsonPrimitive().isNumber());
   }
 
   Double getNumberClaim(String name) throws JwtInvalidException {
     JwtNames.validate(name);
-    if (!payload.has(name)) {
+    JsonObject claims = getFullPayload();
+    if (!claims.has(name)) {
       throw new JwtInvalidException("claim " + name + " does not exist");
     }
-    if (!payload.get(name).isJsonPrimitive()
-        || !payload.get(name).getAsJsonPrimitive().isNumber()) {
+    if (!claims.get(name).isJsonPrimitive()
+        || !claims.get(name).getAsJsonPrimitive().isNumber()) {
       throw new JwtInvalidException("claim " + name + " is not a number");
     }
-    return payload.get(name).getAsDouble();
+    return claims.get(name).getAsDouble();
   }
 
   boolean hasStringClaim(String name) {
     JwtNames.validate(name);
-    return (payload.has(name)
-        && payload.get(name).isJsonPrimitive()
-        && payload.get(name).getAsJsonPrimitive().isString());
+    JsonObject claims = getFullPayload();
+    return (claims.has(name)
+        && claims.get(name).isJsonPrimitive()
+        && claims.get(name).getAsJsonPrimitive().isString());
   }
 
   String getStringClaim(String name) throws JwtInvalidException {
     JwtNames.validate(name);
-    return getStringClaimInternal(name);
+    return getStringClaimInternal(getFullPayload(), name);
   }
 
-  private String getStringClaimInternal(String name) throws JwtInvalidException {
-    if (!payload.has(name)) {
+  private static String getStringClaimInternal(JsonObject claims, String name)
+      throws JwtInvalidException {
+    if (!claims.has(name)) {
       throw new JwtInvalidException("claim " + name + " does not exist");
     }
-    if (!payload.get(name).isJsonPrimitive()
-        || !payload.get(name).getAsJsonPrimitive().isString()) {
+    if (!claims.get(name).isJsonPrimitive()
+        || !claims.get(name).getAsJsonPrimitive().isString()) {
       throw new JwtInvalidException("claim " + name + " is not a string");
     }
-    return payload.get(name).getAsString();
+    return claims.get(name).getAsString();
   }
 
   boolean isNullClaim(String name) {
     JwtNames.validate(name);
+    JsonObject claims = getFullPayload();
     try {
-      return JsonNull.INSTANCE.equals(payload.get(name));
+      return JsonNull.INSTANCE.equals(claims.get(name));
     } catch (JsonParseException ex) {
       return false;
     }
@@ -489,34 +529,38 @@ public final class RawJwt {
 
   boolean hasJsonObjectClaim(String name) {
     JwtNames.validate(name);
-    return (payload.has(name) && payload.get(name).isJsonObject());
+    JsonObject claims = getFullPayload();
+    return (claims.has(name) && claims.get(name).isJsonObject());
   }
 
   String getJsonObjectClaim(String name) throws JwtInvalidException {
     JwtNames.validate(name);
-    if (!payload.has(name)) {
+    JsonObject claims = getFullPayload();
+    if (!claims.has(name)) {
       throw new JwtInvalidException("claim " + name + " does not exist");
     }
-    if (!payload.get(name).isJsonObject()) {
+    if (!claims.get(name).isJsonObject()) {
       throw new JwtInvalidException("claim " + name + " is not a JSON object");
     }
-    return payload.get(name).getAsJsonObject().toString();
+    return claims.get(name).getAsJsonObject().toString();
   }
 
   boolean hasJsonArrayClaim(String name) {
     JwtNames.validate(name);
-    return (payload.has(name) && payload.get(name).isJsonArray());
+    JsonObject claims = getFullPayload();
+    return (claims.has(name) && claims.get(name).isJsonArray());
   }
 
   String getJsonArrayClaim(String name) throws JwtInvalidException {
     JwtNames.validate(name);
-    if (!payload.has(name)) {
+    JsonObject claims = getFullPayload();
+    if (!claims.has(name)) {
       throw new JwtInvalidException("claim " + name + " does not exist");
     }
-    if (!payload.get(name).isJsonArray()) {
+    if (!claims.get(name).isJsonArray()) {
       throw new JwtInvalidException("claim " + name + " is not a JSON array");
     }
-    return payload.get(name).getAsJsonArray().toString();
+    return claims.get(name).getAsJsonArray().toString();
   }
 
   boolean hasTypeHeader() {
@@ -535,7 +579,7 @@ public final class RawJwt {
   }
 
   String getIssuer() throws JwtInvalidException {
-    return getStringClaimInternal(JwtNames.CLAIM_ISSUER);
+    return getStringClaimInternal(payload, JwtNames.CLAIM_ISSUER);
   }
 
   boolean hasSubject() {
@@ -543,7 +587,7 @@ public final class RawJwt {
   }
 
   String getSubject() throws JwtInvalidException {
-    return getStringClaimInternal(JwtNames.CLAIM_SUBJECT);
+    return getStringClaimInternal(payload, JwtNames.CLAIM_SUBJECT);
   }
 
   boolean hasJwtId() {
@@ -551,7 +595,7 @@ public final class RawJwt {
   }
 
   String getJwtId() throws JwtInvalidException {
-    return getStringClaimInternal(JwtNames.CLAIM_JWT_ID);
+    return getStringClaimInternal(payload, JwtNames.CLAIM_JWT_ID);
   }
 
   boolean hasAudiences() {
@@ -632,8 +676,9 @@ public final class RawJwt {
 
   /** Returns all custom claim names. */
   Set<String> customClaimNames() {
+    JsonObject claims = getFullPayload();
     HashSet<String> names = new HashSet<>();
-    for (String name : this.payload.keySet()) {
+    for (String name : claims.keySet()) {
       if (!JwtNames.isRegisteredName(name)) {
         names.add(name);
       }
@@ -651,6 +696,6 @@ public final class RawJwt {
     if (typeHeader.isPresent()) {
       header.add("typ", new JsonPrimitive(typeHeader.get()));
     }
-    return header + "." + payload;
+    return header + "." + getFullPayload();
   }
 }
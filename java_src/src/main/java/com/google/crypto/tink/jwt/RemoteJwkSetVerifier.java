@@ -0,0 +1,332 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.jwt;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.crypto.tink.Key;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.util.KeysDownloader;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link JwtPublicKeyVerify} which verifies tokens with the keys of a JWK set served at a HTTPS
+ * URL, such as the one published by an external identity provider.
+ *
+ * <p>The JWK set is downloaded with a {@link KeysDownloader}, which caches it for as long as the
+ * Cache-Control header of the response allows and fetches it again once half of that time has
+ * passed. {@link Builder#build} downloads the JWK set once; after that, all downloads happen on
+ * the background executor and {@link #verifyAndDecode} never waits for them. Whenever a download
+ * returns a different JWK set, a new primitive is built and swapped in atomically; verifications
+ * that are already running finish with the old primitive.
+ *
+ * <p>If a token fails to verify and its kid header is not in the current JWK set, the keys were
+ * probably rotated, so a download that bypasses the cache is started in the background. Such
+ * forced downloads happen at most once per {@link Builder#setMinForcedRefreshInterval}, so tokens
+ * with made-up kids cannot be used to flood the server.
+ *
+ * <p>{@link JwtSignatureConfig#register} must have been called before this class is used.
+ */
+@SuppressWarnings("deprecation") // KeysDownloader is deprecated, but still the way to fetch keys.
+public final class RemoteJwkSetVerifier implements JwtPublicKeyVerify {
+  /** Runs the background downloads on daemon threads, so that they do not keep the JVM alive. */
+  private static final Executor DEFAULT_BACKGROUND_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactory() {
+            private final ThreadFactory defaultThreadFactory = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = defaultThreadFactory.newThread(runnable);
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+  private static final Duration DEFAULT_REFRESH_CHECK_INTERVAL = Duration.ofSeconds(30);
+  private static final Duration DEFAULT_MIN_FORCED_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+  /** Runs the download in the thread which calls the {@link KeysDownloader}. */
+  private static final Executor DIRECT_EXECUTOR =
+      new Executor() {
+        @Override
+        public void execute(Runnable command) {
+          command.run();
+        }
+      };
+
+  /** A downloaded JWK set together with the primitive built from it. */
+  private static final class State {
+    final String jwkSet;
+    final JwtPublicKeyVerify verify;
+    final Set<String> kids;
+
+    State(String jwkSet, JwtPublicKeyVerify verify, Set<String> kids) {
+      this.jwkSet = jwkSet;
+      this.verify = verify;
+      this.kids = kids;
+    }
+
+    static State create(String jwkSet) throws IOException, GeneralSecurityException {
+      KeysetHandle handle = JwkSetConverter.toPublicKeysetHandle(jwkSet);
+      Set<String> kids = new HashSet<>();
+      for (int i = 0; i < handle.size(); i++) {
+        Key key = handle.getAt(i).getKey();
+        if (key instanceof JwtSignaturePublicKey) {
+          Optional<String> kid = ((JwtSignaturePublicKey) key).getKid();
+          if (kid.isPresent()) {
+            kids.add(kid.get());
+          }
+        }
+      }
+      return new State(
+          jwkSet, handle.getPrimitive(JwtPublicKeyVerify.class), Collections.unmodifiableSet(kids));
+    }
+  }
+
+  // The downloader runs its fetches in the calling thread. It is only called from build() and from
+  // the single background refresh which may be pending at any time.
+  private final KeysDownloader downloader;
+  private final Executor backgroundExecutor;
+  private final Clock clock;
+  private final long refreshCheckIntervalMillis;
+  private final long minForcedRefreshIntervalMillis;
+
+  private final AtomicReference<State> state = new AtomicReference<>();
+  private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+  private final AtomicBoolean forceRequested = new AtomicBoolean(false);
+  private final AtomicLong lastRefreshCheckMillis;
+  private final AtomicLong lastForcedRefreshMillis;
+
+  private RemoteJwkSetVerifier(
+      KeysDownloader downloader,
+      Executor backgroundExecutor,
+      Clock clock,
+      long refreshCheckIntervalMillis,
+      long minForcedRefreshIntervalMillis) {
+    this.downloader = downloader;
+    this.backgroundExecutor = backgroundExecutor;
+    this.clock = clock;
+    this.refreshCheckIntervalMillis = refreshCheckIntervalMillis;
+    this.minForcedRefreshIntervalMillis = minForcedRefreshIntervalMillis;
+    this.lastRefreshCheckMillis = new AtomicLong(clock.millis());
+    this.lastForcedRefreshMillis = new AtomicLong(Long.MIN_VALUE);
+  }
+
+  @Override
+  public VerifiedJwt verifyAndDecode(String compact, JwtValidator validator)
+      throws GeneralSecurityException {
+    State current = state.get();
+    maybeRefreshInBackground();
+    try {
+      return current.verify.verifyAndDecode(compact, validator);
+    } catch (GeneralSecurityException e) {
+      Optional<String> kid = JwtFormat.getKidFromHeader(compact);
+      if (kid.isPresent() && !current.kids.contains(kid.get())) {
+        maybeForceRefreshInBackground();
+      }
+      throw e;
+    }
+  }
+
+  /** Starts a background download if the last one was started long enough ago. */
+  private void maybeRefreshInBackground() {
+    long now = clock.millis();
+    long lastCheck = lastRefreshCheckMillis.get();
+    if (now - lastCheck < refreshCheckIntervalMillis) {
+      return;
+    }
+    if (lastRefreshCheckMillis.compareAndSet(lastCheck, now)) {
+      refreshInBackground();
+    }
+  }
+
+  /** Starts a background download which ignores the cache, at most once per interval. */
+  private void maybeForceRefreshInBackground() {
+    long now = clock.millis();
+    long lastForced = lastForcedRefreshMillis.get();
+    if (lastForced != Long.MIN_VALUE && now - lastForced < minForcedRefreshIntervalMillis) {
+      return;
+    }
+    if (lastForcedRefreshMillis.compareAndSet(lastForced, now)) {
+      forceRequested.set(true);
+      refreshInBackground();
+    }
+  }
+
+  /**
+   * Starts a background download unless one is already pending. If a forced refresh is requested
+   * after the pending download started, another download is started once it is done.
+   */
+  private void refreshInBackground() {
+    if (!refreshPending.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      backgroundExecutor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                refresh(forceRequested.getAndSet(false));
+              } catch (IOException | GeneralSecurityException e) {
+                // Keep verifying with the current keys. Ok as this was just from the background.
+              } finally {
+                refreshPending.set(false);
+              }
+              if (forceRequested.get()) {
+                refreshInBackground();
+              }
+            }
+          });
+    } catch (RuntimeException e) {
+      refreshPending.set(false);
+      throw e;
+    }
+  }
+
+  private void refresh(boolean force) throws IOException, GeneralSecurityException {
+    if (force) {
+      // With the direct executor, this fetches the JWK set before returning.
+      downloader.refreshInBackground();
+    }
+    String jwkSet = downloader.download();
+    State current = state.get();
+    if (current != null && current.jwkSet.equals(jwkSet)) {
+      return;
+    }
+    state.set(State.create(jwkSet));
+  }
+
+  /** Builder for {@link RemoteJwkSetVerifier}. */
+  public static final class Builder {
+    private String url = null;
+    private HttpTransport httpTransport = null;
+    private Executor backgroundExecutor = DEFAULT_BACKGROUND_EXECUTOR;
+    private Clock clock = Clock.systemUTC();
+    private Duration refreshCheckInterval = DEFAULT_REFRESH_CHECK_INTERVAL;
+    private Duration minForcedRefreshInterval = DEFAULT_MIN_FORCED_REFRESH_INTERVAL;
+
+    private Builder() {}
+
+    /** Sets the URL of the JWK set, which must point to a HTTPS server. */
+    @CanIgnoreReturnValue
+    public Builder setUrl(String url) {
+      this.url = url;
+      return this;
+    }
+
+    /**
+     * Sets the HTTP transport used to download the JWK set.
+     *
+     * <p>The default transport of {@link KeysDownloader} is suited for most use cases.
+     */
+    @CanIgnoreReturnValue
+    public Builder setHttpTransport(HttpTransport httpTransport) {
+      this.httpTransport = httpTransport;
+      return this;
+    }
+
+    /**
+     * Sets the executor on which the JWK set is downloaded after {@link #build}. By default, a
+     * shared pool of daemon threads is used.
+     */
+    @CanIgnoreReturnValue
+    public Builder setExecutor(Executor backgroundExecutor) {
+      this.backgroundExecutor = backgroundExecutor;
+      return this;
+    }
+
+    /**
+     * Sets how often verifications check whether the JWK set should be downloaded again. The
+     * default is 30 seconds.
+     *
+     * <p>A check only downloads the JWK set if the Cache-Control header of the last response asks
+     * for it, so this should be shorter than half of the max-age the server sends.
+     */
+    @CanIgnoreReturnValue
+    public Builder setRefreshCheckInterval(Duration refreshCheckInterval) {
+      this.refreshCheckInterval = refreshCheckInterval;
+      return this;
+    }
+
+    /**
+     * Sets the minimum time between two downloads caused by tokens with an unknown kid. The
+     * default is 30 seconds.
+     */
+    @CanIgnoreReturnValue
+    public Builder setMinForcedRefreshInterval(Duration minForcedRefreshInterval) {
+      this.minForcedRefreshInterval = minForcedRefreshInterval;
+      return this;
+    }
+
+    /** Sets the clock used to rate-limit the checks and downloads. */
+    @CanIgnoreReturnValue
+    public Builder setClock(Clock clock) {
+      if (clock == null) {
+        throw new NullPointerException("clock cannot be null");
+      }
+      this.clock = clock;
+      return this;
+    }
+
+    /**
+     * Downloads the JWK set in the calling thread and returns a verifier for its keys.
+     *
+     * @throws IOException if the JWK set cannot be downloaded
+     * @throws GeneralSecurityException if the JWK set is invalid
+     */
+    public RemoteJwkSetVerifier build() throws IOException, GeneralSecurityException {
+      if (url == null) {
+        throw new IllegalArgumentException("must provide a url with setUrl");
+      }
+      if (refreshCheckInterval.isNegative() || minForcedRefreshInterval.isNegative()) {
+        throw new IllegalArgumentException("intervals cannot be negative");
+      }
+      KeysDownloader.Builder downloaderBuilder =
+          new KeysDownloader.Builder().setUrl(url).setExecutor(DIRECT_EXECUTOR);
+      if (httpTransport != null) {
+        downloaderBuilder.setHttpTransport(httpTransport);
+      }
+      RemoteJwkSetVerifier verifier =
+          new RemoteJwkSetVerifier(
+              downloaderBuilder.build(),
+              backgroundExecutor,
+              clock,
+              refreshCheckInterval.toMillis(),
+              minForcedRefreshInterval.toMillis());
+      verifier.refresh(/* force= */ false);
+      return verifier;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+}
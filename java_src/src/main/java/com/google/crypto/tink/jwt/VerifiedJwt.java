@@ -41,6 +41,10 @@ public final class VerifiedJwt {
     this.rawJwt = rawJwt;
   }
 
+  RawJwt getRawJwt() {
+    return rawJwt;
+  }
+
   /**
    * Returns the {@code typ} header value. Throws a JwtInvalidException if header is not present.
    */
@@ -0,0 +1,97 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.jwt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.crypto.tink.subtle.EngineFactory;
+import com.google.crypto.tink.util.Bytes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded LRU cache from compact JWTs to the tokens they decode to, for tokens whose MAC or
+ * signature has already been verified.
+ *
+ * <p>Tokens are identified by their SHA-256 digest, so the cache does not keep the compact tokens
+ * themselves. Entries are dropped once the token's {@code exp} claim has passed.
+ */
+final class VerifiedJwtCache {
+  private static final class Entry {
+    final RawJwt token;
+    final long expirationMillis;
+
+    Entry(RawJwt token, long expirationMillis) {
+      this.token = token;
+      this.expirationMillis = expirationMillis;
+    }
+  }
+
+  private final LinkedHashMap<Bytes, Entry> entries;
+
+  VerifiedJwtCache(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.entries =
+        new LinkedHashMap<Bytes, Entry>(16, 0.75f, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Bytes, Entry> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  static Bytes cacheKey(String compact) throws GeneralSecurityException {
+    MessageDigest digest = EngineFactory.MESSAGE_DIGEST.getInstance("SHA-256");
+    return Bytes.copyFrom(digest.digest(compact.getBytes(UTF_8)));
+  }
+
+  /** Returns the verified token cached under {@code key}, or null if there is none. */
+  @Nullable
+  synchronized RawJwt get(Bytes key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expirationMillis <= System.currentTimeMillis()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.token;
+  }
+
+  /** Caches {@code token}, which must have been decoded from a successfully verified JWT. */
+  void put(Bytes key, RawJwt token) throws JwtInvalidException {
+    long expirationMillis =
+        token.hasExpiration() ? token.getExpiration().toEpochMilli() : Long.MAX_VALUE;
+    if (expirationMillis <= System.currentTimeMillis()) {
+      return;
+    }
+    synchronized (this) {
+      entries.put(key, new Entry(token, expirationMillis));
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+}
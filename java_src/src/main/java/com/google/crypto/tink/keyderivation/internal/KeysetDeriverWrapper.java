@@ -49,7 +49,14 @@ public final class KeysetDeriverWrapper implements PrimitiveWrapper<KeyDeriver,
     private static KeysetHandle.Builder.Entry deriveAndGetEntry(
         byte[] salt, PrimitiveSet.Entry<KeyDeriver> entry, int primaryKeyId)
         throws GeneralSecurityException {
-      KeyDeriver deriver = entry.getFullPrimitive();
+      KeyDeriver deriver;
+      try {
+        deriver = entry.getFullPrimitive();
+      } catch (IllegalStateException e) {
+        // The entry was added lazily, and its primitive could not be created.
+        throw new GeneralSecurityException(
+            "Unable to create primitive for key id " + entry.getKeyId(), e);
+      }
       if (deriver == null) {
         throw new GeneralSecurityException(
             "Primitive set has non-full primitives -- this is probably a bug");
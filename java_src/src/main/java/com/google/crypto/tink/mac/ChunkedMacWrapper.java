@@ -136,7 +136,13 @@ public class ChunkedMacWrapper implements PrimitiveWrapper<ChunkedMac, ChunkedMa
       for (PrimitiveSet.Entry<ChunkedMac> entry : list) {
         // Ensure that all entries in the primitive set are present and valid (i.e. have
         // `fullPrimitive` field set). Throws unchecked exceptions if it's not the case.
-        ChunkedMac unused = entry.getFullPrimitive();
+        try {
+          ChunkedMac unused = entry.getFullPrimitive();
+        } catch (IllegalStateException e) {
+          // The entry was added lazily, and its primitive could not be created.
+          throw new GeneralSecurityException(
+              "Unable to create primitive for key id " + entry.getKeyId(), e);
+        }
       }
     }
     return new WrappedChunkedMac(primitives);
@@ -31,7 +31,6 @@ import com.google.crypto.tink.monitoring.MonitoringClient;
 import com.google.crypto.tink.monitoring.MonitoringKeysetInfo;
 import com.google.crypto.tink.util.Bytes;
 import java.security.GeneralSecurityException;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -70,30 +69,39 @@ class MacWrapper implements PrimitiveWrapper<Mac, Mac> {
 
     @Override
     public byte[] computeMac(final byte[] data) throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(computeLogger);
       try {
         byte[] output = primitives.getPrimary().getFullPrimitive().computeMac(data);
-        computeLogger.log(primitives.getPrimary().getKeyId(), data.length);
+        computeLogger.log(
+            primitives.getPrimary().getKeyId(),
+            data.length,
+            MonitoringUtil.elapsedNanos(computeLogger, startTime));
         return output;
       } catch (GeneralSecurityException e) {
-        computeLogger.logFailure();
+        computeLogger.logFailure(MonitoringUtil.elapsedNanos(computeLogger, startTime));
         throw e;
       }
     }
 
     @Override
     public void verifyMac(final byte[] mac, final byte[] data) throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(verifyLogger);
       if (mac.length <= CryptoFormat.NON_RAW_PREFIX_SIZE) {
         // This also rejects raw MAC with size of 4 bytes or fewer. Those MACs are
         // clearly insecure, thus should be discouraged.
-        verifyLogger.logFailure();
+        verifyLogger.logFailure(MonitoringUtil.elapsedNanos(verifyLogger, startTime));
         throw new GeneralSecurityException("tag too short");
       }
-      byte[] prefix = Arrays.copyOf(mac, CryptoFormat.NON_RAW_PREFIX_SIZE);
-      List<PrimitiveSet.Entry<Mac>> entries = primitives.getPrimitive(prefix);
+      List<PrimitiveSet.Entry<Mac>> entries = primitives.getPrimitiveWithPrefix(mac, 0);
       for (PrimitiveSet.Entry<Mac> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           entry.getFullPrimitive().verifyMac(mac, data);
-          verifyLogger.log(entry.getKeyId(), data.length);
+          verifyLogger.log(
+              entry.getKeyId(), data.length, MonitoringUtil.elapsedNanos(verifyLogger, startTime));
           // If there is no exception, the MAC is valid and we can return.
           return;
         } catch (GeneralSecurityException e) {
@@ -104,9 +112,14 @@ class MacWrapper implements PrimitiveWrapper<Mac, Mac> {
       // None "non-raw" key matched, so let's try the raw keys (if any exist).
       entries = primitives.getRawPrimitives();
       for (PrimitiveSet.Entry<Mac> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           entry.getFullPrimitive().verifyMac(mac, data);
-          verifyLogger.log(entry.getKeyId(), data.length);
+          verifyLogger.log(
+              entry.getKeyId(), data.length, MonitoringUtil.elapsedNanos(verifyLogger, startTime));
           // If there is no exception, the MAC is valid and we can return.
           return;
         } catch (GeneralSecurityException ignored) {
@@ -114,7 +127,7 @@ class MacWrapper implements PrimitiveWrapper<Mac, Mac> {
         }
       }
       // nothing works.
-      verifyLogger.logFailure();
+      verifyLogger.logFailure(MonitoringUtil.elapsedNanos(verifyLogger, startTime));
       throw new GeneralSecurityException("invalid MAC");
     }
   }
@@ -0,0 +1,275 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import com.google.crypto.tink.annotations.Alpha;
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A MonitoringClient which emits a Java Flight Recorder event for each call of a primitive.
+ *
+ * <p>The events are named {@code com.google.crypto.tink.PrimitiveOperation} and carry the
+ * primitive, the API, the key id and type, the annotations of the keyset, the number of input
+ * bytes and whether the call succeeded. An event begins when Tink's wrapper starts the call, so its
+ * duration is the time the call took. They let recordings attribute time spent in cryptographic
+ * code to keysets and keys. When the event is not enabled in the running recording, logging a call
+ * only checks a flag and does not allocate.
+ *
+ * <p>Like any MonitoringClient, it is only informed about primitives created from keysets which
+ * have {@link MonitoringAnnotations}.
+ *
+ * <p>When it is also registered with {@link MutableOperationListenerRegistry}, it emits a {@code
+ * com.google.crypto.tink.KmsCall} event for each call of the remote AEAD of a KMS envelope AEAD,
+ * and a {@code com.google.crypto.tink.KeysetParse} event for each keyset parsed with {@link
+ * com.google.crypto.tink.TinkProtoKeysetFormat} or {@link
+ * com.google.crypto.tink.TinkJsonProtoKeysetFormat}. These events are emitted for all keysets.
+ *
+ * <p>Requires Java 11 or newer. Not available on Android.
+ *
+ * <p>DO NOT USE. This API is not yet ready and may change or be removed.
+ */
+@Alpha
+public final class JfrMonitoringClient implements MonitoringClient, OperationListener {
+
+  @Name("com.google.crypto.tink.PrimitiveOperation")
+  @Label("Tink Primitive Operation")
+  @Category("Tink")
+  @Description("A call of a primitive created from a keyset")
+  static final class OperationEvent extends Event {
+    @Label("Primitive")
+    String primitive;
+
+    @Label("API")
+    String api;
+
+    @Label("Key ID")
+    @Description("The id of the key used, or 0 for failed calls")
+    int keyId;
+
+    @Label("Key Type")
+    String keyType;
+
+    @Label("Keyset Annotations")
+    String keysetAnnotations;
+
+    @Label("Input Size")
+    @Description("Number of bytes passed to the call, or 0 for failed calls")
+    long numBytesAsInput;
+
+    @Label("Success")
+    boolean success;
+  }
+
+  private static final EventType OPERATION_EVENT_TYPE =
+      EventType.getEventType(OperationEvent.class);
+
+  @Name("com.google.crypto.tink.KmsCall")
+  @Label("Tink KMS Call")
+  @Category("Tink")
+  @Description("A call of the remote AEAD of a KMS envelope AEAD")
+  static final class KmsCallEvent extends Event implements OperationListener.Operation {
+    @Label("API")
+    String api;
+
+    @Label("DEK Key Type")
+    String dekKeyType;
+
+    @Label("Input Size")
+    @Description("Number of bytes passed to the call, or 0 for failed calls")
+    long numBytesAsInput;
+
+    @Label("Success")
+    boolean success;
+
+    private void emit(boolean success, long numBytesAsInput) {
+      end();
+      if (!shouldCommit()) {
+        return;
+      }
+      this.success = success;
+      this.numBytesAsInput = numBytesAsInput;
+      commit();
+    }
+
+    @Override
+    public void logSuccess(long numBytesAsInput) {
+      emit(true, numBytesAsInput);
+    }
+
+    @Override
+    public void logFailure() {
+      emit(false, 0);
+    }
+  }
+
+  private static final EventType KMS_CALL_EVENT_TYPE = EventType.getEventType(KmsCallEvent.class);
+
+  @Name("com.google.crypto.tink.KeysetParse")
+  @Label("Tink Keyset Parse")
+  @Category("Tink")
+  @Description("The parsing of a serialized keyset")
+  static final class KeysetParseEvent extends Event implements OperationListener.Operation {
+    @Label("Format")
+    String format;
+
+    @Label("Input Size")
+    @Description("Length of the serialized keyset, or 0 for failed calls")
+    long numBytesAsInput;
+
+    @Label("Success")
+    boolean success;
+
+    private void emit(boolean success, long numBytesAsInput) {
+      end();
+      if (!shouldCommit()) {
+        return;
+      }
+      this.success = success;
+      this.numBytesAsInput = numBytesAsInput;
+      commit();
+    }
+
+    @Override
+    public void logSuccess(long numBytesAsInput) {
+      emit(true, numBytesAsInput);
+    }
+
+    @Override
+    public void logFailure() {
+      emit(false, 0);
+    }
+  }
+
+  private static final EventType KEYSET_PARSE_EVENT_TYPE =
+      EventType.getEventType(KeysetParseEvent.class);
+
+  private static final class JfrLogger implements MonitoringClient.Logger {
+    private final String primitive;
+    private final String api;
+    private final String keysetAnnotations;
+    private final int[] keyIds;
+    private final String[] keyTypes;
+    // The event of the call which the current thread started, if the event was enabled then.
+    private final ThreadLocal<OperationEvent> startedEvent = new ThreadLocal<>();
+
+    private JfrLogger(MonitoringKeysetInfo keysetInfo, String primitive, String api) {
+      this.primitive = primitive;
+      this.api = api;
+      this.keysetAnnotations = keysetInfo.getAnnotations().toMap().toString();
+      List<MonitoringKeysetInfo.Entry> entries = keysetInfo.getEntries();
+      this.keyIds = new int[entries.size()];
+      this.keyTypes = new String[entries.size()];
+      for (int i = 0; i < entries.size(); i++) {
+        keyIds[i] = entries.get(i).getKeyId();
+        keyTypes[i] = entries.get(i).getKeyType();
+      }
+    }
+
+    private String getKeyType(int keyId) {
+      for (int i = 0; i < keyIds.length; i++) {
+        if (keyIds[i] == keyId) {
+          return keyTypes[i];
+        }
+      }
+      return "";
+    }
+
+    private void emit(boolean success, int keyId, long numBytesAsInput) {
+      if (!OPERATION_EVENT_TYPE.isEnabled()) {
+        return;
+      }
+      OperationEvent event = startedEvent.get();
+      if (event == null) {
+        // The start of the call was not logged, so the event has no duration.
+        event = new OperationEvent();
+      } else {
+        startedEvent.remove();
+      }
+      event.end();
+      if (!event.shouldCommit()) {
+        return;
+      }
+      event.primitive = primitive;
+      event.api = api;
+      event.keyId = keyId;
+      event.keyType = success ? getKeyType(keyId) : "";
+      event.keysetAnnotations = keysetAnnotations;
+      event.numBytesAsInput = numBytesAsInput;
+      event.success = success;
+      event.commit();
+    }
+
+    @Override
+    public void logStart() {
+      if (!OPERATION_EVENT_TYPE.isEnabled()) {
+        return;
+      }
+      OperationEvent event = new OperationEvent();
+      event.begin();
+      startedEvent.set(event);
+    }
+
+    @Override
+    public void log(int keyId, long numBytesAsInput) {
+      emit(true, keyId, numBytesAsInput);
+    }
+
+    @Override
+    public void logFailure() {
+      emit(false, 0, 0);
+    }
+  }
+
+  public JfrMonitoringClient() {}
+
+  @Override
+  public MonitoringClient.Logger createLogger(
+      MonitoringKeysetInfo keysetInfo, String primitive, String api) {
+    return new JfrLogger(keysetInfo, primitive, api);
+  }
+
+  @Override
+  public OperationListener.Operation startKmsCall(String api, String dekKeyType) {
+    if (!KMS_CALL_EVENT_TYPE.isEnabled()) {
+      return MutableOperationListenerRegistry.DO_NOTHING_OPERATION;
+    }
+    KmsCallEvent event = new KmsCallEvent();
+    event.api = api;
+    event.dekKeyType = dekKeyType;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public OperationListener.Operation startKeysetParse(String format) {
+    if (!KEYSET_PARSE_EVENT_TYPE.isEnabled()) {
+      return MutableOperationListenerRegistry.DO_NOTHING_OPERATION;
+    }
+    KeysetParseEvent event = new KeysetParseEvent();
+    event.format = format;
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,180 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import com.google.crypto.tink.annotations.Alpha;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ *
+ * <p>Values are counted in logarithmic buckets: every power of two is split into eight linear
+ * sub-buckets, similar to HdrHistogram. The bounds of the bucket holding a value therefore differ
+ * from the value by less than 12.5%, independently of its magnitude. Recording a value never
+ * allocates.
+ *
+ * <p>DO NOT USE. This API is not yet ready and may change or be removed.
+ */
+@Alpha
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  // Values below SUB_BUCKET_COUNT get a bucket each; every further power of two up to 2^62 gets
+  // SUB_BUCKET_COUNT buckets.
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalNanos = new LongAdder();
+
+  public LatencyHistogram() {}
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long bucketLowerBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT;
+    return (SUB_BUCKET_COUNT + subBucket) << shift;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    return bucketLowerBound(index) + (1L << shift) - 1;
+  }
+
+  /** Records one latency. Negative values, which a non-monotonic clock may produce, count as 0. */
+  public void record(long elapsedNanos) {
+    long value = elapsedNanos < 0 ? 0 : elapsedNanos;
+    counts.incrementAndGet(bucketIndex(value));
+    totalNanos.add(value);
+  }
+
+  /**
+   * Returns a copy of the current state.
+   *
+   * <p>Concurrent calls to {@link #record} may or may not be included.
+   */
+  public Snapshot getSnapshot() {
+    List<Bucket> buckets = new ArrayList<>();
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long bucketCount = counts.get(i);
+      if (bucketCount != 0) {
+        buckets.add(new Bucket(bucketLowerBound(i), bucketUpperBound(i), bucketCount));
+        count += bucketCount;
+      }
+    }
+    return new Snapshot(Collections.unmodifiableList(buckets), count, totalNanos.sum());
+  }
+
+  /** A non-empty bucket of a {@link Snapshot}. */
+  public static final class Bucket {
+    private final long lowerBoundNanos;
+    private final long upperBoundNanos;
+    private final long count;
+
+    private Bucket(long lowerBoundNanos, long upperBoundNanos, long count) {
+      this.lowerBoundNanos = lowerBoundNanos;
+      this.upperBoundNanos = upperBoundNanos;
+      this.count = count;
+    }
+
+    /** Returns the smallest latency counted in this bucket. */
+    public long getLowerBoundNanos() {
+      return lowerBoundNanos;
+    }
+
+    /** Returns the largest latency counted in this bucket. */
+    public long getUpperBoundNanos() {
+      return upperBoundNanos;
+    }
+
+    public long getCount() {
+      return count;
+    }
+  }
+
+  /** Immutable state of a {@link LatencyHistogram} at some point in time. */
+  public static final class Snapshot {
+    private final List<Bucket> buckets;
+    private final long count;
+    private final long totalNanos;
+
+    private Snapshot(List<Bucket> buckets, long count, long totalNanos) {
+      this.buckets = buckets;
+      this.count = count;
+      this.totalNanos = totalNanos;
+    }
+
+    /** Returns the non-empty buckets, ordered by their bounds. */
+    public List<Bucket> getBuckets() {
+      return buckets;
+    }
+
+    /** Returns the number of recorded latencies. */
+    public long getCount() {
+      return count;
+    }
+
+    /** Returns the sum of all recorded latencies. */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /**
+     * Returns an upper bound of the latency below which {@code percentile} percent of the recorded
+     * latencies fall, or 0 if nothing was recorded.
+     *
+     * @throws IllegalArgumentException if {@code percentile} is not in [0, 100].
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (!(percentile >= 0 && percentile <= 100)) {
+        throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+      }
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (Bucket bucket : buckets) {
+        seen += bucket.getCount();
+        if (seen >= rank) {
+          return bucket.getUpperBoundNanos();
+        }
+      }
+      return buckets.get(buckets.size() - 1).getUpperBoundNanos();
+    }
+  }
+}
@@ -0,0 +1,391 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import com.google.crypto.tink.annotations.Alpha;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * A MonitoringClient which aggregates the calls of all primitives into in-memory counters.
+ *
+ * <p>For every (primitive, api, key id) it counts the successful calls and the number of input
+ * bytes, and for every (primitive, api) it counts the failed calls. Optionally, it also records the
+ * latencies of the calls in {@link LatencyHistogram}s. Calls with equal key ids are aggregated,
+ * even if they are made with different keysets.
+ *
+ * <p>All counters are lock-free, and logging a call of a key which is in the keyset of the logger
+ * does not allocate. The aggregated values can be read with {@link #getSnapshot}.
+ *
+ * <p>DO NOT USE. This API is not yet ready and may change or be removed.
+ */
+@Alpha
+public final class MetricsMonitoringClient implements MonitoringClient {
+
+  /** Builder for MetricsMonitoringClient. */
+  public static final class Builder {
+    private boolean recordLatencies = false;
+
+    /** If set, the latencies of all calls are recorded in histograms. Disabled by default. */
+    @CanIgnoreReturnValue
+    public Builder setRecordLatencies(boolean recordLatencies) {
+      this.recordLatencies = recordLatencies;
+      return this;
+    }
+
+    public MetricsMonitoringClient build() {
+      return new MetricsMonitoringClient(recordLatencies);
+    }
+
+    private Builder() {}
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Counters of the successful calls with one key. */
+  private static final class KeyMetrics {
+    private final int keyId;
+    private final LongAdder callCount = new LongAdder();
+    private final LongAdder numBytesAsInput = new LongAdder();
+    @Nullable private final LatencyHistogram latencies;
+
+    private KeyMetrics(int keyId, boolean recordLatencies) {
+      this.keyId = keyId;
+      this.latencies = recordLatencies ? new LatencyHistogram() : null;
+    }
+
+    private void log(long numBytes) {
+      callCount.increment();
+      numBytesAsInput.add(numBytes);
+    }
+
+    private void log(long numBytes, long elapsedNanos) {
+      log(numBytes);
+      if (latencies != null) {
+        latencies.record(elapsedNanos);
+      }
+    }
+  }
+
+  /** Counters of one API of one primitive. */
+  private static final class Operation {
+    private final String primitive;
+    private final String api;
+    private final boolean recordLatencies;
+    private final ConcurrentMap<Integer, KeyMetrics> keys = new ConcurrentHashMap<>();
+    private final LongAdder failureCount = new LongAdder();
+    @Nullable private final LatencyHistogram failureLatencies;
+
+    private Operation(String primitive, String api, boolean recordLatencies) {
+      this.primitive = primitive;
+      this.api = api;
+      this.recordLatencies = recordLatencies;
+      this.failureLatencies = recordLatencies ? new LatencyHistogram() : null;
+    }
+
+    private KeyMetrics getKeyMetrics(int keyId) {
+      KeyMetrics metrics = keys.get(keyId);
+      if (metrics != null) {
+        return metrics;
+      }
+      KeyMetrics newMetrics = new KeyMetrics(keyId, recordLatencies);
+      metrics = keys.putIfAbsent(keyId, newMetrics);
+      return metrics != null ? metrics : newMetrics;
+    }
+
+    private void logFailure() {
+      failureCount.increment();
+    }
+
+    private void logFailure(long elapsedNanos) {
+      logFailure();
+      if (failureLatencies != null) {
+        failureLatencies.record(elapsedNanos);
+      }
+    }
+  }
+
+  private static final class OperationKey {
+    private final String primitive;
+    private final String api;
+
+    private OperationKey(String primitive, String api) {
+      this.primitive = primitive;
+      this.api = api;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof OperationKey)) {
+        return false;
+      }
+      OperationKey other = (OperationKey) obj;
+      return primitive.equals(other.primitive) && api.equals(other.api);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(primitive, api);
+    }
+  }
+
+  /**
+   * Logger of one API of one primitive. The counters of the keys in the keyset are looked up when
+   * the logger is created, and found with a linear scan on each call, as keysets are small.
+   */
+  private static final class MetricsLogger implements MonitoringClient.Logger {
+    private final Operation operation;
+    private final int[] keyIds;
+    private final KeyMetrics[] keyMetrics;
+
+    private MetricsLogger(Operation operation, MonitoringKeysetInfo keysetInfo) {
+      this.operation = operation;
+      List<MonitoringKeysetInfo.Entry> entries = keysetInfo.getEntries();
+      this.keyIds = new int[entries.size()];
+      this.keyMetrics = new KeyMetrics[entries.size()];
+      for (int i = 0; i < entries.size(); i++) {
+        keyIds[i] = entries.get(i).getKeyId();
+        keyMetrics[i] = operation.getKeyMetrics(keyIds[i]);
+      }
+    }
+
+    private KeyMetrics getKeyMetrics(int keyId) {
+      for (int i = 0; i < keyIds.length; i++) {
+        if (keyIds[i] == keyId) {
+          return keyMetrics[i];
+        }
+      }
+      return operation.getKeyMetrics(keyId);
+    }
+
+    @Override
+    public void log(int keyId, long numBytesAsInput) {
+      getKeyMetrics(keyId).log(numBytesAsInput);
+    }
+
+    @Override
+    public void log(int keyId, long numBytesAsInput, long elapsedNanos) {
+      getKeyMetrics(keyId).log(numBytesAsInput, elapsedNanos);
+    }
+
+    @Override
+    public void logFailure() {
+      operation.logFailure();
+    }
+
+    @Override
+    public void logFailure(long elapsedNanos) {
+      operation.logFailure(elapsedNanos);
+    }
+  }
+
+  private final boolean recordLatencies;
+  private final ConcurrentMap<OperationKey, Operation> operations = new ConcurrentHashMap<>();
+
+  private MetricsMonitoringClient(boolean recordLatencies) {
+    this.recordLatencies = recordLatencies;
+  }
+
+  private Operation getOperation(String primitive, String api) {
+    OperationKey key = new OperationKey(primitive, api);
+    Operation operation = operations.get(key);
+    if (operation != null) {
+      return operation;
+    }
+    Operation newOperation = new Operation(primitive, api, recordLatencies);
+    operation = operations.putIfAbsent(key, newOperation);
+    return operation != null ? operation : newOperation;
+  }
+
+  @Override
+  public MonitoringClient.Logger createLogger(
+      MonitoringKeysetInfo keysetInfo, String primitive, String api) {
+    return new MetricsLogger(getOperation(primitive, api), keysetInfo);
+  }
+
+  /** Aggregated successful calls of one key with one API of one primitive. */
+  public static final class Entry {
+    private final String primitive;
+    private final String api;
+    private final int keyId;
+    private final long callCount;
+    private final long numBytesAsInput;
+    @Nullable private final LatencyHistogram.Snapshot latencies;
+
+    private Entry(
+        String primitive,
+        String api,
+        int keyId,
+        long callCount,
+        long numBytesAsInput,
+        @Nullable LatencyHistogram.Snapshot latencies) {
+      this.primitive = primitive;
+      this.api = api;
+      this.keyId = keyId;
+      this.callCount = callCount;
+      this.numBytesAsInput = numBytesAsInput;
+      this.latencies = latencies;
+    }
+
+    public String getPrimitive() {
+      return primitive;
+    }
+
+    public String getApi() {
+      return api;
+    }
+
+    public int getKeyId() {
+      return keyId;
+    }
+
+    public long getCallCount() {
+      return callCount;
+    }
+
+    /** Returns the sum of {@code numBytesAsInput} over all calls. */
+    public long getNumBytesAsInput() {
+      return numBytesAsInput;
+    }
+
+    /** Returns the latencies of the calls, or null if latencies are not recorded. */
+    @Nullable
+    public LatencyHistogram.Snapshot getLatencies() {
+      return latencies;
+    }
+  }
+
+  /** Aggregated failed calls of one API of one primitive. */
+  public static final class FailureEntry {
+    private final String primitive;
+    private final String api;
+    private final long failureCount;
+    @Nullable private final LatencyHistogram.Snapshot latencies;
+
+    private FailureEntry(
+        String primitive,
+        String api,
+        long failureCount,
+        @Nullable LatencyHistogram.Snapshot latencies) {
+      this.primitive = primitive;
+      this.api = api;
+      this.failureCount = failureCount;
+      this.latencies = latencies;
+    }
+
+    public String getPrimitive() {
+      return primitive;
+    }
+
+    public String getApi() {
+      return api;
+    }
+
+    public long getFailureCount() {
+      return failureCount;
+    }
+
+    /** Returns the latencies of the failed calls, or null if latencies are not recorded. */
+    @Nullable
+    public LatencyHistogram.Snapshot getLatencies() {
+      return latencies;
+    }
+  }
+
+  /** The values of all counters of a MetricsMonitoringClient at some point in time. */
+  public static final class Snapshot {
+    private final List<Entry> entries;
+    private final List<FailureEntry> failureEntries;
+
+    private Snapshot(List<Entry> entries, List<FailureEntry> failureEntries) {
+      this.entries = entries;
+      this.failureEntries = failureEntries;
+    }
+
+    /** Returns one entry per (primitive, api, key id), ordered by these values. */
+    public List<Entry> getEntries() {
+      return entries;
+    }
+
+    /** Returns one entry per (primitive, api) with loggers, ordered by these values. */
+    public List<FailureEntry> getFailureEntries() {
+      return failureEntries;
+    }
+  }
+
+  /**
+   * Returns the current values of all counters.
+   *
+   * <p>Each counter is read atomically, but calls logged concurrently may be included in some
+   * counters and not in others.
+   */
+  public Snapshot getSnapshot() {
+    List<Operation> sortedOperations = new ArrayList<>(operations.values());
+    Collections.sort(
+        sortedOperations,
+        new Comparator<Operation>() {
+          @Override
+          public int compare(Operation a, Operation b) {
+            int result = a.primitive.compareTo(b.primitive);
+            return result != 0 ? result : a.api.compareTo(b.api);
+          }
+        });
+    List<Entry> entries = new ArrayList<>();
+    List<FailureEntry> failureEntries = new ArrayList<>();
+    for (Operation operation : sortedOperations) {
+      List<KeyMetrics> sortedKeys = new ArrayList<>(operation.keys.values());
+      Collections.sort(
+          sortedKeys,
+          new Comparator<KeyMetrics>() {
+            @Override
+            public int compare(KeyMetrics a, KeyMetrics b) {
+              return Integer.compare(a.keyId, b.keyId);
+            }
+          });
+      for (KeyMetrics metrics : sortedKeys) {
+        entries.add(
+            new Entry(
+                operation.primitive,
+                operation.api,
+                metrics.keyId,
+                metrics.callCount.sum(),
+                metrics.numBytesAsInput.sum(),
+                metrics.latencies == null ? null : metrics.latencies.getSnapshot()));
+      }
+      failureEntries.add(
+          new FailureEntry(
+              operation.primitive,
+              operation.api,
+              operation.failureCount.sum(),
+              operation.failureLatencies == null
+                  ? null
+                  : operation.failureLatencies.getSnapshot()));
+    }
+    return new Snapshot(
+        Collections.unmodifiableList(entries), Collections.unmodifiableList(failureEntries));
+  }
+}
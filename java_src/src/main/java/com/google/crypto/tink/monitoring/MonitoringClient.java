@@ -37,6 +37,34 @@ public interface MonitoringClient {
     public void log(int keyId, long numBytesAsInput);
 
     public void logFailure();
+
+    /**
+     * Called by Tink's wrappers on the calling thread right before a call. The call is then logged
+     * on the same thread with {@link #log(int, long, long)} or {@link #logFailure(long)}.
+     *
+     * <p>The default implementation does nothing.
+     */
+    default void logStart() {}
+
+    /**
+     * Logs a successful call which took {@code elapsedNanos} nanoseconds.
+     *
+     * <p>Tink's wrappers call this method instead of {@link #log(int, long)}. The default
+     * implementation ignores the elapsed time.
+     */
+    default void log(int keyId, long numBytesAsInput, long elapsedNanos) {
+      log(keyId, numBytesAsInput);
+    }
+
+    /**
+     * Logs a failed call which took {@code elapsedNanos} nanoseconds.
+     *
+     * <p>Tink's wrappers call this method instead of {@link #logFailure()}. The default
+     * implementation ignores the elapsed time.
+     */
+    default void logFailure(long elapsedNanos) {
+      logFailure();
+    }
   }
 
   /** Function that creates Logger objects. It is called when a primitive is created. */
@@ -65,12 +65,13 @@ public class PrfSetWrapper implements PrimitiveWrapper<Prf, PrfSet> {
 
       @Override
       public byte[] compute(byte[] input, int outputLength) throws GeneralSecurityException {
+        long startTime = MonitoringUtil.startTime(logger);
         try {
           byte[] output = prf.compute(input, outputLength);
-          logger.log(keyId, input.length);
+          logger.log(keyId, input.length, MonitoringUtil.elapsedNanos(logger, startTime));
           return output;
         } catch (GeneralSecurityException e) {
-          logger.logFailure();
+          logger.logFailure(MonitoringUtil.elapsedNanos(logger, startTime));
           throw e;
         }
       }
@@ -106,10 +107,16 @@ public class PrfSetWrapper implements PrimitiveWrapper<Prf, PrfSet> {
           throw new GeneralSecurityException(
               "Key " + entry.getKeyId() + " has non raw prefix type");
         }
+        Prf prf;
+        try {
+          prf = entry.getFullPrimitive();
+        } catch (IllegalStateException e) {
+          // The entry was added lazily, and its primitive could not be created.
+          throw new GeneralSecurityException(
+              "Unable to create primitive for key id " + entry.getKeyId(), e);
+        }
         // Likewise, the key IDs of the PrfSet passed
-        mutablePrfMap.put(
-            entry.getKeyId(),
-            new PrfWithMonitoring(entry.getFullPrimitive(), entry.getKeyId(), logger));
+        mutablePrfMap.put(entry.getKeyId(), new PrfWithMonitoring(prf, entry.getKeyId(), logger));
       }
       keyIdToPrfMap = Collections.unmodifiableMap(mutablePrfMap);
     }
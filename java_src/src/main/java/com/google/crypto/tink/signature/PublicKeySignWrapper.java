@@ -58,6 +58,7 @@ public class PublicKeySignWrapper implements PrimitiveWrapper<PublicKeySign, Pub
 
     @Override
     public byte[] sign(final byte[] data) throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(logger);
       byte[] data2 = data;
       if (primitives.getPrimary().getOutputPrefixType().equals(OutputPrefixType.LEGACY)) {
         data2 = Bytes.concat(data, FORMAT_VERSION);
@@ -67,10 +68,13 @@ public class PublicKeySignWrapper implements PrimitiveWrapper<PublicKeySign, Pub
             Bytes.concat(
                 primitives.getPrimary().getIdentifier(),
                 primitives.getPrimary().getPrimitive().sign(data2));
-        logger.log(primitives.getPrimary().getKeyId(), data2.length);
+        logger.log(
+            primitives.getPrimary().getKeyId(),
+            data2.length,
+            MonitoringUtil.elapsedNanos(logger, startTime));
         return output;
       } catch (GeneralSecurityException e) {
-        logger.logFailure();
+        logger.logFailure(MonitoringUtil.elapsedNanos(logger, startTime));
         throw e;
       }
     }
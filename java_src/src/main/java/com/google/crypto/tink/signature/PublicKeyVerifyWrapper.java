@@ -64,24 +64,32 @@ class PublicKeyVerifyWrapper implements PrimitiveWrapper<PublicKeyVerify, Public
 
     @Override
     public void verify(final byte[] signature, final byte[] data) throws GeneralSecurityException {
+      long startTime = MonitoringUtil.startTime(monitoringLogger);
       if (signature.length <= CryptoFormat.NON_RAW_PREFIX_SIZE) {
         // This also rejects raw signatures with size of 4 bytes or fewer. We're not aware of any
         // schemes that output signatures that small.
-        monitoringLogger.logFailure();
+        monitoringLogger.logFailure(MonitoringUtil.elapsedNanos(monitoringLogger, startTime));
         throw new GeneralSecurityException("signature too short");
       }
-      byte[] prefix = Arrays.copyOf(signature, CryptoFormat.NON_RAW_PREFIX_SIZE);
       byte[] sigNoPrefix =
           Arrays.copyOfRange(signature, CryptoFormat.NON_RAW_PREFIX_SIZE, signature.length);
-      List<PrimitiveSet.Entry<PublicKeyVerify>> entries = primitives.getPrimitive(prefix);
+      List<PrimitiveSet.Entry<PublicKeyVerify>> entries =
+          primitives.getPrimitiveWithPrefix(signature, 0);
       for (PrimitiveSet.Entry<PublicKeyVerify> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         byte[] data2 = data;
         if (entry.getOutputPrefixType().equals(OutputPrefixType.LEGACY)) {
           data2 = Bytes.concat(data2, FORMAT_VERSION);
         }
         try {
           entry.getPrimitive().verify(sigNoPrefix, data2);
-          monitoringLogger.log(entry.getKeyId(), data2.length);
+          monitoringLogger.log(
+              entry.getKeyId(),
+              data2.length,
+              MonitoringUtil.elapsedNanos(monitoringLogger, startTime));
           // If there is no exception, the signature is valid and we can return.
           return;
         } catch (GeneralSecurityException e) {
@@ -92,9 +100,16 @@ class PublicKeyVerifyWrapper implements PrimitiveWrapper<PublicKeyVerify, Public
       // None "non-raw" key matched, so let's try the raw keys (if any exist).
       entries = primitives.getRawPrimitives();
       for (PrimitiveSet.Entry<PublicKeyVerify> entry : entries) {
+        if (entry.primitiveCreationFailed()) {
+          // The primitive of a lazily added entry could not be created.
+          continue;
+        }
         try {
           entry.getPrimitive().verify(signature, data);
-          monitoringLogger.log(entry.getKeyId(), data.length);
+          monitoringLogger.log(
+              entry.getKeyId(),
+              data.length,
+              MonitoringUtil.elapsedNanos(monitoringLogger, startTime));
           // If there is no exception, the signature is valid and we can return.
           return;
         } catch (GeneralSecurityException e) {
@@ -102,7 +117,7 @@ class PublicKeyVerifyWrapper implements PrimitiveWrapper<PublicKeyVerify, Public
         }
       }
       // nothing works.
-      monitoringLogger.logFailure();
+      monitoringLogger.logFailure(MonitoringUtil.elapsedNanos(monitoringLogger, startTime));
       throw new GeneralSecurityException("invalid signature");
     }
   }
@@ -17,10 +17,10 @@
 package com.google.crypto.tink.streamingaead;
 
 import com.google.crypto.tink.StreamingAead;
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.List;
 import javax.annotation.concurrent.GuardedBy;
 
@@ -33,47 +33,38 @@ final class InputStreamDecrypter extends InputStream {
   @GuardedBy("this")
   InputStream matchingStream;
   @GuardedBy("this")
-  InputStream ciphertextStream;
+  RewindableInputStream ciphertextStream;
 
-  List<StreamingAead> primitives;
+  StreamingAeadCandidates candidates;
   byte[] associatedData;
 
   /**
    * Constructs a new decrypter for {@code ciphertextStream}.
    *
-   * <p>The decrypter picks a matching {@code StreamingAead}-primitive from {@code primitives}, and
-   * uses it for decryption. The matching happens as follows: upon first {@code read()}-call each
-   * candidate primitive reads an initial portion of the stream, until it can determine whether the
-   * stream matches the key of the primitive. If a canditate does not match, then the stream is
-   * reset to its initial position, and the next candiate can attempt matching. The first successful
-   * candidate is then used exclusively on subsequent {@code read()}-calls.
+   * <p>The decrypter picks a matching {@code StreamingAead}-primitive from {@code candidates}, and
+   * uses it for decryption. The matching happens as follows: upon first {@code read()}-call the
+   * first byte of the header selects the candidates that may match. Each candidate then reads an
+   * initial portion of the stream, until it can determine whether the stream matches the key of the
+   * primitive. If a canditate does not match, then the stream is reset to its initial position, and
+   * the next candiate can attempt matching. The first successful candidate is then used exclusively
+   * on subsequent {@code read()}-calls.
    *
-   * <p>The matching process wraps {@code ciphertextStream} into a BufferedInputStream, unless
-   * ciphertextStream supports rewinding (i.e. ciphertextStream.markSupported() == true). Buffering
-   * of the ciphertext is disabled once a ciphertext block has been successfully decrypted.
+   * <p>The matching process caches the ciphertext read by the candidates, which is at most the
+   * header and the first ciphertext segment. The last candidate reads without caching, and the
+   * cache is freed once a candidate matches.
    *
-   * @param primitives a list of possible {@link StreamingAeads} to try. Must not be mutateted by
-   * the caller. Will not be muteted by the {@code InputStreamDecrypter},
+   * @param candidates the possible {@link StreamingAead}s to try
    * @param ciphertextStream the stream with the ciphertext
    * @param associatedData The assocated data with this encryption
    */
   public InputStreamDecrypter(
-      List<StreamingAead> primitives, InputStream ciphertextStream, final byte[] associatedData) {
+      StreamingAeadCandidates candidates,
+      InputStream ciphertextStream,
+      final byte[] associatedData) {
     this.attemptedMatching = false;
     this.matchingStream = null;
-    this.primitives = primitives;
-    // This class can use ciphertextStream directly if it supports mark and reset.
-    if (ciphertextStream.markSupported()) {
-      this.ciphertextStream = ciphertextStream;
-    } else {
-      this.ciphertextStream = new BufferedInputStream(ciphertextStream);
-    }
-    // We don't know how much ciphertext we have to cache.
-    // Fortunately, BufferedInputStream only allocates memory when needed, starting
-    // with an 8 kB buffer.
-    // If this strategy fails, then we should add a method to the StreamingPrimitives
-    // that returns the size of the ciphertext needed to decide if a key is valid.
-    this.ciphertextStream.mark(Integer.MAX_VALUE);
+    this.candidates = candidates;
+    this.ciphertextStream = new RewindableInputStream(ciphertextStream);
     this.associatedData = associatedData.clone();
   }
 
@@ -82,18 +73,17 @@ final class InputStreamDecrypter extends InputStream {
    */
   @GuardedBy("this")
   private void rewind() throws IOException {
-    ciphertextStream.reset();
+    ciphertextStream.rewind();
   }
 
   /**
    * Disable rewinding.
-   * This method is called once this class has found the correct key version.
-   * TODO(bleichen): While BufferedInputStream stops buffering new bytes,
-   *   it does not shrink the intenal buffer.
+   * This method is called once this class has found the correct key version, or before the last
+   * candidate is tried.
    */
   @GuardedBy("this")
   private void disableRewinding() throws IOException {
-    ciphertextStream.mark(0);
+    ciphertextStream.disableRewinding();
   }
 
   /**
@@ -145,10 +135,21 @@ final class InputStreamDecrypter extends InputStream {
         throw new IOException("No matching key found for the ciphertext in the stream.");
       }
       attemptedMatching = true;
-      for (StreamingAead streamingAead : primitives) {
+      int firstHeaderByte = ciphertextStream.read();
+      if (firstHeaderByte == -1) {
+        throw new IOException("No matching key found for the ciphertext in the stream.");
+      }
+      rewind();
+      List<StreamingAead> primitives = candidates.getCandidates(firstHeaderByte);
+      for (int i = 0; i < primitives.size(); i++) {
+        boolean isLastCandidate = i == primitives.size() - 1;
+        if (isLastCandidate) {
+          // No other candidate needs the ciphertext again.
+          disableRewinding();
+        }
         try {
           InputStream attemptedStream =
-              streamingAead.newDecryptingStream(ciphertextStream, associatedData);
+              primitives.get(i).newDecryptingStream(ciphertextStream, associatedData);
           int retValue = attemptedStream.read(b, offset, len);
           if (retValue == 0) {
             // Read should never return 0 when len > 0.
@@ -166,11 +167,15 @@ final class InputStreamDecrypter extends InputStream {
           // IOException is thrown e.g. when MAC is incorrect, but also in case
           // of I/O failures.
           // TODO(b/66098906): Use a subclass of IOException.
-          rewind();
+          if (!isLastCandidate) {
+            rewind();
+          }
           continue;
         } catch (GeneralSecurityException e) {
           // Try another key.
-          rewind();
+          if (!isLastCandidate) {
+            rewind();
+          }
           continue;
         }
       }
@@ -183,4 +188,90 @@ final class InputStreamDecrypter extends InputStream {
   public synchronized void close() throws IOException {
     ciphertextStream.close();
   }
+
+  /**
+   * A wrapper around an {@link InputStream} that caches the read bytes, so that the stream can be
+   * rewound to its beginning, like {@link
+   * com.google.crypto.tink.subtle.RewindableReadableByteChannel}. Once rewinding is disabled, the
+   * cache is freed after its bytes have been read again, and reads go directly to the wrapped
+   * stream.
+   */
+  private static final class RewindableInputStream extends InputStream {
+    private final InputStream in;
+    // The cached bytes are buffer[0 .. count). Null once rewinding is disabled and they were read.
+    private byte[] buffer;
+    private int count;
+    private int position;
+    private boolean canRewind;
+
+    RewindableInputStream(InputStream in) {
+      this.in = in;
+      this.buffer = new byte[0];
+      this.count = 0;
+      this.position = 0;
+      this.canRewind = true;
+    }
+
+    void rewind() throws IOException {
+      if (!canRewind) {
+        throw new IOException("Cannot rewind anymore.");
+      }
+      position = 0;
+    }
+
+    void disableRewinding() {
+      canRewind = false;
+      if (position == count) {
+        buffer = null;
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] oneByte = new byte[1];
+      if (read(oneByte, 0, 1) == 1) {
+        return oneByte[0] & 0xff;
+      }
+      return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (buffer != null && position < count) {
+        int bytesFromBuffer = Math.min(len, count - position);
+        System.arraycopy(buffer, position, b, offset, bytesFromBuffer);
+        position += bytesFromBuffer;
+        if (!canRewind && position == count) {
+          buffer = null;
+        }
+        return bytesFromBuffer;
+      }
+      int read = in.read(b, offset, len);
+      if (canRewind && read > 0) {
+        if (count + read > buffer.length) {
+          buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, count + read));
+        }
+        System.arraycopy(b, offset, buffer, count, read);
+        count += read;
+        position = count;
+      }
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      if (buffer != null && position < count) {
+        return count - position;
+      }
+      return in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
 }
@@ -24,7 +24,6 @@ import java.nio.channels.ReadableByteChannel;
 import java.security.GeneralSecurityException;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.List;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -38,8 +37,10 @@ final class ReadableByteChannelDecrypter implements ReadableByteChannel {
   @GuardedBy("this")
   RewindableReadableByteChannel ciphertextChannel;
 
-  // The StreamingAeads that have not yet been tried in nextAttemptingChannel.
+  // The StreamingAeads that have not yet been tried in nextAttemptingChannel. Null before the
+  // first byte of the header has been read.
   Deque<StreamingAead> remainingPrimitives;
+  StreamingAeadCandidates candidates;
   byte[] associatedData;
 
   /**
@@ -50,14 +51,15 @@ final class ReadableByteChannelDecrypter implements ReadableByteChannel {
    * candidate primitive reads an initial portion of the channel, until it can determine whether the
    * channel matches the key of the primitive. If a canditate does not match, then the channel is
    * reset to its initial position, and the next candiate can attempt matching. The first successful
-   * candidate is then used exclusively on subsequent {@code read()}-calls.
+   * candidate is then used exclusively on subsequent {@code read()}-calls. Candidates whose header
+   * length differs from the first byte of the header are skipped.
    *
    * <p>The matching process uses a buffering wrapper around {@code ciphertextChannel} to enable
    * resetting of the channel to the initial position. The buffering is removed once the matching is
    * successful.
    */
   public ReadableByteChannelDecrypter(
-      List<StreamingAead> allPrimitives,
+      StreamingAeadCandidates candidates,
       ReadableByteChannel ciphertextChannel,
       final byte[] associatedData) {
     // There are 3 phases:
@@ -66,16 +68,25 @@ final class ReadableByteChannelDecrypter implements ReadableByteChannel {
     // 3) attemptingChannel is null, matchingChannel is non-null. Rewind is disabled.
     this.attemptingChannel = null;
     this.matchingChannel = null;
-    this.remainingPrimitives = new ArrayDeque<>();
-    for (StreamingAead primitive : allPrimitives) {
-      this.remainingPrimitives.add(primitive);
-    }
+    this.remainingPrimitives = null;
+    this.candidates = candidates;
     this.ciphertextChannel = new RewindableReadableByteChannel(ciphertextChannel);
     this.associatedData = associatedData.clone();
   }
 
   @GuardedBy("this")
   private synchronized ReadableByteChannel nextAttemptingChannel() throws IOException {
+    if (remainingPrimitives == null) {
+      ByteBuffer firstHeaderByte = ByteBuffer.allocate(1);
+      if (ciphertextChannel.read(firstHeaderByte) != 1) {
+        // The header cannot be read now. Let every primitive try.
+        remainingPrimitives = new ArrayDeque<>(candidates.getAll());
+      } else {
+        remainingPrimitives =
+            new ArrayDeque<>(candidates.getCandidates(firstHeaderByte.get(0) & 0xff));
+      }
+      ciphertextChannel.rewind();
+    }
     while (!remainingPrimitives.isEmpty()) {
       StreamingAead streamingAead = this.remainingPrimitives.removeFirst();
       try {
@@ -54,7 +54,8 @@ final class SeekableByteChannelDecrypter implements SeekableByteChannel {
    * of the channel, until it can determine whether the channel matches the key of the primitive.
    * If a canditate does not match, then the channel is reset to its initial position,
    * and the next candiate can attempt matching.  The first successful candidate
-   * is then used exclusively on subsequent {@code read()}-calls.
+   * is then used exclusively on subsequent {@code read()}-calls. Candidates whose header length
+   * differs from the first byte of the header in the channel are skipped.
    */
   public SeekableByteChannelDecrypter(List<StreamingAead> allPrimitives,
       SeekableByteChannel ciphertextChannel, final byte[] associatedData) throws IOException {
@@ -80,8 +81,12 @@ final class SeekableByteChannelDecrypter implements SeekableByteChannel {
   @GuardedBy("this")
   private synchronized SeekableByteChannel nextAttemptingChannel() throws IOException {
     while (!remainingPrimitives.isEmpty()) {
-      ciphertextChannel.position(startingPosition);
       StreamingAead streamingAead = this.remainingPrimitives.removeFirst();
+      if (!StreamingAeadCandidates.mayDecrypt(
+          streamingAead, ciphertextChannel, startingPosition)) {
+        continue;
+      }
+      ciphertextChannel.position(startingPosition);
       try {
         SeekableByteChannel decChannel =
             streamingAead.newSeekableDecryptingChannel(ciphertextChannel, associatedData);
@@ -0,0 +1,125 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.streamingaead;
+
+import com.google.crypto.tink.StreamingAead;
+import com.google.crypto.tink.subtle.AesCtrHmacStreaming;
+import com.google.crypto.tink.subtle.AesGcmHkdfStreaming;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the {@link StreamingAead}-primitives of a keyset that may decrypt a given ciphertext.
+ *
+ * <p>Streaming ciphertexts do not contain a key id, but the header of a ciphertext of {@link
+ * AesGcmHkdfStreaming} and {@link AesCtrHmacStreaming} starts with the header length, which
+ * depends on the key size. Primitives whose header length differs cannot decrypt the ciphertext
+ * and are skipped. Other primitives are always candidates.
+ */
+final class StreamingAeadCandidates {
+  private static final int UNKNOWN = -1;
+
+  private final List<StreamingAead> allPrimitives;
+  // The candidates by header length, in keyset order.
+  private final Map<Integer, List<StreamingAead>> candidatesByHeaderLength;
+  // The candidates for a header length that no known primitive uses.
+  private final List<StreamingAead> unknownCandidates;
+
+  StreamingAeadCandidates(List<StreamingAead> allPrimitives) {
+    this.allPrimitives = allPrimitives;
+    this.candidatesByHeaderLength = new HashMap<>();
+    this.unknownCandidates = new ArrayList<>();
+    for (StreamingAead primitive : allPrimitives) {
+      int headerLength = getHeaderLength(primitive);
+      if (headerLength != UNKNOWN && !candidatesByHeaderLength.containsKey(headerLength)) {
+        candidatesByHeaderLength.put(headerLength, new ArrayList<StreamingAead>());
+      }
+    }
+    for (StreamingAead primitive : allPrimitives) {
+      int headerLength = getHeaderLength(primitive);
+      if (headerLength == UNKNOWN) {
+        unknownCandidates.add(primitive);
+        for (List<StreamingAead> candidates : candidatesByHeaderLength.values()) {
+          candidates.add(primitive);
+        }
+      } else {
+        candidatesByHeaderLength.get(headerLength).add(primitive);
+      }
+    }
+  }
+
+  /** Returns all primitives, in keyset order. */
+  List<StreamingAead> getAll() {
+    return allPrimitives;
+  }
+
+  /**
+   * Returns the primitives that may decrypt a ciphertext whose header starts with {@code
+   * firstHeaderByte}, in keyset order.
+   */
+  List<StreamingAead> getCandidates(int firstHeaderByte) {
+    List<StreamingAead> candidates = candidatesByHeaderLength.get(firstHeaderByte);
+    if (candidates == null) {
+      return Collections.unmodifiableList(unknownCandidates);
+    }
+    return Collections.unmodifiableList(candidates);
+  }
+
+  /**
+   * Returns false if {@code primitive} cannot decrypt a ciphertext in {@code ciphertextChannel}
+   * that starts at {@code startingPosition}. Changes the position of {@code ciphertextChannel}.
+   */
+  static boolean mayDecrypt(
+      StreamingAead primitive, SeekableByteChannel ciphertextChannel, long startingPosition)
+      throws IOException {
+    int headerLength = getHeaderLength(primitive);
+    if (headerLength == UNKNOWN) {
+      return true;
+    }
+    ciphertextChannel.position(startingPosition + getFirstSegmentOffset(primitive));
+    ByteBuffer firstHeaderByte = ByteBuffer.allocate(1);
+    if (ciphertextChannel.read(firstHeaderByte) != 1) {
+      // The header cannot be read now. Leave the decision to the primitive.
+      return true;
+    }
+    return (firstHeaderByte.get(0) & 0xff) == headerLength;
+  }
+
+  private static int getHeaderLength(StreamingAead primitive) {
+    if (primitive instanceof AesGcmHkdfStreaming) {
+      return ((AesGcmHkdfStreaming) primitive).getHeaderLength();
+    }
+    if (primitive instanceof AesCtrHmacStreaming) {
+      return ((AesCtrHmacStreaming) primitive).getHeaderLength();
+    }
+    return UNKNOWN;
+  }
+
+  private static int getFirstSegmentOffset(StreamingAead primitive) {
+    if (primitive instanceof AesGcmHkdfStreaming) {
+      return ((AesGcmHkdfStreaming) primitive).getFirstSegmentOffset();
+    }
+    return ((AesCtrHmacStreaming) primitive).getFirstSegmentOffset();
+  }
+}
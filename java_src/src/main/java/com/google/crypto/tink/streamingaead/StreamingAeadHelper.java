@@ -31,6 +31,7 @@ import java.util.List;
  */
 final class StreamingAeadHelper implements StreamingAead {
   private final List<StreamingAead> allPrimitives;
+  private final StreamingAeadCandidates candidates;
   private final StreamingAead primary;
 
   /**
@@ -42,6 +43,7 @@ final class StreamingAeadHelper implements StreamingAead {
   public StreamingAeadHelper(List<StreamingAead> allPrimitives, StreamingAead primary)
       throws GeneralSecurityException {
     this.allPrimitives = allPrimitives;
+    this.candidates = new StreamingAeadCandidates(allPrimitives);
     this.primary = primary;
   }
 
@@ -56,7 +58,7 @@ final class StreamingAeadHelper implements StreamingAead {
   public ReadableByteChannel newDecryptingChannel(
       ReadableByteChannel ciphertextChannel, byte[] associatedData)
       throws GeneralSecurityException, IOException {
-    return new ReadableByteChannelDecrypter(allPrimitives, ciphertextChannel, associatedData);
+    return new ReadableByteChannelDecrypter(candidates, ciphertextChannel, associatedData);
   }
 
   @Override
@@ -71,7 +73,7 @@ final class StreamingAeadHelper implements StreamingAead {
       InputStream ciphertextStream,
       byte[] associatedData)
       throws GeneralSecurityException, IOException {
-    return new InputStreamDecrypter(allPrimitives, ciphertextStream, associatedData);
+    return new InputStreamDecrypter(candidates, ciphertextStream, associatedData);
   }
 
   @Override
@@ -58,11 +58,19 @@ public class StreamingAeadWrapper implements PrimitiveWrapper<StreamingAead, Str
       // For legacy reasons (Tink always encrypted with non-RAW keys) we use all
       // primitives, even those which have output_prefix_type != RAW.
       for (PrimitiveSet.Entry<StreamingAead> entry : entryList) {
-        if (entry.getFullPrimitive() == null) {
+        StreamingAead fullPrimitive;
+        try {
+          fullPrimitive = entry.getFullPrimitive();
+        } catch (IllegalStateException e) {
+          // The entry was added lazily, and its primitive could not be created.
+          throw new GeneralSecurityException(
+              "Unable to create primitive for key id " + entry.getKeyId(), e);
+        }
+        if (fullPrimitive == null) {
           throw new GeneralSecurityException(
               "No full primitive set for key id " + entry.getKeyId());
         }
-        allStreamingAeads.add(entry.getFullPrimitive());
+        allStreamingAeads.add(fullPrimitive);
       }
     }
     PrimitiveSet.Entry<StreamingAead> primary = primitives.getPrimary();
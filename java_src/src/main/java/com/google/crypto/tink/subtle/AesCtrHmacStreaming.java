@@ -264,6 +264,32 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
     return EngineFactory.MAC.getInstance(tagAlgo);
   }
 
+  /** Ciphers used to encrypt or decrypt several segments of one stream concurrently. */
+  private static final ThreadLocal<Cipher> localCipher =
+      new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+          try {
+            return cipherInstance();
+          } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+          }
+        }
+      };
+
+  /** MACs used to authenticate or verify several segments of one stream concurrently. */
+  private final ThreadLocal<Mac> localMac =
+      new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+          try {
+            return macInstance();
+          } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+          }
+        }
+      };
+
   private byte[] randomSalt() {
     return Random.randBytes(keySizeInBytes);
   }
@@ -302,7 +328,7 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
    * IV for each segment. By enforcing that only the method encryptSegment can increment this state,
    * we can guarantee that the IV does not repeat.
    */
-  class AesCtrHmacStreamEncrypter implements StreamSegmentEncrypter {
+  class AesCtrHmacStreamEncrypter implements IndexedStreamSegmentEncrypter {
     private final SecretKeySpec keySpec;
     private final SecretKeySpec hmacKeySpec;
     private final Cipher cipher;
@@ -378,10 +404,34 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
       byte[] tag = mac.doFinal();
       ciphertext.put(tag, 0, tagSizeInBytes);
     }
+
+    /**
+     * Encrypts the plaintext segment with number {@code segmentNr}. Uses a cipher and a MAC of the
+     * calling thread, so that several segments can be encrypted at the same time.
+     */
+    @Override
+    public void encryptSegment(
+        long segmentNr, ByteBuffer plaintext, boolean isLastSegment, ByteBuffer ciphertext)
+        throws GeneralSecurityException {
+      int position = ciphertext.position();
+      byte[] nonce = nonceForSegment(noncePrefix, segmentNr, isLastSegment);
+      Cipher localCipherForSegment = localCipher.get();
+      localCipherForSegment.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(nonce));
+      localCipherForSegment.doFinal(plaintext, ciphertext);
+      ByteBuffer ctCopy = ciphertext.duplicate();
+      ctCopy.flip();
+      ctCopy.position(position);
+      Mac localMacForSegment = localMac.get();
+      localMacForSegment.init(hmacKeySpec);
+      localMacForSegment.update(nonce);
+      localMacForSegment.update(ctCopy);
+      byte[] tag = localMacForSegment.doFinal();
+      ciphertext.put(tag, 0, tagSizeInBytes);
+    }
   }
 
   /** An instance of a crypter used to decrypt a ciphertext stream. */
-  class AesCtrHmacStreamDecrypter implements StreamSegmentDecrypter {
+  class AesCtrHmacStreamDecrypter implements ConcurrentStreamSegmentDecrypter {
     private SecretKeySpec keySpec;
     private SecretKeySpec hmacKeySpec;
     private Cipher cipher;
@@ -417,6 +467,25 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
     public synchronized void decryptSegment(
         ByteBuffer ciphertext, int segmentNr, boolean isLastSegment, ByteBuffer plaintext)
         throws GeneralSecurityException {
+      decryptSegment(cipher, mac, ciphertext, segmentNr, isLastSegment, plaintext);
+    }
+
+    @Override
+    public void decryptSegmentConcurrently(
+        ByteBuffer ciphertext, int segmentNr, boolean isLastSegment, ByteBuffer plaintext)
+        throws GeneralSecurityException {
+      decryptSegment(
+          localCipher.get(), localMac.get(), ciphertext, segmentNr, isLastSegment, plaintext);
+    }
+
+    private void decryptSegment(
+        Cipher segmentCipher,
+        Mac segmentMac,
+        ByteBuffer ciphertext,
+        int segmentNr,
+        boolean isLastSegment,
+        ByteBuffer plaintext)
+        throws GeneralSecurityException {
       int position = ciphertext.position();
       byte[] nonce = nonceForSegment(noncePrefix, segmentNr, isLastSegment);
       int ctLength = ciphertext.remaining();
@@ -430,12 +499,12 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
       ByteBuffer tagBuffer = ciphertext.duplicate();
       tagBuffer.position(startOfTag);
 
-      assert mac != null;
+      assert segmentMac != null;
       assert hmacKeySpec != null;
-      mac.init(hmacKeySpec);
-      mac.update(nonce);
-      mac.update(ct);
-      byte[] tag = mac.doFinal();
+      segmentMac.init(hmacKeySpec);
+      segmentMac.update(nonce);
+      segmentMac.update(ct);
+      byte[] tag = segmentMac.doFinal();
       tag = Arrays.copyOf(tag, tagSizeInBytes);
       byte[] expectedTag = new byte[tagSizeInBytes];
       assert tagBuffer.remaining() == tagSizeInBytes;
@@ -446,8 +515,8 @@ public final class AesCtrHmacStreaming extends NonceBasedStreamingAead {
       }
 
       ciphertext.limit(startOfTag);
-      cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(nonce));
-      cipher.doFinal(ciphertext, plaintext);
+      segmentCipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(nonce));
+      segmentCipher.doFinal(ciphertext, plaintext);
     }
   }
 }
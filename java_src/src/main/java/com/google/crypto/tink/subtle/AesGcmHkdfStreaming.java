@@ -202,6 +202,19 @@ public final class AesGcmHkdfStreaming extends NonceBasedStreamingAead {
     return EngineFactory.CIPHER.getInstance("AES/GCM/NoPadding");
   }
 
+  /** Ciphers used to encrypt or decrypt several segments of one stream concurrently. */
+  private static final ThreadLocal<Cipher> localCipher =
+      new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+          try {
+            return cipherInstance();
+          } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+          }
+        }
+      };
+
   private byte[] randomSalt() {
     return Random.randBytes(keySizeInBytes);
   }
@@ -231,7 +244,7 @@ public final class AesGcmHkdfStreaming extends NonceBasedStreamingAead {
    * IV for each segment. By enforcing that only the method encryptSegment can increment this state,
    * we can guarantee that the IV does not repeat.
    */
-  class AesGcmHkdfStreamEncrypter implements StreamSegmentEncrypter {
+  class AesGcmHkdfStreamEncrypter implements IndexedStreamSegmentEncrypter {
     private final SecretKeySpec keySpec;
     private final Cipher cipher;
     private final byte[] noncePrefix;
@@ -294,10 +307,24 @@ public final class AesGcmHkdfStreaming extends NonceBasedStreamingAead {
         cipher.doFinal(part1, ciphertext);
       }
     }
+
+    /**
+     * Encrypts the plaintext segment with number {@code segmentNr}. Uses a cipher of the calling
+     * thread, so that several segments can be encrypted at the same time.
+     */
+    @Override
+    public void encryptSegment(
+        long segmentNr, ByteBuffer plaintext, boolean isLastSegment, ByteBuffer ciphertext)
+        throws GeneralSecurityException {
+      Cipher localCipherForSegment = localCipher.get();
+      localCipherForSegment.init(
+          Cipher.ENCRYPT_MODE, keySpec, paramsForSegment(noncePrefix, segmentNr, isLastSegment));
+      localCipherForSegment.doFinal(plaintext, ciphertext);
+    }
   }
 
   /** An instance of a crypter used to decrypt a ciphertext stream. */
-  class AesGcmHkdfStreamDecrypter implements StreamSegmentDecrypter {
+  class AesGcmHkdfStreamDecrypter implements ConcurrentStreamSegmentDecrypter {
     private SecretKeySpec keySpec;
     private Cipher cipher;
     private byte[] noncePrefix;
@@ -328,9 +355,26 @@ public final class AesGcmHkdfStreaming extends NonceBasedStreamingAead {
     public synchronized void decryptSegment(
         ByteBuffer ciphertext, int segmentNr, boolean isLastSegment, ByteBuffer plaintext)
         throws GeneralSecurityException {
+      decryptSegment(cipher, ciphertext, segmentNr, isLastSegment, plaintext);
+    }
+
+    @Override
+    public void decryptSegmentConcurrently(
+        ByteBuffer ciphertext, int segmentNr, boolean isLastSegment, ByteBuffer plaintext)
+        throws GeneralSecurityException {
+      decryptSegment(localCipher.get(), ciphertext, segmentNr, isLastSegment, plaintext);
+    }
+
+    private void decryptSegment(
+        Cipher segmentCipher,
+        ByteBuffer ciphertext,
+        int segmentNr,
+        boolean isLastSegment,
+        ByteBuffer plaintext)
+        throws GeneralSecurityException {
       GCMParameterSpec params = paramsForSegment(noncePrefix, segmentNr, isLastSegment);
-      cipher.init(Cipher.DECRYPT_MODE, keySpec, params);
-      cipher.doFinal(ciphertext, plaintext);
+      segmentCipher.init(Cipher.DECRYPT_MODE, keySpec, params);
+      segmentCipher.doFinal(ciphertext, plaintext);
     }
   }
 }
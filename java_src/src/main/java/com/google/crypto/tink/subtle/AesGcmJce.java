@@ -26,8 +26,10 @@ import com.google.crypto.tink.aead.internal.InsecureNonceAesGcmJce;
 import com.google.crypto.tink.config.internal.TinkFipsUtil;
 import com.google.crypto.tink.util.Bytes;
 import com.google.errorprone.annotations.Immutable;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import javax.crypto.ShortBufferException;
 
 /**
  * This primitive implements AesGcm using JCE.
@@ -80,13 +82,25 @@ public final class AesGcmJce implements Aead {
   @Override
   public byte[] encrypt(final byte[] plaintext, final byte[] associatedData)
       throws GeneralSecurityException {
-    byte[] iv = Random.randBytes(InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES);
-    if (outputPrefix.length == 0) {
-      return insecureNonceAesGcmJce.encrypt(iv, plaintext, associatedData);
-    } else {
-      return com.google.crypto.tink.subtle.Bytes.concat(
-          outputPrefix, insecureNonceAesGcmJce.encrypt(iv, plaintext, associatedData));
+    if (plaintext.length
+        > Integer.MAX_VALUE
+            - outputPrefix.length
+            - InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES
+            - InsecureNonceAesGcmJce.TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
     }
+    // Generate the IV directly in the output, so that the ciphertext is the only allocation.
+    int ciphertextLength =
+        outputPrefix.length
+            + InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES
+            + plaintext.length
+            + InsecureNonceAesGcmJce.TAG_SIZE_IN_BYTES;
+    byte[] ciphertext = new byte[ciphertextLength];
+    System.arraycopy(outputPrefix, 0, ciphertext, 0, outputPrefix.length);
+    Random.randBytes(ciphertext, outputPrefix.length, InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES);
+    insecureNonceAesGcmJce.encryptWithIvInOutput(
+        ciphertext, outputPrefix.length, plaintext, associatedData);
+    return ciphertext;
   }
 
   /**
@@ -109,4 +123,57 @@ public final class AesGcmJce implements Aead {
       return insecureNonceAesGcmJce.decrypt(iv, ciphertextNoPrefix, associatedData);
     }
   }
+
+  /**
+   * Encrypts directly into {@code ciphertext}, without intermediate copies.
+   *
+   * <p>On Android KitKat (API level 19) this method does not support non null or non empty {@code
+   * associatedData}. It might not work at all in older versions.
+   */
+  @Override
+  public void encrypt(ByteBuffer plaintext, ByteBuffer associatedData, ByteBuffer ciphertext)
+      throws GeneralSecurityException {
+    if (plaintext.remaining()
+        > Integer.MAX_VALUE
+            - outputPrefix.length
+            - InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES
+            - InsecureNonceAesGcmJce.TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    if (ciphertext.remaining()
+        < outputPrefix.length
+            + InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES
+            + plaintext.remaining()
+            + InsecureNonceAesGcmJce.TAG_SIZE_IN_BYTES) {
+      throw new ShortBufferException("ciphertext buffer too small");
+    }
+    byte[] iv = Random.randBytes(InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES);
+    ByteBuffer output = ciphertext.duplicate();
+    output.put(outputPrefix);
+    insecureNonceAesGcmJce.encrypt(iv, plaintext, associatedData, output);
+    ciphertext.position(output.position());
+  }
+
+  /**
+   * Decrypts directly into {@code plaintext}, without intermediate copies.
+   *
+   * <p>On Android KitKat (API level 19) this method does not support non null or non empty {@code
+   * associatedData}. It might not work at all in older versions.
+   */
+  @Override
+  public void decrypt(ByteBuffer ciphertext, ByteBuffer associatedData, ByteBuffer plaintext)
+      throws GeneralSecurityException {
+    if (!isPrefix(outputPrefix, ciphertext)) {
+      throw new GeneralSecurityException("Decryption failed (OutputPrefix mismatch).");
+    }
+    ByteBuffer ciphertextNoPrefix = ciphertext.duplicate();
+    ciphertextNoPrefix.position(ciphertextNoPrefix.position() + outputPrefix.length);
+    if (ciphertextNoPrefix.remaining() < InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("ciphertext too short");
+    }
+    byte[] iv = new byte[InsecureNonceAesGcmJce.IV_SIZE_IN_BYTES];
+    ciphertextNoPrefix.duplicate().get(iv);
+    insecureNonceAesGcmJce.decrypt(iv, ciphertextNoPrefix, associatedData, plaintext);
+    ciphertext.position(ciphertext.limit());
+  }
 }
@@ -29,6 +29,7 @@ import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.util.Arrays;
 import java.util.Collection;
+import javax.annotation.Nullable;
 import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
@@ -41,6 +42,12 @@ import javax.crypto.spec.SecretKeySpec;
  * DeterministicAead}, each sub key must be 256 bits. The total size of ASE-SIV keys is then 512
  * bits.
  *
+ * <p>Each instance keeps one AES-ECB cipher (for S2V) and one AES-CTR cipher per thread, so the
+ * cipher lookup and the CMAC key schedule are done once per thread instead of once per call. The
+ * {@link #encryptDeterministically(byte[][], byte[])} and {@link
+ * #decryptDeterministically(byte[][], byte[])} batch methods additionally share the S2V work on the
+ * associated data between all values. {@link #create} returns an {@code AesSiv}.
+ *
  * @since 1.1.0
  */
 public final class AesSiv implements DeterministicAead {
@@ -50,16 +57,24 @@ public final class AesSiv implements DeterministicAead {
   // Do not support 128-bit keys because it might not provide 128-bit security level in
   // multi-user setting.
   private static final Collection<Integer> KEY_SIZES = Arrays.asList(64);
-  private static final byte[] BLOCK_ZERO = new byte[AesUtil.BLOCK_SIZE];
-  private static final byte[] BLOCK_ONE = {
-    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0x01
-  };
+  private static final byte[] EMPTY = new byte[0];
+
+  /** The AES-ECB cipher for S2V, initialized with the S2V key once per thread. */
+  private final ThreadLocal<Cipher> localCmacCipher;
 
-  /** The internal AesCmac object for S2V */
-  private final PrfAesCmac cmacForS2V;
+  /** The AES-CTR cipher for encryption, which has to be initialized with the IV on every call. */
+  private final ThreadLocal<Cipher> localCtrCipher;
 
   /** The key used for the CTR encryption */
-  private final byte[] aesCtrKey;
+  private final SecretKeySpec aesCtrKey;
+
+  /** The CMAC sub keys K1 and K2 of the S2V key, see RFC 4493, section 2.3. */
+  private final byte[] cmacSubKey1;
+
+  private final byte[] cmacSubKey2;
+
+  /** CMAC(zero block), the first value of S2V, which only depends on the key. */
+  private final byte[] cmacOfZero;
 
   private final byte[] outputPrefix;
 
@@ -80,9 +95,41 @@ public final class AesSiv implements DeterministicAead {
           "invalid key size: " + key.length + " bytes; key must have 64 bytes");
     }
 
-    byte[] k1 = Arrays.copyOfRange(key, 0, key.length / 2);
-    this.aesCtrKey = Arrays.copyOfRange(key, key.length / 2, key.length);
-    this.cmacForS2V = new PrfAesCmac(k1);
+    final SecretKeySpec cmacKey =
+        new SecretKeySpec(Arrays.copyOfRange(key, 0, key.length / 2), "AES");
+    this.aesCtrKey = new SecretKeySpec(Arrays.copyOfRange(key, key.length / 2, key.length), "AES");
+    this.localCmacCipher =
+        new ThreadLocal<Cipher>() {
+          @Override
+          protected Cipher initialValue() {
+            try {
+              Cipher cipher = EngineFactory.CIPHER.getInstance("AES/ECB/NoPadding");
+              cipher.init(Cipher.ENCRYPT_MODE, cmacKey);
+              return cipher;
+            } catch (GeneralSecurityException ex) {
+              throw new IllegalStateException(ex);
+            }
+          }
+        };
+    this.localCtrCipher =
+        new ThreadLocal<Cipher>() {
+          @Override
+          protected Cipher initialValue() {
+            try {
+              return EngineFactory.CIPHER.getInstance("AES/CTR/NoPadding");
+            } catch (GeneralSecurityException ex) {
+              throw new IllegalStateException(ex);
+            }
+          }
+        };
+
+    // https://tools.ietf.org/html/rfc4493#section-2.3
+    Cipher ecb = localCmacCipher.get();
+    byte[] l = ecb.doFinal(new byte[AesUtil.BLOCK_SIZE]);
+    this.cmacSubKey1 = AesUtil.dbl(l);
+    this.cmacSubKey2 = AesUtil.dbl(cmacSubKey1);
+    this.cmacOfZero = new byte[AesUtil.BLOCK_SIZE];
+    cmac(ecb, new byte[AesUtil.BLOCK_SIZE], 0, AesUtil.BLOCK_SIZE, null, cmacOfZero);
     this.outputPrefix = outputPrefix.toByteArray();
   }
 
@@ -91,65 +138,127 @@ public final class AesSiv implements DeterministicAead {
   }
 
   /**
-   * s2v per https://tools.ietf.org/html/rfc5297
+   * Computes the AES-CMAC of {@code data[offset, offset + length)} per
+   * https://tools.ietf.org/html/rfc4493 and writes it to {@code out}.
    *
-   * @param s
-   * @return s2v(si)
-   * @throws GeneralSecurityException
+   * <p>If {@code xorEnd} is not null, the MAC is computed over the data with its last 16 bytes
+   * xored with {@code xorEnd}, as needed by the last step of S2V, without copying the data.
    */
-  private byte[] s2v(final byte[]... s) throws GeneralSecurityException {
-    if (s.length == 0) {
-      // Should never happen with AES-SIV, but we include this for completeness.
-      return cmacForS2V.compute(BLOCK_ONE, AesUtil.BLOCK_SIZE);
-    }
-
-    byte[] result = cmacForS2V.compute(BLOCK_ZERO, AesUtil.BLOCK_SIZE);
-    for (int i = 0; i < s.length - 1; i++) {
-      final byte[] currBlock;
-      if (s[i] == null) {
-        currBlock = new byte[0];
-      } else {
-        currBlock = s[i];
+  private void cmac(
+      Cipher ecb,
+      final byte[] data,
+      int offset,
+      int length,
+      @Nullable final byte[] xorEnd,
+      byte[] out)
+      throws GeneralSecurityException {
+    // Step 2: n = ceil(length / blocksize). Empty data is divided into 1 empty block.
+    int n = Math.max(1, (length + AesUtil.BLOCK_SIZE - 1) / AesUtil.BLOCK_SIZE);
+    // Start of the part of the data that is xored with xorEnd.
+    int xorEndStart = length - AesUtil.BLOCK_SIZE;
+    byte[] x = new byte[AesUtil.BLOCK_SIZE];
+    // Steps 5 and 6 for all but the last block.
+    for (int i = 0; i < n - 1; i++) {
+      int blockStart = i * AesUtil.BLOCK_SIZE;
+      for (int j = 0; j < AesUtil.BLOCK_SIZE; j++) {
+        x[j] ^= data[offset + blockStart + j];
       }
-      result =
-          com.google.crypto.tink.subtle.Bytes.xor(
-              AesUtil.dbl(result), cmacForS2V.compute(currBlock, AesUtil.BLOCK_SIZE));
+      if (xorEnd != null && blockStart + AesUtil.BLOCK_SIZE > xorEndStart) {
+        for (int j = Math.max(0, xorEndStart - blockStart); j < AesUtil.BLOCK_SIZE; j++) {
+          x[j] ^= xorEnd[blockStart + j - xorEndStart];
+        }
+      }
+      ecb.doFinal(x, 0, AesUtil.BLOCK_SIZE, x, 0);
+    }
+    // Steps 3, 4 and 6 for the last block.
+    int lastStart = (n - 1) * AesUtil.BLOCK_SIZE;
+    int lastLength = length - lastStart;
+    for (int j = 0; j < lastLength; j++) {
+      x[j] ^= data[offset + lastStart + j];
     }
-    byte[] lastBlock = s[s.length - 1];
-    if (lastBlock.length >= 16) {
-      result = com.google.crypto.tink.subtle.Bytes.xorEnd(lastBlock, result);
+    if (xorEnd != null) {
+      for (int j = Math.max(0, xorEndStart - lastStart); j < lastLength; j++) {
+        x[j] ^= xorEnd[lastStart + j - xorEndStart];
+      }
+    }
+    byte[] subKey;
+    if (lastLength == AesUtil.BLOCK_SIZE) {
+      subKey = cmacSubKey1;
     } else {
-      result =
-          com.google.crypto.tink.subtle.Bytes.xor(AesUtil.cmacPad(lastBlock), AesUtil.dbl(result));
+      x[lastLength] ^= (byte) 0x80;
+      subKey = cmacSubKey2;
     }
-    return cmacForS2V.compute(result, AesUtil.BLOCK_SIZE);
+    for (int j = 0; j < AesUtil.BLOCK_SIZE; j++) {
+      x[j] ^= subKey[j];
+    }
+    ecb.doFinal(x, 0, AesUtil.BLOCK_SIZE, out, 0);
   }
 
-  @Override
-  public byte[] encryptDeterministically(final byte[] plaintext, final byte[] associatedData)
+  /**
+   * Computes the first part of S2V per https://tools.ietf.org/html/rfc5297 with the associated
+   * data as the only header, that is D = dbl(CMAC(zero)) xor CMAC(associatedData).
+   */
+  private byte[] s2vOfAssociatedData(Cipher ecb, @Nullable final byte[] associatedData)
       throws GeneralSecurityException {
-    if (plaintext.length > Integer.MAX_VALUE - AesUtil.BLOCK_SIZE) {
-      throw new GeneralSecurityException("plaintext too long");
+    byte[] ad = associatedData == null ? EMPTY : associatedData;
+    byte[] d = AesUtil.dbl(cmacOfZero);
+    byte[] mac = new byte[AesUtil.BLOCK_SIZE];
+    cmac(ecb, ad, 0, ad.length, null, mac);
+    for (int i = 0; i < AesUtil.BLOCK_SIZE; i++) {
+      d[i] ^= mac[i];
     }
+    return d;
+  }
 
-    Cipher aesCtr = EngineFactory.CIPHER.getInstance("AES/CTR/NoPadding");
-    byte[] computedIv = s2v(associatedData, plaintext);
-    byte[] ivForJavaCrypto = computedIv.clone();
-    ivForJavaCrypto[8] &= (byte) 0x7F; // 63th bit from the right
-    ivForJavaCrypto[12] &= (byte) 0x7F; // 31st bit from the right
+  /**
+   * Finishes S2V per https://tools.ietf.org/html/rfc5297 for the plaintext {@code
+   * data[offset, offset + length)}, given D from {@link #s2vOfAssociatedData}, and writes the
+   * synthetic IV to {@code out}.
+   */
+  private void s2vFinish(
+      Cipher ecb, final byte[] d, final byte[] data, int offset, int length, byte[] out)
+      throws GeneralSecurityException {
+    if (length >= AesUtil.BLOCK_SIZE) {
+      cmac(ecb, data, offset, length, d, out);
+    } else {
+      byte[] t = AesUtil.dbl(d);
+      for (int i = 0; i < length; i++) {
+        t[i] ^= data[offset + i];
+      }
+      t[length] ^= (byte) 0x80;
+      cmac(ecb, t, 0, AesUtil.BLOCK_SIZE, null, out);
+    }
+  }
 
-    aesCtr.init(
-        Cipher.ENCRYPT_MODE,
-        new SecretKeySpec(this.aesCtrKey, "AES"),
-        new IvParameterSpec(ivForJavaCrypto));
+  private static IvParameterSpec ivForJavaCrypto(final byte[] siv, int sivOffset) {
+    byte[] iv = Arrays.copyOfRange(siv, sivOffset, sivOffset + AesUtil.BLOCK_SIZE);
+    iv[8] &= (byte) 0x7F; // 63th bit from the right
+    iv[12] &= (byte) 0x7F; // 31st bit from the right
+    return new IvParameterSpec(iv);
+  }
 
-    byte[] ctrCiphertext = aesCtr.doFinal(plaintext);
+  private byte[] encrypt(Cipher ecb, Cipher aesCtr, final byte[] d, final byte[] plaintext)
+      throws GeneralSecurityException {
+    if (plaintext.length > Integer.MAX_VALUE - AesUtil.BLOCK_SIZE - outputPrefix.length) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    byte[] ciphertext = new byte[outputPrefix.length + AesUtil.BLOCK_SIZE + plaintext.length];
+    System.arraycopy(outputPrefix, 0, ciphertext, 0, outputPrefix.length);
+    byte[] computedIv = new byte[AesUtil.BLOCK_SIZE];
+    s2vFinish(ecb, d, plaintext, 0, plaintext.length, computedIv);
+    System.arraycopy(computedIv, 0, ciphertext, outputPrefix.length, AesUtil.BLOCK_SIZE);
 
-    return com.google.crypto.tink.subtle.Bytes.concat(outputPrefix, computedIv, ctrCiphertext);
+    aesCtr.init(Cipher.ENCRYPT_MODE, aesCtrKey, ivForJavaCrypto(computedIv, 0));
+    int written =
+        aesCtr.doFinal(
+            plaintext, 0, plaintext.length, ciphertext, outputPrefix.length + AesUtil.BLOCK_SIZE);
+    if (written != plaintext.length) {
+      throw new GeneralSecurityException("not enough data written");
+    }
+    return ciphertext;
   }
 
-  @Override
-  public byte[] decryptDeterministically(final byte[] ciphertext, final byte[] associatedData)
+  private byte[] decrypt(Cipher ecb, Cipher aesCtr, final byte[] d, final byte[] ciphertext)
       throws GeneralSecurityException {
     if (ciphertext.length < AesUtil.BLOCK_SIZE + outputPrefix.length) {
       throw new GeneralSecurityException("Ciphertext too short.");
@@ -158,31 +267,22 @@ public final class AesSiv implements DeterministicAead {
       throw new GeneralSecurityException("Decryption failed (OutputPrefix mismatch).");
     }
 
-    Cipher aesCtr = EngineFactory.CIPHER.getInstance("AES/CTR/NoPadding");
-
-    byte[] expectedIv =
-        Arrays.copyOfRange(
-            ciphertext, outputPrefix.length, AesUtil.BLOCK_SIZE + outputPrefix.length);
-
-    byte[] ivForJavaCrypto = expectedIv.clone();
-    ivForJavaCrypto[8] &= (byte) 0x7F; // 63th bit from the right
-    ivForJavaCrypto[12] &= (byte) 0x7F; // 31st bit from the right
-
     aesCtr.init(
-        Cipher.DECRYPT_MODE,
-        new SecretKeySpec(this.aesCtrKey, "AES"),
-        new IvParameterSpec(ivForJavaCrypto));
-
-    byte[] ctrCiphertext =
-        Arrays.copyOfRange(ciphertext, AesUtil.BLOCK_SIZE + outputPrefix.length, ciphertext.length);
-    byte[] decryptedPt = aesCtr.doFinal(ctrCiphertext);
-    if (ctrCiphertext.length == 0 && decryptedPt == null && SubtleUtil.isAndroid()) {
+        Cipher.DECRYPT_MODE, aesCtrKey, ivForJavaCrypto(ciphertext, outputPrefix.length));
+
+    int ctrCiphertextOffset = AesUtil.BLOCK_SIZE + outputPrefix.length;
+    int ctrCiphertextLength = ciphertext.length - ctrCiphertextOffset;
+    byte[] decryptedPt = aesCtr.doFinal(ciphertext, ctrCiphertextOffset, ctrCiphertextLength);
+    if (ctrCiphertextLength == 0 && decryptedPt == null && SubtleUtil.isAndroid()) {
       // On Android KitKat (19) and Lollipop (21), Cipher.doFinal returns a null pointer when the
       // ciphertext is empty, instead of an empty plaintext. Here we attempt to fix this bug. This
       // is safe because if the plaintext is not empty, the next integrity check would reject it.
       decryptedPt = new byte[0];
     }
-    byte[] computedIv = s2v(associatedData, decryptedPt);
+    byte[] computedIv = new byte[AesUtil.BLOCK_SIZE];
+    s2vFinish(ecb, d, decryptedPt, 0, decryptedPt.length, computedIv);
+    byte[] expectedIv =
+        Arrays.copyOfRange(ciphertext, outputPrefix.length, ctrCiphertextOffset);
 
     if (com.google.crypto.tink.subtle.Bytes.equal(expectedIv, computedIv)) {
       return decryptedPt;
@@ -190,4 +290,60 @@ public final class AesSiv implements DeterministicAead {
       throw new AEADBadTagException("Integrity check failed.");
     }
   }
+
+  @Override
+  public byte[] encryptDeterministically(final byte[] plaintext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    Cipher ecb = localCmacCipher.get();
+    return encrypt(ecb, localCtrCipher.get(), s2vOfAssociatedData(ecb, associatedData), plaintext);
+  }
+
+  @Override
+  public byte[] decryptDeterministically(final byte[] ciphertext, final byte[] associatedData)
+      throws GeneralSecurityException {
+    Cipher ecb = localCmacCipher.get();
+    return decrypt(ecb, localCtrCipher.get(), s2vOfAssociatedData(ecb, associatedData), ciphertext);
+  }
+
+  /**
+   * Deterministically encrypts each of {@code plaintexts} with the same {@code associatedData}.
+   *
+   * <p>The result is the same as calling {@link #encryptDeterministically(byte[], byte[])} for each
+   * plaintext, but the part of the computation that only depends on {@code associatedData} is done
+   * once. This is meant for encrypting many short values, such as the values of a database column.
+   *
+   * @return the ciphertexts, in the same order as {@code plaintexts}
+   */
+  public byte[][] encryptDeterministically(final byte[][] plaintexts, final byte[] associatedData)
+      throws GeneralSecurityException {
+    Cipher ecb = localCmacCipher.get();
+    Cipher aesCtr = localCtrCipher.get();
+    byte[] d = s2vOfAssociatedData(ecb, associatedData);
+    byte[][] ciphertexts = new byte[plaintexts.length][];
+    for (int i = 0; i < plaintexts.length; i++) {
+      ciphertexts[i] = encrypt(ecb, aesCtr, d, plaintexts[i]);
+    }
+    return ciphertexts;
+  }
+
+  /**
+   * Decrypts each of {@code ciphertexts} with the same {@code associatedData}.
+   *
+   * <p>The result is the same as calling {@link #decryptDeterministically(byte[], byte[])} for each
+   * ciphertext. If any of the ciphertexts is invalid, an exception is thrown and no plaintext is
+   * returned.
+   *
+   * @return the plaintexts, in the same order as {@code ciphertexts}
+   */
+  public byte[][] decryptDeterministically(final byte[][] ciphertexts, final byte[] associatedData)
+      throws GeneralSecurityException {
+    Cipher ecb = localCmacCipher.get();
+    Cipher aesCtr = localCtrCipher.get();
+    byte[] d = s2vOfAssociatedData(ecb, associatedData);
+    byte[][] plaintexts = new byte[ciphertexts.length][];
+    for (int i = 0; i < ciphertexts.length; i++) {
+      plaintexts[i] = decrypt(ecb, aesCtr, d, ciphertexts[i]);
+    }
+    return plaintexts;
+  }
 }
@@ -0,0 +1,39 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * A {@link StreamSegmentDecrypter} that can decrypt several segments of one stream at the same
+ * time.
+ */
+interface ConcurrentStreamSegmentDecrypter extends StreamSegmentDecrypter {
+
+  /**
+   * Decrypts a ciphertext segment, like {@link #decryptSegment}.
+   *
+   * <p>This method is thread safe: once {@link #init} has returned, it may be called from several
+   * threads at the same time, as long as the call to {@link #init} happens-before these calls
+   * (which is the case for tasks submitted to an executor afterwards).
+   */
+  void decryptSegmentConcurrently(
+      ByteBuffer ciphertext, int segmentNr, boolean isLastSegment, ByteBuffer plaintext)
+      throws GeneralSecurityException;
+}
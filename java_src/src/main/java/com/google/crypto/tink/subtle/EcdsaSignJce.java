@@ -37,6 +37,8 @@ import java.util.List;
 /**
  * ECDSA signing with JCE.
  *
+ * <p>Each instance keeps one {@link Signature} per thread, initialized with the private key once.
+ *
  * @since 1.0.0
  */
 @Immutable
@@ -56,6 +58,14 @@ public final class EcdsaSignJce implements PublicKeySign {
   @SuppressWarnings("Immutable")
   private final byte[] messageSuffix;
 
+  /** A {@link Signature} per thread, already initialized with {@code privateKey}. */
+  @SuppressWarnings("Immutable")
+  private final ThreadLocal<Signature> localSigner = new ThreadLocal<>();
+
+  // Prefer Conscrypt over other providers if available.
+  private static final List<Provider> PREFERRED_PROVIDERS =
+      EngineFactory.toProviderList("GmsCore_OpenSSL", "AndroidOpenSSL", "Conscrypt");
+
   private EcdsaSignJce(
       final ECPrivateKey priv,
       HashType hash,
@@ -115,14 +125,32 @@ public final class EcdsaSignJce implements PublicKeySign {
     return signer;
   }
 
+  /**
+   * Returns this thread's signer, creating and initializing it on first use. A {@link Signature}
+   * goes back to its initialized state after each {@code sign} call, so it can be reused as long
+   * as no exception was thrown.
+   */
+  private Signature getSigner() throws GeneralSecurityException {
+    Signature signer = localSigner.get();
+    if (signer == null) {
+      signer = EngineFactory.SIGNATURE.getInstance(signatureAlgorithm, PREFERRED_PROVIDERS);
+      signer.initSign(privateKey);
+      localSigner.set(signer);
+    }
+    return signer;
+  }
+
   private byte[] noPrefixSign(final byte[] data) throws GeneralSecurityException {
-    // Prefer Conscrypt over other providers if available.
-    List<Provider> preferredProviders =
-        EngineFactory.toProviderList("GmsCore_OpenSSL", "AndroidOpenSSL", "Conscrypt");
-    Signature signer = EngineFactory.SIGNATURE.getInstance(signatureAlgorithm, preferredProviders);
-    signer.initSign(privateKey);
-    signer.update(data);
-    byte[] signature = signer.sign();
+    Signature signer = getSigner();
+    byte[] signature;
+    try {
+      signer.update(data);
+      signature = signer.sign();
+    } catch (GeneralSecurityException | RuntimeException ex) {
+      // The state of the signer is unknown after an exception, so don't reuse it.
+      localSigner.remove();
+      throw ex;
+    }
     if (encoding == EcdsaEncoding.IEEE_P1363) {
       EllipticCurve curve = privateKey.getParams().getCurve();
       signature =
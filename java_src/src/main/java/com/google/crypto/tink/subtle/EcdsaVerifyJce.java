@@ -32,13 +32,15 @@ import java.security.GeneralSecurityException;
 import java.security.Provider;
 import java.security.Signature;
 import java.security.interfaces.ECPublicKey;
-import java.security.spec.EllipticCurve;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * ECDSA verifying with JCE.
  *
+ * <p>Each instance keeps one {@link Signature} per thread, initialized with the public key once.
+ * Many signatures for the same key can be checked with {@link #verifyBatch}.
+ *
  * @since 1.0.0
  */
 @Immutable
@@ -51,6 +53,7 @@ public final class EcdsaVerifyJce implements PublicKeyVerify {
 
   private final String signatureAlgorithm;
   private final EcdsaEncoding encoding;
+  private final int fieldSizeInBytes;
 
   @SuppressWarnings("Immutable")
   private final byte[] outputPrefix;
@@ -58,6 +61,13 @@ public final class EcdsaVerifyJce implements PublicKeyVerify {
   @SuppressWarnings("Immutable")
   private final byte[] messageSuffix;
 
+  /** A {@link Signature} per thread, already initialized with {@code publicKey}. */
+  @SuppressWarnings("Immutable")
+  private final ThreadLocal<Signature> localVerifier = new ThreadLocal<>();
+
+  private static final List<Provider> PREFERRED_PROVIDERS =
+      EngineFactory.toProviderList("GmsCore_OpenSSL", "AndroidOpenSSL", "Conscrypt");
+
   // This converter is not used with a proto but rather with an ordinary enum type.
   static final EnumTypeProtoConverter<HashType, EcdsaParameters.HashType> HASH_TYPE_CONVERTER =
       EnumTypeProtoConverter.<HashType, EcdsaParameters.HashType>builder()
@@ -112,6 +122,7 @@ public final class EcdsaVerifyJce implements PublicKeyVerify {
     this.signatureAlgorithm = SubtleUtil.toEcdsaAlgo(hash);
     this.publicKey = pubKey;
     this.encoding = encoding;
+    this.fieldSizeInBytes = EllipticCurves.fieldSizeInBytes(pubKey.getParams().getCurve());
     this.outputPrefix = outputPrefix;
     this.messageSuffix = messageSuffix;
   }
@@ -121,50 +132,91 @@ public final class EcdsaVerifyJce implements PublicKeyVerify {
     this(pubKey, hash, encoding, new byte[0], new byte[0]);
   }
 
-  private void noPrefixVerify(final byte[] signature, final byte[] data)
+  /**
+   * Returns this thread's verifier, creating and initializing it on first use. A {@link Signature}
+   * goes back to its initialized state after each {@code verify} call, so it can be reused as long
+   * as no exception was thrown.
+   */
+  private Signature getVerifier() throws GeneralSecurityException {
+    Signature verifier = localVerifier.get();
+    if (verifier == null) {
+      verifier = EngineFactory.SIGNATURE.getInstance(signatureAlgorithm, PREFERRED_PROVIDERS);
+      verifier.initVerify(publicKey);
+      localVerifier.set(verifier);
+    }
+    return verifier;
+  }
+
+  /**
+   * Returns true if {@code signature} without its first {@code outputPrefix.length} bytes is a
+   * valid signature of {@code data} followed by {@code messageSuffix}. Does not check the prefix.
+   */
+  private boolean isValidSignature(final byte[] signature, final byte[] data)
       throws GeneralSecurityException {
-    byte[] derSignature = signature;
+    byte[] derSignature;
     if (encoding == EcdsaEncoding.IEEE_P1363) {
-      EllipticCurve curve = publicKey.getParams().getCurve();
-      if (signature.length != 2 * EllipticCurves.fieldSizeInBytes(curve)) {
-        throw new GeneralSecurityException("Invalid signature");
+      if (signature.length - outputPrefix.length != 2 * fieldSizeInBytes) {
+        return false;
       }
-      derSignature = EllipticCurves.ecdsaIeee2Der(signature);
+      derSignature =
+          EllipticCurves.ecdsaIeee2Der(
+              outputPrefix.length == 0
+                  ? signature
+                  : Arrays.copyOfRange(signature, outputPrefix.length, signature.length));
+    } else {
+      derSignature =
+          outputPrefix.length == 0
+              ? signature
+              : Arrays.copyOfRange(signature, outputPrefix.length, signature.length);
     }
     if (!EllipticCurves.isValidDerEncoding(derSignature)) {
-      throw new GeneralSecurityException("Invalid signature");
+      return false;
     }
-    List<Provider> preferredProviders =
-        EngineFactory.toProviderList("GmsCore_OpenSSL", "AndroidOpenSSL", "Conscrypt");
-    Signature verifier =
-        EngineFactory.SIGNATURE.getInstance(signatureAlgorithm, preferredProviders);
-    verifier.initVerify(publicKey);
-    verifier.update(data);
-    boolean verified = false;
+    Signature verifier = getVerifier();
     try {
-      verified = verifier.verify(derSignature);
-    } catch (java.lang.RuntimeException ex) {
-      verified = false;
-    }
-    if (!verified) {
-      throw new GeneralSecurityException("Invalid signature");
+      verifier.update(data);
+      if (messageSuffix.length != 0) {
+        verifier.update(messageSuffix);
+      }
+      return verifier.verify(derSignature);
+    } catch (GeneralSecurityException | RuntimeException ex) {
+      // The state of the verifier is unknown after an exception, so don't reuse it.
+      localVerifier.remove();
+      return false;
     }
   }
 
   @Override
   public void verify(final byte[] signature, final byte[] data) throws GeneralSecurityException {
-    if (outputPrefix.length == 0 && messageSuffix.length == 0) {
-      noPrefixVerify(signature, data);
-      return;
-    }
     if (!isPrefix(outputPrefix, signature)) {
       throw new GeneralSecurityException("Invalid signature (output prefix mismatch)");
     }
-    byte[] dataCopy = data;
-    if (messageSuffix.length != 0) {
-      dataCopy = Bytes.concat(data, messageSuffix);
+    if (!isValidSignature(signature, data)) {
+      throw new GeneralSecurityException("Invalid signature");
+    }
+  }
+
+  /**
+   * Verifies each of {@code signatures} against the corresponding element of {@code data}.
+   *
+   * <p>This gives the same results as calling {@link #verify} for each pair, without the cost of
+   * an exception for each invalid signature.
+   *
+   * @return an array whose {@code i}-th element is true if and only if {@code signatures[i]} is a
+   *     valid signature of {@code data[i]}
+   * @throws IllegalArgumentException if {@code signatures} and {@code data} have different lengths
+   * @throws GeneralSecurityException if no verifier can be created
+   */
+  public boolean[] verifyBatch(final byte[][] signatures, final byte[][] data)
+      throws GeneralSecurityException {
+    if (signatures.length != data.length) {
+      throw new IllegalArgumentException("signatures and data must have the same length");
+    }
+    boolean[] result = new boolean[signatures.length];
+    for (int i = 0; i < signatures.length; i++) {
+      result[i] =
+          isPrefix(outputPrefix, signatures[i]) && isValidSignature(signatures[i], data[i]);
     }
-    byte[] signatureNoPrefix = Arrays.copyOfRange(signature, outputPrefix.length, signature.length);
-    noPrefixVerify(signatureNoPrefix, dataCopy);
+    return result;
   }
 }
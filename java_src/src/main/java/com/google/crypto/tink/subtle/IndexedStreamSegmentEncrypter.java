@@ -0,0 +1,44 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * A {@link StreamSegmentEncrypter} that can encrypt segments out of order and from several threads
+ * at the same time.
+ *
+ * <p>Once the header is fixed, the segments of a nonce based streaming AEAD are independent of
+ * each other: the nonce of a segment is derived from its segment number. This allows encrypting
+ * several segments of one stream in parallel.
+ */
+interface IndexedStreamSegmentEncrypter extends StreamSegmentEncrypter {
+
+  /**
+   * Encrypts the plaintext segment with number {@code segmentNr}.
+   *
+   * <p>This method is thread safe. Callers must encrypt each segment number at most once, must use
+   * consecutive segment numbers starting at 0, and must only set {@code isLastSegment} for the
+   * segment with the largest number. They must not mix calls to this method with calls to the
+   * methods of {@link StreamSegmentEncrypter} that encrypt the next segment.
+   */
+  void encryptSegment(
+      long segmentNr, ByteBuffer plaintext, boolean isLastSegment, ByteBuffer ciphertext)
+      throws GeneralSecurityException;
+}
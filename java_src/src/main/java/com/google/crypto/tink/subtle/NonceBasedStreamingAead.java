@@ -24,6 +24,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
 
 /**
  * An abstract class for StreamingAead using the nonce based online encryption scheme proposed in <a
@@ -49,6 +50,34 @@ abstract class NonceBasedStreamingAead implements StreamingAead {
 
   public abstract int getHeaderLength();
 
+  /**
+   * Returns a segment encrypter that can encrypt several segments at the same time.
+   *
+   * @throws GeneralSecurityException if the segment encrypters of this class do not support this
+   */
+  IndexedStreamSegmentEncrypter newIndexedStreamSegmentEncrypter(byte[] associatedData)
+      throws GeneralSecurityException {
+    StreamSegmentEncrypter encrypter = newStreamSegmentEncrypter(associatedData);
+    if (!(encrypter instanceof IndexedStreamSegmentEncrypter)) {
+      throw new GeneralSecurityException("Parallel encryption is not supported");
+    }
+    return (IndexedStreamSegmentEncrypter) encrypter;
+  }
+
+  /**
+   * Returns a segment decrypter that can decrypt several segments at the same time.
+   *
+   * @throws GeneralSecurityException if the segment decrypters of this class do not support this
+   */
+  ConcurrentStreamSegmentDecrypter newConcurrentStreamSegmentDecrypter()
+      throws GeneralSecurityException {
+    StreamSegmentDecrypter decrypter = newStreamSegmentDecrypter();
+    if (!(decrypter instanceof ConcurrentStreamSegmentDecrypter)) {
+      throw new GeneralSecurityException("Parallel decryption is not supported");
+    }
+    return (ConcurrentStreamSegmentDecrypter) decrypter;
+  }
+
   @Override
   public WritableByteChannel newEncryptingChannel(
       WritableByteChannel ciphertextChannel, byte[] associatedData)
@@ -56,6 +85,25 @@ abstract class NonceBasedStreamingAead implements StreamingAead {
     return new StreamingAeadEncryptingChannel(this, ciphertextChannel, associatedData);
   }
 
+  /**
+   * Returns a {@link WritableByteChannel} that encrypts like {@link #newEncryptingChannel}, but
+   * encrypts up to {@code maxSegmentsInFlight} segments in parallel on {@code executor}.
+   *
+   * <p>The ciphertext can be decrypted with any of the decrypting channels and streams. The memory
+   * used grows with {@code maxSegmentsInFlight}: each segment in flight holds a plaintext and a
+   * ciphertext buffer. If {@code executor} runs tasks on the calling thread, this behaves like
+   * {@link #newEncryptingChannel}.
+   */
+  public WritableByteChannel newParallelEncryptingChannel(
+      WritableByteChannel ciphertextChannel,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    return new StreamingAeadParallelEncryptingChannel(
+        this, ciphertextChannel, associatedData, executor, maxSegmentsInFlight);
+  }
+
   @Override
   public ReadableByteChannel newDecryptingChannel(
       ReadableByteChannel ciphertextChannel, byte[] associatedData)
@@ -63,6 +111,25 @@ abstract class NonceBasedStreamingAead implements StreamingAead {
     return new StreamingAeadDecryptingChannel(this, ciphertextChannel, associatedData);
   }
 
+  /**
+   * Returns a {@link ReadableByteChannel} that decrypts like {@link #newDecryptingChannel}, but
+   * reads ahead and decrypts up to {@code maxSegmentsInFlight} segments in parallel on {@code
+   * executor}, while the caller consumes the oldest one.
+   *
+   * <p>Truncated or otherwise modified ciphertexts are detected exactly as by {@link
+   * #newDecryptingChannel}. The memory used grows with {@code maxSegmentsInFlight}: each segment in
+   * flight holds a ciphertext and a plaintext buffer.
+   */
+  public ReadableByteChannel newParallelDecryptingChannel(
+      ReadableByteChannel ciphertextChannel,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    return new StreamingAeadParallelDecryptingChannel(
+        this, ciphertextChannel, associatedData, executor, maxSegmentsInFlight);
+  }
+
   @Override
   public SeekableByteChannel newSeekableDecryptingChannel(
       SeekableByteChannel ciphertextSource, byte[] associatedData)
@@ -70,15 +137,66 @@ abstract class NonceBasedStreamingAead implements StreamingAead {
     return new StreamingAeadSeekableDecryptingChannel(this, ciphertextSource, associatedData);
   }
 
+  /**
+   * Returns a {@link PositionalSeekableByteChannel} that decrypts like {@link
+   * #newSeekableDecryptingChannel}, and keeps up to {@code maxCachedSegments} of the most recently
+   * used decrypted segments. Positional reads always keep at least the last one.
+   *
+   * <p>Its {@link PositionalSeekableByteChannel#read(java.nio.ByteBuffer, long)} can be used by
+   * several threads at the same time, for example to serve random-access reads of one file. Reads
+   * from a {@link java.nio.channels.FileChannel} are not serialized. The memory used grows with
+   * {@code maxCachedSegments}: each cached segment holds one plaintext segment.
+   */
+  public PositionalSeekableByteChannel newSeekableDecryptingChannel(
+      SeekableByteChannel ciphertextSource, byte[] associatedData, int maxCachedSegments)
+      throws GeneralSecurityException, IOException {
+    return new StreamingAeadSeekableDecryptingChannel(
+        this, ciphertextSource, associatedData, maxCachedSegments);
+  }
+
   @Override
   public OutputStream newEncryptingStream(OutputStream ciphertext, byte[] associatedData)
       throws GeneralSecurityException, IOException {
     return new StreamingAeadEncryptingStream(this, ciphertext, associatedData);
   }
 
+  /**
+   * Returns an {@link OutputStream} that encrypts like {@link #newEncryptingStream}, but encrypts
+   * up to {@code maxSegmentsInFlight} segments in parallel on {@code executor}.
+   *
+   * <p>The ciphertext can be decrypted with any of the decrypting channels and streams. The memory
+   * used grows with {@code maxSegmentsInFlight}: each segment in flight holds a plaintext and a
+   * ciphertext buffer.
+   */
+  public OutputStream newParallelEncryptingStream(
+      OutputStream ciphertext, byte[] associatedData, Executor executor, int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    return new StreamingAeadParallelEncryptingStream(
+        this, ciphertext, associatedData, executor, maxSegmentsInFlight);
+  }
+
   @Override
   public InputStream newDecryptingStream(InputStream ciphertextStream, byte[] associatedData)
       throws GeneralSecurityException, IOException {
     return new StreamingAeadDecryptingStream(this, ciphertextStream, associatedData);
   }
+
+  /**
+   * Returns an {@link InputStream} that decrypts like {@link #newDecryptingStream}, but reads ahead
+   * and decrypts up to {@code maxSegmentsInFlight} segments in parallel on {@code executor}, while
+   * the caller consumes the oldest one.
+   *
+   * <p>Truncated or otherwise modified ciphertexts are detected exactly as by {@link
+   * #newDecryptingStream}. The memory used grows with {@code maxSegmentsInFlight}: each segment in
+   * flight holds a ciphertext and a plaintext buffer.
+   */
+  public InputStream newParallelDecryptingStream(
+      InputStream ciphertextStream,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    return new StreamingAeadParallelDecryptingStream(
+        this, ciphertextStream, associatedData, executor, maxSegmentsInFlight);
+  }
 }
@@ -0,0 +1,41 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A {@link SeekableByteChannel} that also supports reads at a given position, which can be used by
+ * several threads at the same time.
+ */
+public interface PositionalSeekableByteChannel extends SeekableByteChannel {
+  /**
+   * Reads a sequence of bytes into {@code dst}, starting at {@code position}.
+   *
+   * <p>This method works in the same way as {@link #read(ByteBuffer)}, except that it starts at
+   * the given position and neither uses nor modifies the position of this channel. It is thread
+   * safe, and concurrent calls do not wait for each other except while they access the underlying
+   * storage.
+   *
+   * @return the number of bytes read, possibly zero, or -1 if {@code position} is at or after the
+   *     end of the channel
+   */
+  int read(ByteBuffer dst, long position) throws IOException;
+}
@@ -28,6 +28,16 @@ public final class Random {
     return com.google.crypto.tink.internal.Random.randBytes(size);
   }
 
+  /**
+   * Writes {@code length} random bytes into {@code dest}, starting at {@code offset}.
+   *
+   * @throws IndexOutOfBoundsException if {@code dest} has fewer than {@code length} bytes after
+   *     {@code offset}.
+   */
+  public static void randBytes(byte[] dest, int offset, int length) {
+    com.google.crypto.tink.internal.Random.randBytes(dest, offset, length);
+  }
+
   /** Returns a random int between 0 and max-1. */
   public static final int randInt(int max) {
     return com.google.crypto.tink.internal.Random.randInt(max);
@@ -0,0 +1,218 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decrypts the segments of a ciphertext stream on an {@link Executor}, while handing out the
+ * plaintext segments in order.
+ *
+ * <p>The caller reads the ciphertext into {@link #ciphertextBuffer} and calls {@link #submit} once
+ * the buffer is full or the ciphertext has ended. As in {@link StreamingAeadDecryptingChannel},
+ * each buffer holds a ciphertext segment plus the first byte of the next segment, so that a
+ * segment is only decrypted as the last segment if the ciphertext really ends after it. This keeps
+ * the detection of truncated ciphertexts.
+ *
+ * <p>At most {@code maxSegmentsInFlight} segments are submitted but not yet released by the
+ * caller, which bounds the memory used to roughly {@code maxSegmentsInFlight} ciphertext and
+ * plaintext segments.
+ *
+ * <p>This class is not thread safe: all methods must be called from one thread at a time. Only the
+ * decryption of the segments runs on the executor.
+ */
+final class SegmentDecryptionPipeline {
+  // The plaintext buffers are 16 bytes larger than a plaintext segment, for the same reason as in
+  // StreamingAeadDecryptingChannel.
+  private static final int PLAINTEXT_SEGMENT_EXTRA_SIZE = 16;
+
+  /** A segment together with the task that decrypts it. */
+  private static final class Segment {
+    final ByteBuffer ciphertext;
+    final ByteBuffer plaintext;
+    FutureTask<Void> decryption;
+
+    Segment(int ciphertextSegmentSize, int plaintextSegmentSize) {
+      ciphertext = ByteBuffer.allocate(ciphertextSegmentSize + 1);
+      plaintext = ByteBuffer.allocate(plaintextSegmentSize + PLAINTEXT_SEGMENT_EXTRA_SIZE);
+    }
+  }
+
+  private final ConcurrentStreamSegmentDecrypter decrypter;
+  private final Executor executor;
+  private final int maxSegmentsInFlight;
+  private final int ciphertextSegmentSize;
+  private final int plaintextSegmentSize;
+  // Segments submitted to the executor, in the order of their segment numbers.
+  private final ArrayDeque<Segment> inFlight = new ArrayDeque<>();
+  // Released segments whose buffers can be reused.
+  private final ArrayDeque<Segment> free = new ArrayDeque<>();
+  // The segment that currently receives ciphertext.
+  private Segment current;
+  private int nextSegmentNr = 0;
+  private boolean lastSegmentSubmitted = false;
+
+  /**
+   * Creates a pipeline for the segments following the header. {@code decrypter} must already be
+   * initialized with the header.
+   */
+  SegmentDecryptionPipeline(
+      NonceBasedStreamingAead streamAead,
+      ConcurrentStreamSegmentDecrypter decrypter,
+      Executor executor,
+      int maxSegmentsInFlight) {
+    if (maxSegmentsInFlight < 1) {
+      throw new IllegalArgumentException("maxSegmentsInFlight must be positive");
+    }
+    this.decrypter = decrypter;
+    this.executor = executor;
+    this.maxSegmentsInFlight = maxSegmentsInFlight;
+    this.ciphertextSegmentSize = streamAead.getCiphertextSegmentSize();
+    this.plaintextSegmentSize = streamAead.getPlaintextSegmentSize();
+    current = new Segment(ciphertextSegmentSize, plaintextSegmentSize);
+    // The first segment is shorter, since the header and the ciphertext offset precede it.
+    current.ciphertext.limit(ciphertextSegmentSize - streamAead.getCiphertextOffset() + 1);
+  }
+
+  /**
+   * Returns the buffer to read the next ciphertext into, or null if no segment can be submitted
+   * right now, because the last segment was submitted or {@code maxSegmentsInFlight} segments are
+   * in flight.
+   */
+  ByteBuffer ciphertextBuffer() {
+    if (lastSegmentSubmitted || inFlight.size() >= maxSegmentsInFlight) {
+      return null;
+    }
+    return current.ciphertext;
+  }
+
+  /**
+   * Submits the ciphertext in {@link #ciphertextBuffer} for decryption. The buffer must either be
+   * full, or {@code endOfCiphertext} must be true, in which case the segment is decrypted as the
+   * last segment.
+   */
+  void submit(boolean endOfCiphertext) throws IOException {
+    final Segment segment = current;
+    final int segmentNr = nextSegmentNr;
+    final boolean isLastSegment = endOfCiphertext;
+    byte lastByte = 0;
+    if (!isLastSegment) {
+      // The last byte belongs to the next segment.
+      lastByte = segment.ciphertext.get(segment.ciphertext.position() - 1);
+      segment.ciphertext.position(segment.ciphertext.position() - 1);
+    }
+    segment.ciphertext.flip();
+    segment.decryption =
+        new FutureTask<>(
+            new Callable<Void>() {
+              @Override
+              public Void call() throws GeneralSecurityException {
+                decrypter.decryptSegmentConcurrently(
+                    segment.ciphertext, segmentNr, isLastSegment, segment.plaintext);
+                segment.plaintext.flip();
+                return null;
+              }
+            });
+    try {
+      executor.execute(segment.decryption);
+    } catch (RejectedExecutionException ex) {
+      throw new IOException("Executor rejected the decryption of a segment", ex);
+    }
+    nextSegmentNr++;
+    inFlight.addLast(segment);
+    if (isLastSegment) {
+      lastSegmentSubmitted = true;
+      current = null;
+    } else {
+      current = newSegment();
+      current.ciphertext.limit(ciphertextSegmentSize + 1);
+      current.ciphertext.put(lastByte);
+    }
+  }
+
+  /** Returns true if the last segment of the ciphertext has been submitted. */
+  boolean isLastSegmentSubmitted() {
+    return lastSegmentSubmitted;
+  }
+
+  /** Returns true if there are segments which have not been released yet. */
+  boolean hasSegmentsInFlight() {
+    return !inFlight.isEmpty();
+  }
+
+  /**
+   * Waits for the oldest segment that has not been released yet and returns its plaintext, or
+   * returns null if there is no such segment.
+   *
+   * <p>The returned buffer stays valid until {@link #releaseOldest} is called; the caller may
+   * consume it in several steps.
+   *
+   * @throws IOException if the segment could not be decrypted
+   */
+  ByteBuffer oldestPlaintext() throws IOException {
+    Segment oldest = inFlight.peekFirst();
+    if (oldest == null) {
+      return null;
+    }
+    try {
+      oldest.decryption.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while decrypting a segment");
+    } catch (ExecutionException ex) {
+      throw new IOException(ex.getCause());
+    }
+    return oldest.plaintext;
+  }
+
+  /** Releases the oldest segment, whose plaintext must have been consumed by the caller. */
+  void releaseOldest() {
+    Segment oldest = inFlight.removeFirst();
+    oldest.ciphertext.clear();
+    oldest.plaintext.clear();
+    oldest.decryption = null;
+    free.addLast(oldest);
+  }
+
+  /** Cancels the decryption of all segments that have not started yet. */
+  void cancel() {
+    for (Segment segment : inFlight) {
+      segment.decryption.cancel(false);
+    }
+    inFlight.clear();
+    lastSegmentSubmitted = true;
+    current = null;
+  }
+
+  private Segment newSegment() {
+    Segment segment = free.pollFirst();
+    if (segment == null) {
+      segment = new Segment(ciphertextSegmentSize, plaintextSegmentSize);
+    }
+    return segment;
+  }
+}
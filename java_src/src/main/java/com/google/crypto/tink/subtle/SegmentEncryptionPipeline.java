@@ -0,0 +1,200 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Splits a plaintext stream into segments and encrypts them on an {@link Executor}, while handing
+ * out the ciphertext segments in order.
+ *
+ * <p>At most {@code maxSegmentsInFlight} segments are submitted to the executor but not yet
+ * released by the caller, which bounds the memory used to roughly {@code maxSegmentsInFlight}
+ * plaintext and ciphertext segments.
+ *
+ * <p>This class is not thread safe: all methods must be called from one thread at a time. Only the
+ * encryption of the segments runs on the executor.
+ */
+final class SegmentEncryptionPipeline {
+  /** A segment together with the task that encrypts it. */
+  private static final class Segment {
+    final ByteBuffer plaintext;
+    final ByteBuffer ciphertext;
+    FutureTask<Void> encryption;
+
+    Segment(int plaintextSegmentSize, int ciphertextSegmentSize) {
+      plaintext = ByteBuffer.allocate(plaintextSegmentSize);
+      ciphertext = ByteBuffer.allocate(ciphertextSegmentSize);
+    }
+  }
+
+  private final IndexedStreamSegmentEncrypter encrypter;
+  private final Executor executor;
+  private final int maxSegmentsInFlight;
+  private final int plaintextSegmentSize;
+  private final int ciphertextSegmentSize;
+  // Segments submitted to the executor, in the order of their segment numbers.
+  private final ArrayDeque<Segment> inFlight = new ArrayDeque<>();
+  // Released segments whose buffers can be reused.
+  private final ArrayDeque<Segment> free = new ArrayDeque<>();
+  // The segment that currently receives plaintext.
+  private Segment current;
+  private long nextSegmentNr = 0;
+  private boolean finished = false;
+
+  SegmentEncryptionPipeline(
+      NonceBasedStreamingAead streamAead,
+      IndexedStreamSegmentEncrypter encrypter,
+      Executor executor,
+      int maxSegmentsInFlight) {
+    if (maxSegmentsInFlight < 1) {
+      throw new IllegalArgumentException("maxSegmentsInFlight must be positive");
+    }
+    this.encrypter = encrypter;
+    this.executor = executor;
+    this.maxSegmentsInFlight = maxSegmentsInFlight;
+    this.plaintextSegmentSize = streamAead.getPlaintextSegmentSize();
+    this.ciphertextSegmentSize = streamAead.getCiphertextSegmentSize();
+    current = new Segment(plaintextSegmentSize, ciphertextSegmentSize);
+    // The first segment is shorter, since the header and the ciphertext offset precede it.
+    current.plaintext.limit(plaintextSegmentSize - streamAead.getCiphertextOffset());
+  }
+
+  /**
+   * Reads plaintext from {@code src}. Stops early if a segment must be submitted but {@code
+   * maxSegmentsInFlight} segments are already in flight; the caller then has to release the oldest
+   * segment first.
+   *
+   * <p>Like the sequential encrypting channels, a full segment is only encrypted once more
+   * plaintext follows it, since until then it could still be the last segment.
+   */
+  void put(ByteBuffer src) throws IOException {
+    if (finished) {
+      throw new IOException("Trying to write after the last segment");
+    }
+    while (src.remaining() > current.plaintext.remaining()) {
+      if (inFlight.size() >= maxSegmentsInFlight) {
+        return;
+      }
+      int sliceSize = current.plaintext.remaining();
+      ByteBuffer slice = src.slice();
+      slice.limit(sliceSize);
+      current.plaintext.put(slice);
+      src.position(src.position() + sliceSize);
+      submit(current, /* isLastSegment= */ false);
+      current = newSegment();
+    }
+    current.plaintext.put(src);
+  }
+
+  /** Submits the buffered plaintext as the last segment. */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    submit(current, /* isLastSegment= */ true);
+    current = null;
+    finished = true;
+  }
+
+  /** Returns true if there are segments which have not been released yet. */
+  boolean hasSegmentsInFlight() {
+    return !inFlight.isEmpty();
+  }
+
+  /**
+   * Returns the ciphertext of the oldest segment that has not been released yet, or null if there
+   * is no such segment. If {@code block} is false, also returns null if that segment is still being
+   * encrypted.
+   *
+   * <p>The returned buffer stays valid until {@link #releaseOldest} is called; the caller may
+   * consume it in several steps.
+   */
+  ByteBuffer oldestCiphertext(boolean block) throws IOException {
+    Segment oldest = inFlight.peekFirst();
+    if (oldest == null || (!block && !oldest.encryption.isDone())) {
+      return null;
+    }
+    try {
+      oldest.encryption.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while encrypting a segment");
+    } catch (ExecutionException ex) {
+      throw new IOException(ex.getCause());
+    }
+    return oldest.ciphertext;
+  }
+
+  /** Releases the oldest segment, whose ciphertext must have been consumed by the caller. */
+  void releaseOldest() {
+    Segment oldest = inFlight.removeFirst();
+    oldest.plaintext.clear();
+    oldest.ciphertext.clear();
+    oldest.encryption = null;
+    free.addLast(oldest);
+  }
+
+  /** Cancels the encryption of all segments that have not started yet. */
+  void cancel() {
+    for (Segment segment : inFlight) {
+      segment.encryption.cancel(false);
+    }
+    inFlight.clear();
+    finished = true;
+  }
+
+  private Segment newSegment() {
+    Segment segment = free.pollFirst();
+    if (segment == null) {
+      segment = new Segment(plaintextSegmentSize, ciphertextSegmentSize);
+    }
+    return segment;
+  }
+
+  private void submit(final Segment segment, final boolean isLastSegment) throws IOException {
+    final long segmentNr = nextSegmentNr;
+    segment.plaintext.flip();
+    segment.encryption =
+        new FutureTask<>(
+            new Callable<Void>() {
+              @Override
+              public Void call() throws Exception {
+                encrypter.encryptSegment(
+                    segmentNr, segment.plaintext, isLastSegment, segment.ciphertext);
+                segment.ciphertext.flip();
+                return null;
+              }
+            });
+    try {
+      executor.execute(segment.encryption);
+    } catch (RejectedExecutionException ex) {
+      throw new IOException("Executor rejected the encryption of a segment", ex);
+    }
+    nextSegmentNr++;
+    inFlight.addLast(segment);
+  }
+}
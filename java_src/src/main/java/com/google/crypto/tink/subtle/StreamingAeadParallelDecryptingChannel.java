@@ -0,0 +1,209 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * An instance of {@link ReadableByteChannel} that decrypts like {@link
+ * StreamingAeadDecryptingChannel}, but reads ahead and decrypts up to {@code maxSegmentsInFlight}
+ * segments in parallel on an {@link Executor}.
+ *
+ * <p>Plaintext is only returned after it has been authenticated, and a decryption error is only
+ * reported once all plaintext before the invalid segment has been read.
+ */
+class StreamingAeadParallelDecryptingChannel implements ReadableByteChannel {
+  private final ReadableByteChannel ciphertextChannel;
+  private final NonceBasedStreamingAead streamAead;
+  private final ConcurrentStreamSegmentDecrypter decrypter;
+  private final byte[] associatedData;
+  private final Executor executor;
+  private final int maxSegmentsInFlight;
+
+  /* A buffer containg the header information from the ciphertext. */
+  private final ByteBuffer header;
+
+  // Created once the header has been read.
+  private SegmentDecryptionPipeline pipeline;
+
+  // The plaintext of the oldest segment in the pipeline, or null if there is none.
+  private ByteBuffer plaintextSegment;
+
+  private boolean endOfCiphertext;
+  private boolean endOfPlaintext;
+
+  /**
+   * Indicates whether this channel is in a defined state. The state becomes undefined when an
+   * authentication error has occurred.
+   */
+  private boolean definedState = true;
+
+  public StreamingAeadParallelDecryptingChannel(
+      NonceBasedStreamingAead streamAead,
+      ReadableByteChannel ciphertextChannel,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    if (maxSegmentsInFlight < 1) {
+      throw new IllegalArgumentException("maxSegmentsInFlight must be positive");
+    }
+    this.ciphertextChannel = ciphertextChannel;
+    this.streamAead = streamAead;
+    decrypter = streamAead.newConcurrentStreamSegmentDecrypter();
+    this.associatedData = Arrays.copyOf(associatedData, associatedData.length);
+    this.executor = executor;
+    this.maxSegmentsInFlight = maxSegmentsInFlight;
+    header = ByteBuffer.allocate(streamAead.getHeaderLength());
+  }
+
+  /**
+   * Reads some ciphertext.
+   *
+   * @param buffer the destination for the ciphertext.
+   * @throws IOException when an exception reading the ciphertext stream occurs.
+   */
+  private void readSomeCiphertext(ByteBuffer buffer) throws IOException {
+    int read;
+    do {
+      read = ciphertextChannel.read(buffer);
+    } while (read > 0 && buffer.remaining() > 0);
+    if (read == -1) {
+      endOfCiphertext = true;
+    }
+  }
+
+  /**
+   * Tries to read the header of the ciphertext and to create the pipeline.
+   *
+   * @return true if the header has been fully read and false if not enough bytes were available
+   *     from the ciphertext stream.
+   */
+  private boolean tryReadHeader() throws IOException {
+    if (endOfCiphertext) {
+      throw new IOException("Ciphertext is too short");
+    }
+    readSomeCiphertext(header);
+    if (header.remaining() > 0) {
+      return false;
+    }
+    header.flip();
+    try {
+      decrypter.init(header, associatedData);
+    } catch (GeneralSecurityException ex) {
+      setUndefinedState();
+      throw new IOException(ex);
+    }
+    pipeline = new SegmentDecryptionPipeline(streamAead, decrypter, executor, maxSegmentsInFlight);
+    return true;
+  }
+
+  /**
+   * Reads as many ciphertext segments as are available and submits them, until the pipeline is
+   * full.
+   */
+  private void readAhead() throws IOException {
+    ByteBuffer ciphertextSegment;
+    while ((ciphertextSegment = pipeline.ciphertextBuffer()) != null) {
+      if (!endOfCiphertext) {
+        readSomeCiphertext(ciphertextSegment);
+      }
+      if (ciphertextSegment.remaining() > 0 && !endOfCiphertext) {
+        // Not enough ciphertext for the next segment yet.
+        return;
+      }
+      pipeline.submit(endOfCiphertext);
+    }
+  }
+
+  private void setUndefinedState() {
+    definedState = false;
+    plaintextSegment = null;
+    if (pipeline != null) {
+      pipeline.cancel();
+    }
+  }
+
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    if (!definedState) {
+      throw new IOException("This StreamingAeadParallelDecryptingChannel is in an undefined state");
+    }
+    if (pipeline == null && !tryReadHeader()) {
+      return 0;
+    }
+    if (endOfPlaintext) {
+      return -1;
+    }
+    int startPosition = dst.position();
+    try {
+      while (dst.remaining() > 0) {
+        if (plaintextSegment == null || plaintextSegment.remaining() == 0) {
+          if (plaintextSegment != null) {
+            pipeline.releaseOldest();
+            plaintextSegment = null;
+          }
+          readAhead();
+          if (!pipeline.hasSegmentsInFlight()) {
+            if (pipeline.isLastSegmentSubmitted()) {
+              endOfPlaintext = true;
+            }
+            break;
+          }
+          plaintextSegment = pipeline.oldestPlaintext();
+        }
+        if (plaintextSegment.remaining() <= dst.remaining()) {
+          dst.put(plaintextSegment);
+        } else {
+          int sliceSize = dst.remaining();
+          ByteBuffer slice = plaintextSegment.duplicate();
+          slice.limit(slice.position() + sliceSize);
+          dst.put(slice);
+          plaintextSegment.position(plaintextSegment.position() + sliceSize);
+        }
+      }
+    } catch (IOException ex) {
+      setUndefinedState();
+      throw ex;
+    }
+    int bytesRead = dst.position() - startPosition;
+    if (bytesRead == 0 && endOfPlaintext) {
+      return -1;
+    } else {
+      return bytesRead;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (pipeline != null) {
+      pipeline.cancel();
+    }
+    ciphertextChannel.close();
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return ciphertextChannel.isOpen();
+  }
+}
@@ -0,0 +1,245 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import static java.lang.Math.min;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * An instance of {@link FilterInputStream} that decrypts like {@link
+ * StreamingAeadDecryptingStream}, but reads ahead and decrypts up to {@code maxSegmentsInFlight}
+ * segments in parallel on an {@link Executor}.
+ *
+ * <p>Plaintext is only returned after it has been authenticated, and a decryption error is only
+ * reported once all plaintext before the invalid segment has been read.
+ */
+class StreamingAeadParallelDecryptingStream extends FilterInputStream {
+  private final NonceBasedStreamingAead streamAead;
+  private final ConcurrentStreamSegmentDecrypter decrypter;
+  private final byte[] aad;
+  private final Executor executor;
+  private final int maxSegmentsInFlight;
+  private final int ciphertextSegmentSize;
+
+  // Created once the header has been read.
+  private SegmentDecryptionPipeline pipeline;
+
+  // The plaintext of the oldest segment in the pipeline, or null if there is none.
+  private ByteBuffer plaintextSegment;
+
+  private boolean endOfCiphertext;
+  private boolean endOfPlaintext;
+  private boolean decryptionErrorOccured;
+
+  public StreamingAeadParallelDecryptingStream(
+      NonceBasedStreamingAead streamAead,
+      InputStream ciphertextStream,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    super(ciphertextStream);
+    if (maxSegmentsInFlight < 1) {
+      throw new IllegalArgumentException("maxSegmentsInFlight must be positive");
+    }
+    this.streamAead = streamAead;
+    decrypter = streamAead.newConcurrentStreamSegmentDecrypter();
+    aad = Arrays.copyOf(associatedData, associatedData.length);
+    this.executor = executor;
+    this.maxSegmentsInFlight = maxSegmentsInFlight;
+    ciphertextSegmentSize = streamAead.getCiphertextSegmentSize();
+  }
+
+  /**
+   * Reads the header of the ciphertext and creates the pipeline.
+   *
+   * @throws IOException when an exception occurs while reading from {@code in} or when the header
+   *     is too short.
+   */
+  private void readHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(streamAead.getHeaderLength());
+    readFully(header);
+    if (header.remaining() > 0) {
+      decryptionErrorOccured = true;
+      throw new IOException("Ciphertext is too short");
+    }
+    header.flip();
+    try {
+      decrypter.init(header, aad);
+    } catch (GeneralSecurityException ex) {
+      decryptionErrorOccured = true;
+      throw new IOException(ex);
+    }
+    pipeline = new SegmentDecryptionPipeline(streamAead, decrypter, executor, maxSegmentsInFlight);
+  }
+
+  /** Reads from {@code in} until {@code buffer} is full or the ciphertext ends. */
+  private void readFully(ByteBuffer buffer) throws IOException {
+    while (!endOfCiphertext && buffer.remaining() > 0) {
+      int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+      if (read > 0) {
+        buffer.position(buffer.position() + read);
+      } else if (read == -1) {
+        endOfCiphertext = true;
+      } else {
+        // We expect that read returns at least one byte.
+        throw new IOException("Could not read bytes from the ciphertext stream");
+      }
+    }
+  }
+
+  /** Reads ciphertext segments and submits them, until the pipeline is full. */
+  private void readAhead() throws IOException {
+    ByteBuffer ciphertextSegment;
+    while ((ciphertextSegment = pipeline.ciphertextBuffer()) != null) {
+      readFully(ciphertextSegment);
+      pipeline.submit(endOfCiphertext);
+    }
+  }
+
+  /**
+   * Makes the plaintext of the next segment available in {@code plaintextSegment}.
+   *
+   * @return false if there are no more segments.
+   */
+  private boolean nextSegment() throws IOException {
+    if (plaintextSegment != null) {
+      pipeline.releaseOldest();
+      plaintextSegment = null;
+    }
+    readAhead();
+    if (!pipeline.hasSegmentsInFlight()) {
+      return false;
+    }
+    plaintextSegment = pipeline.oldestPlaintext();
+    return true;
+  }
+
+  private void setDecryptionErrorOccured() {
+    decryptionErrorOccured = true;
+    plaintextSegment = null;
+    if (pipeline != null) {
+      pipeline.cancel();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] oneByte = new byte[1];
+    int ret = read(oneByte, 0, 1);
+    if (ret == 1) {
+      return oneByte[0] & 0xff;
+    } else if (ret == -1) {
+      return ret;
+    } else {
+      throw new IOException("Reading failed");
+    }
+  }
+
+  @Override
+  public int read(byte[] dst) throws IOException {
+    return read(dst, 0, dst.length);
+  }
+
+  @Override
+  public synchronized int read(byte[] dst, int offset, int length) throws IOException {
+    if (decryptionErrorOccured) {
+      throw new IOException("Decryption failed.");
+    }
+    if (pipeline == null) {
+      readHeader();
+    }
+    if (endOfPlaintext) {
+      return -1;
+    }
+    int bytesRead = 0;
+    try {
+      while (bytesRead < length) {
+        if (plaintextSegment == null || plaintextSegment.remaining() == 0) {
+          if (!nextSegment()) {
+            endOfPlaintext = true;
+            break;
+          }
+        }
+        int sliceSize = min(plaintextSegment.remaining(), length - bytesRead);
+        plaintextSegment.get(dst, bytesRead + offset, sliceSize);
+        bytesRead += sliceSize;
+      }
+    } catch (IOException ex) {
+      setDecryptionErrorOccured();
+      throw ex;
+    }
+    if (bytesRead == 0 && endOfPlaintext) {
+      return -1;
+    } else {
+      return bytesRead;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (pipeline != null) {
+      pipeline.cancel();
+    }
+    super.close();
+  }
+
+  @Override
+  public synchronized int available() {
+    return plaintextSegment == null ? 0 : plaintextSegment.remaining();
+  }
+
+  @Override
+  public synchronized void mark(int readlimit) {
+    // Mark is not supported.
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Skips over and discards <code>n</code> bytes of plaintext from the input stream. As in {@link
+   * StreamingAeadDecryptingStream}, the skipped plaintext is decrypted and authenticated.
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    long remaining = n;
+    if (n <= 0) {
+      return 0;
+    }
+    int size = (int) min(ciphertextSegmentSize, remaining);
+    byte[] skipBuffer = new byte[size];
+    while (remaining > 0) {
+      int bytesRead = read(skipBuffer, 0, (int) min(size, remaining));
+      if (bytesRead <= 0) {
+        break;
+      }
+      remaining -= bytesRead;
+    }
+    return n - remaining;
+  }
+}
@@ -0,0 +1,143 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
+
+/**
+ * An instance of {@link WritableByteChannel} that encrypts the input using a nonce based online
+ * authentication scheme, encrypting up to {@code maxSegmentsInFlight} segments in parallel on an
+ * {@link Executor}.
+ *
+ * <p>The ciphertext is identical in format to the one written by {@link
+ * StreamingAeadEncryptingChannel}.
+ */
+class StreamingAeadParallelEncryptingChannel implements WritableByteChannel {
+  private final WritableByteChannel ciphertextChannel;
+  private final SegmentEncryptionPipeline pipeline;
+  private final ByteBuffer header; // contains the part of the header not yet written.
+  boolean open = true;
+
+  public StreamingAeadParallelEncryptingChannel(
+      NonceBasedStreamingAead streamAead,
+      WritableByteChannel ciphertextChannel,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    this.ciphertextChannel = ciphertextChannel;
+    IndexedStreamSegmentEncrypter encrypter =
+        streamAead.newIndexedStreamSegmentEncrypter(associatedData);
+    pipeline = new SegmentEncryptionPipeline(streamAead, encrypter, executor, maxSegmentsInFlight);
+    header = encrypter.getHeader();
+    ciphertextChannel.write(header);
+  }
+
+  /**
+   * Writes the header and the ciphertext of all segments that are already encrypted, in order. If
+   * {@code block} is true, first waits for the oldest segment to be encrypted.
+   *
+   * @return false if ciphertextChannel did not accept all of the ciphertext.
+   */
+  private boolean writeCiphertext(boolean block) throws IOException {
+    if (header.hasRemaining()) {
+      ciphertextChannel.write(header);
+      if (header.hasRemaining()) {
+        return false;
+      }
+    }
+    ByteBuffer ciphertext;
+    while ((ciphertext = pipeline.oldestCiphertext(block)) != null) {
+      ciphertextChannel.write(ciphertext);
+      if (ciphertext.hasRemaining()) {
+        return false;
+      }
+      pipeline.releaseOldest();
+      block = false;
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized int write(ByteBuffer pt) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    int startPosition = pt.position();
+    try {
+      if (!writeCiphertext(false)) {
+        return pt.position() - startPosition;
+      }
+      while (true) {
+        pipeline.put(pt);
+        if (!pt.hasRemaining()) {
+          break;
+        }
+        // All segments are in flight. Wait for the oldest one to make room.
+        if (!writeCiphertext(true)) {
+          break;
+        }
+      }
+    } catch (IOException ex) {
+      pipeline.cancel();
+      throw ex;
+    }
+    return pt.position() - startPosition;
+  }
+
+  private void writeFully(ByteBuffer ciphertext) throws IOException {
+    // The strategy from java.nio.channels.Channels.writeFullyImpl, as in
+    // StreamingAeadEncryptingChannel.
+    while (ciphertext.remaining() > 0) {
+      int n = ciphertextChannel.write(ciphertext);
+      if (n <= 0) {
+        throw new IOException("Failed to write ciphertext before closing");
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!open) {
+      return;
+    }
+    try {
+      writeFully(header);
+      pipeline.finish();
+      while (pipeline.hasSegmentsInFlight()) {
+        writeFully(pipeline.oldestCiphertext(true));
+        pipeline.releaseOldest();
+      }
+    } catch (IOException ex) {
+      pipeline.cancel();
+      throw ex;
+    }
+    ciphertextChannel.close();
+    open = false;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+}
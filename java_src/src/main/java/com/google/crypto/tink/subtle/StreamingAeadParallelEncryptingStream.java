@@ -0,0 +1,119 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.subtle;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
+
+/**
+ * An instance of {@link FilterOutputStream} that encrypts the input using a nonce based online
+ * authentication scheme, encrypting up to {@code maxSegmentsInFlight} segments in parallel on an
+ * {@link Executor}.
+ *
+ * <p>The ciphertext is identical in format to the one written by {@link
+ * StreamingAeadEncryptingStream}.
+ */
+class StreamingAeadParallelEncryptingStream extends FilterOutputStream {
+  private final SegmentEncryptionPipeline pipeline;
+  boolean open;
+
+  public StreamingAeadParallelEncryptingStream(
+      NonceBasedStreamingAead streamAead,
+      OutputStream ciphertextStream,
+      byte[] associatedData,
+      Executor executor,
+      int maxSegmentsInFlight)
+      throws GeneralSecurityException, IOException {
+    super(ciphertextStream);
+    IndexedStreamSegmentEncrypter encrypter =
+        streamAead.newIndexedStreamSegmentEncrypter(associatedData);
+    pipeline = new SegmentEncryptionPipeline(streamAead, encrypter, executor, maxSegmentsInFlight);
+    ByteBuffer header = encrypter.getHeader();
+    byte[] headerBytes = new byte[header.remaining()];
+    header.get(headerBytes);
+    out.write(headerBytes);
+    open = true;
+  }
+
+  /**
+   * Writes the ciphertext of all segments that are already encrypted, in order. If {@code block} is
+   * true, first waits for the oldest segment to be encrypted.
+   */
+  private void writeCiphertext(boolean block) throws IOException {
+    ByteBuffer ciphertext;
+    while ((ciphertext = pipeline.oldestCiphertext(block)) != null) {
+      out.write(ciphertext.array(), ciphertext.position(), ciphertext.remaining());
+      pipeline.releaseOldest();
+      block = false;
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b});
+  }
+
+  @Override
+  public void write(byte[] b) throws IOException {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public synchronized void write(byte[] pt, int offset, int length) throws IOException {
+    if (!open) {
+      throw new IOException("Trying to write to closed stream");
+    }
+    ByteBuffer src = ByteBuffer.wrap(pt, offset, length);
+    try {
+      writeCiphertext(false);
+      while (true) {
+        pipeline.put(src);
+        if (!src.hasRemaining()) {
+          break;
+        }
+        // All segments are in flight. Wait for the oldest one to make room.
+        writeCiphertext(true);
+      }
+    } catch (IOException ex) {
+      pipeline.cancel();
+      throw ex;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!open) {
+      return;
+    }
+    try {
+      pipeline.finish();
+      while (pipeline.hasSegmentsInFlight()) {
+        writeCiphertext(true);
+      }
+    } catch (IOException ex) {
+      pipeline.cancel();
+      throw ex;
+    }
+    open = false;
+    super.close();
+  }
+}
@@ -20,16 +20,24 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * An instance of {@link SeekableByteChannel} that allows random access to the plaintext of some
  * ciphertext.
+ *
+ * <p>Reads with {@link #read(ByteBuffer, long)} do not use the position of this channel and can be
+ * done by several threads at the same time. They keep the most recently used decrypted segment,
+ * or the {@code maxCachedSegments} most recently used ones if this is larger, so that reads near
+ * each other do not decrypt the same segment again.
  */
-class StreamingAeadSeekableDecryptingChannel implements SeekableByteChannel {
+class StreamingAeadSeekableDecryptingChannel implements PositionalSeekableByteChannel {
   // Each plaintext segment has 16 bytes more of memory than the actual plaintext that it contains.
   // This is a workaround for an incompatibility between Conscrypt and OpenJDK in their
   // AES-GCM implementations, see b/67416642, b/31574439, and cr/170969008 for more information.
@@ -47,23 +55,50 @@ class StreamingAeadSeekableDecryptingChannel implements SeekableByteChannel {
   private final int numberOfSegments;  // unverified number of segments
   private final int lastCiphertextSegmentSize;  // unverified size of the last segment.
   private final byte[] aad;
-  private final StreamSegmentDecrypter decrypter;
+  private final ConcurrentStreamSegmentDecrypter decrypter;
   private long plaintextPosition;
   private long plaintextSize;
-  private boolean headerRead;
+  private volatile boolean headerRead;
   private boolean isCurrentSegmentDecrypted;
   private int currentSegmentNr;
-  private boolean isopen;
+  private volatile boolean isopen;
   private final int plaintextSegmentSize;
   private final int ciphertextSegmentSize;
   private final int ciphertextOffset;
   private final int firstSegmentOffset;
+  // Decrypted segments of the positional reads by segment number, in access order. Holds at least
+  // one segment. The buffers in this map are never modified; readers use duplicates of them.
+  private final Map<Integer, ByteBuffer> segmentCache;
+  // Whether read(ByteBuffer) uses the positional reads and their cache. If not, it decrypts into
+  // plaintextSegment.
+  private final boolean sequentialReadsUseCache;
 
   public StreamingAeadSeekableDecryptingChannel(
       NonceBasedStreamingAead streamAead,
       SeekableByteChannel ciphertext,
       byte[] associatedData) throws IOException, GeneralSecurityException {
-    decrypter = streamAead.newStreamSegmentDecrypter();
+    this(streamAead, ciphertext, associatedData, 0);
+  }
+
+  public StreamingAeadSeekableDecryptingChannel(
+      NonceBasedStreamingAead streamAead,
+      SeekableByteChannel ciphertext,
+      byte[] associatedData,
+      final int maxCachedSegments)
+      throws IOException, GeneralSecurityException {
+    if (maxCachedSegments < 0) {
+      throw new IllegalArgumentException("maxCachedSegments must not be negative");
+    }
+    final int cacheSize = Math.max(1, maxCachedSegments);
+    segmentCache =
+        new LinkedHashMap<Integer, ByteBuffer>(16, 0.75f, /* accessOrder= */ true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+            return size() > cacheSize;
+          }
+        };
+    sequentialReadsUseCache = maxCachedSegments > 0;
+    decrypter = streamAead.newConcurrentStreamSegmentDecrypter();
     ciphertextChannel = ciphertext;
     header = ByteBuffer.allocate(streamAead.getHeaderLength());
     ciphertextSegmentSize = streamAead.getCiphertextSegmentSize();
@@ -256,20 +291,144 @@ class StreamingAeadSeekableDecryptingChannel implements SeekableByteChannel {
             && plaintextSegment.remaining() == 0);
   }
 
+  private synchronized boolean tryReadHeaderOnce() throws IOException {
+    if (!isopen) {
+      throw new ClosedChannelException();
+    }
+    return headerRead || tryReadHeader();
+  }
+
+  /**
+   * Reads the ciphertext of a segment, without using the state of the sequential reads.
+   *
+   * @return the ciphertext segment, or null if it could not be fully read.
+   */
+  private ByteBuffer readCiphertextSegment(int segmentNr) throws IOException {
+    long ciphertextPosition = (long) segmentNr * ciphertextSegmentSize;
+    int segmentSize = ciphertextSegmentSize;
+    if (segmentNr == numberOfSegments - 1) {
+      segmentSize = lastCiphertextSegmentSize;
+    }
+    if (segmentNr == 0) {
+      segmentSize -= ciphertextOffset;
+      ciphertextPosition = ciphertextOffset;
+    }
+    ByteBuffer segment = ByteBuffer.allocate(segmentSize);
+    if (ciphertextChannel instanceof FileChannel) {
+      // FileChannel supports concurrent positional reads.
+      FileChannel fileChannel = (FileChannel) ciphertextChannel;
+      while (segment.remaining() > 0) {
+        if (fileChannel.read(segment, ciphertextPosition + segment.position()) <= 0) {
+          break;
+        }
+      }
+    } else {
+      synchronized (this) {
+        // The sequential reads may continue reading a partially read segment, so the position of
+        // the ciphertext channel has to be restored.
+        long oldPosition = ciphertextChannel.position();
+        try {
+          ciphertextChannel.position(ciphertextPosition);
+          while (segment.remaining() > 0) {
+            if (ciphertextChannel.read(segment) <= 0) {
+              break;
+            }
+          }
+        } finally {
+          ciphertextChannel.position(oldPosition);
+        }
+      }
+    }
+    if (segment.remaining() > 0) {
+      return null;
+    }
+    segment.flip();
+    return segment;
+  }
+
   /**
-   * Atomic read from a given position.
+   * Returns the plaintext of a segment, either from the cache or by reading and decrypting it.
    *
-   * This method works in the same way as read(ByteBuffer), except that it starts at the given
-   * position and does not modify the channel's position.
+   * @return a buffer that the caller may modify, or null if the ciphertext could not be fully read.
    */
-  public synchronized int read(ByteBuffer dst, long start) throws IOException {
-    long oldPosition = position();
+  private ByteBuffer getPlaintextSegment(int segmentNr) throws IOException {
+    if (segmentNr < 0 || segmentNr >= numberOfSegments) {
+      throw new IOException("Invalid position");
+    }
+    synchronized (segmentCache) {
+      ByteBuffer cached = segmentCache.get(segmentNr);
+      if (cached != null) {
+        return cached.duplicate();
+      }
+    }
+    ByteBuffer ciphertext = readCiphertextSegment(segmentNr);
+    if (ciphertext == null) {
+      return null;
+    }
+    boolean isLast = segmentNr == numberOfSegments - 1;
+    ByteBuffer plaintext = ByteBuffer.allocate(plaintextSegmentSize + PLAINTEXT_SEGMENT_EXTRA_SIZE);
     try {
-      position(start);
-      return read(dst);
-    } finally {
-      position(oldPosition);
+      decrypter.decryptSegmentConcurrently(ciphertext, segmentNr, isLast, plaintext);
+    } catch (GeneralSecurityException ex) {
+      throw new IOException("Failed to decrypt", ex);
+    }
+    plaintext.flip();
+    synchronized (segmentCache) {
+      segmentCache.put(segmentNr, plaintext);
+    }
+    return plaintext.duplicate();
+  }
+
+  /**
+   * Reads from a given position.
+   *
+   * <p>This method works in the same way as read(ByteBuffer), except that it starts at the given
+   * position and does not use or modify the channel's position. It can be called by several
+   * threads at the same time: the segments are decrypted concurrently, and only reading the
+   * ciphertext from a channel that is not a {@link FileChannel} is serialized. Returns -1 only if
+   * {@code start} is at or after the end of the plaintext and this has been verified by decrypting
+   * the last segment.
+   */
+  @Override
+  public int read(ByteBuffer dst, long start) throws IOException {
+    if (!isopen) {
+      throw new ClosedChannelException();
+    }
+    if (!headerRead) {
+      if (!tryReadHeaderOnce()) {
+        return 0;
+      }
     }
+    if (start < 0) {
+      throw new IOException("Invalid position");
+    }
+    long position = start;
+    int startPos = dst.position();
+    while (dst.remaining() > 0 && position < plaintextSize) {
+      int segmentNr = getSegmentNr(position);
+      int segmentOffset;
+      if (segmentNr == 0) {
+        segmentOffset = (int) position;
+      } else {
+        segmentOffset = (int) ((position + ciphertextOffset) % plaintextSegmentSize);
+      }
+      ByteBuffer segment = getPlaintextSegment(segmentNr);
+      if (segment == null) {
+        break;
+      }
+      segment.position(segmentOffset);
+      int sliceSize = Math.min(segment.remaining(), dst.remaining());
+      segment.limit(segmentOffset + sliceSize);
+      dst.put(segment);
+      position += sliceSize;
+    }
+    int read = dst.position() - startPos;
+    if (read == 0 && dst.remaining() > 0 && position >= plaintextSize) {
+      if (getPlaintextSegment(numberOfSegments - 1) != null) {
+        return -1;
+      }
+    }
+    return read;
   }
 
   @Override
@@ -277,6 +436,13 @@ class StreamingAeadSeekableDecryptingChannel implements SeekableByteChannel {
     if (!isopen) {
       throw new ClosedChannelException();
     }
+    if (sequentialReadsUseCache) {
+      int read = read(dst, plaintextPosition);
+      if (read > 0) {
+        plaintextPosition += read;
+      }
+      return read;
+    }
     if (!headerRead) {
       if (!tryReadHeader()) {
         return 0;
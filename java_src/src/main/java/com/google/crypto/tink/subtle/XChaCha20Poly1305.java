@@ -23,22 +23,33 @@ import com.google.crypto.tink.Aead;
 import com.google.crypto.tink.InsecureSecretKeyAccess;
 import com.google.crypto.tink.aead.XChaCha20Poly1305Key;
 import com.google.crypto.tink.aead.internal.InsecureNonceXChaCha20Poly1305;
+import com.google.crypto.tink.aead.internal.InsecureNonceXChaCha20Poly1305Jce;
 import com.google.crypto.tink.aead.internal.Poly1305;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
-import java.util.Arrays;
+import javax.annotation.Nullable;
+import javax.crypto.ShortBufferException;
 
 /**
  * XChaCha20Poly1305 AEAD construction, as described in
  * https://tools.ietf.org/html/draft-arciszewski-xchacha-01.
  */
 public final class XChaCha20Poly1305 implements Aead {
-  private final InsecureNonceXChaCha20Poly1305 cipher;
+  // Exactly one of jceCipher and cipher is non-null. The JCE implementation is used whenever the
+  // JDK provides it, since it is much faster than the pure Java implementation.
+  @Nullable private final InsecureNonceXChaCha20Poly1305Jce jceCipher;
+  @Nullable private final InsecureNonceXChaCha20Poly1305 cipher;
   private final byte[] outputPrefix;
 
   private XChaCha20Poly1305(final byte[] key, final byte[] outputPrefix)
       throws GeneralSecurityException {
-    cipher = new InsecureNonceXChaCha20Poly1305(key);
+    if (InsecureNonceXChaCha20Poly1305Jce.isSupported()) {
+      jceCipher = InsecureNonceXChaCha20Poly1305Jce.create(key);
+      cipher = null;
+    } else {
+      jceCipher = null;
+      cipher = new InsecureNonceXChaCha20Poly1305(key);
+    }
     this.outputPrefix = outputPrefix;
   }
 
@@ -53,52 +64,109 @@ public final class XChaCha20Poly1305 implements Aead {
         key.getOutputPrefix().toByteArray());
   }
 
-  private byte[] rawEncrypt(final byte[] plaintext, final byte[] associatedData)
+  @Override
+  public byte[] encrypt(final byte[] plaintext, final byte[] associatedData)
       throws GeneralSecurityException {
+    if (plaintext.length
+        > Integer.MAX_VALUE
+            - outputPrefix.length
+            - XChaCha20.NONCE_LENGTH_IN_BYTES
+            - Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
     ByteBuffer output =
         ByteBuffer.allocate(
-            XChaCha20.NONCE_LENGTH_IN_BYTES + plaintext.length + Poly1305.MAC_TAG_SIZE_IN_BYTES);
-    byte[] nonce = Random.randBytes(XChaCha20.NONCE_LENGTH_IN_BYTES);
-    output.put(nonce); // Prepend nonce to ciphertext output.
-    cipher.encrypt(output, nonce, plaintext, associatedData);
+            outputPrefix.length
+                + XChaCha20.NONCE_LENGTH_IN_BYTES
+                + plaintext.length
+                + Poly1305.MAC_TAG_SIZE_IN_BYTES);
+    encrypt(
+        ByteBuffer.wrap(plaintext),
+        associatedData == null ? null : ByteBuffer.wrap(associatedData),
+        output);
     return output.array();
   }
 
+  /** Encrypts directly into {@code ciphertext}, without intermediate copies. */
   @Override
-  public byte[] encrypt(final byte[] plaintext, final byte[] associatedData)
+  public void encrypt(ByteBuffer plaintext, ByteBuffer associatedData, ByteBuffer ciphertext)
       throws GeneralSecurityException {
-    byte[] ciphertext = rawEncrypt(plaintext, associatedData);
-    if (outputPrefix.length == 0) {
-      return ciphertext;
+    if (plaintext.remaining()
+        > Integer.MAX_VALUE
+            - outputPrefix.length
+            - XChaCha20.NONCE_LENGTH_IN_BYTES
+            - Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("plaintext too long");
+    }
+    if (ciphertext.remaining()
+        < outputPrefix.length
+            + XChaCha20.NONCE_LENGTH_IN_BYTES
+            + plaintext.remaining()
+            + Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+      throw new ShortBufferException("ciphertext buffer too small");
+    }
+    byte[] nonce = Random.randBytes(XChaCha20.NONCE_LENGTH_IN_BYTES);
+    ByteBuffer output = ciphertext.duplicate();
+    output.put(outputPrefix);
+    output.put(nonce); // Prepend nonce to ciphertext output.
+    if (jceCipher != null) {
+      jceCipher.encrypt(output, nonce, plaintext, associatedData);
+    } else {
+      cipher.encrypt(output, nonce, plaintext, associatedData);
     }
-    return Bytes.concat(outputPrefix, ciphertext);
+    ciphertext.position(output.position());
   }
 
-  private byte[] rawDecrypt(final byte[] ciphertext, final byte[] associatedData)
+  @Override
+  public byte[] decrypt(final byte[] ciphertext, final byte[] associatedData)
       throws GeneralSecurityException {
-    if (ciphertext.length < XChaCha20.NONCE_LENGTH_IN_BYTES + Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+    if (!isPrefix(outputPrefix, ciphertext)) {
+      throw new GeneralSecurityException("Decryption failed (OutputPrefix mismatch).");
+    }
+    if (ciphertext.length
+        < outputPrefix.length + XChaCha20.NONCE_LENGTH_IN_BYTES + Poly1305.MAC_TAG_SIZE_IN_BYTES) {
       throw new GeneralSecurityException("ciphertext too short");
     }
-    byte[] nonce = Arrays.copyOf(ciphertext, XChaCha20.NONCE_LENGTH_IN_BYTES);
-    ByteBuffer rawCiphertext =
-        ByteBuffer.wrap(
-            ciphertext,
-            XChaCha20.NONCE_LENGTH_IN_BYTES,
-            ciphertext.length - XChaCha20.NONCE_LENGTH_IN_BYTES);
-    return cipher.decrypt(rawCiphertext, nonce, associatedData);
+    ByteBuffer plaintext =
+        ByteBuffer.allocate(
+            ciphertext.length
+                - outputPrefix.length
+                - XChaCha20.NONCE_LENGTH_IN_BYTES
+                - Poly1305.MAC_TAG_SIZE_IN_BYTES);
+    decrypt(
+        ByteBuffer.wrap(ciphertext),
+        associatedData == null ? null : ByteBuffer.wrap(associatedData),
+        plaintext);
+    return plaintext.array();
   }
 
+  /** Decrypts directly into {@code plaintext}, without intermediate copies. */
   @Override
-  public byte[] decrypt(final byte[] ciphertext, final byte[] associatedData)
+  public void decrypt(ByteBuffer ciphertext, ByteBuffer associatedData, ByteBuffer plaintext)
       throws GeneralSecurityException {
-    if (outputPrefix.length == 0) {
-      return rawDecrypt(ciphertext, associatedData);
-    }
     if (!isPrefix(outputPrefix, ciphertext)) {
       throw new GeneralSecurityException("Decryption failed (OutputPrefix mismatch).");
     }
-    byte[] copiedCiphertext =
-        Arrays.copyOfRange(ciphertext, outputPrefix.length, ciphertext.length);
-    return rawDecrypt(copiedCiphertext, associatedData);
+    if (ciphertext.remaining()
+        < outputPrefix.length + XChaCha20.NONCE_LENGTH_IN_BYTES + Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+      throw new GeneralSecurityException("ciphertext too short");
+    }
+    if (plaintext.remaining()
+        < ciphertext.remaining()
+            - outputPrefix.length
+            - XChaCha20.NONCE_LENGTH_IN_BYTES
+            - Poly1305.MAC_TAG_SIZE_IN_BYTES) {
+      throw new ShortBufferException("plaintext buffer too small");
+    }
+    ByteBuffer input = ciphertext.duplicate();
+    input.position(input.position() + outputPrefix.length);
+    byte[] nonce = new byte[XChaCha20.NONCE_LENGTH_IN_BYTES];
+    input.get(nonce);
+    if (jceCipher != null) {
+      jceCipher.decrypt(input, nonce, associatedData, plaintext);
+    } else {
+      cipher.decrypt(input, nonce, associatedData, plaintext);
+    }
+    ciphertext.position(ciphertext.limit());
   }
 }
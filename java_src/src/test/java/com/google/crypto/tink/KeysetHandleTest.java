@@ -51,6 +51,7 @@ import com.google.crypto.tink.mac.MacConfig;
 import com.google.crypto.tink.monitoring.MonitoringAnnotations;
 import com.google.crypto.tink.monitoring.MonitoringClient;
 import com.google.crypto.tink.prf.PrfConfig;
+import com.google.crypto.tink.prf.PrfSet;
 import com.google.crypto.tink.proto.AesEaxKey;
 import com.google.crypto.tink.proto.EcdsaPrivateKey;
 import com.google.crypto.tink.proto.HashType;
@@ -84,6 +85,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.junit.BeforeClass;
@@ -1668,6 +1670,176 @@ public class KeysetHandleTest {
     assertThat(keysetHandle.getPrimitive(configuration, TestPrimitiveB.class)).isNotNull();
   }
 
+  private static final AtomicInteger primitiveAConstructionCount = new AtomicInteger(0);
+
+  private static TestPrimitiveA countingGetPrimitiveAHmacKey(HmacKey key) {
+    primitiveAConstructionCount.incrementAndGet();
+    return new TestPrimitiveA();
+  }
+
+  /** The result of {@link PrimitiveSetWrapper}, giving the tests access to the primitive set. */
+  private static final class PrimitiveSetHolder {
+    final PrimitiveSet<TestPrimitiveA> primitives;
+
+    PrimitiveSetHolder(PrimitiveSet<TestPrimitiveA> primitives) {
+      this.primitives = primitives;
+    }
+  }
+
+  private static final class PrimitiveSetWrapper
+      implements PrimitiveWrapper<TestPrimitiveA, PrimitiveSetHolder> {
+
+    @Override
+    public PrimitiveSetHolder wrap(final PrimitiveSet<TestPrimitiveA> primitives) {
+      return new PrimitiveSetHolder(primitives);
+    }
+
+    @Override
+    public Class<PrimitiveSetHolder> getPrimitiveClass() {
+      return PrimitiveSetHolder.class;
+    }
+
+    @Override
+    public Class<TestPrimitiveA> getInputPrimitiveClass() {
+      return TestPrimitiveA.class;
+    }
+  }
+
+  private static InternalConfiguration countingConfiguration() throws GeneralSecurityException {
+    return InternalConfiguration.createFromPrimitiveRegistry(
+        PrimitiveRegistry.builder()
+            .registerPrimitiveConstructor(
+                PrimitiveConstructor.create(
+                    KeysetHandleTest::countingGetPrimitiveAHmacKey,
+                    HmacKey.class,
+                    TestPrimitiveA.class))
+            .registerPrimitiveWrapper(new PrimitiveSetWrapper())
+            .build());
+  }
+
+  private static KeysetHandle keysetWithThreeHmacKeys() throws GeneralSecurityException {
+    KeysetHandle.Builder builder = KeysetHandle.newBuilder();
+    for (int i = 0; i < 3; i++) {
+      KeysetHandle.Builder.Entry entry =
+          KeysetHandle.importKey(
+                  HmacKey.builder()
+                      .setParameters(rawKey.getParameters())
+                      .setKeyBytes(SecretBytes.randomBytes(HMAC_KEY_SIZE))
+                      .build())
+              .withRandomId();
+      if (i == 0) {
+        entry.makePrimary();
+      }
+      builder.addEntry(entry);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void getPrimitive_createsAllPrimitives() throws Exception {
+    KeysetHandle keysetHandle = keysetWithThreeHmacKeys();
+    primitiveAConstructionCount.set(0);
+
+    keysetHandle.getPrimitive(countingConfiguration(), PrimitiveSetHolder.class);
+
+    assertThat(primitiveAConstructionCount.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void getPrimitiveWithLazyKeys_createsNonPrimaryPrimitivesOnFirstUse() throws Exception {
+    KeysetHandle keysetHandle = keysetWithThreeHmacKeys();
+    primitiveAConstructionCount.set(0);
+
+    PrimitiveSet<TestPrimitiveA> primitives =
+        keysetHandle
+            .getPrimitiveWithLazyKeys(countingConfiguration(), PrimitiveSetHolder.class)
+            .primitives;
+
+    assertThat(primitiveAConstructionCount.get()).isEqualTo(1);
+    assertThat(primitives.getPrimary().getFullPrimitive()).isNotNull();
+    assertThat(primitiveAConstructionCount.get()).isEqualTo(1);
+    for (PrimitiveSet.Entry<TestPrimitiveA> entry : primitives.getAllInKeysetOrder()) {
+      assertThat(entry.getFullPrimitive()).isNotNull();
+      assertThat(entry.getFullPrimitive()).isNotNull();
+    }
+    assertThat(primitiveAConstructionCount.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void getPrimitiveWithLazyKeys_decryptsWithNonPrimaryKey() throws Exception {
+    KeysetHandle oldHandle = KeysetHandle.generateNew(KeyTemplates.get("AES128_GCM"));
+    byte[] message = Random.randBytes(20);
+    byte[] aad = Random.randBytes(20);
+    byte[] oldCiphertext = oldHandle.getPrimitive(Aead.class).encrypt(message, aad);
+    KeysetHandle handle =
+        KeysetHandle.newBuilder(oldHandle)
+            .addEntry(
+                KeysetHandle.generateEntryFromParametersName("AES128_GCM")
+                    .withRandomId()
+                    .makePrimary())
+            .build();
+
+    Aead aead = handle.getPrimitiveWithLazyKeys(Aead.class);
+
+    assertThat(aead.decrypt(oldCiphertext, aad)).isEqualTo(message);
+    assertThat(aead.decrypt(aead.encrypt(message, aad), aad)).isEqualTo(message);
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> oldHandle.getPrimitive(Aead.class).decrypt(aead.encrypt(message, aad), aad));
+  }
+
+  /** Returns {@code handle} with an additional key of a type for which there is no primitive. */
+  private static KeysetHandle withKeyOfUnknownType(
+      KeysetHandle handle, int keyId, OutputPrefixType outputPrefixType)
+      throws GeneralSecurityException {
+    Keyset keyset =
+        handle.getKeyset().toBuilder()
+            .addKey(
+                TestUtil.createKey(
+                    TestUtil.createKeyData(
+                        HmacPrfKey.getDefaultInstance(),
+                        "type.googleapis.com/google.crypto.tink.UnknownKey",
+                        KeyData.KeyMaterialType.SYMMETRIC),
+                    keyId,
+                    KeyStatusType.ENABLED,
+                    outputPrefixType))
+            .build();
+    return KeysetHandle.fromKeyset(keyset);
+  }
+
+  @Test
+  public void getPrimitiveWithLazyKeys_invalidNonPrimaryKey_aeadSkipsKey() throws Exception {
+    KeysetHandle handle =
+        withKeyOfUnknownType(
+            KeysetHandle.generateNew(KeyTemplates.get("AES128_GCM")), 43, OutputPrefixType.TINK);
+    byte[] message = Random.randBytes(20);
+    byte[] aad = Random.randBytes(20);
+    assertThrows(GeneralSecurityException.class, () -> handle.getPrimitive(Aead.class));
+
+    Aead aead = handle.getPrimitiveWithLazyKeys(Aead.class);
+
+    assertThat(aead.decrypt(aead.encrypt(message, aad), aad)).isEqualTo(message);
+    byte[] ciphertextOfInvalidKey =
+        ByteBuffer.allocate(CryptoFormat.NON_RAW_PREFIX_SIZE + 40)
+            .put(CryptoFormat.getOutputPrefix(handle.getKeyset().getKey(1)))
+            .put(Random.randBytes(40))
+            .array();
+    assertThrows(GeneralSecurityException.class, () -> aead.decrypt(ciphertextOfInvalidKey, aad));
+  }
+
+  @Test
+  public void getPrimitiveWithLazyKeys_invalidNonPrimaryKey_prfSetThrows() throws Exception {
+    KeysetHandle handle =
+        withKeyOfUnknownType(
+            KeysetHandle.generateNew(KeyTemplates.get("HMAC_SHA256_PRF")),
+            43,
+            OutputPrefixType.RAW);
+
+    assertThrows(GeneralSecurityException.class, () -> handle.getPrimitive(PrfSet.class));
+    assertThrows(
+        GeneralSecurityException.class, () -> handle.getPrimitiveWithLazyKeys(PrfSet.class));
+  }
+
   @Test
   public void getPrimitive_usesRegistryWhenNoConfigurationProvided() throws Exception {
     KeysetHandle keysetHandle =
@@ -36,10 +36,17 @@ import com.google.crypto.tink.proto.OutputPrefixType;
 import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.testing.TestUtil;
 import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -964,4 +971,275 @@ public class PrimitiveSetTest {
     assertThat(entries.get(1).getOutputPrefixType()).isEqualTo(OutputPrefixType.RAW);
     assertThat(entries.get(2).getOutputPrefixType()).isEqualTo(OutputPrefixType.LEGACY);
   }
+
+  @Test
+  public void getPrimitiveWithPrefix_matchesGetPrimitive() throws Exception {
+    Key key0 =
+        Key.newBuilder()
+            .setKeyId(0xffffffff)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.TINK)
+            .build();
+    Key key1 =
+        Key.newBuilder()
+            .setKeyId(0xffffffff)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.LEGACY)
+            .build();
+    Key key2 =
+        Key.newBuilder()
+            .setKeyId(0x7fffffff)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.CRUNCHY)
+            .build();
+    Key key3 =
+        Key.newBuilder()
+            .setKeyId(0x7fffffff)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.LEGACY)
+            .build();
+    Key key4 =
+        Key.newBuilder()
+            .setKeyId(0x80000000)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.RAW)
+            .build();
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class)
+            .addPrimaryPrimitive(new DummyMac1(), key0)
+            .addPrimitive(new DummyMac2(), key1)
+            .addPrimitive(new DummyMac1(), key2)
+            .addPrimitive(new DummyMac2(), key3)
+            .addPrimitive(new DummyMac1(), key4)
+            .build();
+
+    String[] prefixes = {"01ffffffff", "00ffffffff", "007fffffff", "0080000000", "02ffffffff"};
+    for (String prefix : prefixes) {
+      List<PrimitiveSet.Entry<Mac>> expected = pset.getPrimitive(Hex.decode(prefix));
+      assertThat(pset.getPrimitiveWithPrefix(Hex.decode("abcd" + prefix + "ef"), 2))
+          .isEqualTo(expected);
+      ByteBuffer buffer = ByteBuffer.wrap(Hex.decode("ab" + prefix)).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.position(1);
+      assertThat(pset.getPrimitiveWithPrefix(buffer)).isEqualTo(expected);
+      assertThat(buffer.position()).isEqualTo(1);
+    }
+    assertThat(pset.getPrimitiveWithPrefix(Hex.decode("01ffffffff"), 0)).hasSize(1);
+    assertThat(pset.getPrimitiveWithPrefix(Hex.decode("007fffffff"), 0)).hasSize(2);
+    assertThat(pset.getPrimitiveWithPrefix(Hex.decode("0080000000"), 0)).isEmpty();
+  }
+
+  @Test
+  public void getPrimitiveWithPrefix_withDeprecatedMutableInterface_works() throws Exception {
+    PrimitiveSet<Mac> pset = PrimitiveSet.newPrimitiveSet(Mac.class);
+    Key key =
+        Key.newBuilder()
+            .setKeyId(42)
+            .setStatus(KeyStatusType.ENABLED)
+            .setOutputPrefixType(OutputPrefixType.TINK)
+            .build();
+    pset.addPrimitive(new DummyMac1(), key);
+
+    assertThat(pset.getPrimitiveWithPrefix(Hex.decode("000100002a"), 1)).hasSize(1);
+    assertThat(pset.getPrimitiveWithPrefix(ByteBuffer.wrap(Hex.decode("010000002a")))).hasSize(1);
+    assertThat(pset.getPrimitiveWithPrefix(Hex.decode("010000002b"), 0)).isEmpty();
+  }
+
+  @Test
+  public void getPrimitiveWithPrefix_dataTooShort_throws() throws Exception {
+    PrimitiveSet<Mac> pset = PrimitiveSet.newBuilder(Mac.class).build();
+
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> pset.getPrimitiveWithPrefix(Hex.decode("010000002a"), 1));
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> pset.getPrimitiveWithPrefix(Hex.decode("010000002a"), -1));
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> pset.getPrimitiveWithPrefix(ByteBuffer.wrap(Hex.decode("0100002a"))));
+  }
+
+  /** Counts how often each primitive is created. */
+  private static final class CountingFactory implements PrimitiveSet.PrimitiveFactory<Mac> {
+    final AtomicInteger fullPrimitiveCount = new AtomicInteger(0);
+    final AtomicInteger primitiveCount = new AtomicInteger(0);
+
+    @Override
+    public Mac createFullPrimitive() {
+      fullPrimitiveCount.incrementAndGet();
+      return new DummyMac1();
+    }
+
+    @Override
+    public Mac createPrimitive() {
+      primitiveCount.incrementAndGet();
+      return new DummyMac2();
+    }
+  }
+
+  private static Key enabledTinkKey(int keyId) {
+    return Key.newBuilder()
+        .setKeyId(keyId)
+        .setStatus(KeyStatusType.ENABLED)
+        .setOutputPrefixType(OutputPrefixType.TINK)
+        .build();
+  }
+
+  @Test
+  public void addLazyPrimitive_createsEachPrimitiveOnFirstUse() throws Exception {
+    CountingFactory factory = new CountingFactory();
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class)
+            .addPrimaryPrimitive(new DummyMac1(), enabledTinkKey(1))
+            .addLazyPrimitive(factory, enabledTinkKey(2))
+            .build();
+    assertThat(factory.fullPrimitiveCount.get()).isEqualTo(0);
+    assertThat(factory.primitiveCount.get()).isEqualTo(0);
+
+    PrimitiveSet.Entry<Mac> entry =
+        pset.getPrimitive(CryptoFormat.getOutputPrefix(enabledTinkKey(2))).get(0);
+    assertThat(entry.getKeyId()).isEqualTo(2);
+    assertThat(factory.fullPrimitiveCount.get()).isEqualTo(0);
+
+    assertThat(entry.getFullPrimitive()).isInstanceOf(DummyMac1.class);
+    assertThat(entry.getFullPrimitive()).isSameInstanceAs(entry.getFullPrimitive());
+    assertThat(factory.fullPrimitiveCount.get()).isEqualTo(1);
+    assertThat(factory.primitiveCount.get()).isEqualTo(0);
+
+    assertThat(entry.getPrimitive()).isInstanceOf(DummyMac2.class);
+    assertThat(entry.getPrimitive()).isSameInstanceAs(entry.getPrimitive());
+    assertThat(factory.primitiveCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void addLazyPrimitive_concurrentUse_createsPrimitiveOnce() throws Exception {
+    CountingFactory factory = new CountingFactory();
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class).addLazyPrimitive(factory, enabledTinkKey(2)).build();
+    PrimitiveSet.Entry<Mac> entry = pset.getAllInKeysetOrder().get(0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Mac>> futures = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      futures.add(
+          executor.submit(
+              new Callable<Mac>() {
+                @Override
+                public Mac call() {
+                  return entry.getFullPrimitive();
+                }
+              }));
+    }
+    Mac first = futures.get(0).get();
+    for (Future<Mac> future : futures) {
+      assertThat(future.get()).isSameInstanceAs(first);
+    }
+    executor.shutdown();
+
+    assertThat(factory.fullPrimitiveCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void addLazyPrimitive_factoryFails_getterThrows() throws Exception {
+    AtomicInteger calls = new AtomicInteger(0);
+    PrimitiveSet.PrimitiveFactory<Mac> failingFactory =
+        new PrimitiveSet.PrimitiveFactory<Mac>() {
+          @Override
+          public Mac createFullPrimitive() throws GeneralSecurityException {
+            calls.incrementAndGet();
+            throw new GeneralSecurityException("invalid key");
+          }
+
+          @Override
+          public Mac createPrimitive() {
+            return null;
+          }
+        };
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class)
+            .addLazyPrimitive(failingFactory, enabledTinkKey(2))
+            .build();
+    PrimitiveSet.Entry<Mac> entry = pset.getAllInKeysetOrder().get(0);
+
+    assertThat(entry.primitiveCreationFailed()).isTrue();
+    IllegalStateException e = assertThrows(IllegalStateException.class, entry::getFullPrimitive);
+    assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+    // The entry has no usable primitive, so getPrimitive fails as well.
+    assertThrows(IllegalStateException.class, entry::getPrimitive);
+    // The failure is remembered.
+    assertThat(entry.primitiveCreationFailed()).isTrue();
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void addLazyPrimitive_primitiveCreationFailed_falseForWorkingEntries() throws Exception {
+    CountingFactory factory = new CountingFactory();
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class)
+            .addPrimaryPrimitive(new DummyMac1(), enabledTinkKey(1))
+            .addLazyPrimitive(factory, enabledTinkKey(2))
+            .build();
+
+    assertThat(pset.getAllInKeysetOrder().get(0).primitiveCreationFailed()).isFalse();
+    assertThat(pset.getAllInKeysetOrder().get(1).primitiveCreationFailed()).isFalse();
+    assertThat(factory.fullPrimitiveCount.get()).isEqualTo(1);
+    assertThat(factory.primitiveCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void addLazyPrimitive_factoryReturnsOnlyOnePrimitive_otherIsNull() throws Exception {
+    PrimitiveSet.PrimitiveFactory<Mac> factory =
+        new PrimitiveSet.PrimitiveFactory<Mac>() {
+          @Override
+          public Mac createFullPrimitive() {
+            return new DummyMac1();
+          }
+
+          @Override
+          public Mac createPrimitive() {
+            return null;
+          }
+        };
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class).addLazyPrimitive(factory, enabledTinkKey(2)).build();
+    PrimitiveSet.Entry<Mac> entry = pset.getAllInKeysetOrder().get(0);
+
+    assertThat(entry.primitiveCreationFailed()).isFalse();
+    assertThat(entry.getPrimitive()).isNull();
+    assertThat(entry.getFullPrimitive()).isInstanceOf(DummyMac1.class);
+  }
+
+  @Test
+  public void addLazyPrimitive_factoryReturnsNullForBoth_gettersThrow() throws Exception {
+    PrimitiveSet.PrimitiveFactory<Mac> factory =
+        new PrimitiveSet.PrimitiveFactory<Mac>() {
+          @Override
+          public Mac createFullPrimitive() {
+            return null;
+          }
+
+          @Override
+          public Mac createPrimitive() {
+            return null;
+          }
+        };
+    PrimitiveSet<Mac> pset =
+        PrimitiveSet.newBuilder(Mac.class).addLazyPrimitive(factory, enabledTinkKey(2)).build();
+    PrimitiveSet.Entry<Mac> entry = pset.getAllInKeysetOrder().get(0);
+
+    assertThat(entry.primitiveCreationFailed()).isTrue();
+    assertThrows(IllegalStateException.class, entry::getFullPrimitive);
+    assertThrows(IllegalStateException.class, entry::getPrimitive);
+  }
+
+  @Test
+  public void addLazyPrimitive_disabledKey_throws() throws Exception {
+    Key disabledKey = enabledTinkKey(2).toBuilder().setStatus(KeyStatusType.DISABLED).build();
+
+    assertThrows(
+        GeneralSecurityException.class,
+        () ->
+            PrimitiveSet.newBuilder(Mac.class)
+                .addLazyPrimitive(new CountingFactory(), disabledKey));
+  }
 }
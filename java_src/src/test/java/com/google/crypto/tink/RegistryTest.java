@@ -459,6 +459,64 @@ public class RegistryTest {
     assertThat(aead.getClass()).isEqualTo(AesEaxJce.class);
   }
 
+  @Test
+  public void testGetCachedPrimitive_withPrimitiveCache_returnsCachedPrimitive() throws Exception {
+    KeyData keyData1 = Registry.newKeyData(AesGcmKeyManager.aes128GcmTemplate().getProto());
+    KeyData keyData2 = Registry.newKeyData(AesGcmKeyManager.aes128GcmTemplate().getProto());
+    String typeUrl = keyData1.getTypeUrl();
+    assertThat(Registry.getPrimitiveCacheStats()).isNull();
+
+    Registry.enablePrimitiveCache(10, 60_000);
+    Aead aead1 = Registry.getCachedPrimitive(typeUrl, keyData1.getValue(), Aead.class);
+    Aead aead2 = Registry.getCachedPrimitive(typeUrl, keyData2.getValue(), Aead.class);
+
+    assertThat(Registry.getCachedPrimitive(typeUrl, keyData1.getValue(), Aead.class))
+        .isSameInstanceAs(aead1);
+    assertThat(Registry.getCachedPrimitive(typeUrl, keyData2.getValue().toByteArray(), Aead.class))
+        .isSameInstanceAs(aead2);
+    assertThat(aead1).isNotSameInstanceAs(aead2);
+    assertThat(Registry.getPrimitiveCacheStats().getHitCount()).isEqualTo(2L);
+    assertThat(Registry.getPrimitiveCacheStats().getMissCount()).isEqualTo(2L);
+    assertThat(Registry.getPrimitiveCacheStats().getSize()).isEqualTo(2);
+
+    Registry.disablePrimitiveCache();
+    assertThat(Registry.getCachedPrimitive(typeUrl, keyData1.getValue(), Aead.class))
+        .isNotSameInstanceAs(aead1);
+    assertThat(Registry.getPrimitiveCacheStats()).isNull();
+  }
+
+  @Test
+  public void testGetPrimitive_withPrimitiveCache_doesNotUseCache() throws Exception {
+    KeyData keyData = Registry.newKeyData(AesGcmKeyManager.aes128GcmTemplate().getProto());
+    Registry.enablePrimitiveCache(10, 60_000);
+
+    Aead aead = Registry.getPrimitive(keyData, Aead.class);
+
+    assertThat(Registry.getPrimitive(keyData, Aead.class)).isNotSameInstanceAs(aead);
+    assertThat(Registry.getPrimitiveCacheStats().getMissCount()).isEqualTo(0L);
+    assertThat(Registry.getPrimitiveCacheStats().getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGetCachedPrimitive_withPrimitiveCache_wrongPrimitive_throws() throws Exception {
+    KeyData keyData = Registry.newKeyData(AesGcmKeyManager.aes128GcmTemplate().getProto());
+    Registry.enablePrimitiveCache(10, 60_000);
+    Registry.getCachedPrimitive(keyData.getTypeUrl(), keyData.getValue(), Aead.class);
+
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> Registry.getCachedPrimitive(keyData.getTypeUrl(), keyData.getValue(), Mac.class));
+  }
+
+  @Test
+  public void testReset_disablesPrimitiveCache() throws Exception {
+    Registry.enablePrimitiveCache(10, 60_000);
+
+    Registry.reset();
+
+    assertThat(Registry.getPrimitiveCacheStats()).isNull();
+  }
+
   @Test
   public void testGetPrimitive_hmac_shouldWork() throws Exception {
     // Skip test if in FIPS mode, as no provider available to instantiate.
@@ -29,6 +29,7 @@ import com.google.crypto.tink.Registry;
 import com.google.crypto.tink.TinkProtoKeysetFormat;
 import com.google.crypto.tink.internal.MutableMonitoringRegistry;
 import com.google.crypto.tink.internal.testing.FakeMonitoringClient;
+import com.google.crypto.tink.monitoring.MetricsMonitoringClient;
 import com.google.crypto.tink.monitoring.MonitoringAnnotations;
 import com.google.crypto.tink.proto.AesCtrHmacAeadKey;
 import com.google.crypto.tink.proto.KeyData;
@@ -40,6 +41,7 @@ import com.google.crypto.tink.subtle.Bytes;
 import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.subtle.Random;
 import com.google.crypto.tink.testing.TestUtil;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
 import java.util.List;
@@ -190,6 +192,71 @@ public class AeadWrapperTest {
         () -> wrappedAead.decrypt("".getBytes(UTF_8), associatedData));
   }
 
+  @Theory
+  public void wrappedByteBufferEncrypt_isDecryptedByByteArrayDecrypt() throws Exception {
+    Key key = getKey(aesCtrHmacAeadKey, /*keyId=*/ 0x66AABBCC, OutputPrefixType.TINK);
+    Aead rawAead = Registry.getPrimitive(key.getKeyData(), Aead.class);
+    PrimitiveSet<Aead> primitives =
+        PrimitiveSet.newBuilder(Aead.class).addPrimaryPrimitive(rawAead, key).build();
+    Aead wrappedAead = new AeadWrapper().wrap(primitives);
+
+    byte[] plaintext = "plaintext".getBytes(UTF_8);
+    byte[] associatedData = "associatedData".getBytes(UTF_8);
+    ByteBuffer ciphertext = ByteBuffer.allocateDirect(100);
+    wrappedAead.encrypt(
+        ByteBuffer.wrap(plaintext), ByteBuffer.wrap(associatedData), ciphertext);
+    ciphertext.flip();
+    byte[] ciphertextBytes = new byte[ciphertext.remaining()];
+    ciphertext.get(ciphertextBytes);
+
+    assertThat(Arrays.copyOf(ciphertextBytes, 5)).isEqualTo(Hex.decode("0166AABBCC"));
+    assertThat(wrappedAead.decrypt(ciphertextBytes, associatedData)).isEqualTo(plaintext);
+  }
+
+  @Theory
+  public void wrappedByteBufferDecrypt_triesAllKeysWithoutMovingPositions() throws Exception {
+    Key key1 = getKey(aesCtrHmacAeadKey, /*keyId=*/ 0x66AABBCC, OutputPrefixType.TINK);
+    Key key2 = getKey(aesCtrHmacAeadKey2, /*keyId=*/ 0x66AABBCC, OutputPrefixType.TINK);
+    Key rawKey = getKey(aesCtrHmacAeadKey2, /*keyId=*/ 0x11223344, OutputPrefixType.RAW);
+    Aead aead1 = Registry.getPrimitive(key1.getKeyData(), Aead.class);
+    Aead aead2 = Registry.getPrimitive(key2.getKeyData(), Aead.class);
+    Aead rawAead = Registry.getPrimitive(rawKey.getKeyData(), Aead.class);
+    PrimitiveSet<Aead> primitives =
+        PrimitiveSet.newBuilder(Aead.class)
+            .addPrimaryPrimitive(aead1, key1)
+            .addPrimitive(aead2, key2)
+            .addPrimitive(rawAead, rawKey)
+            .build();
+    Aead wrappedAead = new AeadWrapper().wrap(primitives);
+
+    byte[] plaintext = "plaintext".getBytes(UTF_8);
+    byte[] associatedData = "associatedData".getBytes(UTF_8);
+    byte[] ciphertextWithPrefix =
+        Bytes.concat(Hex.decode("0166AABBCC"), aead2.encrypt(plaintext, associatedData));
+    byte[] rawCiphertext = rawAead.encrypt(plaintext, associatedData);
+
+    for (byte[] ciphertextBytes : new byte[][] {ciphertextWithPrefix, rawCiphertext}) {
+      ByteBuffer ciphertext = ByteBuffer.wrap(ciphertextBytes);
+      ByteBuffer aad = ByteBuffer.wrap(associatedData);
+      ByteBuffer decrypted = ByteBuffer.allocate(100);
+      wrappedAead.decrypt(ciphertext, aad, decrypted);
+      assertThat(ciphertext.hasRemaining()).isFalse();
+      assertThat(aad.hasRemaining()).isFalse();
+      decrypted.flip();
+      assertThat(decrypted).isEqualTo(ByteBuffer.wrap(plaintext));
+    }
+
+    ByteBuffer invalidAad = ByteBuffer.wrap("invalid".getBytes(UTF_8));
+    ByteBuffer ciphertext = ByteBuffer.wrap(ciphertextWithPrefix);
+    ByteBuffer decrypted = ByteBuffer.allocate(100);
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> wrappedAead.decrypt(ciphertext, invalidAad, decrypted));
+    assertThat(ciphertext.position()).isEqualTo(0);
+    assertThat(invalidAad.position()).isEqualTo(0);
+    assertThat(decrypted.position()).isEqualTo(0);
+  }
+
   @DataPoints("outputPrefixType")
   public static final OutputPrefixType[] OUTPUT_PREFIX_TYPES =
       new OutputPrefixType[] {
@@ -497,6 +564,46 @@ public class AeadWrapperTest {
     assertThat(decFailure.getKeysetInfo().getAnnotations()).isEqualTo(annotations);
   }
 
+  @Test
+  public void testAeadWithAnnotations_reportsElapsedTime() throws Exception {
+    MetricsMonitoringClient metricsClient =
+        MetricsMonitoringClient.newBuilder().setRecordLatencies(true).build();
+    MutableMonitoringRegistry.globalInstance().clear();
+    MutableMonitoringRegistry.globalInstance().registerMonitoringClient(metricsClient);
+
+    Key key1 = getKey(aesCtrHmacAeadKey, /*keyId=*/ 42, OutputPrefixType.TINK);
+    MonitoringAnnotations annotations =
+        MonitoringAnnotations.newBuilder().add("annotation_name", "annotation_value").build();
+    Aead aead =
+        new AeadWrapper()
+            .wrap(
+                TestUtil.createPrimitiveSetWithAnnotations(
+                    TestUtil.createKeyset(key1), annotations, Aead.class));
+
+    byte[] plaintext = Random.randBytes(20);
+    byte[] associatedData = Random.randBytes(40);
+    byte[] ciphertext = aead.encrypt(plaintext, associatedData);
+    assertThat(aead.decrypt(ciphertext, associatedData)).isEqualTo(plaintext);
+    assertThrows(GeneralSecurityException.class, () -> aead.decrypt(ciphertext, new byte[0]));
+
+    MetricsMonitoringClient.Snapshot snapshot = metricsClient.getSnapshot();
+    assertThat(snapshot.getEntries()).hasSize(2);
+    MetricsMonitoringClient.Entry decEntry = snapshot.getEntries().get(0);
+    assertThat(decEntry.getApi()).isEqualTo("decrypt");
+    assertThat(decEntry.getKeyId()).isEqualTo(42);
+    assertThat(decEntry.getCallCount()).isEqualTo(1L);
+    assertThat(decEntry.getLatencies().getCount()).isEqualTo(1L);
+    MetricsMonitoringClient.Entry encEntry = snapshot.getEntries().get(1);
+    assertThat(encEntry.getApi()).isEqualTo("encrypt");
+    assertThat(encEntry.getCallCount()).isEqualTo(1L);
+    assertThat(encEntry.getNumBytesAsInput()).isEqualTo((long) plaintext.length);
+    assertThat(encEntry.getLatencies().getCount()).isEqualTo(1L);
+    MetricsMonitoringClient.FailureEntry decFailures = snapshot.getFailureEntries().get(0);
+    assertThat(decFailures.getApi()).isEqualTo("decrypt");
+    assertThat(decFailures.getFailureCount()).isEqualTo(1L);
+    assertThat(decFailures.getLatencies().getCount()).isEqualTo(1L);
+  }
+
   private static class AlwaysFailingAead implements Aead {
     public AlwaysFailingAead() {}
 
@@ -0,0 +1,292 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.aead;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
+import com.google.crypto.tink.subtle.AesGcmJce;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BatchingAsyncAead}. */
+@RunWith(JUnit4.class)
+public final class BatchingAsyncAeadTest {
+
+  /** An executor that only runs tasks when {@link #runAll} is called. */
+  private static final class ManualExecutor implements Executor {
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    int executedTasks = 0;
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        executedTasks++;
+        tasks.poll().run();
+      }
+    }
+  }
+
+  private static Aead newAead() throws GeneralSecurityException {
+    return new AesGcmJce(Random.randBytes(16));
+  }
+
+  @Test
+  public void encryptDecrypt_works() throws Exception {
+    Aead aead = newAead();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      AsyncAead asyncAead =
+          BatchingAsyncAead.builder().setAead(aead).setExecutor(executor).build();
+      byte[] plaintext = Random.randBytes(20);
+      byte[] associatedData = Random.randBytes(20);
+
+      byte[] ciphertext = asyncAead.encrypt(plaintext, associatedData).get();
+
+      assertThat(aead.decrypt(ciphertext, associatedData)).isEqualTo(plaintext);
+      assertThat(asyncAead.decrypt(ciphertext, associatedData).get()).isEqualTo(plaintext);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void decryptWithWrongAssociatedData_failsWithGeneralSecurityException() throws Exception {
+    Aead aead = newAead();
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder().setAead(aead).setExecutor(Runnable::run).build();
+    byte[] ciphertext = aead.encrypt(Random.randBytes(20), new byte[] {1});
+
+    CompletableFuture<byte[]> result = asyncAead.decrypt(ciphertext, new byte[] {2});
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+  }
+
+  @Test
+  public void requestsQueuedWhileCallsAreBusy_areBatched() throws Exception {
+    List<Integer> batchSizes = new ArrayList<>();
+    Aead aead = newAead();
+    BatchingAsyncAead.BatchFunction encrypt =
+        batch -> {
+          batchSizes.add(batch.size());
+          BatchingAsyncAead.encryptEach(aead).apply(batch);
+        };
+    ManualExecutor executor = new ManualExecutor();
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setBatchFunctions(encrypt, BatchingAsyncAead.decryptEach(aead))
+            .setExecutor(executor)
+            .setMaxBatchSize(4)
+            .setMaxConcurrentCalls(1)
+            .build();
+    List<CompletableFuture<byte[]>> results = new ArrayList<>();
+    List<byte[]> plaintexts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      plaintexts.add(Random.randBytes(10));
+      results.add(asyncAead.encrypt(plaintexts.get(i), null));
+    }
+
+    executor.runAll();
+
+    // The first request is sent on its own, the other 9 are queued until it is done.
+    assertThat(batchSizes).containsExactly(1, 4, 4, 1).inOrder();
+    for (int i = 0; i < 10; i++) {
+      assertThat(aead.decrypt(results.get(i).get(), null)).isEqualTo(plaintexts.get(i));
+    }
+  }
+
+  @Test
+  public void tooManyPendingRequests_areRejected() throws Exception {
+    ManualExecutor executor = new ManualExecutor();
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setAead(newAead())
+            .setExecutor(executor)
+            .setMaxPendingRequests(3)
+            .build();
+    List<CompletableFuture<byte[]>> results = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      results.add(asyncAead.encrypt(Random.randBytes(10), null));
+    }
+
+    CompletableFuture<byte[]> rejected = asyncAead.encrypt(Random.randBytes(10), null);
+
+    ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+    assertThat(e).hasCauseThat().isInstanceOf(RejectedExecutionException.class);
+    executor.runAll();
+    for (CompletableFuture<byte[]> result : results) {
+      assertThat(result.isCompletedExceptionally()).isFalse();
+    }
+    // Once the pending requests are done, new requests are accepted again.
+    CompletableFuture<byte[]> accepted = asyncAead.encrypt(Random.randBytes(10), null);
+    executor.runAll();
+    assertThat(accepted.isCompletedExceptionally()).isFalse();
+  }
+
+  @Test
+  public void batchFunctionThatThrows_failsAllRequestsOfTheBatch() throws Exception {
+    Aead aead = newAead();
+    BatchingAsyncAead.BatchFunction failing =
+        batch -> {
+          throw new GeneralSecurityException("remote failure");
+        };
+    ManualExecutor executor = new ManualExecutor();
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setBatchFunctions(failing, BatchingAsyncAead.decryptEach(aead))
+            .setExecutor(executor)
+            .setMaxBatchSize(10)
+            .setMaxConcurrentCalls(1)
+            .build();
+    CompletableFuture<byte[]> result1 = asyncAead.encrypt(Random.randBytes(10), null);
+    CompletableFuture<byte[]> result2 = asyncAead.encrypt(Random.randBytes(10), null);
+    CompletableFuture<byte[]> result3 = asyncAead.encrypt(Random.randBytes(10), null);
+
+    executor.runAll();
+
+    assertThat(executor.executedTasks).isEqualTo(2);
+    for (CompletableFuture<byte[]> result : Arrays.asList(result1, result2, result3)) {
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertThat(e).hasCauseThat().hasMessageThat().isEqualTo("remote failure");
+    }
+  }
+
+  @Test
+  public void requestsThatAreNotCompletedByBatchFunction_fail() throws Exception {
+    Aead aead = newAead();
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setBatchFunctions(batch -> {}, BatchingAsyncAead.decryptEach(aead))
+            .setExecutor(Runnable::run)
+            .build();
+
+    CompletableFuture<byte[]> result = asyncAead.encrypt(Random.randBytes(10), null);
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+  }
+
+  @Test
+  public void rejectingExecutor_failsRequest() throws Exception {
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setAead(newAead())
+            .setExecutor(
+                task -> {
+                  throw new RejectedExecutionException();
+                })
+            .build();
+
+    CompletableFuture<byte[]> result = asyncAead.encrypt(Random.randBytes(10), null);
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+  }
+
+  @Test
+  public void rejectingExecutor_failsAllQueuedRequests() throws Exception {
+    ManualExecutor manualExecutor = new ManualExecutor();
+    AtomicBoolean reject = new AtomicBoolean(false);
+    Executor executor =
+        task -> {
+          if (reject.get()) {
+            throw new RejectedExecutionException();
+          }
+          manualExecutor.execute(task);
+        };
+    AsyncAead asyncAead =
+        BatchingAsyncAead.builder()
+            .setAead(newAead())
+            .setExecutor(executor)
+            .setMaxBatchSize(2)
+            .setMaxConcurrentCalls(1)
+            .build();
+    CompletableFuture<byte[]> first = asyncAead.encrypt(Random.randBytes(10), null);
+    List<CompletableFuture<byte[]>> queued = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      queued.add(asyncAead.encrypt(Random.randBytes(10), null));
+    }
+
+    // When the first call is done, the executor rejects the call for the next batch.
+    reject.set(true);
+    manualExecutor.runAll();
+
+    assertThat(first.isDone()).isTrue();
+    assertThat(first.isCompletedExceptionally()).isFalse();
+    for (CompletableFuture<byte[]> result : queued) {
+      assertThat(result.isDone()).isTrue();
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+    }
+  }
+
+  @Test
+  public void build_withoutRequiredFieldsOrWithInvalidLimits_fails() throws Exception {
+    Aead aead = newAead();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BatchingAsyncAead.builder().setExecutor(Runnable::run).build());
+    assertThrows(
+        IllegalArgumentException.class, () -> BatchingAsyncAead.builder().setAead(aead).build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            BatchingAsyncAead.builder()
+                .setAead(aead)
+                .setExecutor(Runnable::run)
+                .setMaxBatchSize(0)
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            BatchingAsyncAead.builder()
+                .setAead(aead)
+                .setExecutor(Runnable::run)
+                .setMaxConcurrentCalls(0)
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            BatchingAsyncAead.builder()
+                .setAead(aead)
+                .setExecutor(Runnable::run)
+                .setMaxPendingRequests(0)
+                .build());
+  }
+}
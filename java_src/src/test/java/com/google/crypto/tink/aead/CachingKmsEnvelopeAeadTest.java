@@ -0,0 +1,291 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.aead;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.KeyTemplates;
+import com.google.crypto.tink.KeysetHandle;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CachingKmsEnvelopeAead} */
+@RunWith(JUnit4.class)
+public final class CachingKmsEnvelopeAeadTest {
+  private static final byte[] ASSOCIATED_DATA = "associatedData".getBytes(UTF_8);
+
+  @BeforeClass
+  public static void setUp() throws GeneralSecurityException {
+    AeadConfig.register();
+  }
+
+  /** A remote AEAD that counts how often it is called. */
+  private static final class CountingAead implements Aead {
+    private final Aead aead;
+    final AtomicInteger encryptCalls = new AtomicInteger();
+    final AtomicInteger decryptCalls = new AtomicInteger();
+
+    CountingAead() throws GeneralSecurityException {
+      this.aead =
+          KeysetHandle.generateNew(KeyTemplates.get("AES128_GCM")).getPrimitive(Aead.class);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plaintext, byte[] associatedData)
+        throws GeneralSecurityException {
+      encryptCalls.incrementAndGet();
+      return aead.encrypt(plaintext, associatedData);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] ciphertext, byte[] associatedData)
+        throws GeneralSecurityException {
+      decryptCalls.incrementAndGet();
+      return aead.decrypt(ciphertext, associatedData);
+    }
+  }
+
+  /** A clock that only moves when told to. */
+  private static final class ManualClock extends Clock {
+    private Instant now = Instant.ofEpochSecond(1234567);
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void encryptDecrypt_works() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .build();
+    byte[] plaintext = Random.randBytes(20);
+
+    byte[] ciphertext = aead.encrypt(plaintext, ASSOCIATED_DATA);
+
+    assertThat(aead.decrypt(ciphertext, ASSOCIATED_DATA)).isEqualTo(plaintext);
+    assertThrows(GeneralSecurityException.class, () -> aead.decrypt(ciphertext, new byte[0]));
+  }
+
+  @Test
+  public void encrypt_reusesDekUpToMaxEncryptions() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .setMaxEncryptionsPerDek(3)
+            .build();
+
+    for (int i = 0; i < 7; i++) {
+      aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    }
+
+    assertThat(remote.encryptCalls.get()).isEqualTo(3);
+    CachingKmsEnvelopeAead.CacheStats stats = aead.getEncryptionStats();
+    assertThat(stats.hitCount()).isEqualTo(4);
+    assertThat(stats.missCount()).isEqualTo(3);
+    assertThat(stats.evictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void encrypt_rotatesDekAfterMaxAge() throws Exception {
+    CountingAead remote = new CountingAead();
+    ManualClock clock = new ManualClock();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .setMaxDekAge(Duration.ofSeconds(10))
+            .setClock(clock)
+            .build();
+
+    aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    clock.advance(Duration.ofSeconds(9));
+    aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    assertThat(remote.encryptCalls.get()).isEqualTo(1);
+
+    clock.advance(Duration.ofSeconds(1));
+    aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    assertThat(remote.encryptCalls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void decrypt_cachesUnwrappedDeks() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .setMaxEncryptionsPerDek(1)
+            .build();
+    byte[] ciphertext1 = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    byte[] ciphertext2 = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext2, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+
+    assertThat(remote.decryptCalls.get()).isEqualTo(2);
+    CachingKmsEnvelopeAead.CacheStats stats = aead.getDecryptionStats();
+    assertThat(stats.hitCount()).isEqualTo(2);
+    assertThat(stats.missCount()).isEqualTo(2);
+    assertThat(stats.evictionCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void decrypt_evictsLeastRecentlyUsedDek() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .setMaxEncryptionsPerDek(1)
+            .setMaxDecryptionCacheSize(2)
+            .build();
+    byte[] ciphertext1 = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    byte[] ciphertext2 = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    byte[] ciphertext3 = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext2, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+    // Evicts the DEK of ciphertext2, which is the least recently used one.
+    aead.decrypt(ciphertext3, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext1, ASSOCIATED_DATA);
+    assertThat(remote.decryptCalls.get()).isEqualTo(3);
+    aead.decrypt(ciphertext2, ASSOCIATED_DATA);
+    assertThat(remote.decryptCalls.get()).isEqualTo(4);
+
+    assertThat(aead.getDecryptionStats().evictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void decrypt_withZeroCacheSize_alwaysCallsRemote() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(remote)
+            .setMaxDecryptionCacheSize(0)
+            .build();
+    byte[] ciphertext = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+
+    aead.decrypt(ciphertext, ASSOCIATED_DATA);
+    aead.decrypt(ciphertext, ASSOCIATED_DATA);
+
+    assertThat(remote.decryptCalls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void isCompatibleWithKmsEnvelopeAead() throws Exception {
+    CountingAead remote = new CountingAead();
+    CachingKmsEnvelopeAead cachingAead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.XCHACHA20_POLY1305)
+            .setRemoteAead(remote)
+            .build();
+    Aead aead = KmsEnvelopeAead.create(PredefinedAeadParameters.XCHACHA20_POLY1305, remote);
+    byte[] plaintext = Random.randBytes(20);
+
+    assertThat(aead.decrypt(cachingAead.encrypt(plaintext, ASSOCIATED_DATA), ASSOCIATED_DATA))
+        .isEqualTo(plaintext);
+    assertThat(cachingAead.decrypt(aead.encrypt(plaintext, ASSOCIATED_DATA), ASSOCIATED_DATA))
+        .isEqualTo(plaintext);
+  }
+
+  @Test
+  public void malformedCiphertext_fails() throws Exception {
+    CachingKmsEnvelopeAead aead =
+        CachingKmsEnvelopeAead.builder()
+            .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+            .setRemoteAead(new CountingAead())
+            .build();
+    byte[] ciphertext = aead.encrypt(Random.randBytes(10), ASSOCIATED_DATA);
+    for (int i = 0; i <= 3; i++) {
+      ciphertext[i] = (byte) 0xff;
+    }
+
+    assertThrows(GeneralSecurityException.class, () -> aead.decrypt(ciphertext, ASSOCIATED_DATA));
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> aead.decrypt("foo".getBytes(UTF_8), ASSOCIATED_DATA));
+  }
+
+  @Test
+  public void build_withInvalidArguments_fails() throws Exception {
+    Aead remote = new CountingAead();
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> CachingKmsEnvelopeAead.builder().setRemoteAead(remote).build());
+    assertThrows(
+        GeneralSecurityException.class,
+        () ->
+            CachingKmsEnvelopeAead.builder()
+                .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            CachingKmsEnvelopeAead.builder()
+                .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+                .setRemoteAead(remote)
+                .setMaxEncryptionsPerDek(0)
+                .build());
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            CachingKmsEnvelopeAead.builder()
+                .setDekParameters(PredefinedAeadParameters.AES128_GCM)
+                .setRemoteAead(remote)
+                .setMaxDekAge(Duration.ZERO)
+                .build());
+  }
+}
@@ -27,10 +27,15 @@ import com.google.crypto.tink.KeysetHandle;
 import com.google.crypto.tink.KmsClient;
 import com.google.crypto.tink.KmsClients;
 import com.google.crypto.tink.internal.KeyTemplateProtoConverter;
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
 import com.google.crypto.tink.mac.HmacKeyManager;
 import com.google.crypto.tink.subtle.Random;
 import com.google.crypto.tink.testing.FakeKmsClient;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
@@ -196,6 +201,63 @@ public final class KmsEnvelopeAeadTest {
         () -> envAead.decrypt(corruptedCiphertext2, associatedData));
   }
 
+  private static final class KmsCallRecorder implements OperationListener {
+    private final List<String> kmsCalls = new ArrayList<>();
+
+    @Override
+    public OperationListener.Operation startKmsCall(String api, String dekKeyType) {
+      return new OperationListener.Operation() {
+        @Override
+        public void logSuccess(long numBytesAsInput) {
+          kmsCalls.add(api + " " + dekKeyType + " " + numBytesAsInput);
+        }
+
+        @Override
+        public void logFailure() {
+          kmsCalls.add(api + " " + dekKeyType + " failure");
+        }
+      };
+    }
+
+    @Override
+    public OperationListener.Operation startKeysetParse(String format) {
+      return MutableOperationListenerRegistry.DO_NOTHING_OPERATION;
+    }
+  }
+
+  @Test
+  public void encryptDecrypt_informsOperationListenerAboutKmsCalls() throws Exception {
+    Aead remoteAead = this.generateNewRemoteAead();
+    Aead envAead = KmsEnvelopeAead.create(PredefinedAeadParameters.AES128_GCM, remoteAead);
+    byte[] plaintext = "helloworld".getBytes(UTF_8);
+    byte[] associatedData = "envelope_ad".getBytes(UTF_8);
+    KmsCallRecorder recorder = new KmsCallRecorder();
+    MutableOperationListenerRegistry.globalInstance().registerOperationListener(recorder);
+    byte[] ciphertext;
+    try {
+      ciphertext = envAead.encrypt(plaintext, associatedData);
+      envAead.decrypt(ciphertext, associatedData);
+      byte[] corruptedCiphertext = ciphertext.clone();
+      corruptedCiphertext[4] = (byte) (corruptedCiphertext[4] ^ 0x1);
+      assertThrows(
+          GeneralSecurityException.class,
+          () -> envAead.decrypt(corruptedCiphertext, associatedData));
+    } finally {
+      MutableOperationListenerRegistry.globalInstance().clear();
+    }
+
+    byte[] encryptedDek = new byte[ByteBuffer.wrap(ciphertext).getInt()];
+    System.arraycopy(ciphertext, 4, encryptedDek, 0, encryptedDek.length);
+    int dekLength = remoteAead.decrypt(encryptedDek, EMPTY_ADD).length;
+    String dekKeyType = "type.googleapis.com/google.crypto.tink.AesGcmKey";
+    assertThat(recorder.kmsCalls)
+        .containsExactly(
+            "encrypt " + dekKeyType + " " + dekLength,
+            "decrypt " + dekKeyType + " " + encryptedDek.length,
+            "decrypt " + dekKeyType + " failure")
+        .inOrder();
+  }
+
   @Test
   public void create_isCompatibleWithOldConstructor() throws Exception {
     String kekUri = FakeKmsClient.createFakeKeyUri();
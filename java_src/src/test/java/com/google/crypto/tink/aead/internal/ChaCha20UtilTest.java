@@ -18,6 +18,7 @@ package com.google.crypto.tink.aead.internal;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.testing.TestUtil;
 import java.util.Arrays;
 import org.junit.Test;
@@ -78,4 +79,28 @@ public final class ChaCha20UtilTest {
     // Verify that next eight words equal key.
     assertThat(Arrays.copyOfRange(state, 4, 12)).isEqualTo(key);
   }
+
+  /** https://datatracker.ietf.org/doc/html/rfc7539#section-2.3.2 */
+  @Test
+  public void testChaCha20Block() {
+    int[] state = new int[ChaCha20Util.BLOCK_SIZE_IN_INTS];
+    ChaCha20Util.setSigmaAndKey(
+        state,
+        ChaCha20Util.toIntArray(
+            Hex.decode("000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f")));
+    state[12] = 1;
+    System.arraycopy(
+        ChaCha20Util.toIntArray(Hex.decode("000000090000004a00000000")), 0, state, 13, 3);
+    int[] stateBefore = state.clone();
+    byte[] out = new byte[ChaCha20Util.BLOCK_SIZE_IN_BYTES + 3];
+
+    ChaCha20Util.chacha20Block(state, out, 3);
+
+    assertThat(Arrays.copyOfRange(out, 3, out.length))
+        .isEqualTo(
+            Hex.decode(
+                "10f1e7e4d13b5915500fdd1fa32071c4c7d1f4c733c068030422aa9ac3d46c4e"
+                    + "d2826446079faa0914c2d705d98b02a2b5129cd1de164eb9cbd083e8a2503c4e"));
+    assertThat(state).isEqualTo(stateBefore);
+  }
 }
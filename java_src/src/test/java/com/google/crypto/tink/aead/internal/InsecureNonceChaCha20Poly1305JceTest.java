@@ -0,0 +1,226 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.aead.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.config.TinkFips;
+import com.google.crypto.tink.subtle.Bytes;
+import com.google.crypto.tink.subtle.Hex;
+import com.google.crypto.tink.subtle.Random;
+import com.google.crypto.tink.testing.TestUtil;
+import com.google.crypto.tink.testing.WycheproofTestUtil;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import javax.crypto.AEADBadTagException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link InsecureNonceChaCha20Poly1305Jce}. */
+@RunWith(JUnit4.class)
+public class InsecureNonceChaCha20Poly1305JceTest {
+  private static final int KEY_SIZE_IN_BYTES = 32;
+  private static final int NONCE_SIZE_IN_BYTES = 12;
+  private static final int TAG_SIZE_IN_BYTES = 16;
+
+  @Before
+  public void setUp() {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    Assume.assumeTrue(InsecureNonceChaCha20Poly1305Jce.isSupported());
+  }
+
+  @Test
+  public void create_wrongKeySize_throws() throws Exception {
+    assertThrows(
+        InvalidKeyException.class,
+        () -> InsecureNonceChaCha20Poly1305Jce.create(new byte[KEY_SIZE_IN_BYTES - 1]));
+    assertThrows(
+        InvalidKeyException.class,
+        () -> InsecureNonceChaCha20Poly1305Jce.create(new byte[KEY_SIZE_IN_BYTES + 1]));
+  }
+
+  @Test
+  public void encrypt_wrongNonceSize_throws() throws Exception {
+    InsecureNonceChaCha20Poly1305Jce cipher =
+        InsecureNonceChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> cipher.encrypt(new byte[NONCE_SIZE_IN_BYTES + 1], new byte[1], new byte[0]));
+  }
+
+  @Test
+  public void encrypt_isEqualToJavaImplementation() throws Exception {
+    byte[] key = Random.randBytes(KEY_SIZE_IN_BYTES);
+    InsecureNonceChaCha20Poly1305Jce jceCipher = InsecureNonceChaCha20Poly1305Jce.create(key);
+    InsecureNonceChaCha20Poly1305 javaCipher = new InsecureNonceChaCha20Poly1305(key);
+    int[] lengths = {0, 1, 15, 16, 17, 63, 64, 65, 1000};
+    for (int plaintextLength : lengths) {
+      for (int aadLength : lengths) {
+        byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+        byte[] plaintext = Random.randBytes(plaintextLength);
+        byte[] aad = Random.randBytes(aadLength);
+
+        byte[] ciphertext = jceCipher.encrypt(nonce, plaintext, aad);
+
+        assertThat(ciphertext).isEqualTo(javaCipher.encrypt(nonce, plaintext, aad));
+        assertThat(javaCipher.decrypt(nonce, ciphertext, aad)).isEqualTo(plaintext);
+      }
+    }
+  }
+
+  @Test
+  public void encryptDecrypt_sameNonceTwiceOnSameThread_works() throws Exception {
+    InsecureNonceChaCha20Poly1305Jce cipher =
+        InsecureNonceChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+    byte[] plaintext = Random.randBytes(20);
+    byte[] aad = Random.randBytes(20);
+
+    byte[] ciphertext = cipher.encrypt(nonce, plaintext, aad);
+
+    assertThat(cipher.decrypt(nonce, ciphertext, aad)).isEqualTo(plaintext);
+    assertThat(cipher.decrypt(nonce, ciphertext, aad)).isEqualTo(plaintext);
+    assertThat(cipher.encrypt(nonce, plaintext, aad)).isEqualTo(ciphertext);
+  }
+
+  @Test
+  public void encrypt_sameNonceTwiceOnSameThread_isDeterministic() throws Exception {
+    InsecureNonceChaCha20Poly1305Jce cipher =
+        InsecureNonceChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+    byte[] plaintext = Random.randBytes(20);
+    byte[] aad = Random.randBytes(20);
+
+    byte[] ciphertext = cipher.encrypt(nonce, plaintext, aad);
+
+    assertThat(cipher.encrypt(nonce, plaintext, aad)).isEqualTo(ciphertext);
+    ByteBuffer output = ByteBuffer.allocate(plaintext.length + TAG_SIZE_IN_BYTES);
+    cipher.encrypt(output, nonce, ByteBuffer.wrap(plaintext), ByteBuffer.wrap(aad));
+    assertThat(output.array()).isEqualTo(ciphertext);
+  }
+
+  @Test
+  public void byteBufferEncryptDecrypt_directBuffers_works() throws Exception {
+    InsecureNonceChaCha20Poly1305Jce cipher =
+        InsecureNonceChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+    byte[] plaintext = Random.randBytes(100);
+    ByteBuffer aad = ByteBuffer.allocateDirect(30);
+    aad.put(Random.randBytes(30)).flip();
+    ByteBuffer input = ByteBuffer.allocateDirect(plaintext.length);
+    input.put(plaintext).flip();
+    ByteBuffer ciphertext = ByteBuffer.allocateDirect(plaintext.length + TAG_SIZE_IN_BYTES);
+
+    cipher.encrypt(ciphertext, nonce, input, aad);
+
+    assertThat(input.remaining()).isEqualTo(0);
+    assertThat(aad.remaining()).isEqualTo(0);
+    assertThat(ciphertext.remaining()).isEqualTo(0);
+
+    ciphertext.flip();
+    aad.flip();
+    ByteBuffer decrypted = ByteBuffer.allocateDirect(plaintext.length);
+    cipher.decrypt(ciphertext, nonce, aad, decrypted);
+
+    assertThat(decrypted.remaining()).isEqualTo(0);
+    byte[] actual = new byte[plaintext.length];
+    decrypted.flip();
+    decrypted.get(actual);
+    assertThat(actual).isEqualTo(plaintext);
+  }
+
+  @Test
+  public void decrypt_modifiedCiphertext_throws() throws Exception {
+    InsecureNonceChaCha20Poly1305Jce cipher =
+        InsecureNonceChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+    byte[] aad = Random.randBytes(16);
+    byte[] ciphertext = cipher.encrypt(nonce, Random.randBytes(32), aad);
+
+    for (int i = 0; i < ciphertext.length; i++) {
+      byte[] modified = ciphertext.clone();
+      modified[i] ^= 1;
+      assertThrows(AEADBadTagException.class, () -> cipher.decrypt(nonce, modified, aad));
+    }
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> cipher.decrypt(nonce, new byte[TAG_SIZE_IN_BYTES - 1], aad));
+  }
+
+  @Test
+  public void testWycheproofVectors() throws Exception {
+    JsonObject json =
+        WycheproofTestUtil.readJson("../wycheproof/testvectors/chacha20_poly1305_test.json");
+    int errors = 0;
+    JsonArray testGroups = json.getAsJsonArray("testGroups");
+    for (int i = 0; i < testGroups.size(); i++) {
+      JsonObject group = testGroups.get(i).getAsJsonObject();
+      JsonArray tests = group.getAsJsonArray("tests");
+      for (int j = 0; j < tests.size(); j++) {
+        JsonObject testcase = tests.get(j).getAsJsonObject();
+        String tcId =
+            String.format(
+                "testcase %d (%s)",
+                testcase.get("tcId").getAsInt(), testcase.get("comment").getAsString());
+        byte[] iv = Hex.decode(testcase.get("iv").getAsString());
+        byte[] key = Hex.decode(testcase.get("key").getAsString());
+        byte[] msg = Hex.decode(testcase.get("msg").getAsString());
+        byte[] aad = Hex.decode(testcase.get("aad").getAsString());
+        byte[] ct = Hex.decode(testcase.get("ct").getAsString());
+        byte[] tag = Hex.decode(testcase.get("tag").getAsString());
+        byte[] ciphertext = Bytes.concat(ct, tag);
+        String result = testcase.get("result").getAsString();
+        try {
+          InsecureNonceChaCha20Poly1305Jce cipher = InsecureNonceChaCha20Poly1305Jce.create(key);
+          byte[] encrypted = cipher.encrypt(iv, msg, aad);
+          if (result.equals("valid") && !TestUtil.arrayEquals(encrypted, ciphertext)) {
+            System.err.printf(
+                "FAIL %s: incorrect encryption, result: %s, expected: %s%n",
+                tcId, Hex.encode(encrypted), Hex.encode(ciphertext));
+            errors++;
+          }
+          byte[] decrypted = cipher.decrypt(iv, ciphertext, aad);
+          if (result.equals("invalid")) {
+            System.out.printf(
+                "FAIL %s: accepting invalid ciphertext, cleartext: %s, decrypted: %s%n",
+                tcId, Hex.encode(msg), Hex.encode(decrypted));
+            errors++;
+          } else if (!TestUtil.arrayEquals(decrypted, msg)) {
+            System.out.printf(
+                "FAIL %s: incorrect decryption, result: %s, expected: %s%n",
+                tcId, Hex.encode(decrypted), Hex.encode(msg));
+            errors++;
+          }
+        } catch (GeneralSecurityException ex) {
+          if (result.equals("valid")) {
+            System.out.printf("FAIL %s: cannot decrypt, exception %s%n", tcId, ex);
+            errors++;
+          }
+        }
+      }
+    }
+    assertEquals(0, errors);
+  }
+}
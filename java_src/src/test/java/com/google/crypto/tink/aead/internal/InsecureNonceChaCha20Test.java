@@ -23,6 +23,7 @@ import static org.junit.Assert.assertThrows;
 import com.google.common.truth.Truth;
 import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.subtle.Random;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import org.junit.Test;
@@ -59,6 +60,33 @@ public class InsecureNonceChaCha20Test {
     }
   }
 
+  @Test
+  public void testEncrypt_directAndHeapBuffersGiveSameResult() throws Exception {
+    byte[] key = Random.randBytes(32);
+    byte[] nonce = Random.randBytes(12);
+    InsecureNonceChaCha20 cipher = createInstance(key);
+    // Lengths around the block size and around multiples of the internal key stream buffer.
+    int[] lengths = {0, 1, 63, 64, 65, 255, 256, 257, 511, 512, 513, 1000};
+    for (int length : lengths) {
+      byte[] plaintext = Random.randBytes(length);
+      byte[] expected = cipher.encrypt(nonce, plaintext);
+
+      ByteBuffer input = ByteBuffer.allocateDirect(length);
+      input.put(plaintext).flip();
+      ByteBuffer output = ByteBuffer.allocateDirect(length + 5);
+      output.position(5);
+      cipher.encrypt(output, nonce, input);
+
+      assertThat(input.remaining()).isEqualTo(0);
+      assertThat(output.position()).isEqualTo(length + 5);
+      byte[] actual = new byte[length];
+      output.position(5);
+      output.get(actual);
+      assertThat(actual).isEqualTo(expected);
+      assertThat(cipher.decrypt(nonce, expected)).isEqualTo(plaintext);
+    }
+  }
+
   @Test
   public void testNewCipherThrowsIllegalArgExpWhenKeyLenIsLessThan32() throws Exception {
     InvalidKeyException e =
@@ -0,0 +1,124 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.aead.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.config.TinkFips;
+import com.google.crypto.tink.subtle.Hex;
+import com.google.crypto.tink.subtle.Random;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import javax.crypto.AEADBadTagException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link InsecureNonceXChaCha20Poly1305Jce}. */
+@RunWith(JUnit4.class)
+public class InsecureNonceXChaCha20Poly1305JceTest {
+  private static final int KEY_SIZE_IN_BYTES = 32;
+  private static final int NONCE_SIZE_IN_BYTES = 24;
+
+  @Before
+  public void setUp() {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    Assume.assumeTrue(InsecureNonceXChaCha20Poly1305Jce.isSupported());
+  }
+
+  @Test
+  public void create_wrongKeySize_throws() throws Exception {
+    assertThrows(
+        InvalidKeyException.class,
+        () -> InsecureNonceXChaCha20Poly1305Jce.create(new byte[KEY_SIZE_IN_BYTES - 1]));
+  }
+
+  @Test
+  public void encrypt_wrongNonceSize_throws() throws Exception {
+    InsecureNonceXChaCha20Poly1305Jce cipher =
+        InsecureNonceXChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> cipher.encrypt(new byte[12], new byte[1], new byte[0]));
+  }
+
+  /** https://tools.ietf.org/html/draft-arciszewski-xchacha-01#appendix-A.1 */
+  @Test
+  public void encrypt_testVector() throws Exception {
+    byte[] key = Hex.decode("808182838485868788898a8b8c8d8e8f909192939495969798999a9b9c9d9e9f");
+    byte[] nonce = Hex.decode("404142434445464748494a4b4c4d4e4f5051525354555657");
+    byte[] aad = Hex.decode("50515253c0c1c2c3c4c5c6c7");
+    byte[] plaintext =
+        Hex.decode(
+            "4c616469657320616e642047656e746c656d656e206f662074686520636c6173"
+                + "73206f66202739393a204966204920636f756c64206f6666657220796f75206f"
+                + "6e6c79206f6e652074697020666f7220746865206675747572652c2073756e73"
+                + "637265656e20776f756c642062652069742e");
+    byte[] ciphertext =
+        Hex.decode(
+            "bd6d179d3e83d43b9576579493c0e939572a1700252bfaccbed2902c21396cbb"
+                + "731c7f1b0b4aa6440bf3a82f4eda7e39ae64c6708c54c216cb96b72e1213b452"
+                + "2f8c9ba40db5d945b11b69b982c1bb9e3f3fac2bc369488f76b2383565d3fff9"
+                + "21f9664c97637da9768812f615c68b13b52e"
+                + "c0875924c1c7987947deafd8780acf49");
+    InsecureNonceXChaCha20Poly1305Jce cipher = InsecureNonceXChaCha20Poly1305Jce.create(key);
+
+    assertThat(cipher.encrypt(nonce, plaintext, aad)).isEqualTo(ciphertext);
+    assertThat(cipher.decrypt(nonce, ciphertext, aad)).isEqualTo(plaintext);
+  }
+
+  @Test
+  public void encrypt_isEqualToJavaImplementation() throws Exception {
+    byte[] key = Random.randBytes(KEY_SIZE_IN_BYTES);
+    InsecureNonceXChaCha20Poly1305Jce jceCipher = InsecureNonceXChaCha20Poly1305Jce.create(key);
+    InsecureNonceXChaCha20Poly1305 javaCipher = new InsecureNonceXChaCha20Poly1305(key);
+    int[] lengths = {0, 1, 15, 16, 17, 63, 64, 65, 1000};
+    for (int plaintextLength : lengths) {
+      for (int aadLength : lengths) {
+        byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+        byte[] plaintext = Random.randBytes(plaintextLength);
+        byte[] aad = Random.randBytes(aadLength);
+
+        byte[] ciphertext = jceCipher.encrypt(nonce, plaintext, aad);
+
+        assertThat(ciphertext).isEqualTo(javaCipher.encrypt(nonce, plaintext, aad));
+        assertThat(jceCipher.decrypt(nonce, ciphertext, aad)).isEqualTo(plaintext);
+      }
+    }
+  }
+
+  @Test
+  public void decrypt_modifiedCiphertext_throws() throws Exception {
+    InsecureNonceXChaCha20Poly1305Jce cipher =
+        InsecureNonceXChaCha20Poly1305Jce.create(Random.randBytes(KEY_SIZE_IN_BYTES));
+    byte[] nonce = Random.randBytes(NONCE_SIZE_IN_BYTES);
+    byte[] aad = Random.randBytes(16);
+    byte[] ciphertext = cipher.encrypt(nonce, Random.randBytes(32), aad);
+
+    for (int i = 0; i < ciphertext.length; i++) {
+      byte[] modified = ciphertext.clone();
+      modified[i] ^= 1;
+      assertThrows(AEADBadTagException.class, () -> cipher.decrypt(nonce, modified, aad));
+    }
+    byte[] modifiedNonce = nonce.clone();
+    modifiedNonce[0] ^= 1;
+    assertThrows(AEADBadTagException.class, () -> cipher.decrypt(modifiedNonce, ciphertext, aad));
+  }
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 import com.google.common.truth.Truth;
 import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.subtle.Random;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import org.junit.Test;
@@ -106,6 +107,45 @@ public class Poly1305Test {
     Truth.assertThat(e).hasMessageThat().containsMatch("invalid MAC");
   }
 
+  @Test
+  public void testIncrementalMac_sameAsComputeMac() {
+    java.util.Random rand = new java.util.Random();
+    for (int i = 0; i < 200; i++) {
+      byte[] in = Random.randBytes(rand.nextInt(300));
+      byte[] key = Random.randBytes(MAC_KEY_SIZE_IN_BYTES);
+      Poly1305 poly1305 = Poly1305.init(key);
+      int pos = 0;
+      while (pos < in.length) {
+        int len = Math.min(in.length - pos, rand.nextInt(40));
+        if (rand.nextBoolean()) {
+          poly1305.update(in, pos, len);
+        } else {
+          ByteBuffer buffer = ByteBuffer.allocateDirect(len);
+          buffer.put(in, pos, len).flip();
+          poly1305.update(buffer);
+          Truth.assertThat(buffer.remaining()).isEqualTo(0);
+        }
+        pos += len;
+      }
+      Truth.assertThat(poly1305.finish()).isEqualTo(Poly1305.computeMac(key, in));
+    }
+  }
+
+  @Test
+  public void testIncrementalMac_updateAfterFinish_throws() {
+    Poly1305 poly1305 = Poly1305.init(Random.randBytes(MAC_KEY_SIZE_IN_BYTES));
+    poly1305.update(new byte[] {1, 2, 3});
+    poly1305.finish();
+    assertThrows(IllegalStateException.class, () -> poly1305.update(new byte[] {4}));
+    assertThrows(IllegalStateException.class, poly1305::finish);
+  }
+
+  @Test
+  public void testIncrementalMac_wrongKeyLength_throws() {
+    assertThrows(
+        IllegalArgumentException.class, () -> Poly1305.init(new byte[MAC_KEY_SIZE_IN_BYTES - 1]));
+  }
+
   /**
    * Tests against the test vectors in Section 2.5.2 of RFC 7539.
    * https://tools.ietf.org/html/rfc7539#section-2.5.2
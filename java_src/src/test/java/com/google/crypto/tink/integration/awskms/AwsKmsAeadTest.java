@@ -22,9 +22,13 @@ import static org.junit.Assert.assertThrows;
 
 import com.amazonaws.services.kms.AWSKMS;
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
 import com.google.crypto.tink.aead.AeadConfig;
 import com.google.crypto.tink.subtle.Random;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -123,4 +127,28 @@ public class AwsKmsAeadTest {
     Aead aeadWithInvalidArn = new AwsKmsAead(kms, invalidArn);
     assertThat(aeadWithInvalidArn.decrypt(ciphertext, aad)).isEqualTo(message);
   }
+
+  @Test
+  public void testAsyncAead_isCompatibleWithAead() throws Exception {
+    AWSKMS kms = new FakeAwsKms(asList(KEY_ARN));
+    AwsKmsAead aead = new AwsKmsAead(kms, KEY_ARN);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      AsyncAead asyncAead = aead.toAsyncAead(executor, 2, 100);
+      byte[] aad = Random.randBytes(20);
+      byte[] message = Random.randBytes(20);
+
+      byte[] ciphertext = asyncAead.encrypt(message, aad).get();
+      assertThat(aead.decrypt(ciphertext, aad)).isEqualTo(message);
+      assertThat(asyncAead.decrypt(aead.encrypt(message, aad), aad).get()).isEqualTo(message);
+
+      byte[] invalidCiphertext = Random.randBytes(2);
+      ExecutionException e =
+          assertThrows(
+              ExecutionException.class, () -> asyncAead.decrypt(invalidCiphertext, aad).get());
+      assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
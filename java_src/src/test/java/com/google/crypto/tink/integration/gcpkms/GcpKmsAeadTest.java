@@ -22,8 +22,12 @@ import static java.util.Arrays.asList;
 import static org.junit.Assert.assertThrows;
 
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
 import com.google.crypto.tink.aead.AeadConfig;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -97,4 +101,30 @@ public final class GcpKmsAeadTest {
     assertThrows(
         GeneralSecurityException.class, () -> kmsAead.decrypt(ciphertext2, associatedData));
   }
+
+  @Test
+  public void asyncAead_isCompatibleWithAead() throws Exception {
+    String keyName = "projects/tink-test/locations/global/keyRings/unit-test/cryptoKeys/aead-key";
+    FakeCloudKms fakeKms = new FakeCloudKms(asList(keyName));
+    GcpKmsAead kmsAead = new GcpKmsAead(fakeKms, keyName);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      AsyncAead asyncAead = kmsAead.toAsyncAead(executor, 2, 100);
+      byte[] plaintext = "plaintext".getBytes(UTF_8);
+      byte[] associatedData = "associatedData".getBytes(UTF_8);
+
+      byte[] ciphertext = asyncAead.encrypt(plaintext, associatedData).get();
+      assertThat(kmsAead.decrypt(ciphertext, associatedData)).isEqualTo(plaintext);
+      byte[] ciphertext2 = kmsAead.encrypt(plaintext, associatedData);
+      assertThat(asyncAead.decrypt(ciphertext2, associatedData).get()).isEqualTo(plaintext);
+
+      byte[] associatedData2 = "associatedData2".getBytes(UTF_8);
+      ExecutionException e =
+          assertThrows(
+              ExecutionException.class, () -> asyncAead.decrypt(ciphertext, associatedData2).get());
+      assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -20,10 +20,16 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
 import com.google.crypto.tink.aead.AeadConfig;
 import com.google.crypto.tink.subtle.Random;
 import io.github.jopenlibs.vault.api.Logical;
 import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -88,4 +94,50 @@ public class HcVaultAeadTest {
     assertThrows(
         GeneralSecurityException.class, () -> aead.decrypt(ciphertextFromDifferentArn, aad));
   }
+
+  @Test
+  public void testAsyncAead_batchesRequests() throws Exception {
+    Logical kms = FakeHcVault.fromURI(KEY_URI);
+    HcVaultAead aead = new HcVaultAead(kms, KEY_URI);
+    ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    AsyncAead asyncAead =
+        aead.toAsyncAead(
+            tasks::add,
+            /* maxBatchSize= */ 8,
+            /* maxConcurrentCalls= */ 1,
+            /* maxPendingRequests= */ 100);
+    byte[] aad = Random.randBytes(20);
+    List<byte[]> messages = new ArrayList<>();
+    List<CompletableFuture<byte[]>> ciphertexts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      messages.add(Random.randBytes(20));
+      ciphertexts.add(asyncAead.encrypt(messages.get(i), aad));
+    }
+    int calls = 0;
+    while (!tasks.isEmpty()) {
+      tasks.poll().run();
+      calls++;
+    }
+
+    // One call for the first request, then batches of 8 and 1 for the 9 queued ones.
+    assertThat(calls).isEqualTo(3);
+    for (int i = 0; i < 10; i++) {
+      assertThat(aead.decrypt(ciphertexts.get(i).get(), aad)).isEqualTo(messages.get(i));
+    }
+
+    // In a batch, an invalid ciphertext only fails its own request.
+    byte[] ciphertextWithOtherAad = aead.encrypt(messages.get(2), Random.randBytes(20));
+    CompletableFuture<byte[]> decrypted0 = asyncAead.decrypt(ciphertexts.get(0).get(), aad);
+    CompletableFuture<byte[]> decrypted1 = asyncAead.decrypt(ciphertexts.get(1).get(), aad);
+    CompletableFuture<byte[]> invalid = asyncAead.decrypt(ciphertextWithOtherAad, aad);
+    CompletableFuture<byte[]> decrypted3 = asyncAead.decrypt(ciphertexts.get(3).get(), aad);
+    while (!tasks.isEmpty()) {
+      tasks.poll().run();
+    }
+    assertThat(decrypted0.get()).isEqualTo(messages.get(0));
+    assertThat(decrypted1.get()).isEqualTo(messages.get(1));
+    assertThat(decrypted3.get()).isEqualTo(messages.get(3));
+    ExecutionException e = assertThrows(ExecutionException.class, invalid::get);
+    assertThat(e).hasCauseThat().isInstanceOf(GeneralSecurityException.class);
+  }
 }
@@ -21,6 +21,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertThrows;
 
 import com.google.crypto.tink.Aead;
+import com.google.crypto.tink.AsyncAead;
 import com.google.crypto.tink.KeyTemplate;
 import com.google.crypto.tink.KeyTemplates;
 import com.google.crypto.tink.KeysetHandle;
@@ -29,6 +30,7 @@ import com.google.crypto.tink.KmsClientsTestUtil;
 import com.google.crypto.tink.aead.AeadConfig;
 import com.google.crypto.tink.aead.KmsAeadKeyManager;
 import com.google.crypto.tink.aead.KmsEnvelopeAeadKeyManager;
+import io.github.jopenlibs.vault.api.Logical;
 import java.security.GeneralSecurityException;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -193,4 +195,27 @@ public final class HcVaultClientTest {
     assertThrows(
         IllegalArgumentException.class, () -> HcVaultClient.create(fakeHcVault, invalidUri));
   }
+
+  @Test
+  public void createAsyncAead_works() throws Exception {
+    Logical hcVault = FakeHcVault.fromURI(KEY_URI);
+    AsyncAead asyncAead = HcVaultClient.createAsyncAead(hcVault, KEY_URI, Runnable::run, 8, 4, 100);
+    Aead aead = HcVaultClient.create(hcVault, KEY_URI).getAead(KEY_URI);
+
+    byte[] plaintext = "plaintext".getBytes(UTF_8);
+    byte[] associatedData = "associatedData".getBytes(UTF_8);
+    byte[] ciphertext = asyncAead.encrypt(plaintext, associatedData).get();
+    assertThat(aead.decrypt(ciphertext, associatedData)).isEqualTo(plaintext);
+    assertThat(asyncAead.decrypt(ciphertext, associatedData).get()).isEqualTo(plaintext);
+  }
+
+  @Test
+  public void createAsyncAeadWithInvalidPrefix_fails() throws Exception {
+    String uri = "gcp-kms://hcvault.corp.com:8200/transit/keys/key-1";
+    assertThrows(
+        GeneralSecurityException.class,
+        () ->
+            HcVaultClient.createAsyncAead(
+                FakeHcVault.fromURI(KEY_URI), uri, Runnable::run, 8, 4, 100));
+  }
 }
@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectOutputStream;
 import java.math.BigInteger;
+import java.util.Collections;
 import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.FromDataPoints;
@@ -602,4 +603,101 @@ public final class JsonParserTest {
     assertThrows(IOException.class, () -> JsonParser.parse(testCase.input));
   }
 
+  @Theory
+  public void parseObjectMembers_fail(@FromDataPoints("testCasesFail") TestCase testCase)
+      throws Exception {
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers(testCase.input, Collections.<String>emptySet()));
+  }
+
+  @Theory
+  public void parseObjectMembers_allMembers_sameAsParse(
+      @FromDataPoints("testCasesSuccess") TestCase testCase) throws Exception {
+    if (!testCase.expected.isJsonObject()) {
+      return;
+    }
+    JsonObject expected = testCase.expected.getAsJsonObject();
+
+    assertThat(JsonParser.parseObjectMembers(testCase.input, expected.keySet()))
+        .isEqualTo(expected);
+    assertThat(JsonParser.parseObjectMembers(testCase.input, Collections.<String>emptySet()))
+        .isEqualTo(new JsonObject());
+  }
+
+  @Test
+  public void parseObjectMembers_onlyReturnsRequestedMembers() throws Exception {
+    JsonObject output =
+        JsonParser.parseObjectMembers(
+            "{\"a\": 1, \"b\": {\"c\": [true, null]}, \"d\": \"e\"}",
+            Collections.singleton("d"));
+
+    JsonObject expected = new JsonObject();
+    expected.add("d", new JsonPrimitive("e"));
+    assertThat(output).isEqualTo(expected);
+  }
+
+  @Test
+  public void parseObjectMembers_nonObject_fails() throws Exception {
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers("[1, 2]", Collections.<String>emptySet()));
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers("42", Collections.<String>emptySet()));
+  }
+
+  @Test
+  public void parseObjectMembers_tooManyRecursionsInSkippedMember_fail() throws Exception {
+    int recursionNum = 150;
+    StringBuilder sb = new StringBuilder("{\"skipped\":");
+    for (int i = 0; i < recursionNum; i++) {
+      sb.append("[");
+    }
+    for (int i = 0; i < recursionNum; i++) {
+      sb.append("]");
+    }
+    sb.append("}");
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers(sb.toString(), Collections.<String>emptySet()));
+  }
+
+  /** Returns a JSON object with a member "b" whose value nests {@code depth} arrays and objects. */
+  private static String objectWithNestedArrays(int depth) {
+    StringBuilder sb = new StringBuilder("{\"b\":");
+    for (int i = 0; i < depth - 1; i++) {
+      sb.append("[");
+    }
+    sb.append("{\"a\":1}");
+    for (int i = 0; i < depth - 1; i++) {
+      sb.append("]");
+    }
+    sb.append("}");
+    return sb.toString();
+  }
+
+  @Test
+  public void parseObjectMembers_atRecursionLimit_sameAsParse() throws Exception {
+    String json = objectWithNestedArrays(JsonParser.RECURSION_LIMIT);
+
+    JsonElement expected = JsonParser.parse(json);
+    assertThat(JsonParser.parseObjectMembers(json, Collections.singleton("b")))
+        .isEqualTo(expected);
+    assertThat(JsonParser.parseObjectMembers(json, Collections.<String>emptySet()))
+        .isEqualTo(new JsonObject());
+  }
+
+  @Test
+  public void parseObjectMembers_aboveRecursionLimit_failsLikeParse() throws Exception {
+    String json = objectWithNestedArrays(JsonParser.RECURSION_LIMIT + 1);
+
+    assertThrows(IOException.class, () -> JsonParser.parse(json));
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers(json, Collections.singleton("b")));
+    assertThrows(
+        IOException.class,
+        () -> JsonParser.parseObjectMembers(json, Collections.<String>emptySet()));
+  }
 }
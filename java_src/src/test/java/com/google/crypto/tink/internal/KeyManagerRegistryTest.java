@@ -35,6 +35,7 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -186,6 +187,51 @@ public final class KeyManagerRegistryTest {
         .isSameInstanceAs(manager2);
   }
 
+  @Test
+  public void testCopyConstructor_laterRegistrationsAreNotShared() throws Exception {
+    assumeFalse("Unable to test KeyManagers in Fips mode", TinkFipsUtil.useOnlyFips());
+    KeyManagerRegistry registry = new KeyManagerRegistry();
+    registry.registerKeyManager(new TestKeyManager("customTypeUrl1"), true);
+    KeyManagerRegistry copy = new KeyManagerRegistry(registry);
+
+    registry.registerKeyManager(new TestKeyManager("customTypeUrl2"), true);
+    copy.registerKeyManager(new TestKeyManager("customTypeUrl3"), true);
+
+    assertThat(copy.typeUrlExists("customTypeUrl1")).isTrue();
+    assertThat(copy.typeUrlExists("customTypeUrl2")).isFalse();
+    assertThat(registry.typeUrlExists("customTypeUrl3")).isFalse();
+  }
+
+  @Test
+  public void testGetKeyManager_duringConcurrentRegistrations_works() throws Exception {
+    assumeFalse("Unable to test KeyManagers in Fips mode", TinkFipsUtil.useOnlyFips());
+    KeyManagerRegistry registry = new KeyManagerRegistry();
+    TestKeyManager manager = new TestKeyManager("customTypeUrl");
+    registry.registerKeyManager(manager, true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread registeringThread =
+        new Thread(
+            () -> {
+              try {
+                for (int i = 0; i < 1000; i++) {
+                  registry.registerKeyManager(new TestKeyManager("otherTypeUrl" + i), true);
+                }
+              } catch (Throwable t) {
+                failure.set(t);
+              }
+            });
+
+    registeringThread.start();
+    while (registeringThread.isAlive()) {
+      assertThat(registry.getKeyManager("customTypeUrl", Primitive1.class))
+          .isSameInstanceAs(manager);
+    }
+    registeringThread.join();
+
+    assertThat(failure.get()).isNull();
+    assertThat(registry.typeUrlExists("otherTypeUrl999")).isTrue();
+  }
+
   @Test
   public void testRegisterKeyTypeManager_works() throws Exception {
     if (TinkFipsUtil.useOnlyFips()) {
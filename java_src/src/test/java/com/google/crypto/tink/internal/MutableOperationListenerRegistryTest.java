@@ -0,0 +1,92 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class MutableOperationListenerRegistryTest {
+
+  @Test
+  public void defaultListenerWorks() throws Exception {
+    MutableOperationListenerRegistry registry = new MutableOperationListenerRegistry();
+    OperationListener listener = registry.getOperationListener();
+    // We only expect the default listener to not throw any exceptions.
+    listener.startKmsCall("encrypt", "typeUrl").logSuccess(42L);
+    listener.startKeysetParse("binary").logFailure();
+  }
+
+  @Test
+  public void defaultListener_returnsSharedOperation() throws Exception {
+    OperationListener listener = new MutableOperationListenerRegistry().getOperationListener();
+    assertThat(listener.startKmsCall("decrypt", "typeUrl"))
+        .isSameInstanceAs(MutableOperationListenerRegistry.DO_NOTHING_OPERATION);
+    assertThat(listener.startKeysetParse("json"))
+        .isSameInstanceAs(MutableOperationListenerRegistry.DO_NOTHING_OPERATION);
+  }
+
+  private static class StubOperationListener implements OperationListener {
+    @Override
+    public OperationListener.Operation startKmsCall(String api, String dekKeyType) {
+      return null;
+    }
+
+    @Override
+    public OperationListener.Operation startKeysetParse(String format) {
+      return null;
+    }
+  }
+
+  @Test
+  public void testRegisterAndGetOperationListener() throws Exception {
+    MutableOperationListenerRegistry registry = new MutableOperationListenerRegistry();
+    OperationListener listener = new StubOperationListener();
+    registry.registerOperationListener(listener);
+    assertThat(registry.getOperationListener()).isEqualTo(listener);
+  }
+
+  @Test
+  public void testRegisterTwiceFails() throws Exception {
+    MutableOperationListenerRegistry registry = new MutableOperationListenerRegistry();
+    OperationListener listener = new StubOperationListener();
+    registry.registerOperationListener(listener);
+    assertThrows(IllegalStateException.class, () -> registry.registerOperationListener(listener));
+  }
+
+  @Test
+  public void testRegisterClearRegisterWorks() throws Exception {
+    MutableOperationListenerRegistry registry = new MutableOperationListenerRegistry();
+    OperationListener listener = new StubOperationListener();
+    registry.registerOperationListener(listener);
+    assertThat(registry.getOperationListener()).isEqualTo(listener);
+
+    registry.clear();
+
+    // After clear, we should get the default listener.
+    assertThat(registry.getOperationListener()).isNotInstanceOf(StubOperationListener.class);
+
+    // And we can register again.
+    registry.registerOperationListener(listener);
+    assertThat(registry.getOperationListener()).isEqualTo(listener);
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class PrimitiveCacheTest {
+  private static final String TYPE_URL = "type.googleapis.com/google.crypto.tink.AesGcmKey";
+  private static final long ONE_HOUR_MILLIS = 3_600_000L;
+
+  @Test
+  public void cacheKey_dependsOnAllInputs() throws Exception {
+    ByteString key = ByteString.copyFromUtf8("key");
+    PrimitiveCache.CacheKey cacheKey = PrimitiveCache.cacheKey(TYPE_URL, key, String.class);
+
+    assertThat(PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("key"), String.class))
+        .isEqualTo(cacheKey);
+    assertThat(PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("kez"), String.class))
+        .isNotEqualTo(cacheKey);
+    assertThat(PrimitiveCache.cacheKey(TYPE_URL + "x", key, String.class)).isNotEqualTo(cacheKey);
+    assertThat(PrimitiveCache.cacheKey(TYPE_URL, key, Integer.class)).isNotEqualTo(cacheKey);
+  }
+
+  @Test
+  public void cacheKey_typeUrlAndKeyBoundaryMatters() throws Exception {
+    assertThat(PrimitiveCache.cacheKey("ab", ByteString.copyFromUtf8("c"), String.class))
+        .isNotEqualTo(PrimitiveCache.cacheKey("a", ByteString.copyFromUtf8("bc"), String.class));
+  }
+
+  @Test
+  public void getAndPut_countsHitsAndMisses() throws Exception {
+    PrimitiveCache cache = new PrimitiveCache(10, ONE_HOUR_MILLIS);
+    PrimitiveCache.CacheKey cacheKey =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("key"), String.class);
+
+    assertThat(cache.get(cacheKey, String.class)).isNull();
+    cache.put(cacheKey, "primitive");
+    assertThat(cache.get(cacheKey, String.class)).isEqualTo("primitive");
+    assertThat(cache.get(cacheKey, String.class)).isEqualTo("primitive");
+
+    PrimitiveCache.Stats stats = cache.getStats();
+    assertThat(stats.getHitCount()).isEqualTo(2L);
+    assertThat(stats.getMissCount()).isEqualTo(1L);
+    assertThat(stats.getEvictionCount()).isEqualTo(0L);
+    assertThat(stats.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void put_beyondMaxSize_evictsLeastRecentlyUsed() throws Exception {
+    PrimitiveCache cache = new PrimitiveCache(2, ONE_HOUR_MILLIS);
+    PrimitiveCache.CacheKey key1 =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("1"), String.class);
+    PrimitiveCache.CacheKey key2 =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("2"), String.class);
+    PrimitiveCache.CacheKey key3 =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("3"), String.class);
+
+    cache.put(key1, "1");
+    cache.put(key2, "2");
+    assertThat(cache.get(key1, String.class)).isEqualTo("1");
+    cache.put(key3, "3");
+
+    assertThat(cache.get(key1, String.class)).isEqualTo("1");
+    assertThat(cache.get(key2, String.class)).isNull();
+    assertThat(cache.get(key3, String.class)).isEqualTo("3");
+    assertThat(cache.getStats().getEvictionCount()).isEqualTo(1L);
+    assertThat(cache.getStats().getSize()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_afterTtl_returnsNull() throws Exception {
+    PrimitiveCache cache = new PrimitiveCache(10, 1);
+    PrimitiveCache.CacheKey cacheKey =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("key"), String.class);
+    cache.put(cacheKey, "primitive");
+
+    Thread.sleep(20);
+
+    assertThat(cache.get(cacheKey, String.class)).isNull();
+    assertThat(cache.getStats().getEvictionCount()).isEqualTo(1L);
+    assertThat(cache.getStats().getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void get_maximalTtl_returnsPrimitive() throws Exception {
+    PrimitiveCache cache = new PrimitiveCache(10, Long.MAX_VALUE);
+    PrimitiveCache.CacheKey cacheKey =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("key"), String.class);
+    cache.put(cacheKey, "primitive");
+
+    assertThat(cache.get(cacheKey, String.class)).isEqualTo("primitive");
+  }
+
+  @Test
+  public void clear_removesEntries() throws Exception {
+    PrimitiveCache cache = new PrimitiveCache(10, ONE_HOUR_MILLIS);
+    PrimitiveCache.CacheKey cacheKey =
+        PrimitiveCache.cacheKey(TYPE_URL, ByteString.copyFromUtf8("key"), String.class);
+    cache.put(cacheKey, "primitive");
+
+    cache.clear();
+
+    assertThat(cache.get(cacheKey, String.class)).isNull();
+  }
+
+  @Test
+  public void constructor_invalidArguments_throws() throws Exception {
+    assertThrows(IllegalArgumentException.class, () -> new PrimitiveCache(0, ONE_HOUR_MILLIS));
+    assertThrows(IllegalArgumentException.class, () -> new PrimitiveCache(10, 0));
+  }
+}
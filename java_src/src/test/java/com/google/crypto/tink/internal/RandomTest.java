@@ -17,10 +17,14 @@
 package com.google.crypto.tink.internal;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
 
+import com.google.crypto.tink.subtle.Hex;
 import com.google.crypto.tink.testing.TestUtil;
 import java.security.Security;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 import org.conscrypt.Conscrypt;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -101,4 +105,45 @@ public final class RandomTest {
     }
     assertThat(b0).isNotEqualTo(b1);
   }
+
+  @Test
+  public void randBytesWithOffset_onlyWritesRequestedRange() throws Exception {
+    byte[] dest = new byte[100];
+    Random.randBytes(dest, 10, 64);
+    for (int i = 0; i < 10; i++) {
+      assertThat(dest[i]).isEqualTo((byte) 0);
+    }
+    for (int i = 74; i < 100; i++) {
+      assertThat(dest[i]).isEqualTo((byte) 0);
+    }
+    byte[] requested = new byte[64];
+    System.arraycopy(dest, 10, requested, 0, 64);
+    assertThat(requested).isNotEqualTo(new byte[64]);
+  }
+
+  @Test
+  public void randBytesWithOffset_large_works() throws Exception {
+    byte[] dest = new byte[5000];
+    Random.randBytes(dest, 1, 4998);
+    assertThat(dest[0]).isEqualTo((byte) 0);
+    assertThat(dest[4999]).isEqualTo((byte) 0);
+    assertThat(Random.randBytes(5000)).isNotEqualTo(new byte[5000]);
+  }
+
+  @Test
+  public void randBytesWithOffset_invalidRange_throws() throws Exception {
+    byte[] dest = new byte[10];
+    assertThrows(IndexOutOfBoundsException.class, () -> Random.randBytes(dest, 5, 6));
+    assertThrows(IndexOutOfBoundsException.class, () -> Random.randBytes(dest, -1, 2));
+    assertThrows(IndexOutOfBoundsException.class, () -> Random.randBytes(dest, 0, -1));
+    Random.randBytes(dest, 10, 0);
+  }
+
+  @Test
+  public void manySmallRandBytes_areDifferent() throws Exception {
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      assertThat(seen.add(Hex.encode(Random.randBytes(12)))).isTrue();
+    }
+  }
 }
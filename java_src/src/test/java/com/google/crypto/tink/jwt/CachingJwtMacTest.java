@@ -0,0 +1,112 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.jwt;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.KeyTemplates;
+import com.google.crypto.tink.KeysetHandle;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CachingJwtMacTest {
+
+  /** Counts how often the MAC of a token is verified. */
+  @SuppressWarnings("Immutable") // Only used in tests.
+  private static final class CountingMac implements JwtMac {
+    private final JwtMac mac;
+    int verifyCalls = 0;
+
+    CountingMac(JwtMac mac) {
+      this.mac = mac;
+    }
+
+    @Override
+    public String computeMacAndEncode(RawJwt token) throws GeneralSecurityException {
+      return mac.computeMacAndEncode(token);
+    }
+
+    @Override
+    public VerifiedJwt verifyMacAndDecode(String compact, JwtValidator validator)
+        throws GeneralSecurityException {
+      verifyCalls++;
+      return mac.verifyMacAndDecode(compact, validator);
+    }
+  }
+
+  private CountingMac countingMac;
+
+  @Before
+  public void setUp() throws GeneralSecurityException {
+    JwtMacConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_HS256"));
+    countingMac = new CountingMac(handle.getPrimitive(JwtMac.class));
+  }
+
+  @Test
+  public void verifyTwice_verifiesMacOnce() throws Exception {
+    JwtMac mac = CachingJwtMac.create(countingMac, 10);
+    String compact =
+        mac.computeMacAndEncode(RawJwt.newBuilder().setJwtId("id123").withoutExpiration().build());
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+
+    assertThat(mac.verifyMacAndDecode(compact, validator).getJwtId()).isEqualTo("id123");
+    assertThat(mac.verifyMacAndDecode(compact, validator).getJwtId()).isEqualTo("id123");
+    assertThat(countingMac.verifyCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void cachedToken_isValidatedOnEveryCall() throws Exception {
+    JwtMac mac = CachingJwtMac.create(countingMac, 10);
+    Instant now = Clock.systemUTC().instant().truncatedTo(ChronoUnit.SECONDS);
+    String compact =
+        mac.computeMacAndEncode(RawJwt.newBuilder().setExpiration(now.plusSeconds(100)).build());
+    mac.verifyMacAndDecode(compact, JwtValidator.newBuilder().build());
+
+    JwtValidator later =
+        JwtValidator.newBuilder()
+            .setClock(Clock.fixed(now.plusSeconds(200), ZoneOffset.UTC))
+            .build();
+    assertThrows(JwtInvalidException.class, () -> mac.verifyMacAndDecode(compact, later));
+    assertThat(countingMac.verifyCalls).isEqualTo(1);
+  }
+
+  @Test
+  public void failedVerification_isNotCached() throws Exception {
+    JwtMac mac = CachingJwtMac.create(countingMac, 10);
+    String compact =
+        mac.computeMacAndEncode(RawJwt.newBuilder().setJwtId("id123").withoutExpiration().build());
+    String invalidCompact = compact.substring(0, compact.length() - 4) + "AAAA";
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+
+    assertThrows(
+        GeneralSecurityException.class, () -> mac.verifyMacAndDecode(invalidCompact, validator));
+    assertThrows(
+        GeneralSecurityException.class, () -> mac.verifyMacAndDecode(invalidCompact, validator));
+    assertThat(countingMac.verifyCalls).isEqualTo(2);
+  }
+}
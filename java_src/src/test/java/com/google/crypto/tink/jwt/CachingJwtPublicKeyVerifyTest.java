@@ -0,0 +1,160 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+
+package com.google.crypto.tink.jwt;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.crypto.tink.KeyTemplates;
+import com.google.crypto.tink.KeysetHandle;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CachingJwtPublicKeyVerifyTest {
+
+  /** Counts how often the signature of a token is verified. */
+  @SuppressWarnings("Immutable") // Only used in tests.
+  private static final class CountingVerify implements JwtPublicKeyVerify {
+    private final JwtPublicKeyVerify verify;
+    int calls = 0;
+
+    CountingVerify(JwtPublicKeyVerify verify) {
+      this.verify = verify;
+    }
+
+    @Override
+    public VerifiedJwt verifyAndDecode(String compact, JwtValidator validator)
+        throws GeneralSecurityException {
+      calls++;
+      return verify.verifyAndDecode(compact, validator);
+    }
+  }
+
+  private JwtPublicKeySign signer;
+  private CountingVerify countingVerify;
+
+  @Before
+  public void setUp() throws GeneralSecurityException {
+    JwtSignatureConfig.register();
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    signer = handle.getPrimitive(JwtPublicKeySign.class);
+    countingVerify =
+        new CountingVerify(handle.getPublicKeysetHandle().getPrimitive(JwtPublicKeyVerify.class));
+  }
+
+  @Test
+  public void verifyTwice_verifiesSignatureOnce() throws Exception {
+    JwtPublicKeyVerify verify = CachingJwtPublicKeyVerify.create(countingVerify, 10);
+    String compact =
+        signer.signAndEncode(RawJwt.newBuilder().setJwtId("id123").withoutExpiration().build());
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+
+    assertThat(verify.verifyAndDecode(compact, validator).getJwtId()).isEqualTo("id123");
+    assertThat(verify.verifyAndDecode(compact, validator).getJwtId()).isEqualTo("id123");
+    assertThat(countingVerify.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void cachedToken_isValidatedOnEveryCall() throws Exception {
+    JwtPublicKeyVerify verify = CachingJwtPublicKeyVerify.create(countingVerify, 10);
+    Instant now = Clock.systemUTC().instant().truncatedTo(ChronoUnit.SECONDS);
+    String compact =
+        signer.signAndEncode(
+            RawJwt.newBuilder().setIssuer("issuer").setExpiration(now.plusSeconds(100)).build());
+    verify.verifyAndDecode(compact, JwtValidator.newBuilder().build());
+
+    JwtValidator wrongIssuer = JwtValidator.newBuilder().expectIssuer("other").build();
+    assertThrows(JwtInvalidException.class, () -> verify.verifyAndDecode(compact, wrongIssuer));
+    JwtValidator later =
+        JwtValidator.newBuilder()
+            .setClock(Clock.fixed(now.plusSeconds(200), ZoneOffset.UTC))
+            .build();
+    assertThrows(JwtInvalidException.class, () -> verify.verifyAndDecode(compact, later));
+    assertThat(countingVerify.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void failedVerification_isNotCached() throws Exception {
+    JwtPublicKeyVerify verify = CachingJwtPublicKeyVerify.create(countingVerify, 10);
+    String compact =
+        signer.signAndEncode(RawJwt.newBuilder().setIssuer("issuer").withoutExpiration().build());
+    JwtValidator wrongIssuer =
+        JwtValidator.newBuilder().allowMissingExpiration().expectIssuer("other").build();
+    String invalidCompact = compact.substring(0, compact.length() - 4) + "AAAA";
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+
+    assertThrows(JwtInvalidException.class, () -> verify.verifyAndDecode(compact, wrongIssuer));
+    assertThrows(
+        GeneralSecurityException.class, () -> verify.verifyAndDecode(invalidCompact, validator));
+    assertThrows(
+        GeneralSecurityException.class, () -> verify.verifyAndDecode(invalidCompact, validator));
+    assertThat(countingVerify.calls).isEqualTo(3);
+  }
+
+  @Test
+  public void expiredToken_isNotCached() throws Exception {
+    JwtPublicKeyVerify verify = CachingJwtPublicKeyVerify.create(countingVerify, 10);
+    Instant now = Clock.systemUTC().instant().truncatedTo(ChronoUnit.SECONDS);
+    String compact =
+        signer.signAndEncode(RawJwt.newBuilder().setExpiration(now.minusSeconds(10)).build());
+    // The clock skew makes the token still acceptable to the validator.
+    JwtValidator validator = JwtValidator.newBuilder().setClockSkew(Duration.ofMinutes(1)).build();
+
+    verify.verifyAndDecode(compact, validator);
+    verify.verifyAndDecode(compact, validator);
+    assertThat(countingVerify.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void moreThanMaxSizeTokens_evictsLeastRecentlyUsed() throws Exception {
+    JwtPublicKeyVerify verify = CachingJwtPublicKeyVerify.create(countingVerify, 2);
+    String compact1 =
+        signer.signAndEncode(RawJwt.newBuilder().setJwtId("1").withoutExpiration().build());
+    String compact2 =
+        signer.signAndEncode(RawJwt.newBuilder().setJwtId("2").withoutExpiration().build());
+    String compact3 =
+        signer.signAndEncode(RawJwt.newBuilder().setJwtId("3").withoutExpiration().build());
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+
+    verify.verifyAndDecode(compact1, validator);
+    verify.verifyAndDecode(compact2, validator);
+    verify.verifyAndDecode(compact1, validator);
+    verify.verifyAndDecode(compact3, validator);
+    assertThat(countingVerify.calls).isEqualTo(3);
+
+    verify.verifyAndDecode(compact1, validator);
+    assertThat(countingVerify.calls).isEqualTo(3);
+    verify.verifyAndDecode(compact2, validator);
+    assertThat(countingVerify.calls).isEqualTo(4);
+  }
+
+  @Test
+  public void create_invalidMaxSize_throws() throws Exception {
+    assertThrows(
+        IllegalArgumentException.class, () -> CachingJwtPublicKeyVerify.create(countingVerify, 0));
+  }
+}
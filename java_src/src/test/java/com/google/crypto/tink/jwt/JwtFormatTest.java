@@ -107,6 +107,50 @@ public final class JwtFormatTest {
     assertThat(JwtFormat.getKeyId("dBjftJeZ4CVP-mB92K27uhbUJU1p1r").isPresent()).isFalse();
   }
 
+  @Test
+  public void getKeyId_invalidBase64_isNotPresent() throws Exception {
+    assertThat(JwtFormat.getKeyId("Gsap!A").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyId("my custom kid").isPresent()).isFalse();
+  }
+
+  @Test
+  public void getKeyIdFromHeader_success() throws Exception {
+    String header = JwtFormat.createHeader("HS256", Optional.empty(), Optional.of("GsapRA"));
+
+    assertThat(JwtFormat.getKeyIdFromHeader(header + ".e30.c2ln").get()).isEqualTo(0x1ac6a944);
+  }
+
+  @Test
+  public void getKeyIdFromHeader_noTinkKid_isNotPresent() throws Exception {
+    String noKid = JwtFormat.createHeader("HS256", Optional.empty(), Optional.empty());
+    String customKid =
+        JwtFormat.createHeader("HS256", Optional.empty(), Optional.of("custom-kid"));
+    String numberKid = JwtFormat.encodePayload("{\"alg\":\"HS256\",\"kid\":42}");
+
+    assertThat(JwtFormat.getKeyIdFromHeader(noKid + ".e30.c2ln").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyIdFromHeader(customKid + ".e30.c2ln").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyIdFromHeader(numberKid + ".e30.c2ln").isPresent()).isFalse();
+  }
+
+  @Test
+  public void getKeyIdFromHeader_malformedToken_isNotPresent() throws Exception {
+    assertThat(JwtFormat.getKeyIdFromHeader("").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyIdFromHeader("e30").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyIdFromHeader("!!!.e30.c2ln").isPresent()).isFalse();
+    assertThat(JwtFormat.getKeyIdFromHeader("bm90IGpzb24.e30.c2ln").isPresent()).isFalse();
+  }
+
+  @Test
+  public void getKidFromHeader_returnsRawKid() throws Exception {
+    String customKid =
+        JwtFormat.createHeader("HS256", Optional.empty(), Optional.of("custom-kid"));
+    String noKid = JwtFormat.createHeader("HS256", Optional.empty(), Optional.empty());
+
+    assertThat(JwtFormat.getKidFromHeader(customKid + ".e30.c2ln").get()).isEqualTo("custom-kid");
+    assertThat(JwtFormat.getKidFromHeader(noKid + ".e30.c2ln").isPresent()).isFalse();
+    assertThat(JwtFormat.getKidFromHeader("!!!.e30.c2ln").isPresent()).isFalse();
+  }
+
   @Test
   public void getKidFromUnsupportedOutputPrefixType_fails() throws Exception {
     int keyId = 0x1ac6a944;
@@ -171,6 +171,46 @@ public class JwtMacWrapperTest {
         () -> oldJwtMac.verifyMacAndDecode(newSignedCompact, validator));
   }
 
+  @Test
+  public void test_wrapTinkAndRawKeys_verifiesTokensOfEachKey() throws Exception {
+    KeysetHandle tinkHandle =
+        KeysetHandle.newBuilder()
+            .addEntry(
+                KeysetHandle.generateEntryFromParametersName("JWT_HS256")
+                    .withRandomId()
+                    .makePrimary())
+            .build();
+    KeysetHandle rawHandle =
+        KeysetHandle.newBuilder()
+            .addEntry(
+                KeysetHandle.generateEntryFromParametersName("JWT_HS256_RAW")
+                    .withRandomId()
+                    .makePrimary())
+            .build();
+    KeysetHandle otherTinkHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_HS256"));
+    KeysetHandle combinedHandle =
+        KeysetHandle.newBuilder(tinkHandle)
+            .addEntry(KeysetHandle.importKey(rawHandle.getAt(0).getKey()).withRandomId())
+            .addEntry(
+                KeysetHandle.generateEntryFromParametersName("JWT_HS256").withRandomId())
+            .build();
+
+    RawJwt rawToken = RawJwt.newBuilder().setJwtId("jwtId").withoutExpiration().build();
+    String tinkCompact = tinkHandle.getPrimitive(JwtMac.class).computeMacAndEncode(rawToken);
+    String rawCompact = rawHandle.getPrimitive(JwtMac.class).computeMacAndEncode(rawToken);
+    String otherCompact = otherTinkHandle.getPrimitive(JwtMac.class).computeMacAndEncode(rawToken);
+
+    JwtMac combinedJwtMac = combinedHandle.getPrimitive(JwtMac.class);
+    JwtValidator validator = JwtValidator.newBuilder().allowMissingExpiration().build();
+    assertThat(combinedJwtMac.verifyMacAndDecode(tinkCompact, validator).getJwtId())
+        .isEqualTo("jwtId");
+    assertThat(combinedJwtMac.verifyMacAndDecode(rawCompact, validator).getJwtId())
+        .isEqualTo("jwtId");
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> combinedJwtMac.verifyMacAndDecode(otherCompact, validator));
+  }
+
   @Test
   public void wrongKey_throwsInvalidSignatureException() throws Exception {
     KeysetHandle keysetHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_HS256"));
@@ -527,6 +527,30 @@ public final class RawJwtTest {
     assertThat(custom.get("string").getAsString()).isEqualTo("value");
   }
 
+  @Test
+  public void fromJsonPayload_customClaimsAndPayload_success() throws Exception {
+    String input = "{\"iss\":\"issuer\",\"bool\":true,\"num\":1.5,\"arr\":[1,\"a\"]}";
+
+    RawJwt token = RawJwt.fromJsonPayload(Optional.empty(), input);
+    assertThat(token.getIssuer()).isEqualTo("issuer");
+    assertThat(token.customClaimNames()).containsExactly("bool", "num", "arr");
+    assertThat(token.getBooleanClaim("bool")).isTrue();
+    assertThat(token.getNumberClaim("num")).isEqualTo(1.5);
+    assertThat(token.getJsonArrayClaim("arr")).isEqualTo("[1,\"a\"]");
+    assertThat(token.hasStringClaim("num")).isFalse();
+    assertThat(token.getJsonPayload()).isEqualTo(input);
+  }
+
+  @Test
+  public void fromJsonPayloadWithInvalidCustomClaim_throws() throws Exception {
+    assertThrows(
+        JwtInvalidException.class,
+        () -> RawJwt.fromJsonPayload(Optional.empty(), "{\"custom\":{\"a\":1,\"a\":2}}"));
+    assertThrows(
+        JwtInvalidException.class,
+        () -> RawJwt.fromJsonPayload(Optional.empty(), "{\"custom\":[\"\\uD800\"]}"));
+  }
+
   @Test
   public void fromJsonPayloadWithTypeHeader_success() throws Exception {
     RawJwt token = RawJwt.fromJsonPayload(Optional.of("myType"), "{}");
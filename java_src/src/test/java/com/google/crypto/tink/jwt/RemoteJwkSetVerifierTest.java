@@ -0,0 +1,318 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.jwt;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.crypto.tink.KeyTemplates;
+import com.google.crypto.tink.KeysetHandle;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class RemoteJwkSetVerifierTest {
+  private static final String URL = "https://example.com/jwks.json";
+
+  /** A clock which only moves when the test advances it. */
+  private static final class FakeClock extends Clock {
+    private Instant now = Instant.ofEpochSecond(1234567);
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+
+  /** Runs background refreshes when the test asks for them. */
+  private static final class QueueExecutor implements Executor {
+    private final List<Runnable> queue = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      queue.add(command);
+    }
+
+    void runAll() {
+      List<Runnable> commands = new ArrayList<>(queue);
+      queue.clear();
+      for (Runnable command : commands) {
+        command.run();
+      }
+    }
+  }
+
+  private final AtomicInteger requestCount = new AtomicInteger(0);
+  private String jwkSet;
+  private String cacheControl;
+  private int statusCode;
+  private FakeClock clock;
+  private QueueExecutor executor;
+  private final BlockingQueue<Thread> requestThreads = new LinkedBlockingQueue<>();
+  private HttpTransport httpTransport;
+  private JwtValidator validator;
+
+  @Before
+  public void setUp() throws Exception {
+    JwtSignatureConfig.register();
+    cacheControl = "public, max-age=3600";
+    statusCode = 200;
+    clock = new FakeClock();
+    executor = new QueueExecutor();
+    httpTransport =
+        new MockHttpTransport() {
+          @Override
+          public LowLevelHttpRequest buildRequest(String method, String url) {
+            return new MockLowLevelHttpRequest() {
+              @Override
+              public LowLevelHttpResponse execute() throws IOException {
+                requestCount.incrementAndGet();
+                requestThreads.add(Thread.currentThread());
+                MockLowLevelHttpResponse response =
+                    new MockLowLevelHttpResponse().setContent(jwkSet).setStatusCode(statusCode);
+                if (cacheControl != null) {
+                  response.addHeader("Cache-Control", cacheControl);
+                }
+                return response;
+              }
+            };
+          }
+        };
+    validator = JwtValidator.newBuilder().ignoreIssuer().allowMissingExpiration().build();
+  }
+
+  private RemoteJwkSetVerifier newVerifier() throws Exception {
+    return RemoteJwkSetVerifier.builder()
+        .setUrl(URL)
+        .setHttpTransport(httpTransport)
+        .setExecutor(executor)
+        .setClock(clock)
+        .setRefreshCheckInterval(Duration.ofSeconds(30))
+        .setMinForcedRefreshInterval(Duration.ofSeconds(60))
+        .build();
+  }
+
+  private static String sign(KeysetHandle handle, String issuer) throws GeneralSecurityException {
+    JwtPublicKeySign signer = handle.getPrimitive(JwtPublicKeySign.class);
+    return signer.signAndEncode(RawJwt.newBuilder().setIssuer(issuer).withoutExpiration().build());
+  }
+
+  private static String toJwkSet(KeysetHandle handle) throws Exception {
+    return JwkSetConverter.fromPublicKeysetHandle(handle.getPublicKeysetHandle());
+  }
+
+  @Test
+  public void verify_keyFromDownloadedSet_works() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    jwkSet = toJwkSet(handle);
+
+    RemoteJwkSetVerifier verifier = newVerifier();
+
+    assertThat(requestCount.get()).isEqualTo(1);
+    VerifiedJwt verified = verifier.verifyAndDecode(sign(handle, "issuer"), validator);
+    assertThat(verified.getIssuer()).isEqualTo("issuer");
+  }
+
+  @Test
+  public void build_downloadFails_throws() throws Exception {
+    statusCode = 500;
+
+    assertThrows(IOException.class, this::newVerifier);
+  }
+
+  @Test
+  public void build_httpUrl_throws() throws Exception {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> RemoteJwkSetVerifier.builder().setUrl("http://example.com/jwks.json").build());
+  }
+
+  @Test
+  public void verify_unknownKid_forcesRefreshInBackground() throws Exception {
+    KeysetHandle oldHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    KeysetHandle newHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    jwkSet = toJwkSet(oldHandle);
+    RemoteJwkSetVerifier verifier = newVerifier();
+    String token = sign(newHandle, "issuer");
+
+    // The JWK set is still cached, but the token was signed with a key which is not in it.
+    jwkSet = toJwkSet(newHandle);
+    assertThrows(GeneralSecurityException.class, () -> verifier.verifyAndDecode(token, validator));
+    assertThat(requestCount.get()).isEqualTo(1);
+
+    executor.runAll();
+
+    assertThat(requestCount.get()).isEqualTo(2);
+    assertThat(verifier.verifyAndDecode(token, validator).getIssuer()).isEqualTo("issuer");
+  }
+
+  @Test
+  public void verify_unknownKid_forcedRefreshesAreRateLimited() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    KeysetHandle otherHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    jwkSet = toJwkSet(handle);
+    RemoteJwkSetVerifier verifier = newVerifier();
+    String token = sign(otherHandle, "issuer");
+
+    assertThrows(GeneralSecurityException.class, () -> verifier.verifyAndDecode(token, validator));
+    executor.runAll();
+    assertThrows(GeneralSecurityException.class, () -> verifier.verifyAndDecode(token, validator));
+    executor.runAll();
+    assertThat(requestCount.get()).isEqualTo(2);
+
+    clock.advance(Duration.ofSeconds(61));
+    assertThrows(GeneralSecurityException.class, () -> verifier.verifyAndDecode(token, validator));
+    executor.runAll();
+    assertThat(requestCount.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void verify_invalidSignatureWithKnownKid_doesNotRefresh() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    jwkSet = toJwkSet(handle);
+    RemoteJwkSetVerifier verifier = newVerifier();
+    String token = sign(handle, "issuer");
+    String tamperedToken = token.substring(0, token.length() - 4) + "AAAA";
+
+    assertThrows(
+        GeneralSecurityException.class, () -> verifier.verifyAndDecode(tamperedToken, validator));
+    executor.runAll();
+
+    assertThat(requestCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void verify_honorsCacheControl() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    jwkSet = toJwkSet(handle);
+    String token = sign(handle, "issuer");
+    RemoteJwkSetVerifier verifier = newVerifier();
+
+    clock.advance(Duration.ofSeconds(31));
+    verifier.verifyAndDecode(token, validator);
+    executor.runAll();
+
+    // The JWK set may be cached for an hour, so checking it does not download it again.
+    assertThat(requestCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void verify_withoutCacheControl_refreshesInBackground() throws Exception {
+    KeysetHandle oldHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    KeysetHandle newHandle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    cacheControl = null;
+    jwkSet = toJwkSet(oldHandle);
+    RemoteJwkSetVerifier verifier = newVerifier();
+    String oldToken = sign(oldHandle, "old");
+
+    jwkSet = toJwkSet(newHandle);
+    verifier.verifyAndDecode(oldToken, validator);
+    assertThat(requestCount.get()).isEqualTo(1);
+
+    clock.advance(Duration.ofSeconds(31));
+    // The refresh only starts in the background, so this still uses the old keys.
+    assertThat(verifier.verifyAndDecode(oldToken, validator).getIssuer()).isEqualTo("old");
+    executor.runAll();
+
+    assertThat(requestCount.get()).isEqualTo(2);
+    assertThrows(
+        GeneralSecurityException.class, () -> verifier.verifyAndDecode(oldToken, validator));
+    assertThat(verifier.verifyAndDecode(sign(newHandle, "new"), validator).getIssuer())
+        .isEqualTo("new");
+  }
+
+  @Test
+  public void verify_defaultExecutor_downloadsOnDaemonThread() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    cacheControl = null;
+    jwkSet = toJwkSet(handle);
+    String token = sign(handle, "issuer");
+    RemoteJwkSetVerifier verifier =
+        RemoteJwkSetVerifier.builder()
+            .setUrl(URL)
+            .setHttpTransport(httpTransport)
+            .setClock(clock)
+            .build();
+    // The first download runs in the thread which calls build.
+    assertThat(requestThreads.take()).isSameInstanceAs(Thread.currentThread());
+
+    clock.advance(Duration.ofSeconds(31));
+    verifier.verifyAndDecode(token, validator);
+
+    Thread downloadThread = requestThreads.poll(10, TimeUnit.SECONDS);
+    assertThat(downloadThread).isNotNull();
+    assertThat(downloadThread.isDaemon()).isTrue();
+  }
+
+  @Test
+  public void verify_failedRefresh_keepsCurrentKeys() throws Exception {
+    KeysetHandle handle = KeysetHandle.generateNew(KeyTemplates.get("JWT_ES256"));
+    cacheControl = null;
+    jwkSet = toJwkSet(handle);
+    String token = sign(handle, "issuer");
+    RemoteJwkSetVerifier verifier = newVerifier();
+
+    statusCode = 500;
+    clock.advance(Duration.ofSeconds(31));
+    verifier.verifyAndDecode(token, validator);
+    executor.runAll();
+    statusCode = 200;
+    jwkSet = "not a jwk set";
+    clock.advance(Duration.ofSeconds(31));
+    verifier.verifyAndDecode(token, validator);
+    executor.runAll();
+
+    assertThat(requestCount.get()).isEqualTo(3);
+    assertThat(verifier.verifyAndDecode(token, validator).getIssuer()).isEqualTo("issuer");
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.crypto.tink.KeyStatus;
+import com.google.crypto.tink.internal.MutableOperationListenerRegistry;
+import com.google.crypto.tink.internal.OperationListener;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests JfrMonitoringClient */
+@RunWith(JUnit4.class)
+public final class JfrMonitoringClientTest {
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static final String EVENT_NAME = "com.google.crypto.tink.PrimitiveOperation";
+  private static final String KMS_CALL_EVENT_NAME = "com.google.crypto.tink.KmsCall";
+  private static final String KEYSET_PARSE_EVENT_NAME = "com.google.crypto.tink.KeysetParse";
+
+  private static MonitoringKeysetInfo makeKeysetInfo() throws Exception {
+    return MonitoringKeysetInfo.newBuilder()
+        .setAnnotations(MonitoringAnnotations.newBuilder().add("name", "value").build())
+        .addEntry(KeyStatus.ENABLED, 42, "typeUrl42", "TINK")
+        .setPrimaryKeyId(42)
+        .build();
+  }
+
+  @Test
+  public void enabledEvent_isRecorded() throws Exception {
+    MonitoringClient.Logger logger =
+        new JfrMonitoringClient().createLogger(makeKeysetInfo(), "aead", "encrypt");
+    Path file = tmpFolder.newFile("recording.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      recording.enable(EVENT_NAME);
+      recording.start();
+      logger.logStart();
+      Thread.sleep(20);
+      logger.log(42, 100, 12345);
+      logger.logFailure(678);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    assertThat(events).hasSize(2);
+    RecordedEvent success = events.get(0);
+    assertThat(success.getEventType().getName()).isEqualTo(EVENT_NAME);
+    assertThat(success.getString("primitive")).isEqualTo("aead");
+    assertThat(success.getString("api")).isEqualTo("encrypt");
+    assertThat(success.getInt("keyId")).isEqualTo(42);
+    assertThat(success.getString("keyType")).isEqualTo("typeUrl42");
+    assertThat(success.getString("keysetAnnotations")).isEqualTo("{name=value}");
+    assertThat(success.getLong("numBytesAsInput")).isEqualTo(100L);
+    assertThat(success.getBoolean("success")).isTrue();
+    // The event lasts from logStart to log.
+    assertThat(success.getDuration().toMillis()).isAtLeast(20L);
+    RecordedEvent failure = events.get(1);
+    assertThat(failure.getBoolean("success")).isFalse();
+    // The start of this call was not logged.
+    assertThat(failure.getDuration().isZero()).isTrue();
+  }
+
+  @Test
+  public void disabledEvent_isNotRecorded() throws Exception {
+    MonitoringClient.Logger logger =
+        new JfrMonitoringClient().createLogger(makeKeysetInfo(), "mac", "verify");
+    Path file = tmpFolder.newFile("recording.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      recording.disable(EVENT_NAME);
+      recording.start();
+      logger.log(42, 100, 12345);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      assertThat(event.getEventType().getName()).isNotEqualTo(EVENT_NAME);
+    }
+  }
+
+  @Test
+  public void kmsCallAndKeysetParseEvents_areRecorded() throws Exception {
+    JfrMonitoringClient client = new JfrMonitoringClient();
+    Path file = tmpFolder.newFile("recording.jfr").toPath();
+    try (Recording recording = new Recording()) {
+      recording.enable(KMS_CALL_EVENT_NAME);
+      recording.enable(KEYSET_PARSE_EVENT_NAME);
+      recording.start();
+      OperationListener.Operation kmsCall = client.startKmsCall("encrypt", "dekTypeUrl");
+      Thread.sleep(20);
+      kmsCall.logSuccess(32);
+      client.startKeysetParse("json").logFailure();
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    assertThat(events).hasSize(2);
+    RecordedEvent kmsCall = events.get(0);
+    assertThat(kmsCall.getEventType().getName()).isEqualTo(KMS_CALL_EVENT_NAME);
+    assertThat(kmsCall.getString("api")).isEqualTo("encrypt");
+    assertThat(kmsCall.getString("dekKeyType")).isEqualTo("dekTypeUrl");
+    assertThat(kmsCall.getLong("numBytesAsInput")).isEqualTo(32L);
+    assertThat(kmsCall.getBoolean("success")).isTrue();
+    assertThat(kmsCall.getDuration().toMillis()).isAtLeast(20L);
+    RecordedEvent parse = events.get(1);
+    assertThat(parse.getEventType().getName()).isEqualTo(KEYSET_PARSE_EVENT_NAME);
+    assertThat(parse.getString("format")).isEqualTo("json");
+    assertThat(parse.getLong("numBytesAsInput")).isEqualTo(0L);
+    assertThat(parse.getBoolean("success")).isFalse();
+  }
+
+  @Test
+  public void disabledKmsCallAndKeysetParseEvents_doNotAllocate() throws Exception {
+    JfrMonitoringClient client = new JfrMonitoringClient();
+    try (Recording recording = new Recording()) {
+      recording.disable(KMS_CALL_EVENT_NAME);
+      recording.disable(KEYSET_PARSE_EVENT_NAME);
+      recording.start();
+      assertThat(client.startKmsCall("decrypt", "dekTypeUrl"))
+          .isSameInstanceAs(MutableOperationListenerRegistry.DO_NOTHING_OPERATION);
+      assertThat(client.startKeysetParse("binary"))
+          .isSameInstanceAs(MutableOperationListenerRegistry.DO_NOTHING_OPERATION);
+      recording.stop();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests LatencyHistogram */
+@RunWith(JUnit4.class)
+public final class LatencyHistogramTest {
+
+  @Test
+  public void emptyHistogram() throws Exception {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(0L);
+    assertThat(snapshot.getTotalNanos()).isEqualTo(0L);
+    assertThat(snapshot.getBuckets()).isEmpty();
+    assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(0L);
+  }
+
+  @Test
+  public void smallValues_haveExactBuckets() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 0; value < 16; value++) {
+      histogram.record(value);
+    }
+    List<LatencyHistogram.Bucket> buckets = histogram.getSnapshot().getBuckets();
+    assertThat(buckets).hasSize(16);
+    for (int i = 0; i < 16; i++) {
+      assertThat(buckets.get(i).getLowerBoundNanos()).isEqualTo((long) i);
+      assertThat(buckets.get(i).getUpperBoundNanos()).isEqualTo((long) i);
+      assertThat(buckets.get(i).getCount()).isEqualTo(1L);
+    }
+  }
+
+  @Test
+  public void bucketBounds_containValueWithinOneEighth() throws Exception {
+    long[] values = {16, 17, 1000, 123456789, 1L << 40, (1L << 40) - 1, Long.MAX_VALUE};
+    for (long value : values) {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(value);
+      LatencyHistogram.Bucket bucket = histogram.getSnapshot().getBuckets().get(0);
+      assertThat(bucket.getLowerBoundNanos()).isAtMost(value);
+      assertThat(bucket.getUpperBoundNanos()).isAtLeast(value);
+      assertThat(bucket.getUpperBoundNanos() - bucket.getLowerBoundNanos())
+          .isLessThan(bucket.getLowerBoundNanos() / 8);
+    }
+  }
+
+  @Test
+  public void negativeValue_isRecordedAsZero() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(1L);
+    assertThat(snapshot.getTotalNanos()).isEqualTo(0L);
+    assertThat(snapshot.getBuckets().get(0).getUpperBoundNanos()).isEqualTo(0L);
+  }
+
+  @Test
+  public void getValueAtPercentile_works() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 1000; value++) {
+      histogram.record(value * 1000);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(1000L);
+    assertThat(snapshot.getTotalNanos()).isEqualTo(500500000L);
+    // The returned values are upper bounds of buckets, which are at most 12.5% too large.
+    assertThat(snapshot.getValueAtPercentile(0)).isAtLeast(1000L);
+    assertThat(snapshot.getValueAtPercentile(0)).isAtMost(1125L);
+    assertThat(snapshot.getValueAtPercentile(50)).isAtLeast(500000L);
+    assertThat(snapshot.getValueAtPercentile(50)).isAtMost(562500L);
+    assertThat(snapshot.getValueAtPercentile(99)).isAtLeast(990000L);
+    assertThat(snapshot.getValueAtPercentile(99)).isAtMost(1113750L);
+    assertThat(snapshot.getValueAtPercentile(100)).isAtLeast(1000000L);
+    assertThat(snapshot.getValueAtPercentile(100)).isAtMost(1125000L);
+  }
+
+  @Test
+  public void getValueAtPercentile_invalidPercentile_throws() throws Exception {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+    assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(-1));
+    assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(100.5));
+    assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(Double.NaN));
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2023 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+///////////////////////////////////////////////////////////////////////////////
+
+package com.google.crypto.tink.monitoring;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.crypto.tink.KeyStatus;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests MetricsMonitoringClient */
+@RunWith(JUnit4.class)
+public final class MetricsMonitoringClientTest {
+
+  private static MonitoringKeysetInfo makeKeysetInfo() throws Exception {
+    return MonitoringKeysetInfo.newBuilder()
+        .addEntry(KeyStatus.ENABLED, 42, "typeUrl42", "TINK")
+        .addEntry(KeyStatus.ENABLED, -7, "typeUrl7", "RAW")
+        .setPrimaryKeyId(42)
+        .build();
+  }
+
+  @Test
+  public void countsCallsAndBytesPerKey() throws Exception {
+    MetricsMonitoringClient client = MetricsMonitoringClient.newBuilder().build();
+    MonitoringClient.Logger encLogger = client.createLogger(makeKeysetInfo(), "aead", "encrypt");
+    MonitoringClient.Logger decLogger = client.createLogger(makeKeysetInfo(), "aead", "decrypt");
+
+    encLogger.log(42, 10);
+    encLogger.log(42, 20, 1000);
+    encLogger.log(-7, 5);
+    decLogger.log(-7, 3);
+    decLogger.logFailure();
+    decLogger.logFailure(1000);
+
+    MetricsMonitoringClient.Snapshot snapshot = client.getSnapshot();
+    List<MetricsMonitoringClient.Entry> entries = snapshot.getEntries();
+    assertThat(entries).hasSize(4);
+    // Entries are ordered by primitive, api and key id.
+    assertThat(entries.get(0).getApi()).isEqualTo("decrypt");
+    assertThat(entries.get(0).getKeyId()).isEqualTo(-7);
+    assertThat(entries.get(0).getCallCount()).isEqualTo(1L);
+    assertThat(entries.get(0).getNumBytesAsInput()).isEqualTo(3L);
+    assertThat(entries.get(1).getApi()).isEqualTo("decrypt");
+    assertThat(entries.get(1).getKeyId()).isEqualTo(42);
+    assertThat(entries.get(1).getCallCount()).isEqualTo(0L);
+    assertThat(entries.get(2).getApi()).isEqualTo("encrypt");
+    assertThat(entries.get(2).getKeyId()).isEqualTo(-7);
+    assertThat(entries.get(2).getCallCount()).isEqualTo(1L);
+    assertThat(entries.get(2).getNumBytesAsInput()).isEqualTo(5L);
+    assertThat(entries.get(3).getPrimitive()).isEqualTo("aead");
+    assertThat(entries.get(3).getApi()).isEqualTo("encrypt");
+    assertThat(entries.get(3).getKeyId()).isEqualTo(42);
+    assertThat(entries.get(3).getCallCount()).isEqualTo(2L);
+    assertThat(entries.get(3).getNumBytesAsInput()).isEqualTo(30L);
+    assertThat(entries.get(3).getLatencies()).isNull();
+
+    List<MetricsMonitoringClient.FailureEntry> failures = snapshot.getFailureEntries();
+    assertThat(failures).hasSize(2);
+    assertThat(failures.get(0).getApi()).isEqualTo("decrypt");
+    assertThat(failures.get(0).getFailureCount()).isEqualTo(2L);
+    assertThat(failures.get(0).getLatencies()).isNull();
+    assertThat(failures.get(1).getApi()).isEqualTo("encrypt");
+    assertThat(failures.get(1).getFailureCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void recordLatencies_recordsElapsedTimes() throws Exception {
+    MetricsMonitoringClient client =
+        MetricsMonitoringClient.newBuilder().setRecordLatencies(true).build();
+    MonitoringClient.Logger logger = client.createLogger(makeKeysetInfo(), "mac", "verify");
+
+    logger.log(42, 10, 1000);
+    logger.log(42, 10, 2000);
+    // Calls which do not report the elapsed time are counted, but have no latency.
+    logger.log(42, 10);
+    logger.logFailure(5000);
+
+    MetricsMonitoringClient.Snapshot snapshot = client.getSnapshot();
+    MetricsMonitoringClient.Entry entry = snapshot.getEntries().get(1);
+    assertThat(entry.getKeyId()).isEqualTo(42);
+    assertThat(entry.getCallCount()).isEqualTo(3L);
+    assertThat(entry.getLatencies().getCount()).isEqualTo(2L);
+    assertThat(entry.getLatencies().getTotalNanos()).isEqualTo(3000L);
+    assertThat(entry.getLatencies().getValueAtPercentile(100)).isAtLeast(2000L);
+    MetricsMonitoringClient.FailureEntry failure = snapshot.getFailureEntries().get(0);
+    assertThat(failure.getFailureCount()).isEqualTo(1L);
+    assertThat(failure.getLatencies().getTotalNanos()).isEqualTo(5000L);
+  }
+
+  @Test
+  public void loggersOfSameOperation_shareCounters() throws Exception {
+    MetricsMonitoringClient client = MetricsMonitoringClient.newBuilder().build();
+    MonitoringClient.Logger logger1 = client.createLogger(makeKeysetInfo(), "prf", "compute");
+    MonitoringClient.Logger logger2 = client.createLogger(makeKeysetInfo(), "prf", "compute");
+
+    logger1.log(42, 1);
+    logger2.log(42, 2);
+    // A key id which is not in the keyset of the logger is still counted.
+    logger2.log(123, 4);
+
+    List<MetricsMonitoringClient.Entry> entries = client.getSnapshot().getEntries();
+    assertThat(entries).hasSize(3);
+    assertThat(entries.get(1).getKeyId()).isEqualTo(42);
+    assertThat(entries.get(1).getCallCount()).isEqualTo(2L);
+    assertThat(entries.get(1).getNumBytesAsInput()).isEqualTo(3L);
+    assertThat(entries.get(2).getKeyId()).isEqualTo(123);
+    assertThat(entries.get(2).getNumBytesAsInput()).isEqualTo(4L);
+  }
+
+  @Test
+  public void concurrentLogging_countsAllCalls() throws Exception {
+    MetricsMonitoringClient client =
+        MetricsMonitoringClient.newBuilder().setRecordLatencies(true).build();
+    MonitoringClient.Logger logger = client.createLogger(makeKeysetInfo(), "aead", "encrypt");
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1000; j++) {
+                  logger.log(42, 2, j);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    MetricsMonitoringClient.Entry entry = client.getSnapshot().getEntries().get(1);
+    assertThat(entry.getCallCount()).isEqualTo(8000L);
+    assertThat(entry.getNumBytesAsInput()).isEqualTo(16000L);
+    assertThat(entry.getLatencies().getCount()).isEqualTo(8000L);
+  }
+}
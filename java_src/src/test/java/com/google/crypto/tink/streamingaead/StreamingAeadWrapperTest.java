@@ -179,6 +179,60 @@ public class StreamingAeadWrapperTest {
         shiftedPrimaryStreamingAead, streamingAead, 0, 20, 5);
   }
 
+  @Test
+  public void decrypt_keysWithDifferentHeaderLengths_works() throws Exception {
+    AesGcmHkdfStreamingParameters parameters16 =
+        AesGcmHkdfStreamingParameters.builder()
+            .setKeySizeBytes(32)
+            .setDerivedAesGcmKeySizeBytes(16)
+            .setHkdfHashType(AesGcmHkdfStreamingParameters.HashType.SHA256)
+            .setCiphertextSegmentSizeBytes(64)
+            .build();
+    AesGcmHkdfStreamingParameters parameters32 =
+        AesGcmHkdfStreamingParameters.builder()
+            .setKeySizeBytes(32)
+            .setDerivedAesGcmKeySizeBytes(32)
+            .setHkdfHashType(AesGcmHkdfStreamingParameters.HashType.SHA256)
+            .setCiphertextSegmentSizeBytes(128)
+            .build();
+    AesGcmHkdfStreamingKey key16 =
+        AesGcmHkdfStreamingKey.create(
+            parameters16,
+            SecretBytes.copyFrom(
+                Hex.decode("abcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcd"),
+                InsecureSecretKeyAccess.get()));
+    AesGcmHkdfStreamingKey otherKey16 =
+        AesGcmHkdfStreamingKey.create(
+            parameters16,
+            SecretBytes.copyFrom(
+                Hex.decode("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"),
+                InsecureSecretKeyAccess.get()));
+    AesGcmHkdfStreamingKey key32 =
+        AesGcmHkdfStreamingKey.create(
+            parameters32,
+            SecretBytes.copyFrom(
+                Hex.decode("abcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcdefabcd"),
+                InsecureSecretKeyAccess.get()));
+    KeysetHandle fullKeysetHandle =
+        KeysetHandle.newBuilder()
+            .addEntry(KeysetHandle.importKey(key32).withFixedId(41))
+            .addEntry(KeysetHandle.importKey(key16).withFixedId(42).makePrimary())
+            .addEntry(KeysetHandle.importKey(otherKey16).withFixedId(43))
+            .build();
+    StreamingAead fullStreamingAead = fullKeysetHandle.getPrimitive(StreamingAead.class);
+
+    for (AesGcmHkdfStreamingKey key : new AesGcmHkdfStreamingKey[] {key16, otherKey16, key32}) {
+      KeysetHandle singleKeysetHandle =
+          KeysetHandle.newBuilder()
+              .addEntry(KeysetHandle.importKey(key).withFixedId(42).makePrimary())
+              .build();
+      StreamingAead singleStreamingAead = singleKeysetHandle.getPrimitive(StreamingAead.class);
+
+      StreamingTestUtil.testEncryptDecryptDifferentInstances(
+          singleStreamingAead, fullStreamingAead, 0, 1000, 50);
+    }
+  }
+
   @Test
   public void wrongKey_throws() throws Exception {
     AesGcmHkdfStreamingParameters aesGcmHkdfStreamingParameters =
@@ -16,6 +16,8 @@
 
 package com.google.crypto.tink.subtle;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
@@ -29,11 +31,23 @@ import com.google.crypto.tink.streamingaead.AesCtrHmacStreamingParameters.HashTy
 import com.google.crypto.tink.testing.StreamingTestUtil;
 import com.google.crypto.tink.testing.StreamingTestUtil.SeekableByteBufferChannel;
 import com.google.crypto.tink.util.SecretBytes;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
@@ -291,6 +305,207 @@ public class AesCtrHmacStreamingTest {
     StreamingTestUtil.testEncryptDecryptString(createAesCtrHmacStreaming());
   }
 
+  /**
+   * Encrypts with the parallel encrypting stream and channel, and checks that the sequential
+   * decrypting stream returns the plaintext.
+   */
+  @Test
+  public void testParallelEncryption() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    AesCtrHmacStreaming ags = createAesCtrHmacStreaming();
+    byte[] aad = Hex.decode("aabbccddeeff");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int plaintextSize : new int[] {0, 10, 1000, 4000, 20000}) {
+        for (int maxSegmentsInFlight : new int[] {1, 4}) {
+          byte[] plaintext = StreamingTestUtil.generatePlaintext(plaintextSize);
+
+          ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+          try (OutputStream encStream =
+              ags.newParallelEncryptingStream(ciphertext, aad, executor, maxSegmentsInFlight)) {
+            encStream.write(plaintext);
+          }
+          assertArrayEquals(plaintext, decryptWithStream(ags, ciphertext.toByteArray(), aad));
+
+          ciphertext.reset();
+          try (WritableByteChannel encChannel =
+              ags.newParallelEncryptingChannel(
+                  Channels.newChannel(ciphertext), aad, executor, maxSegmentsInFlight)) {
+            ByteBuffer plaintextBuffer = ByteBuffer.wrap(plaintext);
+            while (plaintextBuffer.hasRemaining()) {
+              encChannel.write(plaintextBuffer);
+            }
+          }
+          assertArrayEquals(plaintext, decryptWithStream(ags, ciphertext.toByteArray(), aad));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelEncryption_rejectedByExecutor_throws() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    AesCtrHmacStreaming ags = createAesCtrHmacStreaming();
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    executor.shutdown();
+    OutputStream encStream =
+        ags.newParallelEncryptingStream(
+            new ByteArrayOutputStream(), new byte[0], executor, /* maxSegmentsInFlight= */ 2);
+    assertThrows(
+        IOException.class, () -> encStream.write(StreamingTestUtil.generatePlaintext(10000)));
+  }
+
+  /**
+   * Encrypts with the sequential encrypting stream, and checks that the parallel decrypting stream
+   * and channel return the plaintext.
+   */
+  @Test
+  public void testParallelDecryption() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    AesCtrHmacStreaming ags = createAesCtrHmacStreaming();
+    byte[] aad = Hex.decode("aabbccddeeff");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int plaintextSize : new int[] {0, 10, 1000, 4000, 20000}) {
+        for (int maxSegmentsInFlight : new int[] {1, 4}) {
+          byte[] plaintext = StreamingTestUtil.generatePlaintext(plaintextSize);
+          byte[] ciphertext = encryptWithStream(ags, plaintext, aad);
+
+          ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+          try (InputStream decStream =
+              ags.newParallelDecryptingStream(
+                  new ByteArrayInputStream(ciphertext), aad, executor, maxSegmentsInFlight)) {
+            byte[] chunk = new byte[1000];
+            int read;
+            while ((read = decStream.read(chunk)) != -1) {
+              decrypted.write(chunk, 0, read);
+            }
+          }
+          assertArrayEquals(plaintext, decrypted.toByteArray());
+
+          ByteBuffer decryptedBuffer = ByteBuffer.allocate(plaintextSize);
+          try (ReadableByteChannel decChannel =
+              ags.newParallelDecryptingChannel(
+                  new StreamingTestUtil.ByteBufferChannel(ciphertext),
+                  aad,
+                  executor,
+                  maxSegmentsInFlight)) {
+            int unused;
+            do {
+              unused = decChannel.read(decryptedBuffer);
+            } while (decryptedBuffer.hasRemaining());
+          }
+          assertArrayEquals(plaintext, decryptedBuffer.array());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelDecryption_truncatedCiphertext_throws() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    AesCtrHmacStreaming ags = createAesCtrHmacStreaming();
+    byte[] aad = Hex.decode("aabbccddeeff");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      byte[] plaintext = StreamingTestUtil.generatePlaintext(20000);
+      byte[] ciphertext = encryptWithStream(ags, plaintext, aad);
+      // Cut the ciphertext at a segment boundary, so that the last remaining segment is valid but
+      // is not marked as the last segment.
+      int truncatedSize =
+          ags.getHeaderLength() + ags.getCiphertextSegmentSize() - ags.getCiphertextOffset();
+      byte[] truncated = Arrays.copyOf(ciphertext, truncatedSize);
+      InputStream decStream =
+          ags.newParallelDecryptingStream(
+              new ByteArrayInputStream(truncated), aad, executor, /* maxSegmentsInFlight= */ 4);
+      byte[] chunk = new byte[plaintext.length];
+      assertThrows(IOException.class, () -> decStream.read(chunk));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Reads at many positions from several threads, and checks that the positional reads return the
+   * plaintext and do not change the position of the channel.
+   */
+  @Test
+  public void testPositionalReadsFromSeveralThreads() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    AesCtrHmacStreaming ags = createAesCtrHmacStreaming();
+    byte[] aad = Hex.decode("aabbccddeeff");
+    byte[] plaintext = StreamingTestUtil.generatePlaintext(20000);
+    byte[] ciphertext = encryptWithStream(ags, plaintext, aad);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int maxCachedSegments : new int[] {0, 2}) {
+        PositionalSeekableByteChannel decChannel =
+            ags.newSeekableDecryptingChannel(
+                new SeekableByteBufferChannel(ByteBuffer.wrap(ciphertext)),
+                aad,
+                maxCachedSegments);
+        decChannel.position(1234);
+        List<Future<?>> reads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          int firstStart = 101 * i;
+          reads.add(
+              executor.submit(
+                  () -> {
+                    for (int start = firstStart; start < plaintext.length; start += 997) {
+                      ByteBuffer dst = ByteBuffer.allocate(500);
+                      int read = decChannel.read(dst, start);
+                      assertEquals(Math.min(500, plaintext.length - start), read);
+                      assertArrayEquals(
+                          Arrays.copyOfRange(plaintext, start, start + read),
+                          Arrays.copyOf(dst.array(), read));
+                    }
+                    return null;
+                  }));
+        }
+        for (Future<?> read : reads) {
+          read.get();
+        }
+        assertEquals(1234, decChannel.position());
+        assertEquals(-1, decChannel.read(ByteBuffer.allocate(1), plaintext.length));
+        decChannel.close();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static byte[] encryptWithStream(StreamingAead ags, byte[] plaintext, byte[] aad)
+      throws Exception {
+    ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+    try (OutputStream encStream = ags.newEncryptingStream(ciphertext, aad)) {
+      encStream.write(plaintext);
+    }
+    return ciphertext.toByteArray();
+  }
+
+  private static byte[] decryptWithStream(StreamingAead ags, byte[] ciphertext, byte[] aad)
+      throws Exception {
+    ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+    try (InputStream decStream =
+        ags.newDecryptingStream(new ByteArrayInputStream(ciphertext), aad)) {
+      byte[] chunk = new byte[1000];
+      int read;
+      while ((read = decStream.read(chunk)) != -1) {
+        plaintext.write(chunk, 0, read);
+      }
+    }
+    return plaintext.toByteArray();
+  }
+
   /** Test encryption with a simulated ciphertext channel, which has only a limited capacity. */
   @Test
   public void testEncryptLimitedCiphertextChannel() throws Exception {
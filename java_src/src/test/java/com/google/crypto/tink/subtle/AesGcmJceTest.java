@@ -36,11 +36,13 @@ import com.google.crypto.tink.testing.WycheproofTestUtil;
 import com.google.crypto.tink.util.SecretBytes;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.Security;
 import java.util.Arrays;
 import java.util.HashSet;
 import javax.annotation.Nullable;
+import javax.crypto.ShortBufferException;
 import org.conscrypt.Conscrypt;
 import org.junit.Assume;
 import org.junit.Before;
@@ -93,6 +95,63 @@ public class AesGcmJceTest {
     }
   }
 
+  @Test
+  public void testByteBufferEncryptDecrypt() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+    Assume.assumeFalse(TestUtil.isAndroid()); // Some Android versions don't support AAD.
+
+    byte[] aad = generateAad();
+    for (int keySize : keySizeInBytes) {
+      AesGcmJce gcm = new AesGcmJce(Random.randBytes(keySize));
+      for (int messageSize = 0; messageSize < 75; messageSize++) {
+        byte[] message = Random.randBytes(messageSize);
+        ByteBuffer plaintext = ByteBuffer.allocateDirect(messageSize);
+        plaintext.put(message).flip();
+        ByteBuffer ciphertext = ByteBuffer.allocateDirect(messageSize + 28);
+        gcm.encrypt(plaintext, ByteBuffer.wrap(aad), ciphertext);
+        assertThat(plaintext.hasRemaining()).isFalse();
+        assertThat(ciphertext.hasRemaining()).isFalse();
+
+        ciphertext.flip();
+        byte[] ciphertextBytes = new byte[ciphertext.remaining()];
+        ciphertext.duplicate().get(ciphertextBytes);
+        assertArrayEquals(message, gcm.decrypt(ciphertextBytes, aad));
+
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(messageSize);
+        gcm.decrypt(ciphertext, ByteBuffer.wrap(aad), decrypted);
+        assertThat(ciphertext.hasRemaining()).isFalse();
+        decrypted.flip();
+        assertThat(decrypted).isEqualTo(ByteBuffer.wrap(message));
+      }
+    }
+  }
+
+  @Test
+  public void testByteBufferEncrypt_outputTooSmall_throws() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+
+    AesGcmJce gcm = new AesGcmJce(Random.randBytes(16));
+    ByteBuffer plaintext = ByteBuffer.wrap(Random.randBytes(10));
+    ByteBuffer ciphertext = ByteBuffer.allocate(10 + 27);
+    assertThrows(ShortBufferException.class, () -> gcm.encrypt(plaintext, null, ciphertext));
+    assertThat(plaintext.position()).isEqualTo(0);
+    assertThat(ciphertext.position()).isEqualTo(0);
+  }
+
+  @Test
+  public void testByteBufferDecrypt_modifiedCiphertext_doesNotMovePositions() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+
+    AesGcmJce gcm = new AesGcmJce(Random.randBytes(16));
+    byte[] ciphertextBytes = gcm.encrypt(Random.randBytes(20), null);
+    ciphertextBytes[ciphertextBytes.length - 1] ^= 1;
+    ByteBuffer ciphertext = ByteBuffer.wrap(ciphertextBytes);
+    ByteBuffer plaintext = ByteBuffer.allocate(20);
+    assertThrows(GeneralSecurityException.class, () -> gcm.decrypt(ciphertext, null, plaintext));
+    assertThat(ciphertext.position()).isEqualTo(0);
+    assertThat(plaintext.position()).isEqualTo(0);
+  }
+
   @Test
   public void testEncryptWithAad_shouldFailOnAndroid19OrOlder() throws Exception {
     Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
@@ -487,6 +487,113 @@ public class AesSivTest {
         .isEqualTo(Hex.decode(""));
   }
 
+  @Test
+  public void testBatchEncrypt_sameAsSingleEncrypt() throws GeneralSecurityException {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    AesSiv daead = new AesSiv(Random.randBytes(64));
+    byte[] associatedData = Random.randBytes(20);
+    byte[][] plaintexts = new byte[40][];
+    for (int i = 0; i < plaintexts.length; i++) {
+      plaintexts[i] = Random.randBytes(i);
+    }
+
+    byte[][] ciphertexts = daead.encryptDeterministically(plaintexts, associatedData);
+
+    assertThat(ciphertexts).hasLength(plaintexts.length);
+    for (int i = 0; i < plaintexts.length; i++) {
+      assertThat(ciphertexts[i])
+          .isEqualTo(daead.encryptDeterministically(plaintexts[i], associatedData));
+    }
+    byte[][] decrypted = daead.decryptDeterministically(ciphertexts, associatedData);
+    for (int i = 0; i < plaintexts.length; i++) {
+      assertThat(decrypted[i]).isEqualTo(plaintexts[i]);
+    }
+  }
+
+  @Test
+  public void testBatchDecrypt_withOneModifiedCiphertext_throws() throws GeneralSecurityException {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    AesSiv daead = new AesSiv(Random.randBytes(64));
+    byte[] associatedData = Random.randBytes(20);
+    byte[][] ciphertexts =
+        daead.encryptDeterministically(
+            new byte[][] {Random.randBytes(10), Random.randBytes(20), Random.randBytes(30)},
+            associatedData);
+    ciphertexts[1][5] ^= 1;
+
+    assertThrows(
+        AEADBadTagException.class,
+        () -> daead.decryptDeterministically(ciphertexts, associatedData));
+  }
+
+  @Test
+  public void testBatchEncrypt_withTinkPrefix() throws GeneralSecurityException {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    AesSivParameters parameters =
+        AesSivParameters.builder()
+            .setKeySizeBytes(64)
+            .setVariant(AesSivParameters.Variant.TINK)
+            .build();
+    SecretBytes keyBytes =
+        SecretBytes.copyFrom(
+            Hex.decode(
+                "000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f"
+                    + "202122232425262728292a2b2c2d2e2f303132333435363738393a3b3c3d3e3f"),
+            InsecureSecretKeyAccess.get());
+    AesSivKey key =
+        AesSivKey.builder()
+            .setParameters(parameters)
+            .setKeyBytes(keyBytes)
+            .setIdRequirement(0x44556677)
+            .build();
+    AesSiv daead = (AesSiv) AesSiv.create(key);
+
+    byte[][] plaintexts = new byte[][] {Hex.decode(""), Hex.decode("")};
+    byte[][] ciphertexts = daead.encryptDeterministically(plaintexts, Hex.decode("FF"));
+
+    assertThat(ciphertexts[0]).isEqualTo(Hex.decode("01445566771BC49C6A894EF5744A0A01D46608CBCC"));
+    assertThat(ciphertexts[1]).isEqualTo(ciphertexts[0]);
+    assertThat(daead.decryptDeterministically(ciphertexts, Hex.decode("FF"))[1]).isEmpty();
+  }
+
+  @Test
+  public void testConcurrentUse_works() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+    AesSiv daead = new AesSiv(Random.randBytes(64));
+    byte[] associatedData = Random.randBytes(20);
+    byte[] plaintext = Random.randBytes(100);
+    byte[] expected = daead.encryptDeterministically(plaintext, associatedData);
+    Thread[] threads = new Thread[8];
+    boolean[] failed = new boolean[threads.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int index = t;
+      threads[t] =
+          new Thread(
+              () -> {
+                try {
+                  for (int i = 0; i < 200; i++) {
+                    byte[] ciphertext = daead.encryptDeterministically(plaintext, associatedData);
+                    if (!Arrays.equals(ciphertext, expected)
+                        || !Arrays.equals(
+                            daead.decryptDeterministically(ciphertext, associatedData),
+                            plaintext)) {
+                      failed[index] = true;
+                    }
+                  }
+                } catch (GeneralSecurityException e) {
+                  failed[index] = true;
+                }
+              });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (boolean f : failed) {
+      assertThat(f).isFalse();
+    }
+  }
+
   @Test
   public void testKeySize32_throws() throws GeneralSecurityException {
     AesSivParameters parameters =
@@ -33,19 +33,28 @@ import com.google.crypto.tink.testing.WycheproofTestUtil;
 import com.google.crypto.tink.util.SecretBytes;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.util.Arrays;
 import java.util.HashSet;
 import javax.crypto.AEADBadTagException;
+import javax.crypto.ShortBufferException;
 import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 /** Unit tests for ChaCha20Poly1305. */
 @RunWith(JUnit4.class)
 public class ChaCha20Poly1305Test {
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
   private static final int KEY_SIZE = 32;
 
   public Aead createInstance(final byte[] key) throws GeneralSecurityException {
@@ -376,4 +385,79 @@ public class ChaCha20Poly1305Test {
         Hex.decode("009988776699e23ec48985bccdeeab60f13acac27dec0968801e9f6eded69d807522");
     assertThat(aead.decrypt(fixedCiphertext, associatedData)).isEqualTo(plaintext);
   }
+
+  @Test
+  public void testByteBufferEncryptDecrypt() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    Aead aead = createInstance(Random.randBytes(KEY_SIZE));
+    for (int i = 0; i < 100; i++) {
+      byte[] message = Random.randBytes(i);
+      byte[] aad = Random.randBytes(i);
+      ByteBuffer plaintext = ByteBuffer.allocateDirect(i);
+      plaintext.put(message).flip();
+      ByteBuffer ciphertext = ByteBuffer.allocateDirect(i + 28);
+      aead.encrypt(plaintext, ByteBuffer.wrap(aad), ciphertext);
+      assertThat(plaintext.hasRemaining()).isFalse();
+      assertThat(ciphertext.hasRemaining()).isFalse();
+
+      ciphertext.flip();
+      byte[] ciphertextBytes = new byte[ciphertext.remaining()];
+      ciphertext.duplicate().get(ciphertextBytes);
+      assertArrayEquals(message, aead.decrypt(ciphertextBytes, aad));
+
+      ByteBuffer decrypted = ByteBuffer.allocateDirect(i);
+      aead.decrypt(ciphertext, ByteBuffer.wrap(aad), decrypted);
+      assertThat(ciphertext.hasRemaining()).isFalse();
+      decrypted.flip();
+      assertThat(decrypted).isEqualTo(ByteBuffer.wrap(message));
+    }
+  }
+
+  @Test
+  public void testByteBufferEncrypt_outputTooSmall_throws() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    Aead aead = createInstance(Random.randBytes(KEY_SIZE));
+    ByteBuffer plaintext = ByteBuffer.wrap(Random.randBytes(10));
+    ByteBuffer ciphertext = ByteBuffer.allocate(10 + 28 - 1);
+    assertThrows(ShortBufferException.class, () -> aead.encrypt(plaintext, null, ciphertext));
+    assertThat(plaintext.position()).isEqualTo(0);
+    assertThat(ciphertext.position()).isEqualTo(0);
+  }
+
+  @Test
+  public void testByteBufferEncrypt_plaintextTooLong_throws() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    Aead aead = createInstance(Random.randBytes(KEY_SIZE));
+    // A sparse file, so that the plaintext does not need 2 GB of memory.
+    File file = tmpFolder.newFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(Integer.MAX_VALUE - 10);
+      ByteBuffer plaintext =
+          raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, Integer.MAX_VALUE - 10);
+      ByteBuffer ciphertext = ByteBuffer.allocate(100);
+
+      GeneralSecurityException e =
+          assertThrows(
+              GeneralSecurityException.class, () -> aead.encrypt(plaintext, null, ciphertext));
+      assertThat(e).hasMessageThat().contains("plaintext too long");
+      assertThat(ciphertext.position()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testByteBufferDecrypt_modifiedCiphertext_doesNotMovePositions() throws Exception {
+    Assume.assumeFalse(TinkFips.useOnlyFips());
+
+    Aead aead = createInstance(Random.randBytes(KEY_SIZE));
+    byte[] ciphertextBytes = aead.encrypt(Random.randBytes(20), null);
+    ciphertextBytes[ciphertextBytes.length - 1] ^= 1;
+    ByteBuffer ciphertext = ByteBuffer.wrap(ciphertextBytes);
+    ByteBuffer plaintext = ByteBuffer.allocate(20);
+    assertThrows(GeneralSecurityException.class, () -> aead.decrypt(ciphertext, null, plaintext));
+    assertThat(ciphertext.position()).isEqualTo(0);
+    assertThat(plaintext.position()).isEqualTo(0);
+  }
 }
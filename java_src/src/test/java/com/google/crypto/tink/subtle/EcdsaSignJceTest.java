@@ -90,6 +90,30 @@ public class EcdsaSignJceTest {
     assertTrue(verifier.verify(signature));
   }
 
+  @Test
+  public void testSignManyTimesWithSameInstance() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+
+    ECParameterSpec ecParams = EllipticCurves.getNistP256Params();
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+    keyGen.initialize(ecParams);
+    KeyPair keyPair = keyGen.generateKeyPair();
+    ECPublicKey pub = (ECPublicKey) keyPair.getPublic();
+    ECPrivateKey priv = (ECPrivateKey) keyPair.getPrivate();
+
+    // The signer reuses its Signature, so each signature must only cover its own message.
+    EcdsaSignJce signer = new EcdsaSignJce(priv, HashType.SHA256, EcdsaEncoding.DER);
+    for (int i = 0; i < 10; i++) {
+      byte[] message = Random.randBytes(i);
+      byte[] signature = signer.sign(message);
+
+      Signature verifier = Signature.getInstance("SHA256WithECDSA");
+      verifier.initVerify(pub);
+      verifier.update(message);
+      assertTrue(verifier.verify(signature));
+    }
+  }
+
   @Test
   public void testConstructorExceptions() throws Exception {
     Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
@@ -16,6 +16,7 @@
 
 package com.google.crypto.tink.subtle;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
@@ -305,6 +306,65 @@ public class EcdsaVerifyJceTest {
     }
   }
 
+  @Test
+  public void testVerifyAfterInvalidSignature() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+    keyGen.initialize(EllipticCurves.getNistP256Params());
+    KeyPair keyPair = keyGen.generateKeyPair();
+    ECPublicKey pub = (ECPublicKey) keyPair.getPublic();
+    ECPrivateKey priv = (ECPrivateKey) keyPair.getPrivate();
+
+    EcdsaSignJce signer = new EcdsaSignJce(priv, HashType.SHA256, EcdsaEncoding.DER);
+    EcdsaVerifyJce verifier = new EcdsaVerifyJce(pub, HashType.SHA256, EcdsaEncoding.DER);
+    byte[] message = "Hello".getBytes("UTF-8");
+    byte[] signature = signer.sign(message);
+
+    // Failed verifications must not leave state behind in the reused Signature.
+    for (final BytesMutation mutation : TestUtil.generateMutations(signature)) {
+      assertThrows(
+          GeneralSecurityException.class, () -> verifier.verify(mutation.value, message));
+      verifier.verify(signature, message);
+    }
+  }
+
+  @Test
+  public void testVerifyBatch() throws Exception {
+    Assume.assumeTrue(!TinkFips.useOnlyFips() || TinkFipsUtil.fipsModuleAvailable());
+
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+    keyGen.initialize(EllipticCurves.getNistP256Params());
+    KeyPair keyPair = keyGen.generateKeyPair();
+    ECPublicKey pub = (ECPublicKey) keyPair.getPublic();
+    ECPrivateKey priv = (ECPrivateKey) keyPair.getPrivate();
+
+    EcdsaEncoding[] encodings = new EcdsaEncoding[] {EcdsaEncoding.IEEE_P1363, EcdsaEncoding.DER};
+    for (EcdsaEncoding encoding : encodings) {
+      EcdsaSignJce signer = new EcdsaSignJce(priv, HashType.SHA256, encoding);
+      EcdsaVerifyJce verifier = new EcdsaVerifyJce(pub, HashType.SHA256, encoding);
+
+      byte[][] messages = new byte[5][];
+      byte[][] signatures = new byte[5][];
+      for (int i = 0; i < messages.length; i++) {
+        messages[i] = Random.randBytes(10 * i);
+        signatures[i] = signer.sign(messages[i]);
+      }
+      // Signature of another message.
+      signatures[1] = signatures[2];
+      // Truncated signature.
+      signatures[3] = Arrays.copyOf(signatures[3], signatures[3].length - 1);
+
+      assertArrayEquals(
+          new boolean[] {true, false, true, false, true},
+          verifier.verifyBatch(signatures, messages));
+      assertArrayEquals(new boolean[0], verifier.verifyBatch(new byte[0][], new byte[0][]));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> verifier.verifyBatch(signatures, new byte[4][]));
+    }
+  }
+
   @Test
   public void testFailIfFipsModuleNotAvailable() throws Exception {
     Assume.assumeTrue(TinkFips.useOnlyFips() && !TinkFipsUtil.fipsModuleAvailable());
@@ -30,6 +30,7 @@ import com.google.crypto.tink.aead.AesCtrHmacAeadParameters;
 import com.google.crypto.tink.aead.AesCtrHmacAeadParameters.HashType;
 import com.google.crypto.tink.aead.AesCtrHmacAeadParameters.Variant;
 import com.google.crypto.tink.util.SecretBytes;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.Arrays;
@@ -443,6 +444,38 @@ public class EncryptThenAuthenticateTest {
     }
   }
 
+  @Test
+  public void byteBufferEncryptDecrypt_works() throws Exception {
+    Aead aead = getAead(Random.randBytes(16), Random.randBytes(16), 16, 16, "HMACSHA256");
+    byte[] plaintext = Random.randBytes(1001);
+    byte[] aad = Random.randBytes(13);
+    ByteBuffer ciphertext = ByteBuffer.allocateDirect(1001 + 32);
+    aead.encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(aad), ciphertext);
+    assertThat(ciphertext.hasRemaining()).isFalse();
+    ciphertext.flip();
+    byte[] ciphertextBytes = new byte[ciphertext.remaining()];
+    ciphertext.duplicate().get(ciphertextBytes);
+    assertArrayEquals(plaintext, aead.decrypt(ciphertextBytes, aad));
+
+    ByteBuffer decrypted = ByteBuffer.allocateDirect(1001);
+    aead.decrypt(ciphertext, ByteBuffer.wrap(aad), decrypted);
+    decrypted.flip();
+    assertThat(decrypted).isEqualTo(ByteBuffer.wrap(plaintext));
+  }
+
+  @Test
+  public void byteBufferDecrypt_bitFlipCiphertext_throws() throws Exception {
+    Aead aead = getAead(Random.randBytes(16), Random.randBytes(16), 16, 16, "HMACSHA256");
+    byte[] aad = Random.randBytes(13);
+    byte[] ciphertext = aead.encrypt(Random.randBytes(100), aad);
+    ciphertext[20] ^= 1;
+    ByteBuffer ciphertextBuffer = ByteBuffer.wrap(ciphertext);
+    assertThrows(
+        GeneralSecurityException.class,
+        () -> aead.decrypt(ciphertextBuffer, ByteBuffer.wrap(aad), ByteBuffer.allocate(100)));
+    assertThat(ciphertextBuffer.position()).isEqualTo(0);
+  }
+
   private Aead getAead(byte[] hmacKey, byte[] encKey, int ivSize, int tagLength, String macAlg)
       throws Exception {
     return EncryptThenAuthenticate.newAesCtrHmac(encKey, ivSize, macAlg, hmacKey, tagLength);